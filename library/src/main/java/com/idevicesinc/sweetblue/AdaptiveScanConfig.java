@@ -0,0 +1,85 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Extendable;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+/**
+ * Settings for the adaptive scan duty cycle, set through {@link BleManagerConfig#adaptiveScan}. During an infinite scan, SweetBlue
+ * counts the advertisements that are new or have changed, and uses that rate to move up and down an ordered list of
+ * {@link #powerLevels}. Higher levels use more scan power and shorter pauses between scans. Lower levels use less power and longer pauses.
+ * <br><br>
+ * A busy window at or above {@link #raiseThreshold} steps up one level right away. Stepping down takes {@link #quietWindowsBeforeLowering} windows in a row
+ * at or below {@link #lowerThreshold}. Because there's a gap between the two thresholds, a rate that sits near either one doesn't flip the mode back and forth.
+ * The controller runs on the update loop's time step, so it behaves the same way under a manual {@link com.idevicesinc.sweetblue.utils.Clock}.
+ * Use {@link BleManager#getTimeInScanPowerModes()} to see how long was spent at each level.
+ */
+@Extendable
+public class AdaptiveScanConfig
+{
+
+    /**
+     * Default is {@link BleScanPower#LOW_POWER}, {@link BleScanPower#MEDIUM_POWER}, {@link BleScanPower#HIGH_POWER}, from lowest to highest level.
+     * {@link BleScanPower#AUTO} shouldn't be used here.
+     */
+    public BleScanPower[] powerLevels = { BleScanPower.LOW_POWER, BleScanPower.MEDIUM_POWER, BleScanPower.HIGH_POWER };
+
+    /**
+     * Default is 1 second. This is the pause between scans at the highest level. Levels in between use a pause between this and {@link #maxPauseInterval}.
+     */
+    public Interval minPauseInterval = Interval.secs(1.0);
+
+    /**
+     * Default is 10 seconds. This is the pause between scans at the lowest level.
+     */
+    public Interval maxPauseInterval = Interval.secs(10.0);
+
+    /**
+     * Default is 5 seconds. This is how much scan time goes into each rate measurement. Time spent paused doesn't count toward it.
+     */
+    public Interval evaluationWindow = Interval.secs(5.0);
+
+    /**
+     * Default is 2.0. A window with at least this many new or changed advertisements per second of scanning steps up one level.
+     */
+    public double raiseThreshold = 2.0;
+
+    /**
+     * Default is 0.2. A window with at most this many new or changed advertisements per second of scanning counts as quiet. This should be lower than {@link #raiseThreshold}.
+     */
+    public double lowerThreshold = 0.2;
+
+    /**
+     * Default is 3. This is how many quiet windows in a row it takes to step down one level.
+     */
+    public int quietWindowsBeforeLowering = 3;
+
+    /**
+     * Default is <code>true</code>. If <code>true</code>, advertisements from already-discovered devices count toward the rate when their contents changed.
+     * Otherwise only newly discovered devices are counted.
+     */
+    public boolean countChangedAdvertisements = true;
+
+    /**
+     * Default is <code>true</code>. If <code>true</code>, an infinite scan starts at the highest level and works its way down. Otherwise it starts at the lowest level.
+     */
+    public boolean startAtHighestLevel = true;
+
+}
@@ -41,6 +41,8 @@ import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCodec;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Percent;
@@ -49,6 +51,11 @@ import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.TimeEstimator;
 import com.idevicesinc.sweetblue.utils.Uuids;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -477,6 +484,15 @@ public final class BleDevice extends BleNode
         m_deviceImpl.setListener_HistoricalDataLoad(listener_nullable);
     }
 
+    /**
+     * Sets a listener that is called when {@link #getSmoothedRssi()} moves by at least {@link BleDeviceConfig#rssiChangeThreshold}
+     * from the last value it reported. Pass <code>null</code> to stop listening.
+     */
+    public final void setListener_RssiChange(@Nullable(Prevalence.NORMAL) final RssiChangeListener listener_nullable)
+    {
+        m_deviceImpl.setListener_RssiChange(listener_nullable);
+    }
+
     /**
      * Returns the connection failure retry count during a retry loop. Basic example use case is to provide a callback to
      * {@link #setListener_Reconnect(DeviceReconnectFilter)} and update your application's UI with this method's return value downstream of your
@@ -561,6 +577,34 @@ public final class BleDevice extends BleNode
         return m_deviceImpl.getDistance();
     }
 
+    /**
+     * Returns the RSSI after running every raw reading through {@link BleDeviceConfig#rssiFilter}. This is the same as
+     * {@link #getRssi()} if no filter is set or no reading has been taken yet.
+     */
+    public final double getSmoothedRssi()
+    {
+        return m_deviceImpl.getSmoothedRssi();
+    }
+
+    /**
+     * Same as {@link #getDistance()}, but computed from {@link #getSmoothedRssi()}, so it doesn't jump around with every reading.
+     */
+    public final Distance getSmoothedDistance()
+    {
+        return m_deviceImpl.getSmoothedDistance();
+    }
+
+    /**
+     * Returns the {@link DeviceSnapshot} this device was restored from when the {@link BleManager} was created, or {@link DeviceSnapshot#NULL}
+     * if it wasn't restored from one.
+     *
+     * @see BleManagerConfig#saveDeviceSnapshots
+     */
+    public final @Nullable(Prevalence.NEVER) DeviceSnapshot getSnapshot()
+    {
+        return m_deviceImpl.getSnapshot();
+    }
+
     /**
      * Returns the calibrated transmission power of the device. If this can't be
      * figured out from the device itself then it backs up to the value provided
@@ -889,6 +933,91 @@ public final class BleDevice extends BleNode
         return m_deviceImpl.getHistoricalDataCount(uuid, range);
     }
 
+    /**
+     * Returns the count, min, max, and sum of every value logged for the given characteristic, as pulled out of each {@link HistoricalData}
+     * by {@link BleNodeConfig#historicalDataValueExtractor}.
+     *
+     * @see #getHistoricalData_aggregate(UUID, EpochTimeRange)
+     */
+    @Advanced
+    public final @Nullable(Prevalence.NEVER) HistoricalDataAggregate getHistoricalData_aggregate(final UUID uuid)
+    {
+        return getHistoricalData_aggregate(uuid, EpochTimeRange.FROM_MIN_TO_MAX);
+    }
+
+    /**
+     * Returns the count, min, max, and sum of the values logged for the given characteristic within the range provided. This is answered
+     * from minute/hour/day rollups that are kept up to date as data is logged, so it doesn't touch the database, and costs about the same
+     * for a range of a year as it does for a range of an hour. The range is resolved to the minute (or coarser, for ranges old enough that
+     * the finer rollups have been dropped).
+     * <br><br>
+     * NOTE: Nothing is rolled up unless {@link BleNodeConfig#historicalDataValueExtractor} is set. Rollups also ignore any
+     * {@link BleNodeConfig.HistoricalDataLogFilter.Please#andLimitLogTo(long)}, so they can include samples that are no longer in the logged data.
+     *
+     * @see BleNodeConfig.HistoricalDataValueExtractor
+     */
+    @Advanced
+    public final @Nullable(Prevalence.NEVER) HistoricalDataAggregate getHistoricalData_aggregate(final UUID uuid, final EpochTimeRange range)
+    {
+        return m_deviceImpl.getHistoricalData_aggregate(uuid, range);
+    }
+
+    /**
+     * Same as {@link #getHistoricalData_aggregate(UUID, EpochTimeRange)}, except the range is split up into buckets of the given size (at least
+     * a minute) which are aligned to UTC, for example for drawing a chart. Only buckets which have data are returned, in chronological order.
+     *
+     * @see BleNodeConfig.HistoricalDataValueExtractor
+     */
+    @Advanced
+    public final @Nullable(Prevalence.NEVER) List<HistoricalDataAggregate> getHistoricalData_series(final UUID uuid, final EpochTimeRange range, final Interval bucketSize)
+    {
+        return m_deviceImpl.getHistoricalData_series(uuid, range, bucketSize);
+    }
+
+    /**
+     * Writes the historical data logged for the given characteristic within the range provided to the given stream, in the compact
+     * format described by {@link HistoricalDataCodec}. Data is streamed out a block at a time, so this is suitable for syncing very large
+     * logs. The stream is not closed. Returns the number of entries written.
+     *
+     * @see #importHistoricalData(UUID, InputStream)
+     */
+    @Advanced
+    public final int exportHistoricalData(final UUID uuid, final EpochTimeRange range, final OutputStream out) throws IOException
+    {
+        return m_deviceImpl.exportHistoricalData(uuid, range, new HistoricalDataCodec.Encoder(out));
+    }
+
+    /**
+     * Same as {@link #exportHistoricalData(UUID, EpochTimeRange, OutputStream)}, but writes to a channel, for example a
+     * {@link java.nio.channels.FileChannel}.
+     */
+    @Advanced
+    public final int exportHistoricalData(final UUID uuid, final EpochTimeRange range, final WritableByteChannel out) throws IOException
+    {
+        return m_deviceImpl.exportHistoricalData(uuid, range, new HistoricalDataCodec.Encoder(out));
+    }
+
+    /**
+     * Reads historical data written by {@link #exportHistoricalData(UUID, EpochTimeRange, OutputStream)} and adds it for the given characteristic,
+     * a block at a time, just like {@link #addHistoricalData(UUID, Iterator)}. The stream is not closed. Returns the number of entries read.
+     * If the stream turns out to be truncated or corrupt, an {@link IOException} is thrown, and any blocks read before that point will
+     * already have been added.
+     */
+    @Advanced
+    public final int importHistoricalData(final UUID uuid, final InputStream in) throws IOException
+    {
+        return m_deviceImpl.importHistoricalData(uuid, new HistoricalDataCodec.Decoder(in));
+    }
+
+    /**
+     * Same as {@link #importHistoricalData(UUID, InputStream)}, but reads from a channel, for example a {@link java.nio.channels.FileChannel}.
+     */
+    @Advanced
+    public final int importHistoricalData(final UUID uuid, final ReadableByteChannel in) throws IOException
+    {
+        return m_deviceImpl.importHistoricalData(uuid, new HistoricalDataCodec.Decoder(in));
+    }
+
     /**
      * Returns <code>true</code> if there is any historical data at all for this device.
      *
@@ -981,7 +1110,7 @@ public final class BleDevice extends BleNode
     }
 
     /**
-     * Same as {@link #addHistoricalData(UUID, byte[], EpochTime)} but uses {@link System#currentTimeMillis()} for the timestamp.
+     * Same as {@link #addHistoricalData(UUID, byte[], EpochTime)} but uses {@link BleManagerConfig#clock} for the timestamp.
      *
      * @see BleNodeConfig.HistoricalDataLogFilter
      * @see BleNodeConfig.DefaultHistoricalDataLogFilter
@@ -989,7 +1118,7 @@ public final class BleDevice extends BleNode
     @Advanced
     public final void addHistoricalData(final UUID uuid, final byte[] data)
     {
-        addHistoricalData(uuid, data, new EpochTime());
+        addHistoricalData(uuid, data, m_deviceImpl.getIManager().getClock().now());
     }
 
     /**
@@ -3534,6 +3663,17 @@ public final class BleDevice extends BleNode
         return m_deviceImpl.performTransaction(txn);
     }
 
+    /**
+     * Runs the steps of the given {@link BleOpChain} one after another, starting each step in the same pass through the task queue that
+     * finishes the one before it. Use {@link BleOpChain#setListener(OpChainListener)} to hear when the whole chain is done.
+     * <br><br>
+     * If called from {@link BleTransaction#runChain(BleOpChain)}, every step is part of that transaction.
+     */
+    public final void runChain(final BleOpChain chain)
+    {
+        m_deviceImpl.runChain(chain);
+    }
+
     /**
      * Returns the effective MTU size for a write. BLE has an overhead when reading and writing, so that eats out of the MTU size.
      * The write overhead is defined via {@link BleManagerConfig#GATT_WRITE_MTU_OVERHEAD}. The method simply returns the MTU size minus
@@ -87,6 +87,11 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
      */
     public static final int DEFAULT_RSSI_MAX = -30;
 
+    /**
+     * Default fallback value for {@link #rssiChangeThreshold}.
+     */
+    public static final double DEFAULT_RSSI_CHANGE_THRESHOLD = 2.0;
+
     /**
      * Default value for {@link #defaultTxPower}.
      */
@@ -508,6 +513,41 @@ public class BleDeviceConfig extends BleNodeConfig implements Cloneable
     @Nullable(Prevalence.NORMAL)
     public Integer rssi_max = DEFAULT_RSSI_MAX;
 
+    /**
+     * Default is <code>null</code> (treated as {@link RssiFilter#NONE}) - the filter used to smooth raw RSSI readings from scans and
+     * {@link BleDevice#readRssi()} into {@link BleDevice#getSmoothedRssi()} and {@link BleDevice#getSmoothedDistance()}.
+     * {@link BleDevice#getRssi()} always stays the latest raw reading.
+     *
+     * @see RssiFilter#ewma(double)
+     * @see RssiFilter#median(int)
+     * @see RssiFilter#kalman(double, double)
+     */
+    @Nullable(Prevalence.NORMAL)
+    public RssiFilter rssiFilter = null;
+
+    /**
+     * Default is {@link #DEFAULT_RSSI_CHANGE_THRESHOLD} - the number of dBm that {@link BleDevice#getSmoothedRssi()} has to move from
+     * the value last reported before {@link RssiChangeListener} is called again. The first smoothed value is always reported.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public Double rssiChangeThreshold = DEFAULT_RSSI_CHANGE_THRESHOLD;
+
+    /**
+     * Default is <code>null</code>. If set, SweetBlue raises this device's connection priority, MTU, and PHY while it has a lot of reads and writes
+     * going on, and lowers them again once it goes quiet. See {@link LinkGovernorConfig} for details. Calls you make yourself to
+     * {@link BleDevice#setConnectionPriority(BleConnectionPriority)} and the like still work, but the governor may change the link again later.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public LinkGovernorConfig linkGovernor = null;
+
+    /**
+     * Default is <code>null</code> (treated as <code>0</code>) - When more devices want to reconnect than
+     * {@link BleManagerConfig#maxConcurrentReconnects} allows, devices with a higher priority are let through first. Devices with the same
+     * priority are let through in order of how recently they were last connected.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public Integer reconnectPriority = null;
+
     /**
      * Default is instance of {@link DefaultBondFilter}.
      *
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import android.annotation.SuppressLint;
@@ -52,6 +53,7 @@ import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.GattDatabase;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
 import com.idevicesinc.sweetblue.utils.P_Const;
 import com.idevicesinc.sweetblue.utils.Utils;
 
@@ -214,6 +216,81 @@ public final class BleManager
 		return m_managerImpl.getConfigClone();
 	}
 
+	/**
+	 * Returns a copy of every {@link BleMetric} recorded so far. Nothing is recorded unless {@link BleManagerConfig#enableMetrics}
+	 * is <code>true</code>, so while it's <code>false</code>, every value in the returned snapshot will be <code>0</code>.
+	 */
+	public final @Nullable(Prevalence.NEVER) MetricsSnapshot getMetricsSnapshot()
+	{
+		return m_managerImpl.getMetricsSnapshot();
+	}
+
+	/**
+	 * Returns how long the current {@link BleManagerConfig#adaptiveScan} controller has spent at each {@link BleScanPower}, counting both
+	 * scanning and the pauses between scans. The map is empty if adaptive scanning isn't enabled. It starts over whenever
+	 * {@link BleManagerConfig#adaptiveScan} is set to a different instance.
+	 */
+	public final @Nullable(Prevalence.NEVER) Map<BleScanPower, Interval> getTimeInScanPowerModes()
+	{
+		return m_managerImpl.getTimeInScanPowerModes();
+	}
+
+	/**
+	 * Sets every {@link BleMetric} back to <code>0</code>.
+	 */
+	public final void resetMetrics()
+	{
+		m_managerImpl.resetMetrics();
+	}
+
+	/**
+	 * Returns every event still held in the trace buffer as Chrome trace-event JSON, which can be saved to a file and opened in
+	 * Perfetto (ui.perfetto.dev) or chrome://tracing. Each device shows up as its own process, named with its mac address. Nothing
+	 * is recorded unless {@link BleManagerConfig#enableTracing} is <code>true</code>, in which case the trace will be empty.
+	 */
+	public final @Nullable(Prevalence.NEVER) String getTraceJson()
+	{
+		return m_managerImpl.getTraceJson();
+	}
+
+	/**
+	 * Throws away every event recorded so far for {@link #getTraceJson()}.
+	 */
+	public final void clearTrace()
+	{
+		m_managerImpl.clearTrace();
+	}
+
+	/**
+	 * Blocks until every read and notification queued up so far by {@link BleManagerConfig#historicalDataIngestionBufferSize} has been
+	 * logged as historical data. Returns right away if the buffer is disabled.
+	 */
+	@Advanced
+	public final void flushHistoricalData()
+	{
+		m_managerImpl.flushHistoricalData();
+	}
+
+	/**
+	 * Overload of {@link #startOtaCampaign(Iterable, OtaImageProvider, OtaCampaignConfig, OtaCampaignListener)} which uses a default {@link OtaCampaignConfig}.
+	 */
+	public final @Nullable(Prevalence.NEVER) OtaCampaign startOtaCampaign(final Iterable<BleDevice> devices, final OtaImageProvider provider, @Nullable(Prevalence.NORMAL) final OtaCampaignListener listener)
+	{
+		return startOtaCampaign(devices, provider, null, listener);
+	}
+
+	/**
+	 * Updates every device in <code>devices</code>, using the {@link BleTransaction.Ota} each one gets from <code>provider</code>. Devices are
+	 * connected as needed, run a few at a time, and retried if they fail, as set by <code>config</code>. While the campaign runs, OTA reads and
+	 * writes take turns with the rest of the task queue rather than starving it. See {@link OtaCampaignConfig} for details.
+	 * <br><br>
+	 * Use the returned {@link OtaCampaign} to follow overall progress, or to cancel.
+	 */
+	public final @Nullable(Prevalence.NEVER) OtaCampaign startOtaCampaign(final Iterable<BleDevice> devices, final OtaImageProvider provider, @Nullable(Prevalence.NORMAL) final OtaCampaignConfig config, @Nullable(Prevalence.NORMAL) final OtaCampaignListener listener)
+	{
+		return m_managerImpl.startOtaCampaign(devices, provider, config, listener);
+	}
+
 
 	/**
 	 * Returns whether the manager is in any of the provided states.
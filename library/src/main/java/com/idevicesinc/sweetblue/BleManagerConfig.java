@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import android.bluetooth.BluetoothAdapter;
 import android.content.Context;
@@ -41,6 +42,8 @@ import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothManager;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothServer;
+import com.idevicesinc.sweetblue.utils.Clock;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBackPressure;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.NativeScanFilter;
 import com.idevicesinc.sweetblue.utils.ReflectionUuidNameMap;
@@ -65,6 +68,23 @@ public class BleManagerConfig extends BleDeviceConfig
      */
     public static final double DEFAULT_AUTO_SCAN_DELAY_AFTER_RESUME = 0.5;
 
+    /**
+     * Default value for {@link #maxConcurrentReconnects}.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_RECONNECTS = 0;
+
+    /**
+     * How often, in seconds, changed {@link DeviceSnapshot}s are written to disk when {@link #saveDeviceSnapshots} is <code>true</code>.
+     */
+    public static final double DEFAULT_SNAPSHOT_WRITE_INTERVAL = 2.0;
+
+    /**
+     * How old, in seconds, a device's saved {@link DeviceSnapshot} has to be before RSSI or scan record updates alone get it rewritten,
+     * when {@link #saveDeviceSnapshots} is <code>true</code>. Other changes, like a new name or MTU, are written on the next
+     * {@link #DEFAULT_SNAPSHOT_WRITE_INTERVAL}.
+     */
+    public static final double DEFAULT_SNAPSHOT_REFRESH_INTERVAL = 30.0;
+
     /**
      * Default value for {@link #autoUpdateRate}.
      */
@@ -137,9 +157,37 @@ public class BleManagerConfig extends BleDeviceConfig
     /**
      * Controls if we should record/print information about the time taken by the update loop in
      * BleManager and BleDevice
+     *
+     * @deprecated Use {@link #enableMetrics} instead. Setting this to anything other than {@link TimeTrackerSetting#Off}
+     * now simply turns on {@link #enableMetrics}.
      */
+    @Deprecated
     public TimeTrackerSetting timeTrackerSetting = TimeTrackerSetting.Off;
 
+    /**
+     * Default is <code>false</code> - If <code>true</code>, the library records counters, gauges and timing histograms for the update loop,
+     * the task queue, scan processing, and callback dispatch. See {@link BleMetric} for the full list, and
+     * {@link BleManager#getMetricsSnapshot()} to read them. When <code>false</code>, recording costs a single field check.
+     */
+    public boolean enableMetrics = false;
+
+    /**
+     * Default is <code>false</code> - If <code>true</code>, the library records a span for every stage of each task's life (created,
+     * queued, armed, executing, and how it ended), along with native callbacks, callback dispatch, update loop ticks, and scan
+     * ingestion, tagged with the device's mac address. Use {@link BleManager#getTraceJson()} to export them as Chrome trace-event
+     * JSON, which can be opened in Perfetto or chrome://tracing. When <code>false</code>, recording costs a single field check.
+     *
+     * @see #traceBufferSize
+     */
+    public boolean enableTracing = false;
+
+    /**
+     * Default is <code>8192</code> - The number of events kept when {@link #enableTracing} is <code>true</code> (rounded up to the next
+     * power of two). Once full, the oldest events are overwritten. Changing this, or {@link #enableTracing} through
+     * {@link BleManager#setConfig(BleManagerConfig)} throws away the events recorded so far.
+     */
+    public int traceBufferSize = 8192;
+
     /**
      * Default is {@link DefaultLogger} - which prints the log statements to Android's logcat. If you want to
      * pipe the log statements elsewhere, create a class which implements {@link SweetLogger}, and set this field
@@ -261,6 +309,18 @@ public class BleManagerConfig extends BleDeviceConfig
     @Advanced
     public ThreadHandler updateHandler = null;
 
+    /**
+     * Default is {@link Clock#SYSTEM}. The source of time for SweetBlue's update loop, posted runnables, task timeouts, reconnect
+     * backoff, and the timestamps of logged {@link com.idevicesinc.sweetblue.utils.HistoricalData}. Set this to a
+     * {@link com.idevicesinc.sweetblue.utils.ManualClock} in unit tests to run long timeouts, reconnect loops, and periodic scans
+     * without waiting on the wall clock. A <code>null</code> value is treated as {@link Clock#SYSTEM}.
+     * <br><br>
+     * Delayed runnables only follow this clock when {@link #updateThreadType} is {@link UpdateThreadType#THREAD} or
+     * {@link UpdateThreadType#USER_CUSTOM}, as Android's {@link android.os.Handler} always uses the system uptime.
+     */
+    @Advanced
+    public Clock clock = Clock.SYSTEM;
+
     /**
      * Default is <code>true</code> - whether all callbacks are posted to the main thread or from SweetBlue's internal
      * thread. If {@link #updateThreadType}=={@link UpdateThreadType#MAIN} then this setting is meaningless because SweetBlue's
@@ -268,6 +328,38 @@ public class BleManagerConfig extends BleDeviceConfig
      */
     public boolean postCallbacksToMainThread = true;
 
+    /**
+     * Default is <code>null</code> - If not <code>null</code>, and {@link #postCallbacksToMainThread} is <code>false</code>, your listeners
+     * are run on this {@link Executor} instead of on SweetBlue's update thread, so a slow listener can't hold up the task queue, scanning,
+     * or callbacks for other devices. Callbacks are split into one serial lane per {@link BleDevice} (plus one for {@link BleManager}-level
+     * events), so callbacks for any given device still run one at a time, and in the order they were posted, no matter how many threads
+     * the executor has.
+     *
+     * @see #callbackLaneCapacity
+     * @see #slowCallbackThreshold
+     */
+    @Advanced
+    @Nullable(Prevalence.NORMAL)
+    public Executor callbackExecutor = null;
+
+    /**
+     * Default is <code>256</code> - The maximum number of callbacks that can be waiting to run in any one lane of {@link #callbackExecutor}.
+     * When a lane is full, a thread of yours posting a callback (for instance by calling into the library from another listener) waits until
+     * the lane has room. SweetBlue's update thread never waits, so one slow listener can't stall the update loop - the lane is allowed to go
+     * over capacity instead (see {@link BleMetric#CALLBACK_LANE_OVERFLOWS}). Nothing is ever dropped or reordered. Set this to <code>0</code>
+     * or less to never wait.
+     */
+    @Advanced
+    public int callbackLaneCapacity = 256;
+
+    /**
+     * Default is <code>50ms</code> - When using {@link #callbackExecutor}, any callback taking longer than this to run is logged as a warning,
+     * and counted in {@link BleMetric#SLOW_CALLBACKS}. Set this to {@link Interval#DISABLED} to turn the check off.
+     */
+    @Advanced
+    @Nullable(Prevalence.NORMAL)
+    public Interval slowCallbackThreshold = Interval.millis(50);
+
     /**
      * Default is <code>true</code> - requires the {@link android.Manifest.permission#WAKE_LOCK} permission in your app's manifest file.
      * It should look like this: {@code <uses-permission android:name="android.permission.WAKE_LOCK" />}
@@ -408,6 +500,76 @@ public class BleManagerConfig extends BleDeviceConfig
     @Advanced
     public Interval delayBetweenTasks = Interval.DISABLED;
 
+    /**
+     * Default is {@value #DEFAULT_MAX_CONCURRENT_RECONNECTS} (no limit) - The maximum number of automatic reconnect attempts (both short and long term) that
+     * can be in flight at once. When BLE turns back on, or the app comes back to the foreground, every reconnecting device will want to connect
+     * at the same time, which can hit the native stack's connection limit, causing every attempt to fail. Devices over this limit wait their turn,
+     * in order of {@link BleDeviceConfig#reconnectPriority}. Explicit calls to {@link BleDevice#connect()} are not affected.
+     * If your app reconnects to many devices at once, a value around <code>4</code> is a good place to start.
+     */
+    @Advanced
+    public int maxConcurrentReconnects = DEFAULT_MAX_CONCURRENT_RECONNECTS;
+
+    /**
+     * Default is <code>false</code> - If <code>true</code>, a compact {@link DeviceSnapshot} of every device that gets discovered or connected (name, last scan record,
+     * RSSI, bond state, MTU, connection priority, and discovered service layout) is kept in {@link android.content.SharedPreferences}. Only devices
+     * whose snapshot changed get written, at most once every {@link #DEFAULT_SNAPSHOT_WRITE_INTERVAL} seconds. The next time the {@link BleManager}
+     * is created, these are restored into its device cache, so {@link BleManager#newDevice(String)} returns a device that can connect right away, and
+     * which renegotiates its MTU and connection priority as soon as it's connected.
+     *
+     * @see BleDevice#getSnapshot()
+     * @see BleManager#clearSharedPreferences()
+     * @see BleMetric#STARTUP_TO_FIRST_READ
+     */
+    @Advanced
+    public boolean saveDeviceSnapshots = false;
+
+    /**
+     * Default is {@link Interval#DISABLED} - If enabled, the delay between failed automatic reconnect attempts uses decorrelated jitter: each delay is
+     * a random value between the delay given by {@link ReconnectFilter.ConnectionLostPlease}, and three times the previous delay, capped at this value.
+     * This keeps devices which failed together from all retrying together.
+     */
+    @Advanced
+    @Nullable(Prevalence.NORMAL)
+    public Interval reconnectBackoffCeiling = Interval.DISABLED;
+
+    /**
+     * Default is <code>0</code> - If greater than zero, successful reads and notifications are queued up in a buffer of this size, and logged
+     * as {@link com.idevicesinc.sweetblue.utils.HistoricalData} by a dedicated writer thread, instead of on the update thread before your callbacks run. The writer commits
+     * whatever has piled up in batches, so a persistent backend writes many samples per transaction. This means
+     * {@link BleNodeConfig#historicalDataLogFilter} gets called on the writer thread (a slow filter holds up the whole queue, but doesn't
+     * block anyone reading historical data), and a read's data may show up in
+     * {@link BleDevice#getHistoricalData_latest(java.util.UUID)} slightly after its callback. Use {@link BleManager#flushHistoricalData()}
+     * to wait for everything queued so far to be written.
+     *
+     * @see #historicalDataBackPressure
+     */
+    @Advanced
+    public int historicalDataIngestionBufferSize = 0;
+
+    /**
+     * Default is {@link HistoricalDataBackPressure#DROP_OLDEST} - What to do when the buffer set by {@link #historicalDataIngestionBufferSize}
+     * is full.
+     */
+    @Advanced
+    @Nullable(Prevalence.NORMAL)
+    public HistoricalDataBackPressure historicalDataBackPressure = HistoricalDataBackPressure.DROP_OLDEST;
+
+    /**
+     * Default is <code>1</code> second - how long {@link BleServer#broadcastNotification(UUID, UUID, com.idevicesinc.sweetblue.utils.FutureData, java.util.Collection, BroadcastListener)}
+     * and {@link BleServer#broadcastIndication(UUID, UUID, com.idevicesinc.sweetblue.utils.FutureData, java.util.Collection, BroadcastListener)} wait for a single client to confirm
+     * it got the value before moving on to the next one. A client which takes longer is reported as {@link OutgoingListener.Status#TIMED_OUT}
+     * for that broadcast, so one slow client can't hold up all the others indefinitely.
+     * <br><br>
+     * Clients are sent to one after the other, in the order given, as Android only allows one outstanding notification per server. So a
+     * slow client still delays everyone after it by up to this long, and a whole broadcast can take up to this times the number of clients.
+     * <br><br>
+     * If set to {@link Interval#INFINITE}, the broadcast waits on each client for as long as it takes (or until it disconnects). If
+     * <code>null</code> or {@link Interval#DISABLED}, {@link BleNodeConfig.DefaultTaskTimeoutRequestFilter#DEFAULT_TASK_TIMEOUT} is used instead.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public Interval broadcastClientTimeout = Interval.secs(1.0);
+
     /**
      * Default is {@link Interval#ZERO} seconds - Only applicable for Lollipop and up (i.e. &gt; 5.0), this is the value given to
      * {@link android.bluetooth.le.ScanSettings.Builder#setReportDelay(long)} so that scan results are "batched" ¯\_(ツ)_/¯. It's not clear from source
@@ -425,6 +587,44 @@ public class BleManagerConfig extends BleDeviceConfig
     @Nullable(Prevalence.RARE)
     public Interval scanReportDelay = Interval.ZERO;
 
+    /**
+     * Default is {@link Interval#DISABLED} - Only applicable for Lollipop and up, and only when {@link BluetoothAdapter#isOffloadedScanBatchingSupported()}
+     * returns <code>true</code>. Set this to the longest you can stand to wait to hear about an advertisement, and SweetBlue will let the controller
+     * batch results in hardware rather than waking the app for each one. The actual report delay is picked each time the native scan is started
+     * (or restarted), somewhere between a quarter of this value and this value, depending on how big recent batches were and how long they took to
+     * get through the update loop. Each batch is taken in as one unit, so a big batch won't trickle out over several update ticks.
+     * <br><br>
+     * The time each advertisement was actually seen is kept, so {@link ScanFilter.ScanEvent#time()} and {@link BleDevice#getLastDiscoveryTime()}
+     * reflect when the device advertised, not when the batch happened to show up.
+     * <br><br>
+     * When this is enabled, it takes the place of {@link #scanReportDelay}, including the automatic {@link Interval#ZERO} used on Pixel phones.
+     */
+    @com.idevicesinc.sweetblue.annotations.Advanced
+    @Nullable(Prevalence.NORMAL)
+    public Interval batchScanLatency = Interval.DISABLED;
+
+    /**
+     * Default is {@link Interval#DISABLED} - If enabled, an advertisement from an already discovered device is dropped right away if its bytes
+     * are identical to the last one that was processed for that device, its RSSI moved less than {@link #duplicateAdvertisementRssiDelta},
+     * and less than this much time has passed since that last one. Dropped advertisements don't go through rediscovery, and don't cause a
+     * {@link DiscoveryListener.LifeCycle#REDISCOVERED} event, but they do still keep the device from being undiscovered, and still update
+     * {@link BleDevice#getLastDiscoveryTime()}. Once this much time has passed, the next advertisement goes through as normal even if it's unchanged,
+     * so you still get a periodic {@link DiscoveryListener.LifeCycle#REDISCOVERED} event for devices that never change what they advertise.
+     * <br><br>
+     * Advertisements are compared by their length and a 64-bit hash, rather than byte for byte. Dropped advertisements are counted in
+     * {@link BleMetric#DUPLICATE_ADVERTISEMENTS_SUPPRESSED}.
+     */
+    @com.idevicesinc.sweetblue.annotations.Advanced
+    @Nullable(Prevalence.NORMAL)
+    public Interval duplicateAdvertisementWindow = Interval.DISABLED;
+
+    /**
+     * Default is <code>5</code> - An otherwise identical advertisement is still processed if the RSSI changed by at least this much (in dBm)
+     * since the last one that was processed. See {@link #duplicateAdvertisementWindow}.
+     */
+    @com.idevicesinc.sweetblue.annotations.Advanced
+    public int duplicateAdvertisementRssiDelta = 5;
+
     /**
      * Default is <code>null</code>, meaning no filtering - all discovered devices will
      * be piped through your {@link DiscoveryListener} instance
@@ -468,6 +668,14 @@ public class BleManagerConfig extends BleDeviceConfig
      */
     public BleScanPower scanPower = BleScanPower.AUTO;
 
+    /**
+     * Default is <code>null</code>. If set, infinite scans no longer use a fixed {@link #scanPower} and {@link #infinitePauseInterval}.
+     * Instead, they move between the power levels and pause lengths of the given {@link AdaptiveScanConfig}, based on how many new or changed
+     * advertisements are coming in. {@link #infiniteScanInterval} is still used for the length of each scan. See {@link AdaptiveScanConfig} for details.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public AdaptiveScanConfig adaptiveScan = null;
+
     /**
      * Default is <code>null</code> - provide an instance here that will be called at the end of {@link BleManager}'s update loop.
      * This might be useful for extension/wrapper libraries or apps that want to tie into the {@link BleManager} instance's existing update loop.
@@ -0,0 +1,321 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+
+/**
+ * Enumeration of every metric recorded by the library when {@link BleManagerConfig#enableMetrics} is <code>true</code>.
+ * The set is fixed, so each metric is registered up-front and recording one is a single array update rather than a
+ * map lookup. Use {@link BleManager#getMetricsSnapshot()} to read the current values.
+ */
+public enum BleMetric
+{
+    //--- Histograms, in nanoseconds
+
+    /**
+     * Total time spent in a single tick of {@link BleManager#update(double, long)}.
+     */
+    UPDATE_LOOP_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent updating the native manager layer in a single tick.
+     */
+    NATIVE_MANAGER_UPDATE_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent updating the task queue in a single tick.
+     */
+    TASK_MANAGER_UPDATE_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent updating all devices in a single tick.
+     */
+    DEVICE_MANAGER_UPDATE_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent updating scan logic in a single tick.
+     */
+    SCAN_MANAGER_UPDATE_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent in {@link BleManagerConfig#updateLoopCallback} in a single tick.
+     */
+    UPDATE_LOOP_CALLBACK_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent updating a single {@link BleDevice}.
+     */
+    DEVICE_UPDATE_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time a task spent sitting in the queue before it started executing.
+     */
+    TASK_QUEUE_WAIT_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time from a task starting to execute until it reached an ending state.
+     */
+    TASK_EXECUTION_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time spent turning a batch of pending scan results into discovered devices.
+     */
+    SCAN_INGESTION_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time from a callback being posted until it started running.
+     */
+    CALLBACK_LATENCY(Kind.HISTOGRAM),
+
+    /**
+     * Time spent running a callback.
+     */
+    CALLBACK_DURATION(Kind.HISTOGRAM),
+
+    /**
+     * Time from the first automatic reconnect attempt being requested, until no reconnect attempts are waiting or in flight.
+     *
+     * @see BleManagerConfig#maxConcurrentReconnects
+     */
+    TIME_TO_ALL_CONNECTED(Kind.HISTOGRAM),
+
+    /**
+     * Time from a read or notification being queued up to be logged as historical data, until it was handed to its backing list.
+     *
+     * @see BleManagerConfig#historicalDataIngestionBufferSize
+     */
+    HISTORICAL_DATA_INGESTION_LAG(Kind.HISTOGRAM),
+
+    /**
+     * Time spent by the historical data writer thread committing a single batch.
+     *
+     * @see BleManagerConfig#historicalDataIngestionBufferSize
+     */
+    HISTORICAL_DATA_COMMIT_TIME(Kind.HISTOGRAM),
+
+    /**
+     * Time from the {@link BleManager} being created until the first successful characteristic read, recorded once per instance.
+     * Compare with and without {@link BleManagerConfig#saveDeviceSnapshots} to see what warm-starting saves.
+     */
+    STARTUP_TO_FIRST_READ(Kind.HISTOGRAM),
+
+    //--- Counters
+
+    /**
+     * Number of ticks of the update loop.
+     */
+    UPDATE_LOOP_TICKS(Kind.COUNTER),
+
+    /**
+     * Number of tasks which started executing.
+     */
+    TASKS_EXECUTED(Kind.COUNTER),
+
+    /**
+     * Number of tasks which ended successfully.
+     */
+    TASKS_SUCCEEDED(Kind.COUNTER),
+
+    /**
+     * Number of tasks which failed, including those that failed immediately.
+     */
+    TASKS_FAILED(Kind.COUNTER),
+
+    /**
+     * Number of tasks which timed out.
+     */
+    TASKS_TIMED_OUT(Kind.COUNTER),
+
+    /**
+     * Number of tasks which were cancelled, interrupted, cleared from the queue, or deemed redundant.
+     */
+    TASKS_CANCELLED(Kind.COUNTER),
+
+    /**
+     * Number of raw scan results received from the native stack.
+     */
+    SCAN_RESULTS_RECEIVED(Kind.COUNTER),
+
+    /**
+     * Number of scan results handed off to device discovery (this includes those later counted in {@link #SCAN_RESULTS_FILTERED}).
+     */
+    SCAN_RESULTS_PROCESSED(Kind.COUNTER),
+
+    /**
+     * Number of scan results rejected before any parsing was done.
+     */
+    SCAN_RESULTS_FILTERED(Kind.COUNTER),
+
+    /**
+     * Number of advertisements dropped because they were the same as the device's last one.
+     *
+     * @see BleManagerConfig#duplicateAdvertisementWindow
+     */
+    DUPLICATE_ADVERTISEMENTS_SUPPRESSED(Kind.COUNTER),
+
+    /**
+     * Number of callbacks posted to user code.
+     */
+    CALLBACKS_DISPATCHED(Kind.COUNTER),
+
+    /**
+     * Number of callbacks run on {@link BleManagerConfig#callbackExecutor} which took longer than {@link BleManagerConfig#slowCallbackThreshold}.
+     */
+    SLOW_CALLBACKS(Kind.COUNTER),
+
+    /**
+     * Number of times a thread posting a callback had to wait because its lane was full.
+     *
+     * @see BleManagerConfig#callbackLaneCapacity
+     */
+    CALLBACK_LANE_WAITS(Kind.COUNTER),
+
+    /**
+     * Number of callbacks the update thread added to a lane which was already full. The update thread never waits for a lane.
+     *
+     * @see BleManagerConfig#callbackLaneCapacity
+     */
+    CALLBACK_LANE_OVERFLOWS(Kind.COUNTER),
+
+    /**
+     * Number of automatic reconnect attempts which were allowed to start.
+     */
+    RECONNECTS_ADMITTED(Kind.COUNTER),
+
+    /**
+     * Number of automatic reconnect attempts which had to wait because {@link BleManagerConfig#maxConcurrentReconnects} was reached.
+     */
+    RECONNECTS_DEFERRED(Kind.COUNTER),
+
+    /**
+     * Number of reads and notifications queued up to be logged as historical data.
+     */
+    HISTORICAL_DATA_ENQUEUED(Kind.COUNTER),
+
+    /**
+     * Number of queued historical data samples written by the writer thread. Sample this over time for throughput.
+     */
+    HISTORICAL_DATA_WRITTEN(Kind.COUNTER),
+
+    /**
+     * Number of historical data samples thrown away because the buffer was full.
+     *
+     * @see BleManagerConfig#historicalDataBackPressure
+     */
+    HISTORICAL_DATA_DROPPED(Kind.COUNTER),
+
+    /**
+     * Number of devices restored into the device cache from {@link DeviceSnapshot}s when the {@link BleManager} was created.
+     *
+     * @see BleManagerConfig#saveDeviceSnapshots
+     */
+    SNAPSHOT_DEVICES_RESTORED(Kind.COUNTER),
+
+    /**
+     * Number of {@link DeviceSnapshot}s written to disk.
+     */
+    SNAPSHOTS_WRITTEN(Kind.COUNTER),
+
+    /**
+     * Number of times a task was run ahead of a waiting OTA read or write, because {@link OtaCampaignConfig#maxConsecutiveOtaTasks} OTA tasks had already run in a row.
+     */
+    OTA_TASKS_DEFERRED(Kind.COUNTER),
+
+    /**
+     * Number of devices whose update succeeded in an {@link OtaCampaign}.
+     */
+    OTA_CAMPAIGN_DEVICES_SUCCEEDED(Kind.COUNTER),
+
+    /**
+     * Number of failed update attempts in an {@link OtaCampaign}, including ones that were retried.
+     */
+    OTA_CAMPAIGN_ATTEMPTS_FAILED(Kind.COUNTER),
+
+    //--- Gauges
+
+    /**
+     * Number of tasks in the queue, as of the last update tick.
+     */
+    TASK_QUEUE_SIZE(Kind.GAUGE),
+
+    /**
+     * Number of devices the manager knows about, as of the last update tick.
+     */
+    DEVICE_COUNT(Kind.GAUGE),
+
+    /**
+     * Number of scan results waiting to be processed, as of the last time they were processed.
+     */
+    PENDING_SCAN_RESULTS(Kind.GAUGE),
+
+    /**
+     * Number of automatic reconnect attempts currently in flight, as of the last update tick.
+     */
+    RECONNECTS_IN_FLIGHT(Kind.GAUGE),
+
+    /**
+     * Number of devices waiting to start an automatic reconnect attempt, as of the last update tick.
+     */
+    RECONNECTS_WAITING(Kind.GAUGE),
+
+    /**
+     * Number of historical data samples waiting for the writer thread, as of the last time one was queued or a batch was taken.
+     */
+    HISTORICAL_DATA_QUEUE_DEPTH(Kind.GAUGE);
+
+
+    /**
+     * The type of value a {@link BleMetric} records.
+     */
+    public enum Kind
+    {
+        /**
+         * A monotonically increasing count. See {@link MetricsSnapshot#getCount(BleMetric)}.
+         */
+        COUNTER,
+
+        /**
+         * A value which is simply overwritten. See {@link MetricsSnapshot#getGauge(BleMetric)}.
+         */
+        GAUGE,
+
+        /**
+         * A distribution of durations, in nanoseconds. See {@link MetricsSnapshot#getHistogram(BleMetric)}.
+         */
+        HISTOGRAM
+    }
+
+
+    private final Kind m_kind;
+
+
+    BleMetric(Kind kind)
+    {
+        m_kind = kind;
+    }
+
+    /**
+     * Returns the type of value this metric records.
+     */
+    public final Kind kind()
+    {
+        return m_kind;
+    }
+}
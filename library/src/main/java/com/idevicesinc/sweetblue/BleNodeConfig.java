@@ -30,6 +30,8 @@ import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.P_JSONUtil;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
 import com.idevicesinc.sweetblue.utils.UsesCustomNull;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.Utils_Reflection;
@@ -157,6 +159,21 @@ public class BleNodeConfig
 	@Nullable(Nullable.Prevalence.NORMAL)
 	public HistoricalDataFactory historicalDataFactory						= HistoricalData::new;
 
+	/**
+	 * Default is <code>null</code> - set an implementation here to have minute, hour, and day rollups (count/min/max/sum) kept up to date
+	 * as {@link HistoricalData} is logged. These let {@link BleDevice#getHistoricalData_aggregate(UUID, com.idevicesinc.sweetblue.utils.EpochTimeRange)}
+	 * and {@link BleDevice#getHistoricalData_series(UUID, com.idevicesinc.sweetblue.utils.EpochTimeRange, Interval)} answer from a handful of
+	 * buckets, rather than scanning every logged sample. See {@link PayloadValueExtractor} for an easy way to pull a value out of a
+	 * {@link PayloadLayout}.
+	 * <br><br>
+	 * NOTE: Rollups include every sample that {@link HistoricalDataLogFilter} lets through, and ignore {@link HistoricalDataLogFilter.Please#andLimitLogTo(long)}.
+	 * Samples the backend later drops to stay under the limit are still counted, until they're deleted with one of the
+	 * <code>clearHistoricalData()</code> overloads.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Advanced
+	@Nullable(Nullable.Prevalence.NORMAL)
+	public HistoricalDataValueExtractor historicalDataValueExtractor			= null;
+
 	/**
 	 * Default is an instance of {@link DefaultReconnectFilter} using the timings that are <code>public static final</code> members thereof - set your own implementation here to
 	 * have fine-grain control over reconnect behavior while a device is {@link BleDeviceState#RECONNECTING_LONG_TERM} or {@link BleDeviceState#RECONNECTING_SHORT_TERM}.
@@ -174,6 +191,11 @@ public class BleNodeConfig
 	/**
 	 * Provide an instance of this class to {@link com.idevicesinc.sweetblue.BleDeviceConfig#historicalDataLogFilter} to control
 	 * how/if historical data from BLE operations is logged.
+	 * <br><br>
+	 * NOTE: For reads and notifications, this is called on SweetBlue's update thread, or on the ingestion writer thread (a batch at a time,
+	 * with nothing else getting written while it runs) if {@link BleManagerConfig#historicalDataIngestionBufferSize} is greater than zero.
+	 * For data you add yourself, it's called on the thread you add it from.
+	 * It's never called while SweetBlue holds a lock on the log itself, so it's safe to read historical data from here.
 	 */
 	@com.idevicesinc.sweetblue.annotations.Advanced
 	@com.idevicesinc.sweetblue.annotations.Lambda
@@ -508,6 +530,59 @@ public class BleNodeConfig
 		HistoricalData newHistoricalData(final byte[] data, final EpochTime epochTime);
 	}
 
+	/**
+	 * Provide an instance to {@link #historicalDataValueExtractor} to decode a numeric value out of each logged
+	 * {@link com.idevicesinc.sweetblue.utils.HistoricalData} blob, which is then rolled up for aggregate queries.
+	 */
+	@com.idevicesinc.sweetblue.annotations.Lambda
+	public static interface HistoricalDataValueExtractor
+	{
+		/**
+		 * Return the numeric value held in the given data, which was logged for the given characteristic, or {@link Double#NaN}
+		 * if the data should not be included in rollups (for example if it's for a characteristic you don't care to aggregate).
+		 */
+		double extractValue(final UUID charUuid, final byte[] data);
+	}
+
+	/**
+	 * Implementation of {@link HistoricalDataValueExtractor} which reads a single field out of a {@link PayloadLayout}.
+	 * Data which is too short for the layout, or which is for a different characteristic (if one was given) is skipped.
+	 */
+	public static class PayloadValueExtractor implements HistoricalDataValueExtractor
+	{
+		private final UUID m_charUuid;
+		private final PayloadView m_view;
+		private final int m_field;
+
+		/**
+		 * Overload of {@link #PayloadValueExtractor(UUID, PayloadLayout, int)} which applies to every characteristic.
+		 */
+		public PayloadValueExtractor(final PayloadLayout layout, final int field)
+		{
+			this(null, layout, field);
+		}
+
+		public PayloadValueExtractor(final UUID charUuid_nullable, final PayloadLayout layout, final int field)
+		{
+			m_charUuid = charUuid_nullable;
+			m_view = layout.newView();
+			m_field = field;
+		}
+
+		@Override public double extractValue(final UUID charUuid, final byte[] data)
+		{
+			if( m_charUuid != null && !m_charUuid.equals(charUuid) )
+			{
+				return Double.NaN;
+			}
+
+			synchronized (m_view)
+			{
+				return m_view.wrap(data).has(m_field) ? m_view.getDouble(m_field) : Double.NaN;
+			}
+		}
+	}
+
 	/**
 	 * Default implementation of {@link TaskTimeoutRequestFilter} that simply sets the timeout
 	 * for all {@link BleTask} instances to {@link #DEFAULT_TASK_TIMEOUT} seconds.
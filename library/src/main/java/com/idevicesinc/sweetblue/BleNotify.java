@@ -20,6 +20,8 @@ package com.idevicesinc.sweetblue;
 
 
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
 import java.util.UUID;
 
 
@@ -113,6 +115,17 @@ public class BleNotify extends BleDescriptorOp<BleNotify>
         return m_notificationListener;
     }
 
+    /**
+     * Decode every incoming notification (or indication) for this characteristic with the given {@link PayloadLayout}, and pass it to the
+     * given {@link PayloadListener}. The value is decoded in place (see {@link PayloadView}), so this avoids the boxing and copying of the
+     * {@link com.idevicesinc.sweetblue.utils.Utils_Byte} methods. Pass <code>null</code> for the layout to clear it.
+     */
+    public final BleNotify setPayloadListener(PayloadLayout layout, PayloadListener listener)
+    {
+        setPayloadListener_private(layout, listener);
+        return this;
+    }
+
 
     /**
      * Builder class to build out a list (or array) of {@link BleNotify} instances.
@@ -148,6 +161,12 @@ public class BleNotify extends BleDescriptorOp<BleNotify>
             return this;
         }
 
+        public final Builder setPayloadListener(PayloadLayout layout, PayloadListener listener)
+        {
+            currentOp.setPayloadListener(layout, listener);
+            return this;
+        }
+
         @Override
         public final BleNotify[] buildArray()
         {
@@ -21,6 +21,8 @@ package com.idevicesinc.sweetblue;
 import com.idevicesinc.sweetblue.annotations.Nullable;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
 import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.Uuids;
 
@@ -47,6 +49,10 @@ public abstract class BleOp<T extends BleOp>
     private ReadWriteListener readWriteListener = null;
     private DescriptorFilter descriptorFilter = null;
     private FutureData m_data = P_Const.EMPTY_FUTURE_DATA;
+    // Only exposed by BleRead, and BleNotify
+    PayloadListener m_payloadListener = null;
+    private PayloadLayout m_payloadLayout = null;
+    private PayloadView m_payloadView = null;
 
 
 
@@ -186,6 +192,31 @@ public abstract class BleOp<T extends BleOp>
         return charUuid != null && !charUuid.equals(Uuids.INVALID);
     }
 
+    final void setPayloadListener_private(PayloadLayout layout, PayloadListener listener)
+    {
+        m_payloadLayout = layout;
+        m_payloadListener = layout != null ? listener : null;
+        m_payloadView = null;
+    }
+
+    final PayloadLayout getPayloadLayout()
+    {
+        return m_payloadLayout;
+    }
+
+    // Returns null if there's no PayloadListener set. The view is shared by every event from this op, as callbacks are all
+    // dispatched on the same thread.
+    final PayloadListener.PayloadEvent newPayloadEvent(BleDevice device, UUID serviceUuid, UUID charUuid, boolean notification, byte[] data)
+    {
+        if (m_payloadListener == null)
+            return null;
+
+        if (m_payloadView == null)
+            m_payloadView = m_payloadLayout.newView();
+
+        return new PayloadListener.PayloadEvent(device, serviceUuid, charUuid, notification, data != null ? data : P_Const.EMPTY_BYTE_ARRAY, m_payloadView);
+    }
+
     T getDuplicateOp()
     {
         BleOp op = createNewOp();
@@ -193,6 +224,8 @@ public abstract class BleOp<T extends BleOp>
         op.serviceUuid = serviceUuid;
         op.readWriteListener = readWriteListener;
         op.descriptorFilter = descriptorFilter;
+        op.m_payloadListener = m_payloadListener;
+        op.m_payloadLayout = m_payloadLayout;
         op.opList = opList;
         return (T) op;
     }
@@ -0,0 +1,168 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of {@link BleOp}s to run one after another on a {@link BleDevice}, for multi-step protocols like "write a command, read the
+ * response, then enable notifications". Pass it to {@link BleDevice#runChain(BleOpChain)}, or {@link BleTransaction#runChain(BleOpChain)}.
+ * <br><br>
+ * Compared to sending out each operation from the previous one's {@link ReadWriteListener}, the next step is queued up right before the
+ * previous one ends, so it starts on the same pass through the task queue, rather than after a trip through your callback's thread and
+ * the next update tick. Each step can optionally be skipped with a {@link Condition}, or rewritten with a {@link Transform}, based on the
+ * data of the step before it.
+ * <br><br>
+ * Supported steps are {@link BleRead}, {@link BleWrite}, {@link BleDescriptorRead}, {@link BleDescriptorWrite}, and {@link BleNotify}
+ * (which enables notifications). Each step's own {@link ReadWriteListener}, if any, is still called. The chain stops at the first failed
+ * step. A chain only describes the steps, so the same instance can be run more than once.
+ */
+public final class BleOpChain
+{
+
+    /**
+     * Decides whether a step should run, given the data of the previous step that ran.
+     */
+    @com.idevicesinc.sweetblue.annotations.Lambda
+    public interface Condition
+    {
+        /**
+         * The previous step's data is what was read, written, or the notification descriptor value written. It's <code>null</code>
+         * for the first step.
+         */
+        boolean shouldRun(@Nullable(Nullable.Prevalence.RARE) byte[] previousData);
+    }
+
+    /**
+     * Adjusts a step right before it's sent out, given the data of the previous step that ran. For example, to write a value computed
+     * from what was just read.
+     */
+    @com.idevicesinc.sweetblue.annotations.Lambda
+    public interface Transform
+    {
+        /**
+         * The given op is a copy of the one added to the chain, so it's fine to modify it and return it. Returning <code>null</code>
+         * skips the step.
+         */
+        @Nullable(Nullable.Prevalence.RARE) BleOp transform(BleOp op, @Nullable(Nullable.Prevalence.RARE) byte[] previousData);
+    }
+
+
+    private final List<Step> m_steps = new ArrayList<>();
+    private OpChainListener m_listener;
+
+
+    public BleOpChain()
+    {
+    }
+
+    /**
+     * Adds a step which always runs.
+     */
+    public final BleOpChain then(BleOp op)
+    {
+        return add(op, null, null);
+    }
+
+    /**
+     * Adds a step which always runs, after being passed through the given {@link Transform}.
+     */
+    public final BleOpChain then(BleOp op, Transform transform)
+    {
+        return add(op, null, transform);
+    }
+
+    /**
+     * Adds a step which only runs if the given {@link Condition} says so.
+     */
+    public final BleOpChain thenIf(Condition condition, BleOp op)
+    {
+        return add(op, condition, null);
+    }
+
+    /**
+     * Adds a step which only runs if the given {@link Condition} says so, after being passed through the given {@link Transform}.
+     */
+    public final BleOpChain thenIf(Condition condition, BleOp op, Transform transform)
+    {
+        return add(op, condition, transform);
+    }
+
+    /**
+     * Sets the listener to be called once the chain is done.
+     */
+    public final BleOpChain setListener(@Nullable(Nullable.Prevalence.NORMAL) OpChainListener listener)
+    {
+        m_listener = listener;
+        return this;
+    }
+
+    public final @Nullable(Nullable.Prevalence.NORMAL) OpChainListener getListener()
+    {
+        return m_listener;
+    }
+
+    /**
+     * Returns the number of steps added to this chain.
+     */
+    public final int size()
+    {
+        return m_steps.size();
+    }
+
+    private BleOpChain add(BleOp op, Condition condition, Transform transform)
+    {
+        if (!(op instanceof BleRead || op instanceof BleWrite || op instanceof BleDescriptorRead || op instanceof BleDescriptorWrite || op instanceof BleNotify))
+            throw new IllegalArgumentException("Unsupported op for a chain: " + op);
+
+        m_steps.add(new Step(op, condition, transform));
+        return this;
+    }
+
+    final BleOp getOp(int index)
+    {
+        return m_steps.get(index).m_op;
+    }
+
+    final Condition getCondition(int index)
+    {
+        return m_steps.get(index).m_condition;
+    }
+
+    final Transform getTransform(int index)
+    {
+        return m_steps.get(index).m_transform;
+    }
+
+
+    private static final class Step
+    {
+        private final BleOp m_op;
+        private final Condition m_condition;
+        private final Transform m_transform;
+
+        private Step(BleOp op, Condition condition, Transform transform)
+        {
+            m_op = op;
+            m_condition = condition;
+            m_transform = transform;
+        }
+    }
+}
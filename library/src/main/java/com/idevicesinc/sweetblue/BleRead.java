@@ -18,6 +18,8 @@
 package com.idevicesinc.sweetblue;
 
 
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
 import com.idevicesinc.sweetblue.utils.Uuids;
 
 import java.util.UUID;
@@ -57,6 +59,17 @@ public class BleRead extends BleOp<BleRead>
         super(read.getServiceUuid(), read.getCharacteristicUuid());
     }
 
+    /**
+     * Decode the value with the given {@link PayloadLayout} when this read succeeds, and pass it to the given {@link PayloadListener}. The value is
+     * decoded in place (see {@link PayloadView}), so this avoids the boxing and copying of the {@link com.idevicesinc.sweetblue.utils.Utils_Byte} methods.
+     * Pass <code>null</code> for the layout to clear it.
+     */
+    public final BleRead setPayloadListener(PayloadLayout layout, PayloadListener listener)
+    {
+        setPayloadListener_private(layout, listener);
+        return this;
+    }
+
     @Override
     public final boolean isValid()
     {
@@ -98,6 +111,15 @@ public class BleRead extends BleOp<BleRead>
             currentOp = new BleRead(serviceUuid, characteristicUuid);
         }
 
+        /**
+         * Decode the value with the given {@link PayloadLayout} when the read succeeds, and pass it to the given {@link PayloadListener}.
+         */
+        public final Builder setPayloadListener(PayloadLayout layout, PayloadListener listener)
+        {
+            currentOp.setPayloadListener(layout, listener);
+            return this;
+        }
+
         @Override
         public final BleRead[] buildArray()
         {
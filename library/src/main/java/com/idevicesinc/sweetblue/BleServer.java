@@ -17,6 +17,7 @@
 
 package com.idevicesinc.sweetblue;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
@@ -275,6 +276,152 @@ public final class BleServer extends BleNode
 		return m_serverImpl.sendNotification(macAddress, serviceUuid, charUuid, futureData, listener);
 	}
 
+	/**
+	 * Overload of {@link #setAttributeValue(UUID, UUID, UUID, byte[], boolean)} which doesn't notify subscribers.
+	 */
+	public final boolean setAttributeValue(UUID charUuid, byte[] value)
+	{
+		return setAttributeValue(null, charUuid, null, value, false);
+	}
+
+	/**
+	 * Overload of {@link #setAttributeValue(UUID, UUID, UUID, byte[], boolean)}.
+	 */
+	public final boolean setAttributeValue(UUID charUuid, byte[] value, boolean notifySubscribers)
+	{
+		return setAttributeValue(null, charUuid, null, value, notifySubscribers);
+	}
+
+	/**
+	 * Overload of {@link #setAttributeValue(UUID, UUID, UUID, byte[], boolean)}.
+	 */
+	public final boolean setAttributeValue(UUID serviceUuid, UUID charUuid, byte[] value, boolean notifySubscribers)
+	{
+		return setAttributeValue(serviceUuid, charUuid, null, value, notifySubscribers);
+	}
+
+	/**
+	 * Puts a value in this server's attribute store. Client reads of an attribute in the store are answered straight from the
+	 * stored bytes, including reads with an offset, without calling the {@link IncomingListener} or waiting behind other tasks in the queue.
+	 * Client writes update the stored value the same way. Each of these still sends an {@link OutgoingListener.OutgoingEvent}.
+	 * Attributes that aren't in the store, or that are marked dynamic through {@link #setAttributeDynamic(UUID, UUID, UUID, boolean)},
+	 * go to the {@link IncomingListener} as before. You can also put values in the store while building your {@link com.idevicesinc.sweetblue.utils.GattDatabase}, with
+	 * {@link com.idevicesinc.sweetblue.utils.CharacteristicBuilder#serveValue(byte[])}.
+	 * <br><br>
+	 * For a characteristic in the store, the server also tracks which clients have enabled notifications or indications. If <code>notifySubscribers</code>
+	 * is <code>true</code>, the new value is sent to those clients with {@link #broadcastNotification(UUID, UUID, FutureData, Collection, BroadcastListener)}
+	 * and {@link #broadcastIndication(UUID, UUID, FutureData, Collection, BroadcastListener)}. <code>serviceUuid</code> and <code>descUuid</code>
+	 * may be <code>null</code>. Returns <code>false</code> if the characteristic couldn't be found.
+	 */
+	public final boolean setAttributeValue(UUID serviceUuid, UUID charUuid, UUID descUuid, byte[] value, boolean notifySubscribers)
+	{
+		return m_serverImpl.setAttributeValue(serviceUuid, charUuid, descUuid, value, notifySubscribers);
+	}
+
+	/**
+	 * Overload of {@link #setAttributeDynamic(UUID, UUID, UUID, boolean)}.
+	 */
+	public final boolean setAttributeDynamic(UUID charUuid, boolean dynamic)
+	{
+		return setAttributeDynamic(null, charUuid, null, dynamic);
+	}
+
+	/**
+	 * Marks an attribute in the store as dynamic. Reads and writes of a dynamic attribute go to the {@link IncomingListener}, just as
+	 * if the attribute wasn't in the store, but the stored value is kept. Returns <code>false</code> if the attribute isn't in the store.
+	 */
+	public final boolean setAttributeDynamic(UUID serviceUuid, UUID charUuid, UUID descUuid, boolean dynamic)
+	{
+		return m_serverImpl.setAttributeDynamic(serviceUuid, charUuid, descUuid, dynamic);
+	}
+
+	/**
+	 * Overload of {@link #getAttributeValue(UUID, UUID, UUID)}.
+	 */
+	public final @Nullable(Nullable.Prevalence.NORMAL) byte[] getAttributeValue(UUID charUuid)
+	{
+		return getAttributeValue(null, charUuid, null);
+	}
+
+	/**
+	 * Returns a copy of the value held in the attribute store, including any writes from clients, or <code>null</code> if the attribute isn't in the store.
+	 */
+	public final @Nullable(Nullable.Prevalence.NORMAL) byte[] getAttributeValue(UUID serviceUuid, UUID charUuid, UUID descUuid)
+	{
+		return m_serverImpl.getAttributeValue(serviceUuid, charUuid, descUuid);
+	}
+
+	/**
+	 * Overload of {@link #broadcastNotification(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastNotification(UUID charUuid, byte[] data)
+	{
+		return broadcastNotification(null, charUuid, new PresentData(data), null, null);
+	}
+
+	/**
+	 * Overload of {@link #broadcastNotification(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastNotification(UUID charUuid, byte[] data, BroadcastListener listener)
+	{
+		return broadcastNotification(null, charUuid, new PresentData(data), null, listener);
+	}
+
+	/**
+	 * Overload of {@link #broadcastNotification(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastNotification(UUID serviceUuid, UUID charUuid, FutureData futureData, BroadcastListener listener)
+	{
+		return broadcastNotification(serviceUuid, charUuid, futureData, null, listener);
+	}
+
+	/**
+	 * Sends the same notification to many clients at once. The {@link FutureData} is evaluated exactly once, and a single task on the queue
+	 * sends it to each client in turn, so a fan-out to N clients costs one queue entry instead of N. If a client doesn't acknowledge within
+	 * {@link BleManagerConfig#broadcastClientTimeout}, it's marked {@link OutgoingListener.Status#TIMED_OUT} and the broadcast moves on to the next one.
+	 * When all clients are done, the given listener receives one {@link BroadcastListener.BroadcastEvent} with a result for each client.
+	 * <br><br>
+	 * If <code>macAddresses</code> is <code>null</code>, the broadcast goes to every client that is {@link BleServerState#CONNECTED}. Otherwise
+	 * it goes only to the given clients that are connected. If there is an "early-out" issue, this method returns a {@link BroadcastListener.BroadcastEvent}
+	 * and also passes it to the listener. Otherwise it returns an instance where {@link BroadcastListener.BroadcastEvent#isNull()} is <code>true</code>.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastNotification(UUID serviceUuid, UUID charUuid, FutureData futureData, Collection<String> macAddresses, BroadcastListener listener)
+	{
+		return m_serverImpl.broadcastNotification(serviceUuid, charUuid, futureData, macAddresses, listener);
+	}
+
+	/**
+	 * Overload of {@link #broadcastIndication(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastIndication(UUID charUuid, byte[] data)
+	{
+		return broadcastIndication(null, charUuid, new PresentData(data), null, null);
+	}
+
+	/**
+	 * Overload of {@link #broadcastIndication(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastIndication(UUID charUuid, byte[] data, BroadcastListener listener)
+	{
+		return broadcastIndication(null, charUuid, new PresentData(data), null, listener);
+	}
+
+	/**
+	 * Overload of {@link #broadcastIndication(UUID, UUID, FutureData, Collection, BroadcastListener)} which sends to every connected client.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastIndication(UUID serviceUuid, UUID charUuid, FutureData futureData, BroadcastListener listener)
+	{
+		return broadcastIndication(serviceUuid, charUuid, futureData, null, listener);
+	}
+
+	/**
+	 * Same as {@link #broadcastNotification(UUID, UUID, FutureData, Collection, BroadcastListener)} but sends an indication instead.
+	 */
+	public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastIndication(UUID serviceUuid, UUID charUuid, FutureData futureData, Collection<String> macAddresses, BroadcastListener listener)
+	{
+		return m_serverImpl.broadcastIndication(serviceUuid, charUuid, futureData, macAddresses, listener);
+	}
+
 	/**
 	 * Checks to see if the device is running an Android OS which supports
 	 * advertising. This is forwarded from {@link BleManager#isAdvertisingSupportedByAndroidVersion()}.
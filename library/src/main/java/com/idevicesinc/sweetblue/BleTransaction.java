@@ -733,4 +733,20 @@ public abstract class BleTransaction implements P_ITransaction
 			m_transactionImpl.getDevice().setThreadLocalTransaction(null);
 		}
 	}
+
+	/**
+	 * Forwards to {@link BleDevice#runChain(BleOpChain)}
+	 */
+	public final void runChain(final BleOpChain chain)
+	{
+		try
+		{
+			m_transactionImpl.getDevice().setThreadLocalTransaction(m_transactionImpl);
+			getDevice().runChain(chain);
+		}
+		finally
+		{
+			m_transactionImpl.getDevice().setThreadLocalTransaction(null);
+		}
+	}
 }
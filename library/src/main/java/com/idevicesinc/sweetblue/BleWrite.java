@@ -21,6 +21,7 @@ import android.util.Log;
 import com.idevicesinc.sweetblue.annotations.Advanced;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.PayloadWriter;
 import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.Utils_Byte;
 import com.idevicesinc.sweetblue.utils.Uuids;
@@ -159,6 +160,17 @@ public final class BleWrite extends BleOp<BleWrite>
         return this;
     }
 
+    /**
+     * Set the payload to write, encoded with a {@link PayloadWriter}. If the writer came from {@link com.idevicesinc.sweetblue.utils.PayloadLayout#obtainWriter()},
+     * its buffer goes back to the layout's pool once the write is done (the {@link ReadWriteListener.ReadWriteEvent} gets a copy of the data), so don't
+     * reuse the writer for anything else after passing it in here.
+     */
+    public final BleWrite setPayload(PayloadWriter writer)
+    {
+        setData(writer);
+        return this;
+    }
+
     /**
      * Set the boolean to write.
      */
@@ -304,6 +316,15 @@ public final class BleWrite extends BleOp<BleWrite>
             return this;
         }
 
+        /**
+         * Set the payload to write, encoded with a {@link PayloadWriter}.
+         */
+        public final Builder setPayload(PayloadWriter writer)
+        {
+            currentOp.setPayload(writer);
+            return this;
+        }
+
         /**
          * Set the boolean to write.
          */
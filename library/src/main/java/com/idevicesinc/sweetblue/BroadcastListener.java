@@ -0,0 +1,188 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.UsesCustomNull;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Provide an instance to {@link BleServer#broadcastNotification(UUID, UUID, FutureData, java.util.Collection, BroadcastListener)},
+ * {@link BleServer#broadcastIndication(UUID, UUID, FutureData, java.util.Collection, BroadcastListener)}, or various overloads thereof,
+ * to get a single callback once a value has been pushed to every client it was broadcast to.
+ */
+public interface BroadcastListener extends GenericListener_Void<BroadcastListener.BroadcastEvent>
+{
+    /**
+     * Struct passed to {@link BroadcastListener#onEvent(BroadcastEvent)} that provides the outcome of a broadcast, both as a whole and
+     * for each client it was sent to.
+     */
+    @Immutable
+    class BroadcastEvent extends Event implements UsesCustomNull
+    {
+        /**
+         * The server the broadcast was sent from.
+         */
+        public final BleServer server()  {  return m_server;  }
+        private final BleServer m_server;
+
+        /**
+         * The {@link UUID} of the service the characteristic belongs to, or <code>null</code> if none was given.
+         */
+        public final @Nullable(Nullable.Prevalence.NORMAL) UUID serviceUuid()  {  return m_serviceUuid;  }
+        private final UUID m_serviceUuid;
+
+        public final UUID charUuid()  {  return m_charUuid;  }
+        private final UUID m_charUuid;
+
+        /**
+         * Either {@link ExchangeListener.Type#NOTIFICATION} or {@link ExchangeListener.Type#INDICATION}.
+         */
+        public final ExchangeListener.Type type()  {  return m_type;  }
+        private final ExchangeListener.Type m_type;
+
+        /**
+         * The value which was sent. The {@link FutureData} given to the broadcast is only evaluated once, no matter how many clients
+         * it goes out to.
+         */
+        public final byte[] data_sent()  {  return m_data_sent;  }
+        private final byte[] m_data_sent;
+
+        /**
+         * The outcome of the broadcast as a whole. {@link OutgoingListener.Status#SUCCESS} means the value was offered to every
+         * targeted client, although some of them may still have failed - see {@link #clientStatus(String)}. Any other value means
+         * the broadcast never got that far, e.g. {@link OutgoingListener.Status#NO_MATCHING_TARGET}.
+         */
+        public final OutgoingListener.Status status()  {  return m_status;  }
+        private final OutgoingListener.Status m_status;
+
+        /**
+         * How long the broadcast took from the moment it started going out, to the moment the last client was done.
+         */
+        public final Interval totalTime()  {  return m_totalTime;  }
+        private final Interval m_totalTime;
+
+        private final Map<String, OutgoingListener.Status> m_clientStatuses;
+
+        BroadcastEvent(BleServer server, UUID serviceUuid, UUID charUuid, ExchangeListener.Type type, byte[] data_sent, OutgoingListener.Status status, Map<String, OutgoingListener.Status> clientStatuses, Interval totalTime)
+        {
+            m_server = server;
+            m_serviceUuid = serviceUuid;
+            m_charUuid = charUuid;
+            m_type = type;
+            m_data_sent = data_sent;
+            m_status = status;
+            m_clientStatuses = Collections.unmodifiableMap(clientStatuses);
+            m_totalTime = totalTime;
+        }
+
+        /**
+         * Returns the outcome for the given client, or {@link OutgoingListener.Status#NULL} if the broadcast wasn't sent to it. A client
+         * which didn't confirm in time (see {@link BleManagerConfig#broadcastClientTimeout}) reports {@link OutgoingListener.Status#TIMED_OUT}.
+         */
+        public final OutgoingListener.Status clientStatus(final String macAddress)
+        {
+            final OutgoingListener.Status status = m_clientStatuses.get(Utils_String.normalizeMacAddress(macAddress));
+
+            return status != null ? status : OutgoingListener.Status.NULL;
+        }
+
+        /**
+         * Returns the outcome for every client the broadcast was sent to, keyed by mac address, in the order they were sent to.
+         */
+        public final Map<String, OutgoingListener.Status> clientStatuses()
+        {
+            return m_clientStatuses;
+        }
+
+        /**
+         * Returns the mac addresses of the clients which received the value.
+         */
+        public final List<String> clients_succeeded()
+        {
+            return clients(true);
+        }
+
+        /**
+         * Returns the mac addresses of the clients which didn't receive the value, or didn't confirm it in time.
+         */
+        public final List<String> clients_failed()
+        {
+            return clients(false);
+        }
+
+        /**
+         * Checks if {@link #status()} is {@link OutgoingListener.Status#SUCCESS}, and every client received the value.
+         */
+        public final boolean wasSuccess()
+        {
+            return status() == OutgoingListener.Status.SUCCESS && clients_failed().isEmpty();
+        }
+
+        /**
+         * Returns <code>true</code> for the event returned when a broadcast was successfully queued. The real outcome comes later
+         * through the {@link BroadcastListener}.
+         */
+        @Override public final boolean isNull()
+        {
+            return status().isNull();
+        }
+
+        private List<String> clients(final boolean succeeded)
+        {
+            final List<String> clients = new ArrayList<>();
+
+            for( Map.Entry<String, OutgoingListener.Status> entry : m_clientStatuses.entrySet() )
+            {
+                if( (entry.getValue() == OutgoingListener.Status.SUCCESS) == succeeded )
+                    clients.add(entry.getKey());
+            }
+
+            return clients;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "status",           status(),
+                "type",             type(),
+                "charUuid",         charUuid(),
+                "clients",          m_clientStatuses.size(),
+                "succeeded",        clients_succeeded().size(),
+                "totalTime",        totalTime()
+            );
+        }
+    }
+
+    /**
+     * Called once the broadcast is done with every client, or couldn't be started at all.
+     */
+    void onEvent(final BroadcastEvent e);
+}
@@ -0,0 +1,494 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import android.os.ParcelUuid;
+
+import com.idevicesinc.sweetblue.utils.NativeScanFilter;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+
+/**
+ * A declarative {@link ScanFilter} for the common cases (manufacturer data, service uuids, service data, mac address prefix,
+ * rssi floor, and name prefix). Because the criteria are known up front, the library runs this filter directly against the raw
+ * advertisement bytes before it parses the scan record, normalizes the name, or hits the disk, so rejected advertisements cost
+ * next to nothing. If you opt in with {@link Builder#hardwareFiltering(boolean)}, the criteria are also handed down to the bluetooth
+ * controller as {@link NativeScanFilter}s when possible.
+ * <br><br>
+ * Criteria added to the {@link Builder} are ANDed together. Call {@link Builder#or()} to start a new group of criteria; a device
+ * passes the filter if any group matches. For anything that can't be expressed here, supply a regular {@link ScanFilter} with
+ * {@link Builder#withFallback(ScanFilter)} - it will only be consulted for devices which already passed the raw checks.
+ * <pre>
+ * <code>
+ *     CompiledScanFilter filter = new CompiledScanFilter.Builder()
+ *              .manufacturerData(0x004C, new byte[] { 0x02, 0x15 })
+ *              .minRssi(-80)
+ *          .or()
+ *              .serviceUuid(Uuids.BATTERY_SERVICE_UUID)
+ *              .build();
+ * </code>
+ * </pre>
+ */
+public final class CompiledScanFilter implements ScanFilter
+{
+
+    private final Criterion[][] m_clauses;
+    private final ScanFilter m_fallback;
+    private final BleDeviceConfig m_config;
+    private final boolean m_hardwareFiltering;
+
+    private List<NativeScanFilter> m_nativeFilters;
+    private boolean m_nativeFiltersBuilt;
+
+
+    private CompiledScanFilter(Builder builder)
+    {
+        final int size = builder.m_clauses.size();
+        m_clauses = new Criterion[size][];
+        for (int i = 0; i < size; i++)
+        {
+            final List<Criterion> clause = builder.m_clauses.get(i);
+            m_clauses[i] = clause.toArray(new Criterion[clause.size()]);
+        }
+        m_fallback = builder.m_fallback;
+        m_config = builder.m_config;
+        m_hardwareFiltering = builder.m_hardwareFiltering;
+    }
+
+
+    /**
+     * Runs the compiled criteria against the raw advertisement data. This does not allocate, so it's safe to call for every
+     * scan result. Note that this does NOT consult the fallback filter (if any).
+     */
+    public final boolean matches(final String macAddress, final int rssi, final byte[] scanRecord)
+    {
+        if (m_clauses.length == 0)
+            return true;
+
+        for (int i = 0; i < m_clauses.length; i++)
+        {
+            if (clauseMatches(m_clauses[i], macAddress, rssi, scanRecord))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if a {@link ScanFilter} was supplied via {@link Builder#withFallback(ScanFilter)}.
+     */
+    public final boolean hasFallback()
+    {
+        return m_fallback != null;
+    }
+
+    /**
+     * Returns the list of {@link NativeScanFilter}s which represent this filter to the bluetooth controller, or <code>null</code> if
+     * hardware filtering was disabled, or any group of criteria has nothing the controller can filter on (mac prefix, rssi, and name
+     * prefix can only be checked in software). The native filters may let through more than this filter does; the software check
+     * always runs afterwards.
+     */
+    public final List<NativeScanFilter> getNativeScanFilters()
+    {
+        if (!m_nativeFiltersBuilt)
+        {
+            m_nativeFilters = m_hardwareFiltering ? buildNativeFilters() : null;
+            m_nativeFiltersBuilt = true;
+        }
+        return m_nativeFilters;
+    }
+
+    @Override
+    public final Please onEvent(final ScanEvent e)
+    {
+        if (!matches(e.macAddress(), e.rssi(), e.scanRecord()))
+            return Please.ignore();
+
+        if (m_fallback != null)
+            return m_fallback.onEvent(e);
+
+        return Please.acknowledge(m_config);
+    }
+
+    final Please acknowledge()
+    {
+        return Please.acknowledge(m_config);
+    }
+
+
+    private static boolean clauseMatches(final Criterion[] clause, final String macAddress, final int rssi, final byte[] scanRecord)
+    {
+        for (int i = 0; i < clause.length; i++)
+        {
+            if (!clause[i].matches(macAddress, rssi, scanRecord))
+                return false;
+        }
+        return true;
+    }
+
+    private List<NativeScanFilter> buildNativeFilters()
+    {
+        if (m_clauses.length == 0)
+            return null;
+
+        final List<NativeScanFilter> list = new ArrayList<>(m_clauses.length);
+        for (Criterion[] clause : m_clauses)
+        {
+            final NativeScanFilter.Builder builder = new NativeScanFilter.Builder();
+            boolean narrowed = false;
+            boolean hasMfg = false, hasUuid = false, hasServiceData = false, hasAddress = false;
+            for (Criterion c : clause)
+            {
+                if (c instanceof ManufacturerCriterion && !hasMfg)
+                {
+                    final ManufacturerCriterion mc = (ManufacturerCriterion) c;
+                    final byte[] data = mc.m_data != null ? mc.m_data : new byte[0];
+                    if (mc.m_mask != null)
+                        builder.setManufacturerData(mc.m_id, data, mc.m_mask);
+                    else
+                        builder.setManufacturerData(mc.m_id, data);
+                    hasMfg = narrowed = true;
+                }
+                else if (c instanceof ServiceUuidCriterion && !hasUuid)
+                {
+                    builder.setServiceUuid(new ParcelUuid(((ServiceUuidCriterion) c).m_uuid));
+                    hasUuid = narrowed = true;
+                }
+                else if (c instanceof ServiceDataCriterion && !hasServiceData)
+                {
+                    final ServiceDataCriterion sc = (ServiceDataCriterion) c;
+                    final byte[] data = sc.m_data != null ? sc.m_data : new byte[0];
+                    if (sc.m_mask != null)
+                        builder.setServiceData(new ParcelUuid(sc.m_uuid), data, sc.m_mask);
+                    else
+                        builder.setServiceData(new ParcelUuid(sc.m_uuid), data);
+                    hasServiceData = narrowed = true;
+                }
+                else if (c instanceof MacPrefixCriterion && !hasAddress && ((MacPrefixCriterion) c).isFullAddress())
+                {
+                    builder.setDeviceAddress(((MacPrefixCriterion) c).m_prefix);
+                    hasAddress = narrowed = true;
+                }
+            }
+
+            // If any group can't be narrowed down, the controller would have to report everything anyway
+            if (!narrowed)
+                return null;
+
+            list.add(builder.build());
+        }
+        return list;
+    }
+
+
+    /**
+     * Builder class used to create a {@link CompiledScanFilter}.
+     */
+    public static final class Builder
+    {
+        private final List<List<Criterion>> m_clauses = new ArrayList<>();
+        private List<Criterion> m_current;
+        private ScanFilter m_fallback;
+        private BleDeviceConfig m_config;
+        private boolean m_hardwareFiltering = false;
+
+
+        public Builder()
+        {
+        }
+
+
+        /**
+         * Only match devices advertising manufacturer specific data with the given id.
+         */
+        public final Builder manufacturerId(int manufacturerId)
+        {
+            return add(new ManufacturerCriterion(manufacturerId, null, null));
+        }
+
+        /**
+         * Only match devices whose manufacturer specific data for the given id starts with <code>data</code>. Like
+         * {@link NativeScanFilter}, <code>data</code> does not include the two id bytes.
+         */
+        public final Builder manufacturerData(int manufacturerId, byte[] data)
+        {
+            return add(new ManufacturerCriterion(manufacturerId, data, null));
+        }
+
+        /**
+         * Same as {@link #manufacturerData(int, byte[])}, but only the bits set in <code>mask</code> are compared.
+         *
+         * @throws IllegalArgumentException If <code>data</code> and <code>mask</code> are not the same length.
+         */
+        public final Builder manufacturerData(int manufacturerId, byte[] data, byte[] mask)
+        {
+            checkMask(data, mask);
+            return add(new ManufacturerCriterion(manufacturerId, data, mask));
+        }
+
+        /**
+         * Only match devices which advertise the given service {@link UUID}.
+         */
+        public final Builder serviceUuid(UUID serviceUuid)
+        {
+            if (serviceUuid == null)
+                throw new IllegalArgumentException("serviceUuid is null");
+
+            return add(new ServiceUuidCriterion(serviceUuid));
+        }
+
+        /**
+         * Only match devices which advertise service data for the given {@link UUID}, whose payload starts with <code>data</code>.
+         * <code>data</code> may be <code>null</code> to only check for the presence of the service data.
+         */
+        public final Builder serviceData(UUID serviceUuid, byte[] data)
+        {
+            return serviceData(serviceUuid, data, null);
+        }
+
+        /**
+         * Same as {@link #serviceData(UUID, byte[])}, but only the bits set in <code>mask</code> are compared.
+         *
+         * @throws IllegalArgumentException If <code>data</code> and <code>mask</code> are not the same length.
+         */
+        public final Builder serviceData(UUID serviceUuid, byte[] data, byte[] mask)
+        {
+            if (serviceUuid == null)
+                throw new IllegalArgumentException("serviceUuid is null");
+
+            checkMask(data, mask);
+            return add(new ServiceDataCriterion(serviceUuid, data, mask));
+        }
+
+        /**
+         * Only match devices whose mac address starts with the given prefix, eg "AA:BB:CC". The comparison is case-insensitive.
+         */
+        public final Builder macAddressPrefix(String prefix)
+        {
+            if (prefix == null)
+                throw new IllegalArgumentException("prefix is null");
+
+            return add(new MacPrefixCriterion(Utils_String.normalizeMacAddress(prefix)));
+        }
+
+        /**
+         * Only match devices discovered with an rssi of at least <code>minRssi</code>.
+         */
+        public final Builder minRssi(int minRssi)
+        {
+            return add(new RssiCriterion(minRssi));
+        }
+
+        /**
+         * Only match devices whose advertised local name (short or complete) starts with the given prefix. The comparison is
+         * case-sensitive, and done on the raw bytes of the scan record, so names only known from the native stack's cache
+         * will not match.
+         */
+        public final Builder namePrefix(String prefix)
+        {
+            if (prefix == null)
+                throw new IllegalArgumentException("prefix is null");
+
+            return add(new NamePrefixCriterion(prefix.getBytes()));
+        }
+
+        /**
+         * Starts a new group of criteria. A device passes the filter if all the criteria in any one group match.
+         */
+        public final Builder or()
+        {
+            m_current = null;
+            return this;
+        }
+
+        /**
+         * Provide a regular {@link ScanFilter} for logic that can't be expressed with the compiled criteria. It is only invoked (with a
+         * fully parsed {@link ScanFilter.ScanEvent}) for devices which pass the raw checks, and its {@link ScanFilter.Please} is used as is.
+         */
+        public final Builder withFallback(ScanFilter fallback)
+        {
+            m_fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Provide a {@link BleDeviceConfig} to use for devices accepted by this filter. Ignored if a fallback filter is set, as
+         * that filter decides the config by way of its {@link ScanFilter.Please}.
+         */
+        public final Builder withConfig(BleDeviceConfig config)
+        {
+            m_config = config;
+            return this;
+        }
+
+        /**
+         * Whether the library may push this filter down to the bluetooth controller as {@link NativeScanFilter}s when it's the only
+         * active filter, and {@link BleManagerConfig#defaultNativeScanFilterList} has not been set. Default is <code>false</code>.
+         * <br><br>
+         * This saves the most power, but the controller then stops reporting everything that doesn't match. That includes devices
+         * the library already knows about, for instance ones created with {@link BleManager#newDevice(String)}, or discovered
+         * under a different filter. Those won't be rediscovered, and will be undiscovered once
+         * {@link BleDeviceConfig#undiscoveryKeepAlive} runs out.
+         */
+        public final Builder hardwareFiltering(boolean enabled)
+        {
+            m_hardwareFiltering = enabled;
+            return this;
+        }
+
+        public final CompiledScanFilter build()
+        {
+            return new CompiledScanFilter(this);
+        }
+
+
+        private Builder add(Criterion criterion)
+        {
+            if (m_current == null)
+            {
+                m_current = new ArrayList<>();
+                m_clauses.add(m_current);
+            }
+            m_current.add(criterion);
+            return this;
+        }
+
+        private static void checkMask(byte[] data, byte[] mask)
+        {
+            if (mask != null && (data == null || data.length != mask.length))
+                throw new IllegalArgumentException("size mismatch for data and mask");
+        }
+    }
+
+
+    private static abstract class Criterion
+    {
+        abstract boolean matches(String macAddress, int rssi, byte[] scanRecord);
+    }
+
+    private static final class ManufacturerCriterion extends Criterion
+    {
+        private final int m_id;
+        private final byte[] m_data;
+        private final byte[] m_mask;
+
+        ManufacturerCriterion(int id, byte[] data, byte[] mask)
+        {
+            m_id = id;
+            m_data = data;
+            m_mask = mask;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return Utils_ScanRecord.matchesManufacturerData(scanRecord, m_id, m_data, m_mask);
+        }
+    }
+
+    private static final class ServiceUuidCriterion extends Criterion
+    {
+        private final UUID m_uuid;
+
+        ServiceUuidCriterion(UUID uuid)
+        {
+            m_uuid = uuid;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return Utils_ScanRecord.hasServiceUuid(scanRecord, m_uuid);
+        }
+    }
+
+    private static final class ServiceDataCriterion extends Criterion
+    {
+        private final UUID m_uuid;
+        private final byte[] m_data;
+        private final byte[] m_mask;
+
+        ServiceDataCriterion(UUID uuid, byte[] data, byte[] mask)
+        {
+            m_uuid = uuid;
+            m_data = data;
+            m_mask = mask;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return Utils_ScanRecord.matchesServiceData(scanRecord, m_uuid, m_data, m_mask);
+        }
+    }
+
+    private static final class MacPrefixCriterion extends Criterion
+    {
+        private static final int FULL_ADDRESS_LENGTH = 17;
+
+        private final String m_prefix;
+
+        MacPrefixCriterion(String prefix)
+        {
+            m_prefix = prefix.toUpperCase(Locale.US);
+        }
+
+        boolean isFullAddress()
+        {
+            return m_prefix.length() == FULL_ADDRESS_LENGTH;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return macAddress != null && macAddress.regionMatches(true, 0, m_prefix, 0, m_prefix.length());
+        }
+    }
+
+    private static final class RssiCriterion extends Criterion
+    {
+        private final int m_minRssi;
+
+        RssiCriterion(int minRssi)
+        {
+            m_minRssi = minRssi;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return rssi >= m_minRssi;
+        }
+    }
+
+    private static final class NamePrefixCriterion extends Criterion
+    {
+        private final byte[] m_prefix;
+
+        NamePrefixCriterion(byte[] prefix)
+        {
+            m_prefix = prefix;
+        }
+
+        @Override boolean matches(String macAddress, int rssi, byte[] scanRecord)
+        {
+            return Utils_ScanRecord.localNameStartsWith(scanRecord, m_prefix);
+        }
+    }
+}
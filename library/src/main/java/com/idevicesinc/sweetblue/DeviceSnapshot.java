@@ -0,0 +1,166 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.UsesCustomNull;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * What the library remembered about a {@link BleDevice} the last time it ran, when {@link BleManagerConfig#saveDeviceSnapshots} is
+ * <code>true</code>. Snapshots are restored when the {@link BleManager} is created, so {@link BleManager#newDevice(String)} hands back a device
+ * that already has its last name, scan record, RSSI, MTU and connection priority, without having to scan first. Use
+ * {@link BleDevice#getSnapshot()} to get the one a device was restored from.
+ */
+@Immutable
+public final class DeviceSnapshot implements UsesCustomNull
+{
+    /**
+     * Returned from {@link BleDevice#getSnapshot()} when the device wasn't restored from a snapshot.
+     */
+    public static final DeviceSnapshot NULL = new DeviceSnapshot("", "", P_Const.EMPTY_BYTE_ARRAY, 0, false, 0, BleConnectionPriority.MEDIUM, Collections.<UUID, List<UUID>>emptyMap(), EpochTime.NULL);
+
+    private final String m_macAddress;
+    private final String m_name_native;
+    private final byte[] m_scanRecord;
+    private final int m_rssi;
+    private final boolean m_bonded;
+    private final int m_mtu;
+    private final BleConnectionPriority m_connectionPriority;
+    private final Map<UUID, List<UUID>> m_services;
+    private final EpochTime m_timeSaved;
+
+
+    DeviceSnapshot(final String macAddress, final String name_native, final byte[] scanRecord, final int rssi, final boolean bonded, final int mtu, final BleConnectionPriority connectionPriority, final Map<UUID, List<UUID>> services, final EpochTime timeSaved)
+    {
+        m_macAddress = macAddress;
+        m_name_native = name_native != null ? name_native : "";
+        m_scanRecord = scanRecord != null ? scanRecord : P_Const.EMPTY_BYTE_ARRAY;
+        m_rssi = rssi;
+        m_bonded = bonded;
+        m_mtu = mtu;
+        m_connectionPriority = connectionPriority != null ? connectionPriority : BleConnectionPriority.MEDIUM;
+        m_services = Collections.unmodifiableMap(services);
+        m_timeSaved = timeSaved;
+    }
+
+    /**
+     * The mac address of the device.
+     */
+    public final String macAddress()
+    {
+        return m_macAddress;
+    }
+
+    /**
+     * The native name of the device when the snapshot was saved.
+     */
+    public final String name_native()
+    {
+        return m_name_native;
+    }
+
+    /**
+     * The last scan record seen for the device, or an empty array if it was never discovered through a scan.
+     */
+    public final byte[] scanRecord()
+    {
+        return m_scanRecord.clone();
+    }
+
+    /**
+     * The last RSSI reading for the device.
+     */
+    public final int rssi()
+    {
+        return m_rssi;
+    }
+
+    /**
+     * Whether the device was {@link BleDeviceState#BONDED} when the snapshot was saved. The native stack is still the source of truth for
+     * the actual bond state after a restart.
+     */
+    public final boolean wasBonded()
+    {
+        return m_bonded;
+    }
+
+    /**
+     * The MTU last negotiated with the device, or <code>0</code> if it was never changed. If {@link BleDeviceConfig#autoNegotiateMtuOnReconnect}
+     * is <code>true</code>, this is requested again as soon as the device's services are discovered.
+     */
+    public final int mtu()
+    {
+        return m_mtu;
+    }
+
+    /**
+     * The last connection priority set on the device, requested again as soon as the device's services are discovered.
+     */
+    public final BleConnectionPriority connectionPriority()
+    {
+        return m_connectionPriority;
+    }
+
+    /**
+     * The service layout discovered the last time the device was connected, as a map of service {@link UUID} to the {@link UUID}s
+     * of its characteristics. This lets you build the first reads and writes without waiting for discovery to finish.
+     */
+    public final Map<UUID, List<UUID>> services()
+    {
+        return m_services;
+    }
+
+    /**
+     * When the snapshot was saved.
+     */
+    public final EpochTime timeSaved()
+    {
+        return m_timeSaved;
+    }
+
+    @Override public final boolean isNull()
+    {
+        return this == NULL;
+    }
+
+    @Override public String toString()
+    {
+        if (isNull())
+            return "NULL";
+
+        return Utils_String.toString
+        (
+            this.getClass(),
+            "macAddress", macAddress(),
+            "name", name_native(),
+            "rssi", rssi(),
+            "mtu", mtu(),
+            "connectionPriority", connectionPriority(),
+            "services", m_services.size()
+        );
+    }
+}
@@ -18,6 +18,9 @@
 package com.idevicesinc.sweetblue;
 
 
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.BeaconDecoderRegistry;
+import com.idevicesinc.sweetblue.utils.BeaconFrame;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Percent;
@@ -121,6 +124,15 @@ public interface DiscoveryListener extends GenericListener_Void<DiscoveryListene
             return device().getRssiPercent();
         }
 
+        /**
+         * Decodes {@link BleDevice#getScanRecord()} with the given registry, straight from the raw bytes. Returns <code>null</code> if no
+         * registered decoder recognizes the advertisement. The returned frame is reused by its decoder, see {@link BeaconFrame}.
+         */
+        public final @Nullable(Nullable.Prevalence.NORMAL) BeaconFrame decodeBeacon(final BeaconDecoderRegistry registry)
+        {
+            return registry.decode(device().getScanRecord());
+        }
+
         /**
          * Convenience method for checking equality of given {@link DiscoveryListener.LifeCycle} and {@link #lifeCycle()}.
          */
@@ -0,0 +1,104 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Extendable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Phy;
+
+/**
+ * Settings for the per-device link governor, set through {@link BleDeviceConfig#linkGovernor}. While a device is {@link BleDeviceState#INITIALIZED},
+ * SweetBlue measures its read/write traffic over each {@link #evaluationWindow}: the most reads and writes that were waiting in the queue at once, and
+ * the bytes per second that were read or written. After {@link #busyWindowsBeforeRaising} busy windows in a row, the link is raised to
+ * {@link #raisedPriority}, {@link #raisedMtu}, and {@link Phy#HIGH_SPEED} (if {@link #useHighSpeedPhy} and the phone supports it). Once traffic has stayed
+ * quiet for {@link #idleTimeBeforeLowering}, the connection priority and PHY go back to what they were before.
+ * <br><br>
+ * A window is busy if it's at or above either raise threshold, and quiet only if it's at or below both lower thresholds. Windows in between do neither,
+ * so traffic that hovers around a threshold doesn't flip the link back and forth. {@link #minTimeBetweenChanges} limits how often a single device's link
+ * can change at all.
+ * <br><br>
+ * Changes are made through the same tasks as {@link BleDevice#setConnectionPriority(BleConnectionPriority)}, {@link BleDevice#negotiateMtu(int)} and
+ * {@link BleDevice#setPhyOptions(Phy)}, so each one is reported to the device's {@link ReadWriteListener} (and {@link BleManager}'s default one)
+ * as a {@link ReadWriteListener.ReadWriteEvent} with a target of {@link ReadWriteListener.Target#CONNECTION_PRIORITY}, {@link ReadWriteListener.Target#MTU},
+ * or {@link ReadWriteListener.Target#PHYSICAL_LAYER}.
+ */
+@Extendable
+public class LinkGovernorConfig
+{
+
+    /**
+     * Default is 1 second. This is how much connected time goes into each traffic measurement.
+     */
+    public Interval evaluationWindow = Interval.secs(1.0);
+
+    /**
+     * Default is 4. A window where at least this many reads and writes were waiting in the queue at once counts as busy.
+     */
+    public int raiseQueueDepth = 4;
+
+    /**
+     * Default is 2000. A window with at least this many bytes per second read or written counts as busy.
+     */
+    public double raiseBytesPerSecond = 2000.0;
+
+    /**
+     * Default is 2. This is how many busy windows in a row it takes to raise the link.
+     */
+    public int busyWindowsBeforeRaising = 2;
+
+    /**
+     * Default is 1. A window can only count as quiet if no more than this many reads and writes were waiting at once. This should be lower than {@link #raiseQueueDepth}.
+     */
+    public int lowerQueueDepth = 1;
+
+    /**
+     * Default is 200. A window can only count as quiet if no more than this many bytes per second were read or written. This should be lower than {@link #raiseBytesPerSecond}.
+     */
+    public double lowerBytesPerSecond = 200.0;
+
+    /**
+     * Default is 5 seconds. This is how long traffic has to stay quiet before the link is lowered again.
+     */
+    public Interval idleTimeBeforeLowering = Interval.secs(5.0);
+
+    /**
+     * Default is 2 seconds. The link for a given device is never changed more often than this.
+     */
+    public Interval minTimeBetweenChanges = Interval.secs(2.0);
+
+    /**
+     * Default is {@link BleConnectionPriority#HIGH}. Set to <code>null</code> to leave the connection priority alone.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public BleConnectionPriority raisedPriority = BleConnectionPriority.HIGH;
+
+    /**
+     * Default is 247, which fits a full 244 byte payload in a single packet. Set to 0 to leave the MTU alone. The MTU is only ever raised, never lowered,
+     * as most stacks won't renegotiate it down, and a bigger MTU costs nothing while the link is quiet.
+     */
+    public int raisedMtu = 247;
+
+    /**
+     * Default is <code>true</code>. If the phone supports it (see {@link BleManager#isBluetooth5HighSpeedSupported()}), switch to {@link Phy#HIGH_SPEED} while the link is raised.
+     */
+    public boolean useHighSpeedPhy = true;
+
+}
@@ -0,0 +1,102 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+/**
+ * Provide an implementation to {@link BleOpChain#setListener(OpChainListener)} to be told once when a whole {@link BleOpChain} is done,
+ * rather than piecing it together from each step's {@link ReadWriteListener}.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface OpChainListener extends GenericListener_Void<OpChainListener.OpChainEvent>
+{
+
+    /**
+     * Struct passed to {@link OpChainListener#onEvent(OpChainListener.OpChainEvent)}.
+     */
+    class OpChainEvent extends Event
+    {
+        /**
+         * The {@link BleDevice} the chain ran on.
+         */
+        public final BleDevice device(){  return m_device;  }
+        private final BleDevice m_device;
+
+        /**
+         * Convenience to return the mac address of {@link #device()}.
+         */
+        public final String macAddress(){  return m_device.getMacAddress();  }
+
+        /**
+         * The number of steps that were actually sent out, which doesn't count steps skipped by their {@link BleOpChain.Condition}.
+         */
+        public final int stepsRun(){  return m_stepsRun;  }
+        private final int m_stepsRun;
+
+        /**
+         * The event of the last step that ran. If the chain failed, this is the step that failed. This is <code>null</code> only if
+         * every step was skipped.
+         */
+        public final @Nullable(Nullable.Prevalence.RARE) ReadWriteListener.ReadWriteEvent lastEvent(){  return m_lastEvent;  }
+        private final ReadWriteListener.ReadWriteEvent m_lastEvent;
+
+        OpChainEvent(BleDevice device, int stepsRun, ReadWriteListener.ReadWriteEvent lastEvent_nullable)
+        {
+            m_device = device;
+            m_stepsRun = stepsRun;
+            m_lastEvent = lastEvent_nullable;
+        }
+
+        /**
+         * Returns the status of {@link #lastEvent()}, or {@link ReadWriteListener.Status#SUCCESS} if no step ran.
+         */
+        public final ReadWriteListener.Status status()
+        {
+            return m_lastEvent != null ? m_lastEvent.status() : ReadWriteListener.Status.SUCCESS;
+        }
+
+        /**
+         * Returns <code>true</code> if every step that ran succeeded.
+         */
+        public final boolean wasSuccess()
+        {
+            return m_lastEvent == null || m_lastEvent.wasSuccess();
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "device",           device().getName_debug(),
+                "status",           status(),
+                "stepsRun",         stepsRun()
+            );
+        }
+    }
+
+    /**
+     * Called once, when the last step of the chain has completed, or as soon as any step fails.
+     */
+    void onEvent(final OpChainEvent e);
+
+}
@@ -0,0 +1,141 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
+import com.idevicesinc.sweetblue.internal.IOtaCampaign;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+/**
+ * Handle to a fleet update started with {@link BleManager#startOtaCampaign(Iterable, OtaImageProvider, OtaCampaignConfig, OtaCampaignListener)}.
+ * See {@link OtaCampaignConfig} for how devices are scheduled, and {@link OtaCampaignListener} to follow along as they finish.
+ * <br><br>
+ * All the counts here are updated on the update thread, so they may lag slightly behind the {@link OtaCampaignListener.OtaCampaignEvent}s
+ * you've been sent, or run slightly ahead of them.
+ */
+public final class OtaCampaign
+{
+
+    private final IOtaCampaign m_campaignImpl;
+
+
+    OtaCampaign(IOtaCampaign campaignImpl)
+    {
+        m_campaignImpl = campaignImpl;
+    }
+
+
+    /**
+     * Stops the campaign. Updates that are running are cancelled, which ends their {@link BleTransaction.Ota} with
+     * {@link BleTransaction.EndReason#CANCELLED}, and no more devices are started. You'll still get {@link OtaCampaignListener.Type#FINISHED}.
+     */
+    public final void cancel()
+    {
+        m_campaignImpl.cancel();
+    }
+
+    /**
+     * Returns <code>false</code> once every device is done, or after {@link #cancel()}.
+     */
+    public final boolean isRunning()
+    {
+        return m_campaignImpl.isRunning();
+    }
+
+    /**
+     * Returns the number of devices in the campaign.
+     */
+    public final int getDeviceCount()
+    {
+        return m_campaignImpl.getDeviceCount();
+    }
+
+    /**
+     * Returns the number of devices whose update succeeded.
+     */
+    public final int getSucceededCount()
+    {
+        return m_campaignImpl.getSucceededCount();
+    }
+
+    /**
+     * Returns the number of devices which failed on every attempt.
+     */
+    public final int getFailedCount()
+    {
+        return m_campaignImpl.getFailedCount();
+    }
+
+    /**
+     * Returns the number of devices {@link OtaImageProvider#newOta(BleDevice, int)} returned <code>null</code> for.
+     */
+    public final int getSkippedCount()
+    {
+        return m_campaignImpl.getSkippedCount();
+    }
+
+    /**
+     * Returns the number of devices that aren't done yet.
+     */
+    public final int getRemainingCount()
+    {
+        return getDeviceCount() - getSucceededCount() - getFailedCount() - getSkippedCount();
+    }
+
+    /**
+     * Returns how many devices are done, as a share of {@link #getDeviceCount()}.
+     */
+    public final @Nullable(Prevalence.NEVER) Percent getProgress()
+    {
+        return m_campaignImpl.getProgress();
+    }
+
+    /**
+     * Returns how long the campaign has been running.
+     */
+    public final @Nullable(Prevalence.NEVER) Interval getTimeElapsed()
+    {
+        return m_campaignImpl.getTimeElapsed();
+    }
+
+    /**
+     * Returns the estimated time left, from a {@link com.idevicesinc.sweetblue.utils.TimeEstimator} fed with how long each device took,
+     * spread across {@link OtaCampaignConfig#maxConcurrentDevices}. Until the first device is done, this is based on
+     * {@link OtaCampaignConfig#estimatedTimePerDevice}.
+     */
+    public final @Nullable(Prevalence.NEVER) Interval getTimeRemaining()
+    {
+        return m_campaignImpl.getTimeRemaining();
+    }
+
+    @Override public final String toString()
+    {
+        return Utils_String.toString
+        (
+            this.getClass(),
+            "devices",          getDeviceCount(),
+            "succeeded",        getSucceededCount(),
+            "failed",           getFailedCount(),
+            "skipped",          getSkippedCount(),
+            "timeRemaining",    getTimeRemaining()
+        );
+    }
+}
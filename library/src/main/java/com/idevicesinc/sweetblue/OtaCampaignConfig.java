@@ -0,0 +1,83 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Extendable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.annotations.Nullable.Prevalence;
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.Comparator;
+
+/**
+ * Settings for an {@link OtaCampaign}, passed to {@link BleManager#startOtaCampaign(Iterable, OtaImageProvider, OtaCampaignConfig, OtaCampaignListener)}.
+ * A campaign works through its devices in {@link #order}, running at most {@link #maxConcurrentDevices} {@link BleTransaction.Ota}s at once. Each device
+ * is connected first if it isn't already. A device whose update fails is put back in line after {@link #retryBackoff}, up to {@link #maxRetries} times.
+ * <br><br>
+ * While a campaign is running, the task queue won't run more than {@link #maxConsecutiveOtaTasks} OTA reads and writes in a row while other tasks are
+ * waiting, so normal traffic to every other device keeps moving.
+ */
+@Extendable
+public class OtaCampaignConfig
+{
+
+    /**
+     * Default is 3. This is how many devices can be connecting or running their update at the same time.
+     */
+    public int maxConcurrentDevices = 3;
+
+    /**
+     * Default is <code>null</code>, which keeps the order the devices were given in. Otherwise devices are updated in the order of this {@link Comparator},
+     * for instance newest-first by comparing {@link BleDevice#getLastDiscoveryTime()} in reverse.
+     */
+    @Nullable(Prevalence.NORMAL)
+    public Comparator<BleDevice> order = null;
+
+    /**
+     * Default is 2. This is how many more times a device is tried after its first update fails. A failed connect counts as a failed attempt.
+     */
+    public int maxRetries = 2;
+
+    /**
+     * Default is 5 seconds. This is how long a device waits before it's tried again, doubled for each retry after the first, up to {@link #maxRetryBackoff}.
+     */
+    public Interval retryBackoff = Interval.FIVE_SECS;
+
+    /**
+     * Default is 60 seconds. Ceiling for {@link #retryBackoff}.
+     */
+    public Interval maxRetryBackoff = Interval.secs(60.0);
+
+    /**
+     * Default is 4. While other tasks are waiting in the queue, no more than this many OTA reads and writes will run in a row before one of them goes
+     * ahead. Set to 0 to let OTA traffic through in plain queue order. This has no effect on a {@link BleTransaction.Atomicity#QUEUE_ATOMIC}
+     * update, which blocks the queue by design.
+     */
+    public int maxConsecutiveOtaTasks = 4;
+
+    /**
+     * Default is 60 seconds. Starting guess for how long one device takes, used by {@link OtaCampaign#getTimeRemaining()} until real updates
+     * have finished.
+     */
+    public Interval estimatedTimePerDevice = Interval.secs(60.0);
+
+    /**
+     * Default is <code>true</code>. Disconnect a device once it's done, if the campaign was the one to connect it, to free up the connection for the next device.
+     */
+    public boolean disconnectWhenDone = true;
+
+}
@@ -0,0 +1,159 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+/**
+ * Provide an implementation to {@link BleManager#startOtaCampaign(Iterable, OtaImageProvider, OtaCampaignConfig, OtaCampaignListener)} to follow
+ * an {@link OtaCampaign} as each device starts and finishes, along with the campaign's overall progress.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface OtaCampaignListener extends GenericListener_Void<OtaCampaignListener.OtaCampaignEvent>
+{
+
+    /**
+     * The type of {@link OtaCampaignEvent}.
+     */
+    enum Type
+    {
+        /**
+         * A device's {@link BleTransaction.Ota} was just started.
+         */
+        DEVICE_STARTED,
+
+        /**
+         * A device's update succeeded.
+         */
+        DEVICE_SUCCEEDED,
+
+        /**
+         * A device's update, or the connect before it, failed. See {@link OtaCampaignEvent#willRetry()}.
+         */
+        DEVICE_FAILED,
+
+        /**
+         * {@link OtaImageProvider#newOta(BleDevice, int)} returned <code>null</code> for a device.
+         */
+        DEVICE_SKIPPED,
+
+        /**
+         * Every device is done, or the campaign was cancelled. This is always the last event.
+         */
+        FINISHED
+    }
+
+    /**
+     * Struct passed to {@link OtaCampaignListener#onEvent(OtaCampaignListener.OtaCampaignEvent)}.
+     */
+    class OtaCampaignEvent extends Event
+    {
+        /**
+         * The campaign this event is for.
+         */
+        public final OtaCampaign campaign(){  return m_campaign;  }
+        private final OtaCampaign m_campaign;
+
+        /**
+         * What happened.
+         */
+        public final Type type(){  return m_type;  }
+        private final Type m_type;
+
+        /**
+         * The device this event is for, or {@link BleDevice#NULL} for {@link Type#FINISHED}.
+         */
+        public final @Nullable(Nullable.Prevalence.NEVER) BleDevice device(){  return m_device;  }
+        private final BleDevice m_device;
+
+        /**
+         * Which attempt this was for {@link #device()}, starting at 1. This is 0 for {@link Type#FINISHED}.
+         */
+        public final int attempt(){  return m_attempt;  }
+        private final int m_attempt;
+
+        /**
+         * For {@link Type#DEVICE_FAILED}, whether the device will be tried again after {@link OtaCampaignConfig#retryBackoff}.
+         */
+        public final boolean willRetry(){  return m_willRetry;  }
+        private final boolean m_willRetry;
+
+        /**
+         * For {@link Type#DEVICE_FAILED}, how the device's transaction ended, or <code>null</code> if it never started because the device couldn't be connected.
+         */
+        public final @Nullable(Nullable.Prevalence.NORMAL) BleTransaction.EndReason endReason(){  return m_endReason;  }
+        private final BleTransaction.EndReason m_endReason;
+
+        /**
+         * How many devices are done, whether they succeeded, failed for good, or were skipped, as a share of every device in the campaign.
+         */
+        public final Percent progress(){  return m_progress;  }
+        private final Percent m_progress;
+
+        /**
+         * Estimated time left in the campaign, see {@link OtaCampaign#getTimeRemaining()}.
+         */
+        public final Interval timeRemaining(){  return m_timeRemaining;  }
+        private final Interval m_timeRemaining;
+
+        OtaCampaignEvent(OtaCampaign campaign, Type type, BleDevice device, int attempt, boolean willRetry, BleTransaction.EndReason endReason_nullable, Percent progress, Interval timeRemaining)
+        {
+            m_campaign = campaign;
+            m_type = type;
+            m_device = device;
+            m_attempt = attempt;
+            m_willRetry = willRetry;
+            m_endReason = endReason_nullable;
+            m_progress = progress;
+            m_timeRemaining = timeRemaining;
+        }
+
+        /**
+         * Convenience method for checking equality of given {@link Type} and {@link #type()}.
+         */
+        public final boolean was(Type type)
+        {
+            return type == type();
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "type",             type(),
+                "device",           device().getName_debug(),
+                "attempt",          attempt(),
+                "willRetry",        willRetry(),
+                "progress",         progress(),
+                "timeRemaining",    timeRemaining()
+            );
+        }
+    }
+
+    /**
+     * Called on the usual callback thread as devices start and finish, and once more when the campaign is over.
+     */
+    void onEvent(final OtaCampaignEvent e);
+
+}
@@ -0,0 +1,37 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+
+/**
+ * Supplies the update for each device in an {@link OtaCampaign}. The image itself is sent by the {@link BleTransaction.Ota} you return, so
+ * you keep full control of the update protocol, and the campaign takes care of scheduling.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface OtaImageProvider
+{
+
+    /**
+     * Called on the update thread each time a device's turn comes up, once it's connected. <code>attempt</code> starts at 1. Return a new
+     * transaction for each call, or <code>null</code> if the device doesn't need the update, in which case it's counted as skipped.
+     */
+    @Nullable(Nullable.Prevalence.NORMAL)
+    BleTransaction.Ota newOta(BleDevice device, int attempt);
+
+}
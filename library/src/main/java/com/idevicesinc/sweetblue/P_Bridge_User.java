@@ -30,21 +30,27 @@ import com.idevicesinc.sweetblue.internal.IBleDevice;
 import com.idevicesinc.sweetblue.internal.IBleManager;
 import com.idevicesinc.sweetblue.internal.IBleServer;
 import com.idevicesinc.sweetblue.internal.IBleTransaction;
+import com.idevicesinc.sweetblue.internal.IOtaCampaign;
 import com.idevicesinc.sweetblue.internal.P_ConnectFailPlease;
 import com.idevicesinc.sweetblue.internal.P_DisconnectReason;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
 import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
 import com.idevicesinc.sweetblue.utils.BleScanRecord;
+import com.idevicesinc.sweetblue.utils.Distance;
 import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.FutureData;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
 import com.idevicesinc.sweetblue.utils.Phy;
+import com.idevicesinc.sweetblue.utils.RssiFilter;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils_Config;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public final class P_Bridge_User
@@ -135,14 +141,29 @@ public final class P_Bridge_User
         return new DiscoveryListener.DiscoveryEvent(device, lifeCycle);
     }
 
+    public static RssiChangeListener.RssiChangeEvent newRssiChangeEvent(BleDevice device, int rssi_raw, double rssi_smoothed, double rssi_previous, Distance distance, RssiFilter filter)
+    {
+        return new RssiChangeListener.RssiChangeEvent(device, rssi_raw, rssi_smoothed, rssi_previous, distance, filter);
+    }
+
+    public static DeviceSnapshot newDeviceSnapshot(String macAddress, String name_native, byte[] scanRecord, int rssi, boolean bonded, int mtu, BleConnectionPriority connectionPriority, Map<UUID, List<UUID>> services, EpochTime timeSaved)
+    {
+        return new DeviceSnapshot(macAddress, name_native, scanRecord, rssi, bonded, mtu, connectionPriority, services, timeSaved);
+    }
+
     public static ResetListener.ResetEvent newResetEvent(BleManager mgr, ResetListener.Progress progress)
     {
         return new ResetListener.ResetEvent(mgr, progress);
     }
 
-    public static ScanFilter.ScanEvent newScanEventFromRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final byte[] scanRecord)
+    public static ScanFilter.Please acknowledge(CompiledScanFilter filter)
+    {
+        return filter.acknowledge();
+    }
+
+    public static ScanFilter.ScanEvent newScanEventFromRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final byte[] scanRecord, final EpochTime time)
     {
-        return ScanFilter.ScanEvent.fromScanRecord(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecord);
+        return ScanFilter.ScanEvent.fromScanRecord(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecord, time);
     }
 
     public static BondListener.BondEvent newBondEvent(BleDevice device, BondListener.BondEvent.Type bondType, BondListener.Status status, int failReason, State.ChangeIntent intent)
@@ -319,6 +340,11 @@ public final class P_Bridge_User
         return OutgoingListener.OutgoingEvent.EARLY_OUT__NOTIFICATION(server, device, serviceUuid, charUuid, data, status);
     }
 
+    public static BroadcastListener.BroadcastEvent newBroadcastEvent(BleServer server, UUID serviceUuid, UUID charUuid, ExchangeListener.Type type, byte[] data_sent, OutgoingListener.Status status, Map<String, OutgoingListener.Status> clientStatuses, Interval totalTime)
+    {
+        return new BroadcastListener.BroadcastEvent(server, serviceUuid, charUuid, type, data_sent, status, clientStatuses, totalTime);
+    }
+
     public static OutgoingListener.OutgoingEvent outgoingNULL(BleServer server, P_DeviceHolder device, UUID serviceUuid, UUID charUuid)
     {
         return OutgoingListener.OutgoingEvent.NULL__NOTIFICATION(server, device, serviceUuid, charUuid);
@@ -350,6 +376,46 @@ public final class P_Bridge_User
         return BleOp.createReadWriteOp(serviceUuid, charUuid, descUuid, filter, data, type);
     }
 
+    public static PayloadListener getPayloadListener(BleOp op)
+    {
+        return op.m_payloadListener;
+    }
+
+    public static PayloadListener.PayloadEvent newPayloadEvent(BleDevice device, BleOp op, UUID serviceUuid, UUID charUuid, boolean notification, byte[] data)
+    {
+        return op.newPayloadEvent(device, serviceUuid, charUuid, notification, data);
+    }
+
+    public static BleOp getChainOp(BleOpChain chain, int index)
+    {
+        return chain.getOp(index);
+    }
+
+    public static BleOpChain.Condition getChainCondition(BleOpChain chain, int index)
+    {
+        return chain.getCondition(index);
+    }
+
+    public static BleOpChain.Transform getChainTransform(BleOpChain chain, int index)
+    {
+        return chain.getTransform(index);
+    }
+
+    public static OpChainListener.OpChainEvent newOpChainEvent(BleDevice device, int stepsRun, ReadWriteListener.ReadWriteEvent lastEvent_nullable)
+    {
+        return new OpChainListener.OpChainEvent(device, stepsRun, lastEvent_nullable);
+    }
+
+    public static OtaCampaign newOtaCampaign(IOtaCampaign campaignImpl)
+    {
+        return new OtaCampaign(campaignImpl);
+    }
+
+    public static OtaCampaignListener.OtaCampaignEvent newOtaCampaignEvent(OtaCampaign campaign, OtaCampaignListener.Type type, BleDevice device, int attempt, boolean willRetry, BleTransaction.EndReason endReason_nullable, Percent progress, Interval timeRemaining)
+    {
+        return new OtaCampaignListener.OtaCampaignEvent(campaign, type, device, attempt, willRetry, endReason_nullable, progress, timeRemaining);
+    }
+
 
     public static BleDevice newDevice(IBleDevice deviceImpl)
     {
@@ -0,0 +1,119 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.internal.P_Bridge_Internal;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.UUID;
+
+/**
+ * Provide an implementation to {@link BleRead#setPayloadListener(PayloadLayout, PayloadListener)}, or
+ * {@link BleNotify#setPayloadListener(PayloadLayout, PayloadListener)} to receive successfully read (or notified) values already
+ * decoded by a {@link PayloadLayout}. This is called in addition to any {@link ReadWriteListener}, or {@link NotificationListener},
+ * on the same thread they are.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface PayloadListener extends GenericListener_Void<PayloadListener.PayloadEvent>
+{
+
+    /**
+     * Struct passed to {@link PayloadListener#onEvent(PayloadListener.PayloadEvent)}.
+     */
+    class PayloadEvent extends Event
+    {
+        /**
+         * The {@link BleDevice} the value came from.
+         */
+        public final BleDevice device(){  return m_device;  }
+        private final BleDevice m_device;
+
+        /**
+         * Convenience to return the mac address of {@link #device()}.
+         */
+        public final String macAddress(){  return m_device.getMacAddress();  }
+
+        /**
+         * The {@link UUID} of the service the characteristic belongs to. This may be <code>null</code>.
+         */
+        public final @Nullable(Nullable.Prevalence.NORMAL) UUID serviceUuid(){  return m_serviceUuid;  }
+        private final UUID m_serviceUuid;
+
+        /**
+         * The {@link UUID} of the characteristic the value came from.
+         */
+        public final UUID charUuid(){  return m_charUuid;  }
+        private final UUID m_charUuid;
+
+        /**
+         * Returns <code>true</code> if this value came from a notification (or indication), <code>false</code> if it was read.
+         */
+        public final boolean isNotification(){  return m_notification;  }
+        private final boolean m_notification;
+
+        /**
+         * The raw value. This is the same array the {@link ReadWriteListener.ReadWriteEvent}, or {@link NotificationListener.NotificationEvent} got.
+         */
+        public final @Nullable(Nullable.Prevalence.NEVER) byte[] data(){  return m_data;  }
+        private final byte[] m_data;
+
+        private final PayloadView m_view;
+
+        PayloadEvent(BleDevice device, UUID serviceUuid, UUID charUuid, boolean notification, byte[] data, PayloadView view)
+        {
+            m_device = device;
+            m_serviceUuid = serviceUuid;
+            m_charUuid = charUuid;
+            m_notification = notification;
+            m_data = data;
+            m_view = view;
+        }
+
+        /**
+         * Returns the {@link PayloadView} decoding {@link #data()}. The view instance is reused for every event from the same operation, so
+         * only use it for the duration of the callback (read out the primitives you need, rather than keeping the view around).
+         */
+        public final PayloadView payload()
+        {
+            return m_view.wrap(m_data);
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "device",           device().getName_debug(),
+                "charUuid",         P_Bridge_Internal.uuidName(device().getIBleDevice().getIManager(), charUuid()),
+                "notification",     isNotification(),
+                "payload",          payload()
+            );
+        }
+    }
+
+    /**
+     * Called when a value has been read, or notified, and is ready to be decoded through {@link PayloadEvent#payload()}.
+     */
+    void onEvent(final PayloadEvent e);
+
+}
@@ -0,0 +1,105 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Distance;
+import com.idevicesinc.sweetblue.utils.Event;
+import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.RssiFilter;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+/**
+ * Provide an implementation to {@link BleDevice#setListener_RssiChange(RssiChangeListener)} to be told when a device's smoothed
+ * RSSI (see {@link BleDeviceConfig#rssiFilter}) moves by at least {@link BleDeviceConfig#rssiChangeThreshold}. Readings that
+ * don't move it that far are absorbed without any callback, so a device sitting still near the phone won't flood your UI.
+ */
+@com.idevicesinc.sweetblue.annotations.Lambda
+public interface RssiChangeListener extends GenericListener_Void<RssiChangeListener.RssiChangeEvent>
+{
+    /**
+     * Event struct passed to {@link RssiChangeListener#onEvent(Event)}.
+     */
+    @com.idevicesinc.sweetblue.annotations.Immutable
+    public static class RssiChangeEvent extends Event
+    {
+        /**
+         * The device whose RSSI changed.
+         */
+        public BleDevice device() {  return m_device;  }
+        private final BleDevice m_device;
+
+        /**
+         * Convenience to return the mac address of {@link #device()}.
+         */
+        public String macAddress() {  return m_device.getMacAddress();  }
+
+        /**
+         * The raw reading that caused this event, either from a scan or from {@link BleDevice#readRssi()}.
+         */
+        public int rssi_raw() {  return m_rssi_raw;  }
+        private final int m_rssi_raw;
+
+        /**
+         * The filtered RSSI after taking {@link #rssi_raw()} into account, same as {@link BleDevice#getSmoothedRssi()}.
+         */
+        public double rssi_smoothed() {  return m_rssi_smoothed;  }
+        private final double m_rssi_smoothed;
+
+        /**
+         * The smoothed RSSI that was last reported to the listener, or {@link #rssi_smoothed()} if this is the first event for the device.
+         */
+        public double rssi_previous() {  return m_rssi_previous;  }
+        private final double m_rssi_previous;
+
+        /**
+         * The approximate distance computed from {@link #rssi_smoothed()}, same as {@link BleDevice#getSmoothedDistance()}.
+         */
+        public Distance distance() {  return m_distance;  }
+        private final Distance m_distance;
+
+        /**
+         * The filter that produced {@link #rssi_smoothed()}.
+         */
+        public RssiFilter filter() {  return m_filter;  }
+        private final RssiFilter m_filter;
+
+        RssiChangeEvent(final BleDevice device, final int rssi_raw, final double rssi_smoothed, final double rssi_previous, final Distance distance, final RssiFilter filter)
+        {
+            m_device = device;
+            m_rssi_raw = rssi_raw;
+            m_rssi_smoothed = rssi_smoothed;
+            m_rssi_previous = rssi_previous;
+            m_distance = distance;
+            m_filter = filter;
+        }
+
+        @Override public String toString()
+        {
+            return Utils_String.toString
+            (
+                this.getClass(),
+                "device", device().getName_debug(),
+                "rssi_raw", rssi_raw(),
+                "rssi_smoothed", rssi_smoothed(),
+                "distance", distance(),
+                "filter", filter()
+            );
+        }
+    }
+}
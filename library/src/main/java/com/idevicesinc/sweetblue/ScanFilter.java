@@ -20,7 +20,11 @@ package com.idevicesinc.sweetblue;
 import android.bluetooth.BluetoothDevice;
 
 import com.idevicesinc.sweetblue.annotations.Immutable;
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.utils.BeaconDecoderRegistry;
+import com.idevicesinc.sweetblue.utils.BeaconFrame;
 import com.idevicesinc.sweetblue.utils.BleScanRecord;
+import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.ManufacturerData;
@@ -40,6 +44,9 @@ import java.util.UUID;
  * {@link BleManagerConfig#defaultScanFilter} or one of the various {@link BleManager#startScan()}
  * overloads, i.e. {@link BleManager#startScan(ScanFilter)},
  * {@link BleManager#startScan(Interval, ScanFilter)}, etc.
+ * <br><br>
+ * TIP: If your filter only looks at manufacturer data, service uuids, service data, mac address, rssi, or name, use
+ * {@link CompiledScanFilter} instead, which rejects devices straight from the raw advertisement bytes.
  */
 @com.idevicesinc.sweetblue.annotations.Lambda
 public interface ScanFilter
@@ -159,12 +166,29 @@ public interface ScanFilter
         public Map<UUID, byte[]> serviceData()  {  return m_serviceData;  }
         private final Map<UUID, byte[]> m_serviceData;
 
+        /**
+         * When the advertisement was received. For hardware batched scans (see {@link BleManagerConfig#batchScanLatency}), this is the time the
+         * native stack reports the controller saw it, not when the batch was delivered to the app.
+         */
+        public EpochTime time()  {  return m_time;  }
+        private final EpochTime m_time;
+
+        /**
+         * Decodes {@link #scanRecord()} with the given registry, straight from the raw bytes. Returns <code>null</code> if no registered
+         * decoder recognizes the advertisement. The returned frame is reused by its decoder, see {@link BeaconFrame}.
+         */
+        public @Nullable(Nullable.Prevalence.NORMAL) BeaconFrame decodeBeacon(final BeaconDecoderRegistry registry)
+        {
+            return registry.decode(m_scanRecord);
+        }
+
         ScanEvent(
                 BluetoothDevice nativeInstance, String rawDeviceName,
                 String normalizedDeviceName, byte[] scanRecord, int rssi, State.ChangeIntent lastDisconnectIntent,
-                BleScanRecord scanInfo
+                BleScanRecord scanInfo, EpochTime time
         )
         {
+            this.m_time = time != null ? time : EpochTime.now();
             this.m_nativeInstance = nativeInstance;
             this.m_advertisedServices = scanInfo != null ? scanInfo.getServiceUUIDS() : new ArrayList<>(0);
             this.m_rawDeviceName = rawDeviceName != null ? rawDeviceName : "";
@@ -182,12 +206,17 @@ public interface ScanFilter
         }
 
         /*package*/ static ScanEvent fromScanRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final byte[] scanRecord)
+        {
+            return fromScanRecord(device_native, rawDeviceName, normalizedDeviceName, rssi, lastDisconnectIntent, scanRecord, EpochTime.now());
+        }
+
+        /*package*/ static ScanEvent fromScanRecord(final BluetoothDevice device_native, final String rawDeviceName, final String normalizedDeviceName, final int rssi, final State.ChangeIntent lastDisconnectIntent, final byte[] scanRecord, final EpochTime time)
         {
             final String name = rawDeviceName != null ? rawDeviceName : Utils_ScanRecord.parseName(scanRecord);
 
             BleScanRecord scanInfo = Utils_ScanRecord.parseScanRecord(scanRecord);
 
-            final ScanEvent e = new ScanEvent(device_native, name, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent, scanInfo);
+            final ScanEvent e = new ScanEvent(device_native, name, normalizedDeviceName, scanRecord, rssi, lastDisconnectIntent, scanInfo, time);
 
             return e;
         }
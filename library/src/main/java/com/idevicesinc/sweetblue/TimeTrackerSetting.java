@@ -17,6 +17,10 @@
 
 package com.idevicesinc.sweetblue;
 
+/**
+ * @deprecated Use {@link BleManagerConfig#enableMetrics}, and {@link BleManager#getMetricsSnapshot()} instead.
+ */
+@Deprecated
 public enum TimeTrackerSetting
 {
     Off,
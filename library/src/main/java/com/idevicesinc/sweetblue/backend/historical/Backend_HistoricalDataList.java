@@ -28,6 +28,14 @@ import java.util.UUID;
 /**
  * Defines a specification for an interface over an in-memory list of historical data that optionally syncs to/from
  * disk using an implementation of {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDatabase}.
+ * <br><br>
+ * <b>Threading:</b> a list is called from more than one thread - SweetBlue's update thread, the app's threads (through the
+ * historical data getters and deleters), and the historical data writer thread when
+ * {@link com.idevicesinc.sweetblue.BleManagerConfig#historicalDataIngestionBufferSize} is enabled. SweetBlue always holds the list's
+ * own monitor (<code>synchronized(list)</code>) while calling any method on it, so implementations don't need to do their own locking
+ * for that. However, {@link Iterator}s and {@link HistoricalDataCursor}s handed back by {@link #getIterator(EpochTimeRange)} and
+ * {@link #getCursor(EpochTimeRange)} are used after the lock is released, so they should either be backed by a snapshot, or tolerate
+ * the list being added to in the meantime. Any thread of your own which touches a list directly must also synchronize on it.
  */
 public interface Backend_HistoricalDataList
 {
@@ -83,6 +83,7 @@ public class L_Util
         private P_DeviceHolder device;
         private int rssi;
         private byte[] record;
+        private long timestampNanos;
 
 
         public ScanResult()
@@ -90,10 +91,16 @@ public class L_Util
         }
 
         public ScanResult(P_DeviceHolder device, int rssi, byte[] record)
+        {
+            this(device, rssi, record, 0L);
+        }
+
+        public ScanResult(P_DeviceHolder device, int rssi, byte[] record, long timestampNanos)
         {
             this.device = device;
             this.rssi = rssi;
             this.record = record;
+            this.timestampNanos = timestampNanos;
         }
 
         public final P_DeviceHolder getDevice()
@@ -110,6 +117,16 @@ public class L_Util
         {
             return record;
         }
+
+        /**
+         * When the advertisement was received, in {@link android.os.SystemClock#elapsedRealtimeNanos()} time, as reported by the native stack.
+         * For hardware batched scans this is when the controller saw the advertisement, not when the batch was delivered.
+         * Returns <code>0</code> if unknown.
+         */
+        public final long getTimestampNanos()
+        {
+            return timestampNanos;
+        }
     }
 
     private static ScanCallback m_UserScanCallback;
@@ -394,6 +411,7 @@ public class L_Util
         res.device = P_DeviceHolder.newHolder(result.getDevice());
         res.rssi = result.getRssi();
         res.record = result.getScanRecord().getBytes();
+        res.timestampNanos = result.getTimestampNanos();
         return res;
     }
 
@@ -300,7 +300,8 @@ abstract class BleNodeImpl implements IBleNode, UsesCustomNull
             getIManager().getPostManager().postToUpdateThread(() -> {
                 final HistoricalDataQueryListener.HistoricalDataQueryEvent e = queryHistoricalData(query);
 
-                getIManager().postEvent(listener, e);
+                final String laneKey = this instanceof IBleDevice ? ((IBleDevice) cast()).getMacAddress() : ((IBleServer) cast()).getMacAddress();
+                getIManager().postEvent(laneKey, listener, e);
             });
         }
     }
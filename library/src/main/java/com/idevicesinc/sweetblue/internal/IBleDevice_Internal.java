@@ -26,12 +26,14 @@ import com.idevicesinc.sweetblue.BleDeviceState;
 import com.idevicesinc.sweetblue.BleOp;
 import com.idevicesinc.sweetblue.BleRead;
 import com.idevicesinc.sweetblue.BondListener;
+import com.idevicesinc.sweetblue.DeviceSnapshot;
 import com.idevicesinc.sweetblue.NotificationListener;
 import com.idevicesinc.sweetblue.ReadWriteListener;
 import com.idevicesinc.sweetblue.ReconnectFilter;
 import com.idevicesinc.sweetblue.ScanFilter;
 import com.idevicesinc.sweetblue.internal.android.IDeviceListener;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
+import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.GenericListener_Void;
 import com.idevicesinc.sweetblue.utils.Phy;
@@ -46,6 +48,8 @@ interface IBleDevice_Internal
     void update(double timeStep);
     void onNewlyDiscovered(IBluetoothDevice device, ScanFilter.ScanEvent event, int rssi, byte[] scanRecord, BleDeviceOrigin origin);
     void onRediscovered(IBluetoothDevice device, ScanFilter.ScanEvent event, int rssi, byte[] scanRecord, BleDeviceOrigin origin);
+    void updateLastDiscoveryTime(EpochTime time);
+    boolean isDuplicateAdvertisement(byte[] scanRecord_nullable, int rssi, long time, long window, int rssiDelta);
     void invokeReadWriteCallback(ReadWriteListener listener, ReadWriteListener.ReadWriteEvent event);
     void invokeNotificationCallback(NotificationListener listener, NotificationListener.NotificationEvent event);
     ReadWriteListener.ReadWriteEvent read_internal(final ReadWriteListener.Type type, final BleOp read);
@@ -55,6 +59,7 @@ interface IBleDevice_Internal
     P_DeviceConnectionManager getConnectionManager();
     PE_TaskPriority getOverrideReadWritePriority();
     P_PollManager getPollManager();
+    P_LinkGovernor getLinkGovernor();
     P_TransactionManager getTxnManager();
     void readRssi_internal(ReadWriteListener.Type type, ReadWriteListener listener);
     P_BleDeviceNativeManager getNativeManager();
@@ -72,7 +77,10 @@ interface IBleDevice_Internal
     boolean shouldUseAutoConnect();
     void onConnecting(boolean definitelyExplicit, boolean isReconnect, final Object[] extraBondingStates, final boolean bleConnect);
     void updateRssi(final int rssi, boolean fromScan);
+    void onManagerConfigChanged();
     void updateMtu(final int mtu);
+    DeviceSnapshot newSnapshot();
+    void restoreFromSnapshot(final DeviceSnapshot snapshot);
     void updateKnownTxPower(final int txPower);
     P_ReliableWriteManager getReliableWriteManager();
     P_BleDevice_ListenerProcessor getListeners();
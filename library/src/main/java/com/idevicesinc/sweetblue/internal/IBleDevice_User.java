@@ -26,16 +26,19 @@ import com.idevicesinc.sweetblue.BleDeviceOrigin;
 import com.idevicesinc.sweetblue.BleDeviceState;
 import com.idevicesinc.sweetblue.BleNotify;
 import com.idevicesinc.sweetblue.BleOp;
+import com.idevicesinc.sweetblue.BleOpChain;
 import com.idevicesinc.sweetblue.BleRead;
 import com.idevicesinc.sweetblue.BleTransaction;
 import com.idevicesinc.sweetblue.BleWrite;
 import com.idevicesinc.sweetblue.BondListener;
 import com.idevicesinc.sweetblue.DeviceConnectListener;
 import com.idevicesinc.sweetblue.DeviceReconnectFilter;
+import com.idevicesinc.sweetblue.DeviceSnapshot;
 import com.idevicesinc.sweetblue.DeviceStateListener;
 import com.idevicesinc.sweetblue.HistoricalDataLoadListener;
 import com.idevicesinc.sweetblue.NotificationListener;
 import com.idevicesinc.sweetblue.ReadWriteListener;
+import com.idevicesinc.sweetblue.RssiChangeListener;
 import com.idevicesinc.sweetblue.annotations.Nullable;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
@@ -47,12 +50,16 @@ import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCodec;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.Percent;
 import com.idevicesinc.sweetblue.utils.Phy;
 import com.idevicesinc.sweetblue.utils.State;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -96,6 +103,7 @@ interface IBleDevice_User
     boolean popListener_Notification(NotificationListener listener);
     NotificationListener getListener_Notification();
     void setListener_HistoricalDataLoad(@Nullable(Nullable.Prevalence.NORMAL) final HistoricalDataLoadListener listener_nullable);
+    void setListener_RssiChange(@Nullable(Nullable.Prevalence.NORMAL) final RssiChangeListener listener_nullable);
     int getConnectionRetryCount();
     int getStateMask();
     int getNativeStateMask();
@@ -104,6 +112,9 @@ interface IBleDevice_User
     int getRssi();
     Percent getRssiPercent();
     Distance getDistance();
+    double getSmoothedRssi();
+    Distance getSmoothedDistance();
+    DeviceSnapshot getSnapshot();
     int getTxPower();
     byte[] getScanRecord();
     BleScanRecord getScanInfo();
@@ -122,6 +133,10 @@ interface IBleDevice_User
     boolean getHistoricalData_forEach(final UUID uuid, final EpochTimeRange range, final ForEach_Breakable<HistoricalData> forEach);
     HistoricalData getHistoricalData_atOffset(final UUID uuid, final EpochTimeRange range, final int offsetFromStart);
     int getHistoricalDataCount(final UUID uuid, final EpochTimeRange range);
+    HistoricalDataAggregate getHistoricalData_aggregate(final UUID uuid, final EpochTimeRange range);
+    List<HistoricalDataAggregate> getHistoricalData_series(final UUID uuid, final EpochTimeRange range, final Interval bucketSize);
+    int exportHistoricalData(final UUID uuid, final EpochTimeRange range, final HistoricalDataCodec.Encoder encoder) throws IOException;
+    int importHistoricalData(final UUID uuid, final HistoricalDataCodec.Decoder decoder) throws IOException;
     boolean hasHistoricalData(final UUID uuid, final EpochTimeRange range);
     void addHistoricalData(final UUID uuid, final HistoricalData historicalData);
     void addHistoricalData(final UUID uuid, Iterator<HistoricalData> historicalData);
@@ -182,6 +197,7 @@ interface IBleDevice_User
     ReadWriteListener.ReadWriteEvent disableNotify(BleNotify notify);
     boolean performOta(final BleTransaction.Ota txn);
     boolean performTransaction(final BleTransaction txn);
+    void runChain(final BleOpChain chain);
     int getEffectiveWriteMtuSize();
     String toString();
     boolean isNull();
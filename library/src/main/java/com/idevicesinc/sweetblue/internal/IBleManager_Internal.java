@@ -23,6 +23,7 @@ import com.idevicesinc.sweetblue.AdvertisingListener;
 import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleNode;
 import com.idevicesinc.sweetblue.BleServer;
+import com.idevicesinc.sweetblue.BleTransaction;
 import com.idevicesinc.sweetblue.BondListener;
 import com.idevicesinc.sweetblue.DeviceConnectListener;
 import com.idevicesinc.sweetblue.DeviceReconnectFilter;
@@ -42,8 +43,10 @@ import com.idevicesinc.sweetblue.internal.android.IManagerListener;
 import com.idevicesinc.sweetblue.internal.android.IServerListener;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothManager;
+import com.idevicesinc.sweetblue.utils.Clock;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.GenericListener_Void;
+import com.idevicesinc.sweetblue.utils.NativeScanFilter;
 import java.util.List;
 import java.util.UUID;
 
@@ -70,9 +73,16 @@ interface IBleManager_Internal
     void checkIdleStatus();
     void onDiscoveredFromNativeStack(List<P_ScanManager.DiscoveryEntry> entries);
     IBluetoothManager managerLayer();
+    List<NativeScanFilter> getNativeScanFilterList();
     void postEvent(final GenericListener_Void listener, final Event event);
+    void postEvent(final Object laneKey, final GenericListener_Void listener, final Event event);
     P_ScanManager getScanManager();
     P_PostManager getPostManager();
+    P_Metrics getMetrics();
+    P_Tracer getTracer();
+    Clock getClock();
+    P_ConnectionAdmissionManager getConnectionAdmissionManager();
+    P_HistoricalDataIngestor getHistoricalDataIngestor();
     P_WakeLockManager getWakeLockManager();
     P_DeviceManager getDeviceManager();
     P_DeviceManager getDeviceManager_cache();
@@ -82,6 +92,10 @@ interface IBleManager_Internal
     Backend_HistoricalDatabase getHistoricalDatabase();
     HistoricalDataLoadListener getHistoricalDataLoadListener();
     P_DiskOptionsManager getDiskOptionsManager();
+    void onDeviceSnapshotChanged(IBleDevice device);
+    void onDeviceSnapshotRefreshed(IBleDevice device);
+    void onOtaTransactionEnded(IBleDevice device, IBleTransaction txn, BleTransaction.EndReason reason);
+    void onCharacteristicRead();
     ReadWriteListener getDefaultReadWriteListener();
     NotificationListener getDefaultNotificationListener();
     ServerStateListener getDefaultServerStateListener();
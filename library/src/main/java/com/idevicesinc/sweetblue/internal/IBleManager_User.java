@@ -31,6 +31,7 @@ import com.idevicesinc.sweetblue.AssertListener;
 import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleDeviceConfig;
 import com.idevicesinc.sweetblue.BleDeviceState;
+import com.idevicesinc.sweetblue.BleScanPower;
 import com.idevicesinc.sweetblue.BleManagerConfig;
 import com.idevicesinc.sweetblue.BleManagerState;
 import com.idevicesinc.sweetblue.BondListener;
@@ -42,6 +43,10 @@ import com.idevicesinc.sweetblue.HistoricalDataLoadListener;
 import com.idevicesinc.sweetblue.IncomingListener;
 import com.idevicesinc.sweetblue.ManagerStateListener;
 import com.idevicesinc.sweetblue.NotificationListener;
+import com.idevicesinc.sweetblue.OtaCampaign;
+import com.idevicesinc.sweetblue.OtaCampaignConfig;
+import com.idevicesinc.sweetblue.OtaCampaignListener;
+import com.idevicesinc.sweetblue.OtaImageProvider;
 import com.idevicesinc.sweetblue.OutgoingListener;
 import com.idevicesinc.sweetblue.ReadWriteListener;
 import com.idevicesinc.sweetblue.ResetListener;
@@ -58,8 +63,10 @@ import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.GattDatabase;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -68,6 +75,13 @@ interface IBleManager_User
 
     void setConfig(@Nullable(Nullable.Prevalence.RARE) BleManagerConfig config_nullable);
     BleManagerConfig getConfigClone();
+    MetricsSnapshot getMetricsSnapshot();
+    Map<BleScanPower, Interval> getTimeInScanPowerModes();
+    void resetMetrics();
+    String getTraceJson();
+    void clearTrace();
+    void flushHistoricalData();
+    OtaCampaign startOtaCampaign(Iterable<BleDevice> devices, OtaImageProvider provider, OtaCampaignConfig config, OtaCampaignListener listener);
     boolean isAny(BleManagerState... states);
     boolean isAll(BleManagerState... states);
     boolean is(final BleManagerState state);
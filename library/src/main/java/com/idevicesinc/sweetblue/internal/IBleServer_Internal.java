@@ -21,12 +21,15 @@ package com.idevicesinc.sweetblue.internal;
 import com.idevicesinc.sweetblue.AddServiceListener;
 import com.idevicesinc.sweetblue.AdvertisingListener;
 import com.idevicesinc.sweetblue.BleServer;
+import com.idevicesinc.sweetblue.BleService;
+import com.idevicesinc.sweetblue.BroadcastListener;
 import com.idevicesinc.sweetblue.OutgoingListener;
 import com.idevicesinc.sweetblue.ServerConnectListener;
 import com.idevicesinc.sweetblue.ServerReconnectFilter;
 import com.idevicesinc.sweetblue.internal.android.IServerListener;
 import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
 import com.idevicesinc.sweetblue.utils.BleScanRecord;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
 import com.idevicesinc.sweetblue.utils.State;
 
 
@@ -44,7 +47,10 @@ interface IBleServer_Internal
     void resetAdaptorName();
     P_ServerServiceManager getServerServiceManager();
     void invokeOutgoingListeners(final OutgoingListener.OutgoingEvent e, final OutgoingListener listener_specific_nullable);
+    void invokeBroadcastListener(final BroadcastListener.BroadcastEvent e, final BroadcastListener listener_nullable);
     void invokeConnectListeners(final ServerConnectListener.ConnectEvent e);
+    P_AttributeStore getAttributeStore();
+    void serveFromDatabase(final GattDatabase database, final BleService service);
     ServerReconnectFilter.ConnectFailEvent connect_internal(final P_DeviceHolder nativeDevice, boolean isRetrying);
     IServerListener getInternalListener();
     void clearListeners();
@@ -26,6 +26,7 @@ import com.idevicesinc.sweetblue.BleAdvertisingSettings;
 import com.idevicesinc.sweetblue.BleNodeConfig;
 import com.idevicesinc.sweetblue.BleServerState;
 import com.idevicesinc.sweetblue.BleService;
+import com.idevicesinc.sweetblue.BroadcastListener;
 import com.idevicesinc.sweetblue.IncomingListener;
 import com.idevicesinc.sweetblue.OutgoingListener;
 import com.idevicesinc.sweetblue.ServerConnectListener;
@@ -37,6 +38,7 @@ import com.idevicesinc.sweetblue.utils.BleScanRecord;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.FutureData;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
@@ -56,6 +58,11 @@ interface IBleServer_User
     void setListener_ReconnectFilter(final ServerReconnectFilter listener);
     OutgoingListener.OutgoingEvent sendIndication(final String macAddress, UUID serviceUuid, UUID charUuid, final FutureData futureData, OutgoingListener listener);
     OutgoingListener.OutgoingEvent sendNotification(final String macAddress, UUID serviceUuid, UUID charUuid, final FutureData futureData, OutgoingListener listener);
+    boolean setAttributeValue(UUID serviceUuid, UUID charUuid, UUID descUuid, byte[] value, boolean notifySubscribers);
+    boolean setAttributeDynamic(UUID serviceUuid, UUID charUuid, UUID descUuid, boolean dynamic);
+    byte[] getAttributeValue(UUID serviceUuid, UUID charUuid, UUID descUuid);
+    BroadcastListener.BroadcastEvent broadcastIndication(UUID serviceUuid, UUID charUuid, final FutureData futureData, Collection<String> macAddresses, BroadcastListener listener);
+    BroadcastListener.BroadcastEvent broadcastNotification(UUID serviceUuid, UUID charUuid, final FutureData futureData, Collection<String> macAddresses, BroadcastListener listener);
     boolean isAdvertisingSupportedByAndroidVersion();
     boolean isAdvertisingSupportedByChipset();
     boolean isAdvertisingSupported();
@@ -0,0 +1,37 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
+
+/**
+ * Interface to define the contract for the internal side of an {@link com.idevicesinc.sweetblue.OtaCampaign}.
+ */
+public interface IOtaCampaign
+{
+    void cancel();
+    boolean isRunning();
+    int getDeviceCount();
+    int getSucceededCount();
+    int getFailedCount();
+    int getSkippedCount();
+    Percent getProgress();
+    Interval getTimeElapsed();
+    Interval getTimeRemaining();
+}
@@ -19,6 +19,7 @@ package com.idevicesinc.sweetblue.internal;
 
 import java.util.UUID;
 import com.idevicesinc.sweetblue.BleManager;
+import com.idevicesinc.sweetblue.BleMetric;
 import com.idevicesinc.sweetblue.BleNodeConfig;
 import com.idevicesinc.sweetblue.BleTask;
 import com.idevicesinc.sweetblue.P_Bridge_User;
@@ -57,6 +58,9 @@ abstract class PA_Task implements Comparable<PA_Task>
 
 	private long m_timeCreated;
 	private long m_timeExecuted;
+	private long m_metricsTimeQueued;
+	private long m_metricsTimeExecuted;
+	private long m_traceTimeEntered;
 	
 	private boolean m_softlyCancelled = false;
 	
@@ -81,7 +85,7 @@ abstract class PA_Task implements Comparable<PA_Task>
 	{
 		m_device = null;
 		m_manager = manager;
-		m_timeCreated = System.currentTimeMillis();
+		m_timeCreated = timeNow();
 		
 		if( listener == null && this instanceof I_StateListener )
 		{
@@ -146,7 +150,11 @@ abstract class PA_Task implements Comparable<PA_Task>
 		boolean printed = false;
 		if( !m_manager.ASSERT(newState != m_state, "") )  return false;
 		
+		final PE_TaskState oldState = m_state;
 		m_state = newState;
+
+		recordMetrics();
+		recordTrace(oldState);
 		
 		if( getLogger().isEnabled() )
 		{
@@ -172,6 +180,80 @@ abstract class PA_Task implements Comparable<PA_Task>
 		return printed;
 	}
 
+	private void recordMetrics()
+	{
+		final P_Metrics metrics = m_manager.getMetrics();
+		if( metrics == null || !metrics.isEnabled() )  return;
+
+		switch (m_state)
+		{
+			case QUEUED:
+				m_metricsTimeQueued = metrics.now();
+				break;
+			case EXECUTING:
+				m_metricsTimeExecuted = metrics.recordSince(BleMetric.TASK_QUEUE_WAIT_TIME, m_metricsTimeQueued);
+				if( m_metricsTimeExecuted == 0L )
+					m_metricsTimeExecuted = metrics.now();
+				metrics.increment(BleMetric.TASKS_EXECUTED);
+				break;
+			case SUCCEEDED:
+				metrics.increment(BleMetric.TASKS_SUCCEEDED);
+				break;
+			case FAILED:
+			case FAILED_IMMEDIATELY:
+				metrics.increment(BleMetric.TASKS_FAILED);
+				break;
+			case TIMED_OUT:
+				metrics.increment(BleMetric.TASKS_TIMED_OUT);
+				break;
+			case INTERRUPTED:
+			case CANCELLED:
+			case SOFTLY_CANCELLED:
+			case CLEARED_FROM_QUEUE:
+			case REDUNDANT:
+				metrics.increment(BleMetric.TASKS_CANCELLED);
+				break;
+		}
+
+		if( m_state.isEndingState() && m_metricsTimeExecuted != 0L )
+		{
+			metrics.recordSince(BleMetric.TASK_EXECUTION_TIME, m_metricsTimeExecuted);
+			m_metricsTimeExecuted = 0L;
+		}
+	}
+
+	/**
+	 * Records the time spent in the state we're leaving as a span, and if the new state is an ending state, marks how it ended.
+	 */
+	private void recordTrace(final PE_TaskState oldState)
+	{
+		final P_Tracer tracer = m_manager.getTracer();
+		if( tracer == null || !tracer.isEnabled() )  return;
+
+		final long now = tracer.now();
+
+		// The CREATED state is entered from the constructor, before any subclass fields are set, so it only gets its start time
+		if( oldState == null )
+		{
+			m_traceTimeEntered = now;
+			return;
+		}
+
+		final BleTask taskType = getTaskType();
+		final String name = taskType != null ? taskType.name() : getClass().getSimpleName();
+		final String track = getDevice() != null ? getDevice().getMacAddress() : (getServer() != null ? getServer().getMacAddress() : null);
+		final String priority = getPriority() != null ? getPriority().name() : null;
+
+		tracer.async(P_Tracer.CAT_TASK, name, oldState.name(), track, priority, System.identityHashCode(this), m_traceTimeEntered, now);
+
+		if( m_state.isEndingState() )
+		{
+			tracer.instant(P_Tracer.CAT_TASK, name, m_state.name(), track, priority);
+		}
+
+		m_traceTimeEntered = now;
+	}
+
 	private void invokeListeners()
 	{
 		if (m_stateListener != null)
@@ -209,7 +291,7 @@ abstract class PA_Task implements Comparable<PA_Task>
 		//--- DRK > Can be called upstream from different thread than the update loop,
 		//---		so preventing clashes here with this.update method.
 		m_timeout = newTimeout;
-		m_resetableExecuteStartTime = System.currentTimeMillis();
+		m_resetableExecuteStartTime = timeNow();
 	}
 	
 	protected void timeout()
@@ -280,7 +362,7 @@ abstract class PA_Task implements Comparable<PA_Task>
 //		m_totalTimeQueuedAndArmedAndExecuting = m_queue.getTime() - m_addedToQueueTime;
 		m_totalTimeArmedAndExecuting = 0.0;
 //		m_totalTimeExecuting = 0.0;
-		m_resetableExecuteStartTime = System.currentTimeMillis();
+		m_resetableExecuteStartTime = timeNow();
 //		m_retryCount = 0;
 		m_timeout = getInitialTimeout();
 	}
@@ -297,8 +379,8 @@ abstract class PA_Task implements Comparable<PA_Task>
 	
 	private void execute_wrapper()
 	{
-		m_resetableExecuteStartTime = System.currentTimeMillis();
-		m_timeExecuted = System.currentTimeMillis();
+		m_resetableExecuteStartTime = timeNow();
+		m_timeExecuted = timeNow();
 		
 		execute();
 	}
@@ -408,7 +490,7 @@ abstract class PA_Task implements Comparable<PA_Task>
 	
 	public double getTotalTimeExecuting()
 	{
-		return (System.currentTimeMillis() - m_timeExecuted)/1000.0;
+		return (timeNow() - m_timeExecuted)/1000.0;
 	}
 
 	public double getTotalTimeExecuting(long currentTime)
@@ -418,7 +500,7 @@ abstract class PA_Task implements Comparable<PA_Task>
 	
 	public double getTotalTime()
 	{
-		return (System.currentTimeMillis() - m_timeCreated)/1000.0;
+		return (timeNow() - m_timeCreated)/1000.0;
 	}
 
 	public double getTotalTime(long currentTime)
@@ -455,6 +537,11 @@ abstract class PA_Task implements Comparable<PA_Task>
 		return m_server;
 	}
 	
+	private long timeNow()
+	{
+		return m_manager != null ? m_manager.getClock().currentTimeMillis() : System.currentTimeMillis();
+	}
+
 	public IBleManager getManager()
 	{
 		return m_manager;
@@ -28,6 +28,7 @@ import com.idevicesinc.sweetblue.BleOp;
 import com.idevicesinc.sweetblue.BleStatuses;
 import com.idevicesinc.sweetblue.DescriptorFilter;
 import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.PayloadListener;
 import com.idevicesinc.sweetblue.ReadWriteListener;
 import com.idevicesinc.sweetblue.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.ReadWriteListener.Status;
@@ -42,10 +43,23 @@ import com.idevicesinc.sweetblue.utils.Utils;
 abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA_Task.I_StateListener
 {
 
+	/**
+	 * Implemented by internal {@link ReadWriteListener}s which run a sequence of operations. {@link #armSuccessor(byte[])} is called
+	 * right before a successful task ends, so the next operation is already in the queue when the task manager dequeues, instead of
+	 * getting added from the callback after the fact and waiting for the next update tick.
+	 */
+	interface I_SuccessorArmer
+	{
+		void armSuccessor(byte[] data);
+	}
+
 	final BleOp m_bleOp;
 
 	private Boolean m_authRetryValue_onExecute = null;
 	private boolean m_triedToKickOffBond = false;
+	private boolean m_countedByGovernor = false;
+	// The bytes which actually went out, as seen by write_earlyOut(), so they don't have to be pulled from the op again
+	private byte[] m_writtenData = null;
 
 	private BleCharacteristic m_filteredCharacteristic;
 	private List<BleCharacteristic> m_characteristicList;
@@ -268,6 +282,8 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 	
 	@Override public void onStateChange(PA_Task task, PE_TaskState state)
 	{
+		updateLinkGovernor(state);
+
 		if( state == PE_TaskState.TIMED_OUT )
 		{
 			checkIfBondingKickedOff();
@@ -282,6 +298,24 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 		}
 	}
 
+	private void updateLinkGovernor(PE_TaskState state)
+	{
+		final P_LinkGovernor governor = getDevice() != null ? getDevice().getLinkGovernor() : null;
+
+		if( governor == null )  return;
+
+		if( state == PE_TaskState.QUEUED && !m_countedByGovernor )
+		{
+			m_countedByGovernor = true;
+			governor.onReadWriteQueued();
+		}
+		else if( state.isEndingState() && m_countedByGovernor )
+		{
+			m_countedByGovernor = false;
+			governor.onReadWriteEnded();
+		}
+	}
+
 	boolean descriptorMatches(BleDescriptor descriptor)
 	{
 		if (m_bleOp.getDescriptorFilter() == null)
@@ -390,18 +424,41 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 		return P_Bridge_User.newReadWriteEvent(getDevice().getBleDevice(), op, type, target, Status.SUCCESS, BluetoothGatt.GATT_SUCCESS, getTotalTime(), getTotalTimeExecuting(), /*solicited=*/true);
 	}
 
+	protected final void armSuccessor(byte[] data)
+	{
+		final ReadWriteListener listener = m_bleOp.getReadWriteListener();
+
+		if( listener instanceof I_SuccessorArmer )
+		{
+			((I_SuccessorArmer) listener).armSuccessor(data);
+		}
+	}
+
 	private void succeedRead(byte[] value, Target target, ReadWriteListener.Type type)
 	{
+		armSuccessor(value);
+
 		super.succeed();
 
 		final ReadWriteEvent event = newSuccessReadWriteEvent(value, target, type, getCharUuid(), getDescUuid(), m_bleOp.getDescriptorFilter());
 		getDevice().addReadTime(event.time_total().secs());
 
 		getDevice().invokeReadWriteCallback(m_bleOp.getReadWriteListener(), event);
+
+		if (target == Target.CHARACTERISTIC)
+		{
+			final PayloadListener.PayloadEvent payloadEvent = P_Bridge_User.newPayloadEvent(getDevice().getBleDevice(), m_bleOp, getServiceUuid(), getCharUuid(), false, event.data());
+
+			if (payloadEvent != null)
+				getDevice().postEventAsCallback(P_Bridge_User.getPayloadListener(m_bleOp), payloadEvent);
+		}
 	}
 
 	protected void succeedWrite()
 	{
+		// Hand over what was written in execute(), rather than pulling it again, as it may be a FutureData that does real work
+		armSuccessor(m_writtenData);
+
 		super.succeed();
 
 		final ReadWriteEvent event = newReadWriteEvent(Status.SUCCESS, BluetoothGatt.GATT_SUCCESS, getDefaultTarget(), m_bleOp);
@@ -425,6 +482,8 @@ abstract class PA_Task_ReadOrWrite extends PA_Task_Transactionable implements PA
 		}
 		else
 		{
+			m_writtenData = data_nullable;
+
 			return false;
 		}
 	}
@@ -105,6 +105,14 @@ final class PU_HistoricalData
 		return filter_config_device != null ? filter_config_device : filter_config_mngr;
 	}
 
+	static BleNodeConfig.HistoricalDataValueExtractor getValueExtractor(final IBleNode endpoint)
+	{
+		final BleNodeConfig.HistoricalDataValueExtractor extractor_config_device = endpoint.conf_node().historicalDataValueExtractor;
+		final BleNodeConfig.HistoricalDataValueExtractor extractor_config_mngr = endpoint.conf_mngr().historicalDataValueExtractor;
+
+		return extractor_config_device != null ? extractor_config_device : extractor_config_mngr;
+	}
+
 	static BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent newEvent(final IBleNode node, final String macAddress, final UUID uuid, final byte[] data, final EpochTime epochTime, final BleDeviceConfig.HistoricalDataLogFilter.Source source)
 	{
 		final BleDeviceConfig.HistoricalDataLogFilter.HistoricalDataLogEvent event = P_Bridge_User.newHistoricalDataLogEvent(node.getIManager().getBleNode(node), macAddress, uuid, data, epochTime, source);
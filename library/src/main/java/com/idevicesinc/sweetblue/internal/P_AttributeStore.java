@@ -0,0 +1,289 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+import com.idevicesinc.sweetblue.BleStatuses;
+import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.Uuids;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Server-side table of attribute values that the library answers reads and writes from directly, without calling the
+ * {@link com.idevicesinc.sweetblue.IncomingListener} or going through the task queue. Only attributes put here are served;
+ * everything else (and anything marked dynamic) still goes to the listener like before.
+ * <br><br>
+ * Client subscriptions are tracked per served characteristic by answering writes to its client characteristic configuration descriptor.
+ */
+final class P_AttributeStore
+{
+	/**
+	 * Returned by {@link #write(String, UUID, UUID, UUID, int, byte[], boolean)} when the attribute isn't served from this store.
+	 */
+	static final int NOT_SERVED = -1;
+
+	private static final int CCCD_NOTIFY_BIT	= 0x1;
+	private static final int CCCD_INDICATE_BIT	= 0x2;
+
+	private final HashMap<UUID, HashMap<UUID, Attribute>> m_services = new HashMap<>();
+
+
+	private static final class Attribute
+	{
+		private byte[] m_value = P_Const.EMPTY_BYTE_ARRAY;
+		private boolean m_dynamic = false;
+
+		private HashMap<UUID, Attribute> m_descriptors = null;
+		private HashMap<String, Integer> m_subscribers = null;
+	}
+
+
+	final synchronized void put(final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable, final byte[] value)
+	{
+		HashMap<UUID, Attribute> chars = m_services.get(serviceUuid);
+
+		if( chars == null )
+		{
+			chars = new HashMap<>();
+			m_services.put(serviceUuid, chars);
+		}
+
+		Attribute attribute = chars.get(charUuid);
+
+		if( attribute == null )
+		{
+			attribute = new Attribute();
+			chars.put(charUuid, attribute);
+		}
+
+		if( descUuid_nullable != null )
+		{
+			if( attribute.m_descriptors == null )
+			{
+				attribute.m_descriptors = new HashMap<>();
+			}
+
+			Attribute descriptor = attribute.m_descriptors.get(descUuid_nullable);
+
+			if( descriptor == null )
+			{
+				descriptor = new Attribute();
+				attribute.m_descriptors.put(descUuid_nullable, descriptor);
+			}
+
+			attribute = descriptor;
+		}
+
+		attribute.m_value = value != null ? value.clone() : P_Const.EMPTY_BYTE_ARRAY;
+	}
+
+	final synchronized boolean setDynamic(final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable, final boolean dynamic)
+	{
+		final Attribute attribute = find(serviceUuid, charUuid, descUuid_nullable);
+
+		if( attribute == null )
+			return false;
+
+		attribute.m_dynamic = dynamic;
+
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the stored value, or <code>null</code> if the attribute isn't in the store.
+	 */
+	final synchronized byte[] get(final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable)
+	{
+		final Attribute attribute = find(serviceUuid, charUuid, descUuid_nullable);
+
+		return attribute != null ? attribute.m_value.clone() : null;
+	}
+
+	/**
+	 * Returns the bytes to answer a read with, or <code>null</code> if the read should go to the listener instead. The returned array
+	 * is never modified in place, so the caller doesn't need to copy it.
+	 */
+	final synchronized byte[] getServable(final String macAddress, final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable)
+	{
+		final Attribute attribute = find(serviceUuid, charUuid, descUuid_nullable);
+
+		if( attribute != null )
+		{
+			return attribute.m_dynamic ? null : attribute.m_value;
+		}
+		else if( isImplicitCccd(serviceUuid, charUuid, descUuid_nullable) )
+		{
+			final Attribute characteristic = find(serviceUuid, charUuid, null);
+			final Integer bits = characteristic.m_subscribers != null ? characteristic.m_subscribers.get(macAddress) : null;
+
+			return new byte[]{ (byte) (bits != null ? bits : 0x0), 0x0 };
+		}
+		else
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Applies a client's write to the store, and returns the gatt status to respond with, or {@link #NOT_SERVED} if the write should go
+	 * to the listener instead. <code>writable</code> is whether the native attribute's properties and permissions allow a client write;
+	 * if they don't, a served value is left untouched and {@link BleStatuses#GATT_WRITE_NOT_PERMIT} is returned.
+	 */
+	final synchronized int write(final String macAddress, final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable, final int offset, final byte[] data, final boolean writable)
+	{
+		final byte[] data_nonnull = data != null ? data : P_Const.EMPTY_BYTE_ARRAY;
+
+		if( isImplicitCccd(serviceUuid, charUuid, descUuid_nullable) )
+		{
+			subscribe(find(serviceUuid, charUuid, null), macAddress, data_nonnull);
+
+			return BleStatuses.GATT_SUCCESS;
+		}
+
+		final Attribute attribute = find(serviceUuid, charUuid, descUuid_nullable);
+
+		if( attribute == null || attribute.m_dynamic )
+			return NOT_SERVED;
+
+		if( !writable )
+			return BleStatuses.GATT_WRITE_NOT_PERMIT;
+
+		if( offset > attribute.m_value.length )
+			return BleStatuses.GATT_INVALID_OFFSET;
+
+		if( offset == 0 )
+		{
+			attribute.m_value = data_nonnull.clone();
+		}
+		else
+		{
+			final byte[] spliced = new byte[Math.max(attribute.m_value.length, offset + data_nonnull.length)];
+			System.arraycopy(attribute.m_value, 0, spliced, 0, attribute.m_value.length);
+			System.arraycopy(data_nonnull, 0, spliced, offset, data_nonnull.length);
+			attribute.m_value = spliced;
+		}
+
+		if( Uuids.CLIENT_CHARACTERISTIC_CONFIGURATION_DESCRIPTOR_UUID.equals(descUuid_nullable) )
+		{
+			subscribe(find(serviceUuid, charUuid, null), macAddress, data_nonnull);
+		}
+
+		return BleStatuses.GATT_SUCCESS;
+	}
+
+	/**
+	 * Returns the clients that have enabled notifications (or indications, if <code>indications</code> is <code>true</code>) on the given characteristic.
+	 * A client with both enabled only counts as an indication subscriber, so that it gets each value once.
+	 */
+	final synchronized List<String> getSubscribers(final UUID serviceUuid, final UUID charUuid, final boolean indications)
+	{
+		final Attribute attribute = find(serviceUuid, charUuid, null);
+
+		if( attribute == null || attribute.m_subscribers == null || attribute.m_subscribers.isEmpty() )
+			return new ArrayList<>(0);
+
+		final ArrayList<String> subscribers = new ArrayList<>(attribute.m_subscribers.size());
+
+		for( Map.Entry<String, Integer> entry : attribute.m_subscribers.entrySet() )
+		{
+			final boolean indicate = (entry.getValue() & CCCD_INDICATE_BIT) != 0;
+
+			if( indications ? indicate : !indicate && (entry.getValue() & CCCD_NOTIFY_BIT) != 0 )
+			{
+				subscribers.add(entry.getKey());
+			}
+		}
+
+		return subscribers;
+	}
+
+	/**
+	 * A new connection starts out with nothing enabled, so drop whatever the client had subscribed to before.
+	 */
+	final synchronized void onClientConnected(final String macAddress)
+	{
+		for( HashMap<UUID, Attribute> chars : m_services.values() )
+		{
+			for( Attribute attribute : chars.values() )
+			{
+				if( attribute.m_subscribers != null )
+				{
+					attribute.m_subscribers.remove(macAddress);
+				}
+			}
+		}
+	}
+
+	private void subscribe(final Attribute characteristic, final String macAddress, final byte[] cccdValue)
+	{
+		final int bits = cccdValue.length > 0 ? cccdValue[0] & (CCCD_NOTIFY_BIT | CCCD_INDICATE_BIT) : 0x0;
+
+		if( bits == 0x0 )
+		{
+			if( characteristic.m_subscribers != null )
+			{
+				characteristic.m_subscribers.remove(macAddress);
+			}
+		}
+		else
+		{
+			if( characteristic.m_subscribers == null )
+			{
+				characteristic.m_subscribers = new HashMap<>();
+			}
+
+			characteristic.m_subscribers.put(macAddress, bits);
+		}
+	}
+
+	/**
+	 * The client characteristic configuration descriptor of a served characteristic is handled here even when the app didn't put a value
+	 * for it, as its value is per-client anyway.
+	 */
+	private boolean isImplicitCccd(final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable)
+	{
+		if( !Uuids.CLIENT_CHARACTERISTIC_CONFIGURATION_DESCRIPTOR_UUID.equals(descUuid_nullable) )
+			return false;
+
+		final Attribute characteristic = find(serviceUuid, charUuid, null);
+
+		if( characteristic == null || characteristic.m_dynamic )
+			return false;
+
+		return characteristic.m_descriptors == null || !characteristic.m_descriptors.containsKey(descUuid_nullable);
+	}
+
+	private Attribute find(final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable)
+	{
+		final HashMap<UUID, Attribute> chars = m_services.get(serviceUuid);
+
+		if( chars == null )
+			return null;
+
+		final Attribute attribute = chars.get(charUuid);
+
+		if( attribute == null || descUuid_nullable == null )
+			return attribute;
+
+		return attribute.m_descriptors != null ? attribute.m_descriptors.get(descUuid_nullable) : null;
+	}
+}
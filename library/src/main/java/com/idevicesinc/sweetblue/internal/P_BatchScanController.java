@@ -0,0 +1,86 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.utils.Interval;
+
+
+/**
+ * Picks the native report delay for hardware batched scans (see {@link BleManagerConfig#batchScanLatency}). The delay is only
+ * applied when the native scan is started or restarted, so this is asked once per scan cycle. It starts from the latency the app
+ * said it can tolerate, and takes off the time it's expected to take to get the next batch through the update loop, given
+ * how big batches have been, how long each result has taken to process, and how much is still waiting.
+ */
+final class P_BatchScanController
+{
+
+    // Below this fraction of the tolerance, batches get so small there's little point in batching at all
+    private static final double MIN_DELAY_FRACTION = 0.25;
+
+    // Weight given to the newest sample in the running averages
+    private static final double SMOOTHING = 0.3;
+
+
+    private double m_averageBatchSize;
+    private double m_averageSecsPerResult;
+    private Interval m_lastDelay = Interval.ZERO;
+
+
+    /**
+     * Called from the native callback thread with the size of each delivered batch.
+     */
+    final synchronized void onBatch(final int size)
+    {
+        m_averageBatchSize = m_averageBatchSize == 0.0 ? size : m_averageBatchSize + SMOOTHING * (size - m_averageBatchSize);
+    }
+
+    /**
+     * Called from the update thread after a drained batch has been turned into discovery events.
+     */
+    final synchronized void onIngested(final int count, final long nanos)
+    {
+        if( count <= 0 )  return;
+
+        final double secsPerResult = (nanos / 1.0e9) / count;
+
+        m_averageSecsPerResult = m_averageSecsPerResult == 0.0 ? secsPerResult : m_averageSecsPerResult + SMOOTHING * (secsPerResult - m_averageSecsPerResult);
+    }
+
+    final synchronized Interval chooseReportDelay(final Interval tolerance, final int backlog, final double updateRate_secs)
+    {
+        final double tolerance_secs = tolerance.secs();
+        final double drain_secs = (backlog + m_averageBatchSize) * m_averageSecsPerResult + updateRate_secs;
+        final double delay_secs = Math.max(tolerance_secs * MIN_DELAY_FRACTION, Math.min(tolerance_secs, tolerance_secs - drain_secs));
+
+        m_lastDelay = Interval.secs(delay_secs);
+
+        return m_lastDelay;
+    }
+
+    final synchronized Interval getLastReportDelay()
+    {
+        return m_lastDelay;
+    }
+
+    final synchronized double getAverageBatchSize()
+    {
+        return m_averageBatchSize;
+    }
+}
@@ -30,10 +30,13 @@ import com.idevicesinc.sweetblue.BleDeviceConfig;
 import com.idevicesinc.sweetblue.BleDeviceOrigin;
 import com.idevicesinc.sweetblue.BleDeviceState;
 import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.BleMetric;
 import com.idevicesinc.sweetblue.BleNodeConfig;
 import com.idevicesinc.sweetblue.BleNotify;
 import com.idevicesinc.sweetblue.BleOp;
+import com.idevicesinc.sweetblue.BleOpChain;
 import com.idevicesinc.sweetblue.BleRead;
+import com.idevicesinc.sweetblue.BleService;
 import com.idevicesinc.sweetblue.BleStatuses;
 import com.idevicesinc.sweetblue.BleTransaction;
 import com.idevicesinc.sweetblue.BleWrite;
@@ -41,6 +44,7 @@ import com.idevicesinc.sweetblue.BondFilter;
 import com.idevicesinc.sweetblue.BondListener;
 import com.idevicesinc.sweetblue.DeviceConnectListener;
 import com.idevicesinc.sweetblue.DeviceReconnectFilter;
+import com.idevicesinc.sweetblue.DeviceSnapshot;
 import com.idevicesinc.sweetblue.DeviceStateListener;
 import com.idevicesinc.sweetblue.HistoricalDataLoadListener;
 import com.idevicesinc.sweetblue.MtuTestCallback;
@@ -50,6 +54,7 @@ import com.idevicesinc.sweetblue.internal.PA_StateTracker.E_Intent;
 import com.idevicesinc.sweetblue.ReadWriteListener;
 import com.idevicesinc.sweetblue.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.ReconnectFilter;
+import com.idevicesinc.sweetblue.RssiChangeListener;
 import com.idevicesinc.sweetblue.ScanFilter;
 import com.idevicesinc.sweetblue.annotations.Immutable;
 import com.idevicesinc.sweetblue.annotations.Nullable;
@@ -68,6 +73,8 @@ import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.GenericListener_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCodec;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
 import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.P_Const;
@@ -76,16 +83,20 @@ import com.idevicesinc.sweetblue.utils.Phy;
 import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.TimeEstimator;
-import com.idevicesinc.sweetblue.utils.TimeTracker;
 import com.idevicesinc.sweetblue.utils.Utils;
+import com.idevicesinc.sweetblue.utils.RssiFilter;
 import com.idevicesinc.sweetblue.utils.Utils_Config;
 import com.idevicesinc.sweetblue.utils.Utils_Rssi;
 import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
 import com.idevicesinc.sweetblue.utils.Utils_State;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.UUID;
@@ -110,6 +121,14 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     private double m_timeSinceLastDiscovery;
     private EpochTime m_lastDiscoveryTime = EpochTime.NULL;
 
+    // Fingerprint of the last advertisement that went through rediscovery, see BleManagerConfig#duplicateAdvertisementWindow
+    private int m_adLength = -1;
+    private long m_adHash;
+    private int m_adRssi;
+    private long m_adTime;
+    // Time of the last advertisement dropped as a duplicate, only turned into an EpochTime if someone asks
+    private long m_lastSeenTime;
+
     private final P_DeviceStateTracker m_stateTracker;
     private final P_PollManager m_pollMngr;
 
@@ -119,6 +138,7 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     private final P_DeviceConnectionManager m_connectionMgr;
     private final P_RssiPollManager m_rssiPollMngr;
     private final P_RssiPollManager m_rssiPollMngr_auto;
+    private final P_LinkGovernor m_linkGovernor;
     private final P_Task_Disconnect m_dummyDisconnectTask;
     private final P_HistoricalDataManager m_historicalDataMngr;
     private final P_BondManager m_bondMngr;
@@ -142,6 +162,17 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     private BleConnectionPriority m_connectionPriority = BleConnectionPriority.MEDIUM;
     private int m_mtu = 0;
     private int m_rssi = 0;
+    private P_RssiEstimator m_rssiEstimator = null;
+    private double m_rssi_lastReported = 0.0;
+    private boolean m_rssi_hasReported = false;
+    private RssiChangeListener m_rssiChangeListener = null;
+    // Resolved from the device and manager configs when either changes, rather than on every RSSI reading.
+    private volatile boolean m_rssiConfigDirty = true;
+    private RssiFilter m_rssiFilter = RssiFilter.NONE;
+    private double m_rssiChangeThreshold = BleDeviceConfig.DEFAULT_RSSI_CHANGE_THRESHOLD;
+    private DeviceSnapshot m_snapshot = DeviceSnapshot.NULL;
+    // Set when restored from a snapshot, so the first connection renegotiates the remembered MTU and priority like a reconnect would.
+    private boolean m_warmStart = false;
     private Integer m_knownTxPower = null;
     private byte[] m_scanRecord = P_Const.EMPTY_BYTE_ARRAY;
     private Boolean m_hasMtuBug = null;
@@ -181,6 +212,7 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
             m_nativeManager = new P_BleDeviceNativeManager(this, m_deviceLayer, name_normalized, name_native);
             m_rssiPollMngr = null;
             m_rssiPollMngr_auto = null;
+            m_linkGovernor = null;
             // setConfig(config_nullable);
             m_stateTracker = new P_DeviceStateTracker(this);
             m_bondMngr = new P_BondManager(this);
@@ -200,6 +232,7 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
             m_deviceLayer.updateBleDevice(this);
             m_rssiPollMngr = new P_RssiPollManager(this);
             m_rssiPollMngr_auto = new P_RssiPollManager(this);
+            m_linkGovernor = new P_LinkGovernor(this);
             m_stateTracker = new P_DeviceStateTracker(this);
             m_bondMngr = new P_BondManager(this);
             m_pollMngr = new P_PollManager(this);
@@ -248,6 +281,10 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         if (isNull()) return;
 
         m_config = config_nullable == null ? null : config_nullable.clone();
+        m_rssiConfigDirty = true;
+        m_linkGovernor.onConfigChanged();
+
+        getIManager().getDeviceManager().invalidateExpiryIndex(this);
 
         if (m_nativeManager.needsInit())
         {
@@ -290,6 +327,9 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     @Override
     public EpochTime getLastDiscoveryTime()
     {
+        if (m_lastSeenTime > m_lastDiscoveryTime.toMilliseconds())
+            return new EpochTime(m_lastSeenTime);
+
         return m_lastDiscoveryTime;
     }
 
@@ -525,6 +565,14 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         m_historicalDataMngr.setListener(listener_nullable);
     }
 
+    @Override
+    public void setListener_RssiChange(RssiChangeListener listener_nullable)
+    {
+        if (isNull()) return;
+
+        m_rssiChangeListener = listener_nullable;
+    }
+
     @Override
     public int getConnectionRetryCount()
     {
@@ -593,6 +641,27 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         }
     }
 
+    @Override
+    public double getSmoothedRssi()
+    {
+        final P_RssiEstimator estimator = m_rssiEstimator;
+
+        return estimator != null && estimator.hasValue() ? estimator.getValue() : getRssi();
+    }
+
+    @Override
+    public Distance getSmoothedDistance()
+    {
+        if (isNull())
+        {
+            return Distance.INVALID;
+        }
+        else
+        {
+            return Distance.meters(Utils_Rssi.distance(getTxPower(), getSmoothedRssi()));
+        }
+    }
+
     @Override
     public int getTxPower()
     {
@@ -740,6 +809,42 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         return m_historicalDataMngr.getCount(uuid, EpochTimeRange.denull(range));
     }
 
+    @Override
+    public HistoricalDataAggregate getHistoricalData_aggregate(UUID uuid, EpochTimeRange range)
+    {
+        if (isNull()) return HistoricalDataAggregate.NULL;
+
+        return m_historicalDataMngr.getAggregate(uuid, EpochTimeRange.denull(range));
+    }
+
+    @Override
+    public List<HistoricalDataAggregate> getHistoricalData_series(UUID uuid, EpochTimeRange range, Interval bucketSize)
+    {
+        if (isNull()) return new ArrayList<>();
+
+        return m_historicalDataMngr.getSeries(uuid, EpochTimeRange.denull(range), Interval.isDisabled(bucketSize) ? Interval.ZERO : bucketSize);
+    }
+
+    @Override
+    public int exportHistoricalData(UUID uuid, EpochTimeRange range, HistoricalDataCodec.Encoder encoder) throws IOException
+    {
+        if (isNull())
+        {
+            encoder.finish();
+            return 0;
+        }
+
+        return m_historicalDataMngr.export(uuid, EpochTimeRange.denull(range), encoder);
+    }
+
+    @Override
+    public int importHistoricalData(UUID uuid, HistoricalDataCodec.Decoder decoder) throws IOException
+    {
+        if (isNull()) return 0;
+
+        return m_historicalDataMngr.import_all(uuid, decoder);
+    }
+
     @Override
     public boolean hasHistoricalData(UUID uuid, EpochTimeRange range)
     {
@@ -878,6 +983,8 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
                 if (e.wasSuccess())
                 {
                     m_nativeManager.updateNativeName(name);
+
+                    getIManager().onDeviceSnapshotChanged(this);
                 }
 
                 invokeReadWriteCallback(listener, e);
@@ -1361,6 +1468,14 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         return true;
     }
 
+    @Override
+    public void runChain(BleOpChain chain)
+    {
+        if (isNull()) return;
+
+        new P_OpChain(this, chain, m_threadLocalTransaction.get()).start();
+    }
+
     @Override
     public int getEffectiveWriteMtuSize()
     {
@@ -1451,14 +1566,19 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     public final void onNativeDisconnect(final boolean wasExplicit, final int gattStatus, final boolean attemptShortTermReconnect, final boolean saveLastDisconnect)
     {
         m_connectionMgr.onDisconnected(wasExplicit, gattStatus, attemptShortTermReconnect, saveLastDisconnect);
+
+        getIManager().onDeviceSnapshotChanged(this);
     }
 
     public final void onServicesDiscovered()
     {
+        final boolean renegotiate = m_warmStart || isAny(RECONNECTING_SHORT_TERM, RECONNECTING_LONG_TERM);
+        m_warmStart = false;
+
         boolean autoNegotiateMtu = Utils_Config.bool(conf_device().autoNegotiateMtuOnReconnect, conf_mngr().autoNegotiateMtuOnReconnect);
         if (autoNegotiateMtu && m_mtu > BleNodeConfig.DEFAULT_MTU_SIZE)
         {
-            if (isAny(RECONNECTING_SHORT_TERM, RECONNECTING_LONG_TERM))
+            if (renegotiate)
             {
                 negotiateMtu_private(m_mtu, null, PE_TaskPriority.FOR_PRIORITY_READS_WRITES);
             }
@@ -1468,12 +1588,14 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
 
         if (m_connectionPriority != BleConnectionPriority.MEDIUM)
         {
-            if (isAny(RECONNECTING_SHORT_TERM, RECONNECTING_LONG_TERM))
+            if (renegotiate)
             {
                 setConnectionPriority_private(m_connectionPriority, null, PE_TaskPriority.FOR_PRIORITY_READS_WRITES);
             }
         }
 
+        getIManager().onDeviceSnapshotChanged(this);
+
         m_txnMngr.runAuthOrInitTxnIfNeeded(BluetoothGatt.GATT_SUCCESS, DISCOVERING_SERVICES, false, SERVICES_DISCOVERED, true);
     }
 
@@ -1496,11 +1618,126 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         {
             m_rssiPollMngr.onScanRssiUpdate(rssi);
         }
+
+        updateSmoothedRssi(rssi);
+
+        getIManager().onDeviceSnapshotRefreshed(this);
+    }
+
+    @Override
+    public final void onManagerConfigChanged()
+    {
+        m_rssiConfigDirty = true;
+
+        if (m_linkGovernor != null)
+            m_linkGovernor.onConfigChanged();
+    }
+
+    private void resolveRssiConfig()
+    {
+        // Cleared first, so a config change that lands while resolving makes the next reading resolve again
+        m_rssiConfigDirty = false;
+
+        final RssiFilter filter = Utils_Config.filter(conf_device().rssiFilter, conf_mngr().rssiFilter);
+        m_rssiFilter = filter != null ? filter : RssiFilter.NONE;
+
+        final Double threshold_nullable = Utils_Config.filter(conf_device().rssiChangeThreshold, conf_mngr().rssiChangeThreshold);
+        m_rssiChangeThreshold = threshold_nullable != null ? threshold_nullable : BleDeviceConfig.DEFAULT_RSSI_CHANGE_THRESHOLD;
+    }
+
+    private void updateSmoothedRssi(final int rssi)
+    {
+        if (m_rssiConfigDirty)
+            resolveRssiConfig();
+
+        final RssiFilter filter = m_rssiFilter;
+        final RssiChangeListener listener = m_rssiChangeListener;
+
+        // With no smoothing, and no one listening, getSmoothedRssi() just returns the raw value, so there's nothing to keep up to date.
+        if (filter.getType() == RssiFilter.Type.NONE && listener == null)
+        {
+            m_rssiEstimator = null;
+            return;
+        }
+
+        // Only start fresh when the filter itself was swapped out, so config changes that don't touch it keep the current estimate.
+        if (m_rssiEstimator == null || m_rssiEstimator.getFilter() != filter)
+        {
+            m_rssiEstimator = new P_RssiEstimator(filter);
+        }
+
+        final double smoothed = m_rssiEstimator.update(rssi);
+
+        if (listener == null)   return;
+
+        if (m_rssi_hasReported && Math.abs(smoothed - m_rssi_lastReported) < m_rssiChangeThreshold)   return;
+
+        final double previous = m_rssi_hasReported ? m_rssi_lastReported : smoothed;
+        m_rssi_lastReported = smoothed;
+        m_rssi_hasReported = true;
+
+        final Distance distance = Distance.meters(Utils_Rssi.distance(getTxPower(), smoothed));
+        postEventAsCallback(listener, P_Bridge_User.newRssiChangeEvent(getBleDevice(), rssi, smoothed, previous, distance, filter));
     }
 
     public final void updateMtu(final int mtu)
     {
         m_mtu = mtu;
+
+        getIManager().onDeviceSnapshotChanged(this);
+    }
+
+    @Override
+    public final DeviceSnapshot getSnapshot()
+    {
+        return m_snapshot;
+    }
+
+    public final DeviceSnapshot newSnapshot()
+    {
+        final LinkedHashMap<UUID, List<UUID>> services = new LinkedHashMap<>();
+        final List<BleService> serviceList = getServiceManager().getServices_List();
+
+        for (int i = 0; i < serviceList.size(); i++)
+        {
+            final BleService service = serviceList.get(i);
+            final List<BleCharacteristic> charList = service.getCharacteristics();
+            final List<UUID> chars = new ArrayList<>(charList.size());
+
+            for (int j = 0; j < charList.size(); j++)
+            {
+                chars.add(charList.get(j).getUuid());
+            }
+
+            services.put(service.getUuid(), chars);
+        }
+
+        // Not connected right now, so keep whatever layout was last known
+        if (services.isEmpty())
+        {
+            services.putAll(m_snapshot.services());
+        }
+
+        return P_Bridge_User.newDeviceSnapshot(getMacAddress(), getName_native(), m_scanRecord, m_rssi, is(BONDED), m_mtu, m_connectionPriority, services, new EpochTime(getIManager().getClock().currentTimeMillis()));
+    }
+
+    public final void restoreFromSnapshot(final DeviceSnapshot snapshot)
+    {
+        m_snapshot = snapshot;
+        m_warmStart = true;
+        m_rssi = snapshot.rssi();
+        m_mtu = snapshot.mtu();
+        m_connectionPriority = snapshot.connectionPriority();
+
+        final byte[] scanRecord = snapshot.scanRecord();
+
+        if (scanRecord.length > 0)
+        {
+            m_scanRecord = scanRecord;
+            m_scanInfo = Utils_ScanRecord.parseScanRecord(scanRecord);
+
+            updateKnownTxPower(m_scanInfo.getTxPower().value);
+        }
     }
 
     public final P_ReliableWriteManager getReliableWriteManager()
@@ -1559,6 +1796,11 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         return conf_device();
     }
 
+    public final P_LinkGovernor getLinkGovernor()
+    {
+        return m_linkGovernor;
+    }
+
     public final P_PollManager getPollManager()
     {
         return m_pollMngr;
@@ -1574,6 +1816,8 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
 
         onDiscovered_private(scanEvent_nullable, rssi, scanRecord_nullable);
 
+        getIManager().onDeviceSnapshotChanged(this);
+
         stateTracker().update(PA_StateTracker.E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, m_bondMngr.getNativeBondingStateOverrides(), UNDISCOVERED, false, DISCOVERED, true, ADVERTISING, origin == BleDeviceOrigin.FROM_DISCOVERY, BLE_DISCONNECTED, true);
     }
 
@@ -1581,8 +1825,17 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     {
         m_origin_latest = origin;
 
+        final String name_native = getName_native();
+
         m_nativeManager.updateNativeDevice(device_native, scanRecord_nullable, Arrays.equals(m_scanRecord, scanRecord_nullable));
 
+        // A new scan record (or RSSI) is already picked up, throttled, by updateRssi(), but a name change is worth writing right away
+        final String name_native_new = getName_native();
+        if (name_native == null ? name_native_new != null : !name_native.equals(name_native_new))
+        {
+            getIManager().onDeviceSnapshotChanged(this);
+        }
+
         onDiscovered_private(scanEvent_nullable, rssi, scanRecord_nullable);
 
         stateTracker().update(PA_StateTracker.E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, m_bondMngr.getNativeBondingStateOverrides(), ADVERTISING, true);
@@ -1591,16 +1844,24 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     public final void updateConnectionPriority(final BleConnectionPriority connectionPriority)
     {
         m_connectionPriority = connectionPriority;
+
+        getIManager().onDeviceSnapshotChanged(this);
     }
 
     public final void invokeReadWriteCallback(final ReadWriteListener listener_nullable, final ReadWriteListener.ReadWriteEvent event)
     {
         if (event.wasSuccess() && event.isRead() && event.target() == ReadWriteListener.Target.CHARACTERISTIC)
         {
-            final EpochTime timestamp = new EpochTime();
+            getIManager().onCharacteristicRead();
+
             final BleNodeConfig.HistoricalDataLogFilter.Source source = event.type().toHistoricalDataSource();
 
-            m_historicalDataMngr.add_single(event.charUuid(), event.data(), timestamp, source);
+            getIManager().getHistoricalDataIngestor().submit(m_historicalDataMngr, event.charUuid(), event.data(), getIManager().getClock().currentTimeMillis(), source);
+        }
+
+        if (m_linkGovernor != null && event.wasSuccess() && (event.target() == ReadWriteListener.Target.CHARACTERISTIC || event.target() == ReadWriteListener.Target.DESCRIPTOR) && event.data() != null)
+        {
+            m_linkGovernor.onBytesTransferred(event.data().length);
         }
 
         m_txnMngr.onReadWriteResult(event);
@@ -1630,10 +1891,9 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     {
         if (event.wasSuccess())
         {
-            final EpochTime timestamp = new EpochTime();
             final BleNodeConfig.HistoricalDataLogFilter.Source source = event.type().toHistoricalDataSource();
 
-            m_historicalDataMngr.add_single(event.charUuid(), event.data(), timestamp, source);
+            getIManager().getHistoricalDataIngestor().submit(m_historicalDataMngr, event.charUuid(), event.data(), getIManager().getClock().currentTimeMillis(), source);
         }
 
         NotificationListener listener = nl;
@@ -1977,27 +2237,7 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
 
     public final void postEventAsCallback(final GenericListener_Void listener, final Event event)
     {
-        if (listener != null)
-        {
-            if (listener instanceof PA_CallbackWrapper)
-            {
-                getIManager().getPostManager().runOrPostToUpdateThread(() -> {
-                    if (listener != null)
-                    {
-                        listener.onEvent(event);
-                    }
-                });
-            }
-            else
-            {
-                getIManager().getPostManager().postCallback(() -> {
-                    if (listener != null)
-                    {
-                        listener.onEvent(event);
-                    }
-                });
-            }
-        }
+        getIManager().postEvent(getMacAddress(), listener, event);
     }
 
     public final P_BleDeviceNativeManager getNativeManager()
@@ -2037,6 +2277,8 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
     private void clear_undiscovery()
     {
         m_lastDiscoveryTime = EpochTime.NULL;
+        m_lastSeenTime = 0L;
+        m_adLength = -1;
     }
 
     private void initEstimators()
@@ -2211,9 +2453,58 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
         return taskManager();
     }
 
+    // Hardware batched scan results can show up a good while after the device actually advertised, so the manager
+    // passes along the real time once the discovery has been processed.
+    @Override
+    public final void updateLastDiscoveryTime(final EpochTime time)
+    {
+        if (time != null && !time.isNull())
+            m_lastDiscoveryTime = time;
+    }
+
+    @Override
+    public final boolean isDuplicateAdvertisement(final byte[] scanRecord_nullable, final int rssi, final long time, final long window, final int rssiDelta)
+    {
+        final int length = scanRecord_nullable != null ? scanRecord_nullable.length : 0;
+        final long hash = hashAdvertisement(scanRecord_nullable);
+
+        // Only once the device is already advertising, so any state change still goes through the normal path
+        if (length == m_adLength && hash == m_adHash && Math.abs(rssi - m_adRssi) < rssiDelta && time >= m_adTime && time - m_adTime < window && is_internal(ADVERTISING))
+        {
+            m_timeSinceLastDiscovery = 0.0;
+            m_lastSeenTime = time;
+
+            return true;
+        }
+
+        m_adLength = length;
+        m_adHash = hash;
+        m_adRssi = rssi;
+        m_adTime = time;
+
+        return false;
+    }
+
+    // 64-bit FNV-1a
+    private static long hashAdvertisement(final byte[] scanRecord_nullable)
+    {
+        long hash = 0xcbf29ce484222325L;
+
+        if (scanRecord_nullable != null)
+        {
+            for (int i = 0; i < scanRecord_nullable.length; i++)
+            {
+                hash ^= scanRecord_nullable[i] & 0xFF;
+                hash *= 0x100000001b3L;
+            }
+        }
+
+        return hash;
+    }
+
     private void onDiscovered_private(final ScanFilter.ScanEvent scanEvent_nullable, final int rssi, byte[] scanRecord_nullable)
     {
-        m_lastDiscoveryTime = EpochTime.now();
+        m_lastDiscoveryTime = new EpochTime(getIManager().getClock().currentTimeMillis());
         m_timeSinceLastDiscovery = 0.0;
         updateRssi(rssi, true);
 
@@ -2294,24 +2585,19 @@ public final class P_BleDeviceImpl extends BleNodeImpl implements IBleDevice
 
     public final void update(double timeStep)
     {
-        TimeTracker tt = TimeTracker.getInstance();
-        tt.start("BleDevice_Update");
+        final P_Metrics metrics = getIManager().getMetrics();
+        final long updateStart = metrics.now();
 
         m_timeSinceLastDiscovery += timeStep;
 
-        tt.start("BleDevice_Update_PollMngr");
         m_pollMngr.update(timeStep);
-        tt.transition("BleDevice_Update_PollMngr", "BleDevice_Update_TxnMngr");
         m_txnMngr.update(timeStep);
-        tt.transition("BleDevice_Update_TxnMngr", "BleDevice_Update_ConnectionMgr");
         m_connectionMgr.update(timeStep);
-        tt.transition("BleDevice_Update_ConnectionMgr", "BleDevice_Update_RssiPollMngr");
         m_rssiPollMngr.update(timeStep);
-        tt.transition("BleDevice_UpdateRssiPollMngr", "BleDevice_Update_BondManager");
         m_bondMngr.update(timeStep);
-        tt.stop("BleDevice_Update_BondManager");
+        m_linkGovernor.update(timeStep);
 
-        tt.stop("BleDevice_Update");
+        metrics.recordSince(BleMetric.DEVICE_UPDATE_TIME, updateStart);
     }
 
     final void unbond_justAddTheTask(final PE_TaskPriority priority_nullable)
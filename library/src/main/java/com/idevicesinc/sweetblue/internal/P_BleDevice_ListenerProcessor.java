@@ -75,6 +75,30 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         return m_nativeListener;
     }
 
+    /**
+     * Posts the given native callback to the update thread. When tracing is on, the time it took to get from the native
+     * callback thread to the update thread is recorded on this device's track.
+     */
+    private void postNativeCallback(final String callbackName, final Runnable action)
+    {
+        final P_Tracer tracer = m_device.getIManager().getTracer();
+
+        if (!tracer.isEnabled())
+        {
+            m_device.getIManager().getPostManager().runOrPostToUpdateThread(action);
+            return;
+        }
+
+        final String mac = m_device.getMacAddress();
+        final long id = System.identityHashCode(action);
+        final long received = tracer.now();
+        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() ->
+        {
+            tracer.async(P_Tracer.CAT_NATIVE, callbackName, null, mac, null, id, received, tracer.now());
+            action.run();
+        });
+    }
+
 
     private void taskStateChanged(PA_Task task, PE_TaskState state)
     {
@@ -157,7 +181,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         else
             m_logger.d("onConnectionStateChange()", m_device.getMacAddress(), "Got connection state change from task ending. New state: " + CodeHelper.gattConn(newState, m_logger.isEnabled()));
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onConnectionStateChange_updateThread(gatt, gattStatus, newState, isExplicit));
+        postNativeCallback("onConnectionStateChange", () -> onConnectionStateChange_updateThread(gatt, gattStatus, newState, isExplicit));
     }
 
     private void onConnectionStateChange_updateThread(final P_GattHolder gatt, final int gattStatus, final int newState, Boolean explicit)
@@ -332,7 +356,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onServicesDiscovered_updateThread(gatt, gattStatus));
+        postNativeCallback("onServicesDiscovered", () -> onServicesDiscovered_updateThread(gatt, gattStatus));
     }
 
     private void onServicesDiscovered_updateThread(final P_GattHolder gatt, final int gattStatus)
@@ -369,7 +393,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         final UUID uuid = characteristic.getCharacteristic().getUuid();
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus, m_logger.charName(uuid));
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onCharacteristicRead_updateThread(gatt, characteristic, gattStatus, value));
+        postNativeCallback("onCharacteristicRead", () -> onCharacteristicRead_updateThread(gatt, characteristic, gattStatus, value));
     }
 
     private void onCharacteristicRead_updateThread(final P_GattHolder gatt, final BleCharacteristic characteristic, final int gattStatus, final byte[] value)
@@ -394,7 +418,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         final UUID uuid = characteristic.getUuid();
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus, m_logger.charName(uuid));
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onCharacteristicWrite_updateThread(gatt, characteristic, data, gattStatus));
+        postNativeCallback("onCharacteristicWrite", () -> onCharacteristicWrite_updateThread(gatt, characteristic, data, gattStatus));
     }
 
     private void onCharacteristicWrite_updateThread(final P_GattHolder gatt, final BleCharacteristic characteristic, final byte[] data, final int gattStatus)
@@ -462,7 +486,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onReliableWriteCompleted_updateThread(gatt, gattStatus));
+        postNativeCallback("onReliableWriteCompleted", () -> onReliableWriteCompleted_updateThread(gatt, gattStatus));
     }
 
     private void onReliableWriteCompleted_updateThread(final P_GattHolder gatt, final int gattStatus)
@@ -485,7 +509,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onReadRemoteRssi_updateThread(gatt, rssi, gattStatus));
+        postNativeCallback("onReadRemoteRssi", () -> onReadRemoteRssi_updateThread(gatt, rssi, gattStatus));
     }
 
     private void onReadRemoteRssi_updateThread(final P_GattHolder gatt, final int rssi, final int gattStatus)
@@ -516,7 +540,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
 
         final byte[] data = descriptor.getValue();
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onDescriptorWrite_updateThread(gatt, descriptor, data, gattStatus));
+        postNativeCallback("onDescriptorWrite", () -> onDescriptorWrite_updateThread(gatt, descriptor, data, gattStatus));
     }
 
     private void onDescriptorWrite_updateThread(final P_GattHolder gatt, final BleDescriptor descriptor, final byte[] data, final int gattStatus)
@@ -552,7 +576,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         m_logger.i_native(m_logger.descriptorName(uuid));
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onDescriptorRead_updateThread(gatt, descriptor, data, gattStatus));
+        postNativeCallback("onDescriptorRead", () -> onDescriptorRead_updateThread(gatt, descriptor, data, gattStatus));
     }
 
     private void onDescriptorRead_updateThread(final P_GattHolder gatt, final BleDescriptor descriptor, final byte[] data, final int gattStatus)
@@ -583,7 +607,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
         final UUID characteristicUuid = characteristic.getUuid();
         m_logger.log_native(LogOptions.LogLevel.DEBUG.nativeBit(), m_device.getMacAddress(), "characteristic=" + characteristicUuid.toString());
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onCharacteristicChanged_updateThread(gatt, characteristic, value));
+        postNativeCallback("onCharacteristicChanged", () -> onCharacteristicChanged_updateThread(gatt, characteristic, value));
     }
 
     private void onCharacteristicChanged_updateThread(final P_GattHolder gatt, final BleCharacteristic characteristic, final byte[] value)
@@ -670,7 +694,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onMtuChanged_updateThread(gatt, mtu, gattStatus));
+        postNativeCallback("onMtuChanged", () -> onMtuChanged_updateThread(gatt, mtu, gattStatus));
     }
 
     private void onMtuChanged_updateThread(P_GattHolder gatt, int mtu, int gattStatus)
@@ -697,7 +721,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onPhyRead_updateThread(gatt, txPhy, rxPhy, gattStatus));
+        postNativeCallback("onPhyRead", () -> onPhyRead_updateThread(gatt, txPhy, rxPhy, gattStatus));
     }
 
     private void onPhyRead_updateThread(P_GattHolder gatt, int txPhy, int rxPhy, int status)
@@ -720,7 +744,7 @@ final class P_BleDevice_ListenerProcessor implements IDeviceListener.Callback
     {
         m_logger.log_status_native(m_device.getMacAddress(), gattStatus);
 
-        m_device.getIManager().getPostManager().runOrPostToUpdateThread(() -> onPhyUpdate_updateThread(gatt, txPhy, rxPhy, gattStatus));
+        postNativeCallback("onPhyUpdate", () -> onPhyUpdate_updateThread(gatt, txPhy, rxPhy, gattStatus));
     }
 
     private void onPhyUpdate_updateThread(P_GattHolder gatt, int txPhy, int rxPhy, int gattStatus)
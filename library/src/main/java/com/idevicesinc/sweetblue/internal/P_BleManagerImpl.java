@@ -46,15 +46,19 @@ import com.idevicesinc.sweetblue.BleDeviceState;
 import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.BleManagerConfig;
 import com.idevicesinc.sweetblue.BleManagerState;
+import com.idevicesinc.sweetblue.BleMetric;
 import com.idevicesinc.sweetblue.BleNode;
 import com.idevicesinc.sweetblue.BleScanApi;
+import com.idevicesinc.sweetblue.BleScanPower;
 import com.idevicesinc.sweetblue.BleServer;
 import com.idevicesinc.sweetblue.BleServerState;
 import com.idevicesinc.sweetblue.BleService;
 import com.idevicesinc.sweetblue.BleStatuses;
+import com.idevicesinc.sweetblue.BleTransaction;
 import com.idevicesinc.sweetblue.BondListener;
 import com.idevicesinc.sweetblue.DeviceConnectListener;
 import com.idevicesinc.sweetblue.DeviceReconnectFilter;
+import com.idevicesinc.sweetblue.DeviceSnapshot;
 import com.idevicesinc.sweetblue.DeviceStateListener;
 import com.idevicesinc.sweetblue.DiscoveryListener;
 import com.idevicesinc.sweetblue.HistoricalDataLoadListener;
@@ -62,6 +66,10 @@ import com.idevicesinc.sweetblue.IncomingListener;
 import com.idevicesinc.sweetblue.LogOptions;
 import com.idevicesinc.sweetblue.ManagerStateListener;
 import com.idevicesinc.sweetblue.NotificationListener;
+import com.idevicesinc.sweetblue.OtaCampaign;
+import com.idevicesinc.sweetblue.OtaCampaignConfig;
+import com.idevicesinc.sweetblue.OtaCampaignListener;
+import com.idevicesinc.sweetblue.OtaImageProvider;
 import com.idevicesinc.sweetblue.OutgoingListener;
 import com.idevicesinc.sweetblue.P_Bridge_User;
 import com.idevicesinc.sweetblue.ReadWriteListener;
@@ -72,6 +80,7 @@ import com.idevicesinc.sweetblue.ScanOptions;
 import com.idevicesinc.sweetblue.ServerConnectListener;
 import com.idevicesinc.sweetblue.ServerReconnectFilter;
 import com.idevicesinc.sweetblue.ServerStateListener;
+import com.idevicesinc.sweetblue.TimeTrackerSetting;
 import com.idevicesinc.sweetblue.UhOhListener;
 import com.idevicesinc.sweetblue.annotations.Advanced;
 import com.idevicesinc.sweetblue.annotations.Experimental;
@@ -86,6 +95,7 @@ import com.idevicesinc.sweetblue.internal.android.IServerListener;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothManager;
 import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
+import com.idevicesinc.sweetblue.utils.Clock;
 import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.Event;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
@@ -94,9 +104,10 @@ import com.idevicesinc.sweetblue.utils.GattDatabase;
 import com.idevicesinc.sweetblue.utils.GenericListener_Void;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.NativeScanFilter;
 import com.idevicesinc.sweetblue.utils.P_Const;
 import com.idevicesinc.sweetblue.utils.State;
-import com.idevicesinc.sweetblue.utils.TimeTracker;
 import com.idevicesinc.sweetblue.internal.PA_StateTracker.E_Intent;
 import com.idevicesinc.sweetblue.utils.UpdateThreadType;
 import com.idevicesinc.sweetblue.utils.Utils;
@@ -112,6 +123,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.idevicesinc.sweetblue.BleManagerState.*;
 
@@ -142,6 +154,11 @@ public final class P_BleManagerImpl implements IBleManager
     private final P_BleManagerNativeManager m_nativeManager;
     private final P_ManagerStateTracker m_stateTracker;
     private P_PostManager m_postManager;
+    private P_Metrics m_metrics;
+    private P_Tracer m_tracer;
+    private P_ConnectionAdmissionManager m_admissionMngr;
+    private final ArrayList<P_OtaCampaign> m_otaCampaigns = new ArrayList<>();
+    private final P_HistoricalDataIngestor m_historicalDataIngestor;
     private P_ScanManager m_scanManager;
     private final P_TaskManager m_taskManager;
     private P_UhOhThrottler m_uhOhThrottler;
@@ -161,6 +178,10 @@ public final class P_BleManagerImpl implements IBleManager
     private ReadWriteListener m_defaultReadWriteListener;
     private NotificationListener m_defaultNotificationListener;
     private final P_DiskOptionsManager m_diskOptionsMngr;
+    private final P_DeviceSnapshotStore m_snapshotStore;
+    private boolean m_snapshotsRestored = false;
+    private final long m_createdNanos = System.nanoTime();
+    private final AtomicBoolean m_firstReadRecorded = new AtomicBoolean(false);
     private PA_Task.I_StateListener m_defaultTaskStateListener;
 
     private double m_timeForegrounded = 0.0;
@@ -209,13 +230,13 @@ public final class P_BleManagerImpl implements IBleManager
 
         m_context = context.getApplicationContext();
 
-        m_currentTick = System.currentTimeMillis();
-
         addLifecycleCallbacks();
         m_config = config.clone();
 
-        // Start up the time tracker
-        TimeTracker.createInstance(config.timeTrackerSetting);
+        m_currentTick = getClock().currentTimeMillis();
+
+        m_metrics = new P_Metrics(isMetricsEnabled(m_config));
+        m_tracer = new P_Tracer(getTraceCapacity(m_config));
 
         m_logger = new P_Logger(this, P_Const.debugThreadNames, m_config.uuidNameMaps, m_config.loggingOptions, m_config.logger);
 
@@ -224,6 +245,7 @@ public final class P_BleManagerImpl implements IBleManager
         m_scanManager = new P_ScanManager(this);
         m_historicalDatabase = PU_HistoricalData.newDatabase(context, this);
         m_diskOptionsMngr = new P_DiskOptionsManager(this);
+        m_snapshotStore = new P_DeviceSnapshotStore(this);
         m_filterMngr = new P_ScanFilterManager(this, m_config.defaultScanFilter);
         if (m_config.bluetoothManagerImplementation.isManagerNull())
         {
@@ -244,8 +266,10 @@ public final class P_BleManagerImpl implements IBleManager
         m_crashResolver = new P_BluetoothCrashResolver(m_context);
         m_deviceMngr = new P_DeviceManager(this);
         m_deviceMngr_cache = new P_DeviceManager(this);
+        m_admissionMngr = new P_ConnectionAdmissionManager(this);
+        m_historicalDataIngestor = new P_HistoricalDataIngestor(this);
 
-        m_lastTaskExecution = System.currentTimeMillis();
+        m_lastTaskExecution = m_currentTick;
 
         m_nativeManager = new P_BleManagerNativeManager(this);
 
@@ -266,9 +290,28 @@ public final class P_BleManagerImpl implements IBleManager
     public final void setConfig(@Nullable(Nullable.Prevalence.RARE) BleManagerConfig config_nullable)
     {
         m_config = config_nullable != null ? config_nullable.clone() : new BleManagerConfig();
-        updateTimeTracker();
+        m_metrics.setEnabled(isMetricsEnabled(m_config));
+        if (m_tracer.getCapacity() != getTraceCapacity(m_config))
+        {
+            m_tracer = new P_Tracer(getTraceCapacity(m_config));
+        }
         updateLogger();
         initConfigDependentMembers();
+        m_deviceMngr.invalidateExpiryIndex();
+        notifyDevicesOfConfigChange(m_deviceMngr);
+        notifyDevicesOfConfigChange(m_deviceMngr_cache);
+    }
+
+    // Devices cache some values resolved from the manager's config, so they need to know when it changes
+    private static void notifyDevicesOfConfigChange(final P_DeviceManager deviceManager)
+    {
+        if (deviceManager == null)  return;
+
+        final List<IBleDevice> devices = deviceManager.getList();
+        for (int i = 0; i < devices.size(); i++)
+        {
+            devices.get(i).onManagerConfigChanged();
+        }
     }
 
     public final BleManagerConfig getConfigClone()
@@ -1059,6 +1102,11 @@ public final class P_BleManagerImpl implements IBleManager
         }
 
         clearQueue();
+        if (m_config.saveDeviceSnapshots)
+        {
+            m_snapshotStore.flush();
+        }
+        m_historicalDataIngestor.shutdown();
         m_uhOhThrottler.shutdown();
         m_updateRunnable.m_shutdown = true;
         ((Application) m_context).unregisterActivityLifecycleCallbacks(m_activityCallbacks);
@@ -1471,6 +1519,7 @@ public final class P_BleManagerImpl implements IBleManager
                 for (BleService service : gattDatabase.getServiceList())
                 {
                     m_server.addService(service, addServiceListener);
+                    m_server.serveFromDatabase(gattDatabase, service);
                 }
             }
         }
@@ -1614,6 +1663,7 @@ public final class P_BleManagerImpl implements IBleManager
         final String macAddress_normalized = normalizeMacAddress(macAddress);
 
         m_diskOptionsMngr.clear(macAddress_normalized);
+        m_snapshotStore.remove(macAddress_normalized);
     }
 
     /**
@@ -1627,6 +1677,7 @@ public final class P_BleManagerImpl implements IBleManager
     public final void clearSharedPreferences()
     {
         m_diskOptionsMngr.clear();
+        m_snapshotStore.clear();
     }
 
     /**
@@ -1637,20 +1688,20 @@ public final class P_BleManagerImpl implements IBleManager
     @Advanced
     public final void update(final double timeStep_seconds, final long currentTime)
     {
-        TimeTracker tt = TimeTracker.getInstance();
-
-        tt.start("BleManager_Update");
+        final P_Metrics metrics = m_metrics;
+        final long updateStart = metrics.now();
+        final P_Tracer tracer = m_tracer;
+        final long traceStart = tracer.now();
 
         m_currentTick = currentTime;
 
-        tt.start("BleManager_Update_Native_Manager");
         m_nativeManager.update(timeStep_seconds);
 
-        tt.transition("BleManager_Update_Native_Manager", "BleManager_Update_UhOhThrottler");
+        long phaseStart = metrics.recordSince(BleMetric.NATIVE_MANAGER_UPDATE_TIME, updateStart);
 
         m_uhOhThrottler.update(timeStep_seconds);
 
-        tt.transition("BleManager_Update_UhOhThrottler", "BleManager_Update_TaskManager");
+        phaseStart = metrics.now();
 
         if (m_taskManager.update(timeStep_seconds, currentTime))
         {
@@ -1658,7 +1709,7 @@ public final class P_BleManagerImpl implements IBleManager
             checkIdleStatus();
         }
 
-        tt.stop("BleManager_Update_TaskManager");
+        metrics.recordSince(BleMetric.TASK_MANAGER_UPDATE_TIME, phaseStart);
 
         if( m_isForegrounded )
         {
@@ -1669,7 +1720,19 @@ public final class P_BleManagerImpl implements IBleManager
             m_timeForegrounded = 0.0;
         }
 
-        tt.start("BleManager_Update_DeviceMngr");
+        m_admissionMngr.update(timeStep_seconds);
+
+        if (!m_otaCampaigns.isEmpty())
+        {
+            updateOtaCampaigns(timeStep_seconds);
+        }
+
+        if (m_config.saveDeviceSnapshots)
+        {
+            m_snapshotStore.update(timeStep_seconds);
+        }
+
+        phaseStart = metrics.now();
 
         m_deviceMngr.update(timeStep_seconds);
 
@@ -1678,12 +1741,11 @@ public final class P_BleManagerImpl implements IBleManager
             m_timeTurnedOn = currentTime;
         }
 
-        tt.transition("BleManager_Update_DeviceMngr", "BleManager_Update_ScanManager");
+        phaseStart = metrics.recordSince(BleMetric.DEVICE_MANAGER_UPDATE_TIME, phaseStart);
         boolean dontDoMoreStuff = m_scanManager.update(timeStep_seconds, currentTime);
-        tt.stop("BleManager_Update_ScanManager");
+        metrics.recordSince(BleMetric.SCAN_MANAGER_UPDATE_TIME, phaseStart);
         if(!dontDoMoreStuff)
         {
-            tt.start("BleManager_Update_ScanManager_MoreStuff");
             if (Interval.isEnabled(m_config.minTimeToIdle))
             {
                 if (!is(IDLE) && m_lastTaskExecution + m_config.minTimeToIdle.millis() < currentTime)
@@ -1693,18 +1755,15 @@ public final class P_BleManagerImpl implements IBleManager
                     getLogger().i("Update loop has entered IDLE state.");
                 }
             }
-            tt.stop("BleManager_Update_ScanManager_MoreStuff");
         }
 
-        tt.start("BleManager_Update_UpdateLoopCallback");
-
         if( m_config.updateLoopCallback != null )
         {
+            phaseStart = metrics.now();
             m_config.updateLoopCallback.onUpdate(timeStep_seconds);
+            metrics.recordSince(BleMetric.UPDATE_LOOP_CALLBACK_TIME, phaseStart);
         }
 
-        tt.stop("BleManager_Update_UpdateLoopCallback");
-
         // Commenting this out for now, as it's not really helpful for our customers.
 //        if (!is(IDLE) && m_config.autoUpdateRate.millis() < (System.currentTimeMillis() - m_currentTick) && (m_lastUpdateLoopWarning + UPDATE_LOOP_WARNING_DELAY <= m_currentTick))
 //        {
@@ -1712,9 +1771,15 @@ public final class P_BleManagerImpl implements IBleManager
 //            getLogger().w("BleManager", String.format("Update loop took longer to run than the current interval of %dms", m_config.autoUpdateRate.millis()));
 //        }
 
-        tt.stop("BleManager_Update");
+        if (metrics.isEnabled())
+        {
+            metrics.increment(BleMetric.UPDATE_LOOP_TICKS);
+            metrics.setGauge(BleMetric.TASK_QUEUE_SIZE, m_taskManager.getSize());
+            metrics.setGauge(BleMetric.DEVICE_COUNT, m_deviceMngr.getCount());
+            metrics.recordSince(BleMetric.UPDATE_LOOP_TIME, updateStart);
+        }
 
-        tt.print();
+        tracer.complete(P_Tracer.CAT_UPDATE, "update", null, traceStart);
     }
 
     /**
@@ -1857,6 +1922,8 @@ public final class P_BleManagerImpl implements IBleManager
 
         final List<P_ScanManager.DiscoveryEntry> list = new ArrayList<>();
 
+        final long duplicateWindow = Interval.isEnabled(m_config.duplicateAdvertisementWindow) ? m_config.duplicateAdvertisementWindow.millis() : 0L;
+
         for (P_ScanManager.DiscoveryEntry entry : entries)
         {
 
@@ -1878,6 +1945,16 @@ public final class P_BleManagerImpl implements IBleManager
 
             if (device_sweetblue == null)
             {
+                //--- Let any compiled filters reject the device off the raw bytes before we go through the trouble of
+                //--- getting the name, hitting the disk, and parsing the scan record below.
+                final int rawVerdict = m_filterMngr.prefilter(macAddress, entry.rssi(), entry.record());
+
+                if (rawVerdict == P_ScanFilterManager.RAW_REJECT)
+                {
+                    m_metrics.increment(BleMetric.SCAN_RESULTS_FILTERED);
+                    continue;
+                }
+
                 final String rawDeviceName;
 
                 try
@@ -1905,11 +1982,19 @@ public final class P_BleManagerImpl implements IBleManager
 
                 final String normalizedDeviceName = Utils_String.normalizeDeviceName(rawDeviceName);
 
-                final boolean hitDisk = P_Bridge_User.boolOrDefault(m_config.manageLastDisconnectOnDisk);
-                final State.ChangeIntent lastDisconnectIntent = m_diskOptionsMngr.loadLastDisconnect(macAddress, hitDisk);
-                scanEvent_nullable = m_filterMngr.makeEvent() ? P_Bridge_User.newScanEventFromRecord(entry.device().getNativeDevice(), rawDeviceName, normalizedDeviceName, entry.rssi(), lastDisconnectIntent, entry.record()) : null;
+                if (rawVerdict == P_ScanFilterManager.RAW_ACCEPT && m_filterMngr.makeEvent())
+                {
+                    scanEvent_nullable = null;
+                    please = m_filterMngr.acceptedPlease(macAddress, entry.rssi(), entry.record());
+                }
+                else
+                {
+                    final boolean hitDisk = P_Bridge_User.boolOrDefault(m_config.manageLastDisconnectOnDisk);
+                    final State.ChangeIntent lastDisconnectIntent = m_diskOptionsMngr.loadLastDisconnect(macAddress, hitDisk);
+                    scanEvent_nullable = m_filterMngr.makeEvent() ? P_Bridge_User.newScanEventFromRecord(entry.device().getNativeDevice(), rawDeviceName, normalizedDeviceName, entry.rssi(), lastDisconnectIntent, entry.record(), new EpochTime(entry.time())) : null;
 
-                please = m_filterMngr.allow(m_logger, scanEvent_nullable);
+                    please = m_filterMngr.allow(m_logger, scanEvent_nullable);
+                }
 
                 if (please != null && false == P_Bridge_User.ack(please)) continue;
 
@@ -1920,9 +2005,20 @@ public final class P_BleManagerImpl implements IBleManager
                 final BleDeviceConfig config_nullable = P_Bridge_User.fromPlease(please);
                 device_sweetblue = newDevice_private(entry.device(), normalizedDeviceName, name_native, BleDeviceOrigin.FROM_DISCOVERY, config_nullable);
                 newlyDiscovered = true;
+
+                //--- Never a duplicate for a new device, this just records the advertisement so the next identical one can be dropped.
+                if (duplicateWindow > 0L)
+                    device_sweetblue.isDuplicateAdvertisement(entry.record(), entry.rssi(), entry.time(), duplicateWindow, m_config.duplicateAdvertisementRssiDelta);
             }
             else
             {
+                //--- Most devices repeat the exact same advertisement over and over, so only note that they're still around.
+                if (duplicateWindow > 0L && device_sweetblue.isDuplicateAdvertisement(entry.record(), entry.rssi(), entry.time(), duplicateWindow, m_config.duplicateAdvertisementRssiDelta))
+                {
+                    m_metrics.increment(BleMetric.DUPLICATE_ADVERTISEMENTS_SUPPRESSED);
+                    continue;
+                }
+
                 scanEvent_nullable = null;
                 newlyDiscovered = false;
                 stopScan = false;
@@ -1944,6 +2040,11 @@ public final class P_BleManagerImpl implements IBleManager
         return m_config.bluetoothManagerImplementation;
     }
 
+    public final List<NativeScanFilter> getNativeScanFilterList()
+    {
+        return m_filterMngr.nativeFilters(m_config.defaultNativeScanFilterList);
+    }
+
     public final boolean canPerformAutoScan()
     {
         return is(ON) && (m_config.autoScanDuringOta || !m_deviceMngr.hasDevice(BleDeviceState.PERFORMING_OTA));
@@ -1960,6 +2061,16 @@ public final class P_BleManagerImpl implements IBleManager
     }
 
     public final void postEvent(final GenericListener_Void listener, final Event event)
+    {
+        postEvent(P_CallbackLanes.MANAGER_LANE, listener, event);
+    }
+
+    /**
+     * Same as {@link #postEvent(GenericListener_Void, Event)}, but if {@link BleManagerConfig#callbackExecutor} is in use, the
+     * callback runs in the lane for the given key (a device's mac address for device events), so it stays in order with everything else
+     * posted for that device.
+     */
+    public final void postEvent(final Object laneKey, final GenericListener_Void listener, final Event event)
     {
         if (listener != null)
         {
@@ -1974,7 +2085,7 @@ public final class P_BleManagerImpl implements IBleManager
             }
             else
             {
-                m_postManager.postCallback(() -> {
+                m_postManager.postCallback(laneKey, () -> {
                     if (listener != null)
                     {
                         listener.onEvent(event);
@@ -1994,6 +2105,149 @@ public final class P_BleManagerImpl implements IBleManager
         return m_postManager;
     }
 
+    public final P_Tracer getTracer()
+    {
+        return m_tracer;
+    }
+
+    public final P_Metrics getMetrics()
+    {
+        return m_metrics;
+    }
+
+    public final void onDeviceSnapshotChanged(final IBleDevice device)
+    {
+        if (m_config.saveDeviceSnapshots)
+        {
+            m_snapshotStore.markDirty(device);
+        }
+    }
+
+    public final void onDeviceSnapshotRefreshed(final IBleDevice device)
+    {
+        if (m_config.saveDeviceSnapshots)
+        {
+            m_snapshotStore.markRefreshed(device);
+        }
+    }
+
+    public final void onCharacteristicRead()
+    {
+        if (m_metrics.isEnabled() && m_firstReadRecorded.compareAndSet(false, true))
+        {
+            m_metrics.record(BleMetric.STARTUP_TO_FIRST_READ, System.nanoTime() - m_createdNanos);
+        }
+    }
+
+    public final Clock getClock()
+    {
+        final Clock clock = m_config.clock;
+        return clock != null ? clock : Clock.SYSTEM;
+    }
+
+    public final P_ConnectionAdmissionManager getConnectionAdmissionManager()
+    {
+        return m_admissionMngr;
+    }
+
+    public final P_HistoricalDataIngestor getHistoricalDataIngestor()
+    {
+        return m_historicalDataIngestor;
+    }
+
+    public final void flushHistoricalData()
+    {
+        m_historicalDataIngestor.flush();
+    }
+
+    public final OtaCampaign startOtaCampaign(Iterable<BleDevice> devices, OtaImageProvider provider, OtaCampaignConfig config, OtaCampaignListener listener)
+    {
+        final P_OtaCampaign campaign = new P_OtaCampaign(this, devices, provider, config != null ? config : new OtaCampaignConfig(), listener);
+
+        m_postManager.runOrPostToUpdateThread(() ->
+        {
+            m_otaCampaigns.add(campaign);
+            updateOtaTaskSharing();
+        });
+
+        return campaign.getCampaign();
+    }
+
+    public final void onOtaTransactionEnded(final IBleDevice device, final IBleTransaction txn, final BleTransaction.EndReason reason)
+    {
+        m_postManager.runOrPostToUpdateThread(() ->
+        {
+            for (int i = 0; i < m_otaCampaigns.size(); i++)
+            {
+                m_otaCampaigns.get(i).onOtaTransactionEnded(txn, reason);
+            }
+        });
+    }
+
+    private void updateOtaCampaigns(final double timeStep_seconds)
+    {
+        boolean removed = false;
+
+        for (int i = m_otaCampaigns.size() - 1; i >= 0; i--)
+        {
+            final P_OtaCampaign campaign = m_otaCampaigns.get(i);
+
+            campaign.update(timeStep_seconds);
+
+            if (!campaign.isRunning())
+            {
+                m_otaCampaigns.remove(i);
+                removed = true;
+            }
+        }
+
+        if (removed)
+        {
+            updateOtaTaskSharing();
+        }
+    }
+
+    // The strictest running campaign decides how OTA tasks share the queue
+    private void updateOtaTaskSharing()
+    {
+        int max = 0;
+
+        for (int i = 0; i < m_otaCampaigns.size(); i++)
+        {
+            final int campaignMax = m_otaCampaigns.get(i).getMaxConsecutiveOtaTasks();
+
+            if (campaignMax > 0 && (max == 0 || campaignMax < max))
+                max = campaignMax;
+        }
+
+        m_taskManager.setMaxConsecutiveOtaTasks(max);
+    }
+
+    public final MetricsSnapshot getMetricsSnapshot()
+    {
+        return m_metrics.snapshot(getClock().currentTimeMillis());
+    }
+
+    public final Map<BleScanPower, Interval> getTimeInScanPowerModes()
+    {
+        return m_scanManager.getTimeInScanPowerModes();
+    }
+
+    public final void resetMetrics()
+    {
+        m_metrics.reset();
+    }
+
+    public final String getTraceJson()
+    {
+        return m_tracer.toChromeTraceJson();
+    }
+
+    public final void clearTrace()
+    {
+        m_tracer.clear();
+    }
+
     public final P_BleManagerNativeManager getNativeManager()
     {
         return m_nativeManager;
@@ -2387,7 +2641,7 @@ public final class P_BleManagerImpl implements IBleManager
 
         @Override public void run()
         {
-            long currentTime = System.currentTimeMillis();
+            long currentTime = getClock().currentTimeMillis();
             if (m_lastAutoUpdateTime == null)
             {
                 m_lastAutoUpdateTime = currentTime;
@@ -2441,19 +2695,29 @@ public final class P_BleManagerImpl implements IBleManager
 
         boolean stopScan = false;
 
+        final boolean countChanged = m_scanManager.isCountingChangedAdvertisements();
+        int newCount = 0;
+        int changedCount = 0;
+
         for (P_ScanManager.DiscoveryEntry e : entries)
         {
             if (e.m_newlyDiscovered)
             {
+                newCount++;
                 m_logger.i("BleManager", e.device().getAddress(), Utils_String.makeString("Discovered new BleDevice ", e.device().getName()));
                 e.m_bleDevice.onNewlyDiscovered(e.device(), e.m_scanEvent, e.rssi(), e.record(), e.m_origin);
+                e.m_bleDevice.updateLastDiscoveryTime(new EpochTime(e.time()));
                 final DiscoveryListener.DiscoveryEvent event = P_Bridge_User.newDiscoveryEvent(getBleDevice(e.m_bleDevice), DiscoveryListener.LifeCycle.DISCOVERED);
                 events.add(event);
             }
             else
             {
+                if (countChanged && !Arrays.equals(e.m_bleDevice.getScanRecord(), e.record()))
+                    changedCount++;
+
                 m_logger.d("BleManager", e.device().getAddress(), Utils_String.makeString("Re-discovered BleDevice ", e.device().getName()));
                 e.m_bleDevice.onRediscovered(e.device(), e.m_scanEvent, e.rssi(), e.record(), e.m_origin);
+                e.m_bleDevice.updateLastDiscoveryTime(new EpochTime(e.time()));
                 final DiscoveryListener.DiscoveryEvent event = P_Bridge_User.newDiscoveryEvent(getBleDevice(e.m_bleDevice), DiscoveryListener.LifeCycle.REDISCOVERED);
                 events.add(event);
             }
@@ -2463,6 +2727,8 @@ public final class P_BleManagerImpl implements IBleManager
                 break;
             }
         }
+        m_scanManager.onAdvertisementsIngested(newCount, changedCount);
+
         DiscoveryListener listener = m_ephemeralDiscoveryListener;
         if (listener != null)
         {
@@ -2527,6 +2793,36 @@ public final class P_BleManagerImpl implements IBleManager
         }));
     }
 
+    private void restoreDeviceSnapshots()
+    {
+        m_snapshotsRestored = true;
+
+        final List<DeviceSnapshot> snapshots = m_snapshotStore.loadAll();
+
+        for (int i = 0; i < snapshots.size(); i++)
+        {
+            final DeviceSnapshot snapshot = snapshots.get(i);
+
+            if (m_deviceMngr.get(snapshot.macAddress()) != null || m_deviceMngr_cache.get(snapshot.macAddress()) != null)
+                continue;
+
+            final IBluetoothDevice device_native = newNativeDevice(snapshot.macAddress());
+
+            if (device_native.isDeviceNull())
+                continue;
+
+            final String name_normalized = Utils_String.normalizeDeviceName(snapshot.name_native());
+            final IBleDevice device = IBleDevice.DEFAULT_FACTORY.newInstance(this, device_native, name_normalized, snapshot.name_native(), BleDeviceOrigin.EXPLICIT, null, /*isNull=*/false);
+
+            device.restoreFromSnapshot(snapshot);
+
+            m_deviceMngr_cache.add(device);
+            m_metrics.increment(BleMetric.SNAPSHOT_DEVICES_RESTORED);
+        }
+
+        m_logger.i("Restored " + snapshots.size() + " device snapshot(s).");
+    }
+
     private IBleDevice newDevice_private(final IBluetoothDevice device_native, final String name_normalized, final String name_native, final BleDeviceOrigin origin, final BleDeviceConfig config_nullable)
     {
         // TODO: for now always true...should these be behind a config option?
@@ -2721,9 +3017,15 @@ public final class P_BleManagerImpl implements IBleManager
         return true;
     }
 
-    private void updateTimeTracker()
+    @SuppressWarnings("deprecation")
+    private static int getTraceCapacity(BleManagerConfig config)
     {
-        TimeTracker.getInstance().setTimeTrackerSetting(m_config.timeTrackerSetting);
+        return config.enableTracing ? Math.max(config.traceBufferSize, 1) : 0;
+    }
+
+    private static boolean isMetricsEnabled(BleManagerConfig config)
+    {
+        return config.enableMetrics || (config.timeTrackerSetting != null && config.timeTrackerSetting != TimeTrackerSetting.Off);
     }
 
     private void updateLogger()
@@ -2780,6 +3082,14 @@ public final class P_BleManagerImpl implements IBleManager
 
         m_uhOhThrottler = new P_UhOhThrottler(this, Interval.secs(m_config.uhOhCallbackThrottle));
 
+        m_admissionMngr.setLimits(m_config.maxConcurrentReconnects, m_config.reconnectBackoffCeiling);
+        m_historicalDataIngestor.configure(m_config.historicalDataIngestionBufferSize, m_config.historicalDataBackPressure);
+
+        if (m_config.saveDeviceSnapshots && !m_snapshotsRestored)
+        {
+            restoreDeviceSnapshots();
+        }
+
         if (m_wakeLockMngr == null)
         {
             m_wakeLockMngr = new P_WakeLockManager(this, m_config.manageCpuWakeLock);
@@ -2855,6 +3165,9 @@ public final class P_BleManagerImpl implements IBleManager
                 break;
         }
 
+        if (update instanceof ThreadHandler)
+            ((ThreadHandler) update).setClock(getClock());
+
         ui.post(() -> m_logger.setMainThread(android.os.Process.myTid()));
         if (m_postManager != null)
             m_postManager.quit();
@@ -473,7 +473,7 @@ final class P_BleManager_ListenerProcessor implements IManagerListener.Callback
             layer.setNativeDevice(deviceHolder.getDevice(), deviceHolder);
 
             final List<P_ScanManager.DiscoveryEntry> entries = new ArrayList<>(1);
-            entries.add(new P_ScanManager.DiscoveryEntry(layer, rssi, null));
+            entries.add(new P_ScanManager.DiscoveryEntry(layer, rssi, null, m_mngr.getClock().currentTimeMillis()));
 
             m_mngr.onDiscoveredFromNativeStack(entries);
         }
@@ -25,6 +25,7 @@ import com.idevicesinc.sweetblue.AddServiceListener;
 import com.idevicesinc.sweetblue.AdvertisingListener;
 import com.idevicesinc.sweetblue.BleAdvertisingSettings;
 import com.idevicesinc.sweetblue.BleCharacteristic;
+import com.idevicesinc.sweetblue.BleDescriptor;
 import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleManager;
 import com.idevicesinc.sweetblue.BleManagerConfig;
@@ -33,6 +34,8 @@ import com.idevicesinc.sweetblue.BleServer;
 import com.idevicesinc.sweetblue.BleServerState;
 import com.idevicesinc.sweetblue.BleService;
 import com.idevicesinc.sweetblue.BleStatuses;
+import com.idevicesinc.sweetblue.BroadcastListener;
+import com.idevicesinc.sweetblue.ExchangeListener;
 import com.idevicesinc.sweetblue.IncomingListener;
 import com.idevicesinc.sweetblue.OutgoingListener;
 import com.idevicesinc.sweetblue.P_Bridge_User;
@@ -51,15 +54,23 @@ import com.idevicesinc.sweetblue.utils.BleScanRecord;
 import com.idevicesinc.sweetblue.utils.ForEach_Breakable;
 import com.idevicesinc.sweetblue.utils.ForEach_Void;
 import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.P_Bridge_Utils;
+import com.idevicesinc.sweetblue.utils.P_Const;
 import com.idevicesinc.sweetblue.utils.PresentData;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.Utils_String;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import static com.idevicesinc.sweetblue.BleServerState.CONNECTED;
 import static com.idevicesinc.sweetblue.BleServerState.CONNECTING;
@@ -88,6 +99,7 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
     private final P_AdvertisementManager m_advManager;
     private ServerConnectListener m_connectListener;
     private Map<String, ServerConnectListener> m_ephemeralConnectListenerMap;
+    private final P_AttributeStore m_attributeStore;
 
 
     /*package*/ P_BleServerImpl(final IBleManager mngr, final boolean isNull)
@@ -102,6 +114,7 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
         m_connectionFailMngr = new P_ServerConnectionFailManager(this);
         m_clientMngr = new P_ClientManager(this);
         m_ephemeralConnectListenerMap = new HashMap<>();
+        m_attributeStore = new P_AttributeStore();
         if (mngr != null)
         {
             m_config = mngr.getConfigClone();
@@ -327,6 +340,99 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
         return sendNotification_private(macAddress, serviceUuid, charUuid, futureData, listener, /*isIndication=*/false);
     }
 
+    public final boolean setAttributeValue(UUID serviceUuid, final UUID charUuid, final UUID descUuid, final byte[] value, final boolean notifySubscribers)
+    {
+        if( isNull() )  return false;
+
+        serviceUuid = resolveServiceUuid(serviceUuid, charUuid);
+
+        if( serviceUuid == null )  return false;
+
+        m_attributeStore.put(serviceUuid, charUuid, descUuid, value);
+
+        if( notifySubscribers && descUuid == null )
+        {
+            // A client with both enabled is only in the indication list, so it gets the value once
+            final List<String> notifySubscribers_list = m_attributeStore.getSubscribers(serviceUuid, charUuid, /*indications=*/false);
+            final List<String> indicateSubscribers_list = m_attributeStore.getSubscribers(serviceUuid, charUuid, /*indications=*/true);
+
+            if( !notifySubscribers_list.isEmpty() )
+                broadcastNotification(serviceUuid, charUuid, new PresentData(value), notifySubscribers_list, null);
+
+            if( !indicateSubscribers_list.isEmpty() )
+                broadcastIndication(serviceUuid, charUuid, new PresentData(value), indicateSubscribers_list, null);
+        }
+
+        return true;
+    }
+
+    public final boolean setAttributeDynamic(UUID serviceUuid, final UUID charUuid, final UUID descUuid, final boolean dynamic)
+    {
+        serviceUuid = resolveServiceUuid(serviceUuid, charUuid);
+
+        if( serviceUuid == null )  return false;
+
+        return m_attributeStore.setDynamic(serviceUuid, charUuid, descUuid, dynamic);
+    }
+
+    public final @Nullable(Nullable.Prevalence.NORMAL) byte[] getAttributeValue(UUID serviceUuid, final UUID charUuid, final UUID descUuid)
+    {
+        serviceUuid = resolveServiceUuid(serviceUuid, charUuid);
+
+        if( serviceUuid == null )  return null;
+
+        return m_attributeStore.get(serviceUuid, charUuid, descUuid);
+    }
+
+    private UUID resolveServiceUuid(final UUID serviceUuid_nullable, final UUID charUuid)
+    {
+        if( serviceUuid_nullable != null )  return serviceUuid_nullable;
+
+        final BleCharacteristic characteristic = getNativeBleCharacteristic(null, charUuid);
+
+        return characteristic.isNull() ? null : characteristic.getService().getUuid();
+    }
+
+    public final P_AttributeStore getAttributeStore()
+    {
+        return m_attributeStore;
+    }
+
+    public final void serveFromDatabase(final GattDatabase database, final BleService service)
+    {
+        final UUID serviceUuid = service.getUuid();
+        final List<BleCharacteristic> characteristics = service.getCharacteristics();
+
+        for( int i = 0; i < characteristics.size(); i++ )
+        {
+            final BleCharacteristic characteristic = characteristics.get(i);
+            final UUID charUuid = characteristic.getUuid();
+
+            if( P_Bridge_Utils.isServed(database, serviceUuid, charUuid, null) )
+                m_attributeStore.put(serviceUuid, charUuid, null, characteristic.getValue());
+
+            final List<BleDescriptor> descriptors = characteristic.getDescriptors();
+
+            for( int j = 0; j < descriptors.size(); j++ )
+            {
+                final BleDescriptor descriptor = descriptors.get(j);
+
+                if( P_Bridge_Utils.isServed(database, serviceUuid, charUuid, descriptor.getUuid()) )
+                    m_attributeStore.put(serviceUuid, charUuid, descriptor.getUuid(), descriptor.getValue());
+            }
+        }
+    }
+
+    public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastIndication(UUID serviceUuid, UUID charUuid, final FutureData futureData, Collection<String> macAddresses, BroadcastListener listener)
+    {
+        return broadcast_private(serviceUuid, charUuid, futureData, macAddresses, listener, /*isIndication=*/true);
+    }
+
+    public final @Nullable(Nullable.Prevalence.NEVER) BroadcastListener.BroadcastEvent broadcastNotification(UUID serviceUuid, UUID charUuid, final FutureData futureData, Collection<String> macAddresses, BroadcastListener listener)
+    {
+        return broadcast_private(serviceUuid, charUuid, futureData, macAddresses, listener, /*isIndication=*/false);
+    }
+
     public final boolean isAdvertisingSupportedByAndroidVersion()
     {
         return m_advManager.isAdvertisingSupportedByAndroidVersion();
@@ -809,6 +915,7 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
     public final void onNativeConnect(final String macAddress, final boolean explicit)
     {
         m_clientMngr.onConnected(macAddress);
+        m_attributeStore.onClientConnected(macAddress);
 
         final State.ChangeIntent intent = explicit ? State.ChangeIntent.INTENTIONAL : State.ChangeIntent.UNINTENTIONAL;
 
@@ -851,6 +958,12 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
             getIManager().postEvent(listener, e);
     }
 
+    public final void invokeBroadcastListener(final BroadcastListener.BroadcastEvent e, final BroadcastListener listener_nullable)
+    {
+        if( listener_nullable != null )
+            getIManager().postEvent(listener_nullable, e);
+    }
+
     public final void invokeConnectListeners(ServerConnectListener.ConnectEvent event)
     {
         ServerConnectListener listener = m_ephemeralConnectListenerMap.remove(event.macAddress());
@@ -1055,4 +1168,62 @@ public final class P_BleServerImpl extends BleNodeImpl implements IBleServer
 
         return P_Bridge_User.outgoingNULL(getBleServer(), P_DeviceHolder.newHolder(nativeDevice.getNativeDevice()), serviceUuid, charUuid);
     }
+
+    private BroadcastListener.BroadcastEvent broadcast_private(final UUID serviceUuid, final UUID charUuid, final FutureData futureData, final Collection<String> macAddresses_nullable, final BroadcastListener listener, final boolean isIndication)
+    {
+        final ExchangeListener.Type type = isIndication ? ExchangeListener.Type.INDICATION : ExchangeListener.Type.NOTIFICATION;
+
+        if( isNull() )
+        {
+            return broadcastEarlyOut(serviceUuid, charUuid, type, OutgoingListener.Status.NULL_SERVER, listener);
+        }
+
+        if( getNativeBleCharacteristic(serviceUuid, charUuid, null) == null )
+        {
+            return broadcastEarlyOut(serviceUuid, charUuid, type, OutgoingListener.Status.NO_MATCHING_TARGET, listener);
+        }
+
+        final Set<String> wanted;
+        if( macAddresses_nullable != null )
+        {
+            wanted = new HashSet<>(macAddresses_nullable.size() * 2);
+            for( String macAddress : macAddresses_nullable )
+            {
+                wanted.add(Utils_String.normalizeMacAddress(macAddress));
+            }
+        }
+        else
+        {
+            wanted = null;
+        }
+
+        final List<String> connected = getClients_List(CONNECTED);
+        final List<IBluetoothDevice> clients = new ArrayList<>(connected.size());
+        for( int i = 0; i < connected.size(); i++ )
+        {
+            final String macAddress = connected.get(i);
+
+            if( wanted == null || wanted.contains(macAddress) )
+                clients.add(newNativeDevice(macAddress));
+        }
+
+        if( clients.isEmpty() )
+        {
+            return broadcastEarlyOut(serviceUuid, charUuid, type, OutgoingListener.Status.NOT_CONNECTED, listener);
+        }
+
+        final P_Task_BroadcastNotification task = new P_Task_BroadcastNotification(this, clients, serviceUuid, charUuid, futureData, isIndication, conf_mngr().broadcastClientTimeout, listener);
+        taskManager().add(task);
+
+        return P_Bridge_User.newBroadcastEvent(getBleServer(), serviceUuid, charUuid, type, P_Const.EMPTY_BYTE_ARRAY, OutgoingListener.Status.NULL, new HashMap<String, OutgoingListener.Status>(), Interval.ZERO);
+    }
+
+    private BroadcastListener.BroadcastEvent broadcastEarlyOut(final UUID serviceUuid, final UUID charUuid, final ExchangeListener.Type type, final OutgoingListener.Status status, final BroadcastListener listener)
+    {
+        final BroadcastListener.BroadcastEvent e = P_Bridge_User.newBroadcastEvent(getBleServer(), serviceUuid, charUuid, type, P_Const.EMPTY_BYTE_ARRAY, status, new HashMap<String, OutgoingListener.Status>(), Interval.ZERO);
+
+        invokeBroadcastListener(e, listener);
+
+        return e;
+    }
 }
@@ -17,6 +17,10 @@
 
 package com.idevicesinc.sweetblue.internal;
 
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+
+import java.util.Arrays;
 import java.util.UUID;
 
 import static com.idevicesinc.sweetblue.IncomingListener.*;
@@ -264,6 +268,19 @@ final class P_BleServer_ListenerProcessor implements IServerListener.Callback
     {
         final Target target = descUuid_nullable == null ? Target.CHARACTERISTIC : Target.DESCRIPTOR;
 
+        final byte[] stored = m_server.getAttributeStore().getServable(device.getAddress(), serviceUuid, charUuid, descUuid_nullable);
+
+        if (stored != null)
+        {
+            // Served straight from the attribute store, no listener and no trip through the queue
+            final int gattStatus = offset > stored.length ? BleStatuses.GATT_INVALID_OFFSET : BleStatuses.GATT_SUCCESS;
+            final byte[] data_sent = gattStatus != BleStatuses.GATT_SUCCESS ? P_Const.EMPTY_BYTE_ARRAY : offset == 0 ? stored : Arrays.copyOfRange(stored, offset, stored.length);
+
+            sendStoreResponse(device, serviceUuid, charUuid, descUuid_nullable, Type.READ, target, P_Const.EMPTY_BYTE_ARRAY, data_sent, requestId, offset, /*responseNeeded=*/true, gattStatus);
+
+            return;
+        }
+
         final IncomingListener listener = m_server.getListener_Incoming() != null ? m_server.getListener_Incoming() : m_server.getIManager().getDefaultServerIncomingListener();
 
         if (listener == null)
@@ -324,11 +341,21 @@ final class P_BleServer_ListenerProcessor implements IServerListener.Callback
         return e;
     }
 
-    private void onWriteRequest_updateThread(final P_DeviceHolder device, final byte[] data, final int requestId, final int offset, final boolean preparedWrite, final boolean responseNeeded, final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable)
+    private void onWriteRequest_updateThread(final P_DeviceHolder device, final byte[] data, final int requestId, final int offset, final boolean preparedWrite, final boolean responseNeeded, final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable, final boolean writable)
     {
         final Target target = descUuid_nullable == null ? Target.CHARACTERISTIC : Target.DESCRIPTOR;
         final Type type = preparedWrite ? Type.PREPARED_WRITE : Type.WRITE;
 
+        // Prepared writes are only applied on execute, so those are left to the listener
+        final int storeStatus = preparedWrite ? P_AttributeStore.NOT_SERVED : m_server.getAttributeStore().write(device.getAddress(), serviceUuid, charUuid, descUuid_nullable, offset, data, writable);
+
+        if (storeStatus != P_AttributeStore.NOT_SERVED)
+        {
+            sendStoreResponse(device, serviceUuid, charUuid, descUuid_nullable, type, target, data, data, requestId, offset, responseNeeded, storeStatus);
+
+            return;
+        }
+
         final IncomingListener listener = m_server.getListener_Incoming() != null ? m_server.getListener_Incoming() : m_server.getIManager().getDefaultServerIncomingListener();
 
         if (listener == null)
@@ -365,16 +392,59 @@ final class P_BleServer_ListenerProcessor implements IServerListener.Callback
         }
     }
 
+    private void sendStoreResponse(final P_DeviceHolder device, final UUID serviceUuid, final UUID charUuid, final UUID descUuid_nullable, final Type type, final Target target, final byte[] data_received, final byte[] data_sent, final int requestId, final int offset, final boolean responseNeeded, final int gattStatus)
+    {
+        final boolean sent = !responseNeeded || m_server.getNativeLayer().sendResponse(device, requestId, gattStatus, offset, data_sent);
+
+        final OutgoingEvent e = P_Bridge_User.newOutgoingEvent(
+                m_server.getBleServer(), device, serviceUuid, charUuid, descUuid_nullable, type, target, data_received != null ? data_received : P_Const.EMPTY_BYTE_ARRAY,
+                data_sent != null ? data_sent : P_Const.EMPTY_BYTE_ARRAY, requestId, offset, responseNeeded, sent ? Status.SUCCESS : Status.FAILED_TO_SEND_OUT, gattStatus,
+                BleStatuses.GATT_STATUS_NOT_APPLICABLE, /*solicited=*/true
+        );
+
+        m_server.invokeOutgoingListeners(e, null);
+    }
+
     @Override
     public final void onCharacteristicWriteRequest(final P_DeviceHolder device, final int requestId, final BleCharacteristic characteristic, final boolean preparedWrite, final boolean responseNeeded, final int offset, final byte[] value)
     {
-        m_server.getIManager().getPostManager().runOrPostToUpdateThread(() -> onWriteRequest_updateThread(device, value, requestId, offset, preparedWrite, responseNeeded, characteristic.getService().getUuid(), characteristic.getUuid(), /*descUuid=*/null));
+        m_server.getIManager().getPostManager().runOrPostToUpdateThread(() -> onWriteRequest_updateThread(device, value, requestId, offset, preparedWrite, responseNeeded, characteristic.getService().getUuid(), characteristic.getUuid(), /*descUuid=*/null, isWritable(characteristic)));
     }
 
     @Override
     public final void onDescriptorWriteRequest(final P_DeviceHolder device, final int requestId, final BleDescriptor descriptor, final boolean preparedWrite, final boolean responseNeeded, final int offset, final byte[] value)
     {
-        m_server.getIManager().getPostManager().runOrPostToUpdateThread(() -> onWriteRequest_updateThread(device, value, requestId, offset, preparedWrite, responseNeeded, descriptor.getCharacteristic().getService().getUuid(), descriptor.getCharacteristic().getUuid(), descriptor.getUuid()));
+        m_server.getIManager().getPostManager().runOrPostToUpdateThread(() -> onWriteRequest_updateThread(device, value, requestId, offset, preparedWrite, responseNeeded, descriptor.getCharacteristic().getService().getUuid(), descriptor.getCharacteristic().getUuid(), descriptor.getUuid(), isWritable(descriptor)));
+    }
+
+    private static final int WRITE_PERMISSIONS = BluetoothGattCharacteristic.PERMISSION_WRITE | BluetoothGattCharacteristic.PERMISSION_WRITE_ENCRYPTED |
+            BluetoothGattCharacteristic.PERMISSION_WRITE_ENCRYPTED_MITM | BluetoothGattCharacteristic.PERMISSION_WRITE_SIGNED | BluetoothGattCharacteristic.PERMISSION_WRITE_SIGNED_MITM;
+
+    private static final int WRITE_PROPERTIES = BluetoothGattCharacteristic.PROPERTY_WRITE | BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE |
+            BluetoothGattCharacteristic.PROPERTY_SIGNED_WRITE;
+
+    /**
+     * A characteristic can only be written by a client if it has both a write property and a write permission.
+     */
+    private static boolean isWritable(final BleCharacteristic characteristic)
+    {
+        final BluetoothGattCharacteristic native_char = characteristic.getCharacteristic();
+
+        if (native_char == null)
+            return false;
+
+        return (native_char.getProperties() & WRITE_PROPERTIES) != 0 && (native_char.getPermissions() & WRITE_PERMISSIONS) != 0;
+    }
+
+    private static boolean isWritable(final BleDescriptor descriptor)
+    {
+        final BluetoothGattDescriptor native_desc = descriptor.getDescriptor();
+
+        if (native_desc == null)
+            return false;
+
+        // The descriptor permission bits share their values with the characteristic ones
+        return (native_desc.getPermissions() & WRITE_PERMISSIONS) != 0;
     }
 
     @Override
@@ -390,6 +460,11 @@ final class P_BleServer_ListenerProcessor implements IServerListener.Callback
 
     private void onNotificationSent_updateThread(final P_DeviceHolder device, final int gattStatus)
     {
+        final P_Task_BroadcastNotification broadcast = m_queue.getCurrent(P_Task_BroadcastNotification.class, m_server);
+
+        if (broadcast != null && broadcast.onNotificationSent(device, gattStatus))
+            return;
+
         final P_Task_SendNotification task = m_queue.getCurrent(P_Task_SendNotification.class, m_server);
 
         if (task != null && task.m_macAddress.equals(device.getAddress()))
@@ -24,8 +24,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
@@ -82,7 +80,8 @@ final class P_BluetoothCrashResolver {
 
     private Context context = null;
     private UpdateNotifier updateNotifier;
-    private final Set<String> distinctBluetoothAddresses = new HashSet<>();
+    // Only the keys are used (values are always Boolean.TRUE), keyed by P_MacAddress.retain(), see addAddress()
+    private final P_LongMap<Boolean> distinctBluetoothAddresses = new P_LongMap<>();
     /**
      // It is very likely a crash if Bluetooth turns off and comes
      // back on in an extremely short interval.  Testing on a Nexus 4 shows
@@ -201,7 +200,7 @@ final class P_BluetoothCrashResolver {
 
         synchronized (distinctBluetoothAddresses)
         {
-            distinctBluetoothAddresses.add(device.getAddress());
+            addAddress(device.getAddress());
         }
         if (isDebugEnabled()) {
             newSize = distinctBluetoothAddresses.size();
@@ -334,11 +333,22 @@ final class P_BluetoothCrashResolver {
         Log.w(TAG, "Recovery attempt finished");
         synchronized (distinctBluetoothAddresses)
         {
+            for (long mac : distinctBluetoothAddresses.keys())
+            {
+                P_MacAddress.release(P_MacAddress.fromKey(mac));
+            }
             distinctBluetoothAddresses.clear();
         }
         recoveryInProgress = false;
     }
 
+    // Must be called while holding the distinctBluetoothAddresses lock
+    private void addAddress(String mac)
+    {
+        if (!distinctBluetoothAddresses.containsKey(P_MacAddress.findKey(mac)))
+            distinctBluetoothAddresses.put(P_MacAddress.retain(mac), Boolean.TRUE);
+    }
+
     private final BroadcastReceiver receiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -406,8 +416,8 @@ final class P_BluetoothCrashResolver {
             writer.write(recoveryAttemptCount+"\n");
             writer.write(lastRecoverySucceeded ? "1\n" : "0\n");
             synchronized (distinctBluetoothAddresses) {
-                for (String mac : distinctBluetoothAddresses) {
-                    writer.write(mac);
+                for (long mac : distinctBluetoothAddresses.keys()) {
+                    writer.write(P_MacAddress.fromKey(mac));
                     writer.write("\n");
                 }
             }
@@ -457,7 +467,7 @@ final class P_BluetoothCrashResolver {
             while ((mac = reader.readLine()) != null) {
                 synchronized (distinctBluetoothAddresses)
                 {
-                    distinctBluetoothAddresses.add(mac);
+                    addAddress(mac);
                 }
             }
 
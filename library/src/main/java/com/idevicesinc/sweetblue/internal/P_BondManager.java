@@ -320,17 +320,17 @@ final class P_BondManager
     final void invokeCallback(final BondListener.BondEvent event)
     {
         if (m_ephemeralListener != null)
-            m_device.getIManager().postEvent(m_ephemeralListener, event);
+            m_device.postEventAsCallback(m_ephemeralListener, event);
 
         // Since the listener had an event posted to it, we now clear out the ephemeral listener.
         m_ephemeralListener = null;
 
         if (m_listener != null)
-            m_device.getIManager().postEvent(m_listener, event);
+            m_device.postEventAsCallback(m_listener, event);
 
         final BondListener listener = m_device.getIManager().getDefaultBondListener();
         if (listener != null)
-            m_device.getIManager().postEvent(listener, event);
+            m_device.postEventAsCallback(listener, event);
     }
 
     final Object[] getNativeBondingStateOverrides()
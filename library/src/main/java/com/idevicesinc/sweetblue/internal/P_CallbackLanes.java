@@ -0,0 +1,236 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Runs user callbacks on {@link BleManagerConfig#callbackExecutor}, with one serial lane per key (a device's mac address, or
+ * {@link #MANAGER_LANE} for manager-level events). Only one runnable from a lane is ever handed to the executor at a time, and it
+ * drains the lane in order, so callbacks for the same device never overlap or get reordered, while different devices run in parallel.
+ * <br><br>
+ * Lanes are bounded by {@link BleManagerConfig#callbackLaneCapacity}. A full lane makes the posting thread wait, rather than dropping
+ * anything, unless that thread is the one draining the lane (a listener that causes another callback for its own device), which would
+ * otherwise never get to make room, or the update thread, which must never be held up by a slow listener. Those two just go over
+ * capacity. Empty lanes are thrown away, so devices that stop producing callbacks don't cost anything.
+ */
+final class P_CallbackLanes
+{
+
+    static final Object MANAGER_LANE = new Object();
+
+    private final IBleManager m_manager;
+    private final P_SweetHandler m_fallbackHandler;
+    private final HashMap<Object, Lane> m_lanes = new HashMap<>();
+
+
+    P_CallbackLanes(IBleManager manager, P_SweetHandler fallbackHandler)
+    {
+        m_manager = manager;
+        m_fallbackHandler = fallbackHandler;
+    }
+
+    final void post(Executor executor, Object key, Runnable action)
+    {
+        final BleManagerConfig config = m_manager.getConfigClone();
+        final int capacity = config.callbackLaneCapacity;
+        final long slowThreshold = Interval.isEnabled(config.slowCallbackThreshold) ? config.slowCallbackThreshold.millis() : 0L;
+        final P_Metrics metrics = m_manager.getMetrics();
+        final boolean onUpdateThread = m_manager.getPostManager().isOnSweetBlueThread();
+
+        final Lane lane;
+        final boolean start;
+
+        synchronized (m_lanes)
+        {
+            Lane existing = m_lanes.get(key);
+
+            if (existing == null)
+            {
+                existing = new Lane(key);
+                m_lanes.put(key, existing);
+            }
+
+            boolean waited = false;
+
+            if (onUpdateThread && capacity > 0 && existing.m_pending.size() >= capacity)
+            {
+                metrics.increment(BleMetric.CALLBACK_LANE_OVERFLOWS);
+            }
+
+            while (!onUpdateThread && capacity > 0 && existing.m_pending.size() >= capacity && existing.m_drainingThread != Thread.currentThread())
+            {
+                if (!waited)
+                {
+                    metrics.increment(BleMetric.CALLBACK_LANE_WAITS);
+                    waited = true;
+                }
+
+                try
+                {
+                    m_lanes.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    // Better to go over capacity than to lose the callback
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                // The lane may have drained and been thrown away while we were waiting
+                final Lane current = m_lanes.get(key);
+
+                if (current == null)
+                {
+                    m_lanes.put(key, existing);
+                }
+                else
+                {
+                    existing = current;
+                }
+            }
+
+            lane = existing;
+            lane.m_pending.addLast(action);
+            lane.m_slowThreshold = slowThreshold;
+            lane.m_executor = executor;
+            start = !lane.m_scheduled;
+            lane.m_scheduled = true;
+        }
+
+        if (start)
+        {
+            schedule(executor, lane);
+        }
+    }
+
+    /**
+     * Returns the number of lanes which currently have callbacks waiting or running.
+     */
+    final int getLaneCount()
+    {
+        synchronized (m_lanes)
+        {
+            return m_lanes.size();
+        }
+    }
+
+    private void schedule(Executor executor, Lane lane)
+    {
+        try
+        {
+            executor.execute(lane);
+        }
+        catch (RejectedExecutionException e)
+        {
+            m_manager.getLogger().w("Callback executor rejected a callback lane, running it on the update thread instead.");
+            m_fallbackHandler.post(lane);
+        }
+    }
+
+    private final class Lane implements Runnable
+    {
+        private final Object m_key;
+        private final ArrayDeque<Runnable> m_pending = new ArrayDeque<>();
+
+        private boolean m_scheduled;
+        private Thread m_drainingThread;
+        private long m_slowThreshold;
+        private Executor m_executor;
+
+
+        private Lane(Object key)
+        {
+            m_key = key;
+        }
+
+        @Override
+        public final void run()
+        {
+            while (true)
+            {
+                final Runnable next;
+                final long slowThreshold;
+                final Executor executor;
+
+                synchronized (m_lanes)
+                {
+                    next = m_pending.pollFirst();
+
+                    if (next == null)
+                    {
+                        m_scheduled = false;
+                        m_drainingThread = null;
+
+                        if (m_lanes.get(m_key) == this)
+                        {
+                            m_lanes.remove(m_key);
+                        }
+
+                        m_lanes.notifyAll();
+
+                        return;
+                    }
+
+                    m_drainingThread = Thread.currentThread();
+                    slowThreshold = m_slowThreshold;
+                    executor = m_executor;
+                    m_lanes.notifyAll();
+                }
+
+                final long start = slowThreshold > 0L ? System.currentTimeMillis() : 0L;
+
+                try
+                {
+                    next.run();
+                }
+                catch (RuntimeException e)
+                {
+                    // Hand the rest of the lane to a fresh run before letting the exception through, otherwise every later callback
+                    // for this device would be stuck behind this one.
+                    synchronized (m_lanes)
+                    {
+                        m_drainingThread = null;
+                    }
+
+                    schedule(executor, this);
+
+                    throw e;
+                }
+
+                if (slowThreshold > 0L)
+                {
+                    final long elapsed = System.currentTimeMillis() - start;
+
+                    if (elapsed > slowThreshold)
+                    {
+                        m_manager.getMetrics().increment(BleMetric.SLOW_CALLBACKS);
+                        m_manager.getLogger().w("Callback for " + (m_key == MANAGER_LANE ? "BleManager" : m_key) + " took " + elapsed + "ms to run.");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleDeviceState;
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Utils_Config;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+
+
+/**
+ * Manager-level gate for automatic reconnect attempts. When BLE comes back on, or the app comes back to the foreground, every device
+ * which is reconnecting wants to connect at the same time, which blows past the native stack's connection limit. Everything then
+ * fails, and retries in lockstep. This class caps how many reconnect attempts can be in flight at once (see
+ * {@link com.idevicesinc.sweetblue.BleManagerConfig#maxConcurrentReconnects}). Devices which have to wait are let through in order of
+ * {@link com.idevicesinc.sweetblue.BleDeviceConfig#reconnectPriority}, then by how recently they last connected successfully.
+ * <br><br>
+ * {@link P_ReconnectManager} asks for admission every tick once its delay is up. Admission is decided at the start of each tick, in
+ * {@link #update(double)}, so every device which asked in the previous tick is ranked together, rather than whoever updates first
+ * getting the free slot. Everything here runs on the update thread.
+ */
+final class P_ConnectionAdmissionManager
+{
+
+    // Floor used for the jittered backoff, so that retryInstantly() still gets spread out a bit.
+    private static final double MIN_BACKOFF = 0.1;
+
+    // How many devices' last successful connection times are remembered for ranking. When full, the one which connected longest ago is dropped.
+    private static final int MAX_REMEMBERED_SUCCESSES = 64;
+
+    private final IBleManager m_manager;
+    private final P_LongMap<P_BleDeviceImpl> m_waiting = new P_LongMap<>();
+    private final P_LongMap<P_BleDeviceImpl> m_granted = new P_LongMap<>();
+    private final P_LongMap<P_BleDeviceImpl> m_inFlight = new P_LongMap<>();
+    private final P_LongMap<Long> m_lastSuccess = new P_LongMap<>();
+    private final ArrayList<Candidate> m_sortBuffer = new ArrayList<>();
+    private final Random m_random = new Random();
+
+    private int m_maxInFlight;
+    private double m_backoffCeiling;
+    private long m_stormStart;
+
+
+    P_ConnectionAdmissionManager(IBleManager manager)
+    {
+        m_manager = manager;
+    }
+
+    final void setLimits(int maxInFlight, Interval backoffCeiling)
+    {
+        m_maxInFlight = maxInFlight;
+        m_backoffCeiling = Interval.isEnabled(backoffCeiling) ? backoffCeiling.secs() : Interval.DISABLED.secs();
+    }
+
+    /**
+     * Returns <code>true</code> if the given device may start a reconnect attempt right now. If not, the device is put in line, and
+     * should simply ask again on the next tick.
+     */
+    final boolean tryAdmit(P_BleDeviceImpl device)
+    {
+        final long key = P_MacAddress.findKey(device.getMacAddress());
+
+        // Devices which aren't registered with the manager have no key to be tracked by, so they're just let through
+        if (key == P_MacAddress.INVALID || m_inFlight.containsKey(key))
+            return true;
+
+        if (m_granted.remove(key) != null || m_maxInFlight <= 0 || (m_waiting.isEmpty() && m_granted.isEmpty() && m_inFlight.size() < m_maxInFlight))
+        {
+            m_inFlight.put(key, device);
+            m_manager.getMetrics().increment(BleMetric.RECONNECTS_ADMITTED);
+            onActive();
+            return true;
+        }
+
+        if (m_waiting.put(key, device) == null)
+        {
+            m_manager.getMetrics().increment(BleMetric.RECONNECTS_DEFERRED);
+            onActive();
+        }
+        return false;
+    }
+
+    /**
+     * Takes the given device out of line, called when it's no longer trying to reconnect.
+     */
+    final void remove(P_BleDeviceImpl device)
+    {
+        final long key = P_MacAddress.findKey(device.getMacAddress());
+        m_waiting.remove(key);
+        m_granted.remove(key);
+    }
+
+    /**
+     * Returns how long to wait before the next reconnect attempt, using decorrelated jitter (a random value between <code>base</code>
+     * and 3 times <code>previous</code>, capped at {@link com.idevicesinc.sweetblue.BleManagerConfig#reconnectBackoffCeiling}). This
+     * keeps devices which failed together from retrying together. If the ceiling is disabled, <code>base</code> is returned as-is.
+     */
+    final double nextBackoff(double base, double previous)
+    {
+        if (m_backoffCeiling < 0.0 || base < 0.0)
+            return base;
+
+        final double low = Math.max(base, MIN_BACKOFF);
+        final double high = Math.max(low, previous * 3.0);
+        final double delay = low + m_random.nextDouble() * (high - low);
+        return Math.min(m_backoffCeiling, delay);
+    }
+
+    final int getInFlightCount()
+    {
+        return m_inFlight.size();
+    }
+
+    final int getWaitingCount()
+    {
+        return m_waiting.size();
+    }
+
+    final void update(double timeStep)
+    {
+        final long now = m_manager.getClock().currentTimeMillis();
+
+        // Devices which were granted a slot last tick, but didn't use it, have lost interest (they stopped reconnecting, or are
+        // already connecting some other way).
+        m_granted.clear();
+
+        final Iterator<P_BleDeviceImpl> it = m_inFlight.iterator();
+        while (it.hasNext())
+        {
+            final P_BleDeviceImpl device = it.next();
+
+            if (device.is_internal(BleDeviceState.CONNECTING_OVERALL))
+                continue;
+
+            if (device.is(BleDeviceState.BLE_CONNECTED))
+                onSuccess(P_MacAddress.findKey(device.getMacAddress()), now);
+
+            it.remove();
+        }
+
+        if (!m_waiting.isEmpty())
+        {
+            final int free = m_maxInFlight <= 0 ? m_waiting.size() : m_maxInFlight - m_inFlight.size();
+            if (free > 0)
+            {
+                final Integer defaultPriority = m_manager.getConfigClone().reconnectPriority;
+                m_sortBuffer.clear();
+                for (P_BleDeviceImpl device : m_waiting)
+                {
+                    final long key = P_MacAddress.findKey(device.getMacAddress());
+                    final Long lastSuccess = m_lastSuccess.get(key);
+                    m_sortBuffer.add(new Candidate(device, key, Utils_Config.integer(device.conf_device().reconnectPriority, defaultPriority, 0), lastSuccess != null ? lastSuccess : 0L));
+                }
+                Collections.sort(m_sortBuffer);
+                final int count = Math.min(free, m_sortBuffer.size());
+                for (int i = 0; i < count; i++)
+                {
+                    final Candidate candidate = m_sortBuffer.get(i);
+                    m_granted.put(candidate.m_key, candidate.m_device);
+                }
+                m_sortBuffer.clear();
+            }
+        }
+
+        final P_Metrics metrics = m_manager.getMetrics();
+        metrics.setGauge(BleMetric.RECONNECTS_IN_FLIGHT, m_inFlight.size());
+        metrics.setGauge(BleMetric.RECONNECTS_WAITING, m_waiting.size());
+
+        // Anyone still waiting will ask again this tick
+        m_waiting.clear();
+
+        if (m_stormStart != 0L && m_inFlight.isEmpty() && m_granted.isEmpty())
+        {
+            metrics.record(BleMetric.TIME_TO_ALL_CONNECTED, (now - m_stormStart) * 1000000L);
+            m_stormStart = 0L;
+        }
+    }
+
+    private void onSuccess(long key, long now)
+    {
+        // Re-inserting keeps the map in order of last success, so the first entry is always the stalest one
+        m_lastSuccess.remove(key);
+        m_lastSuccess.put(key, now);
+
+        if (m_lastSuccess.size() > MAX_REMEMBERED_SUCCESSES)
+            m_lastSuccess.removeFirst();
+    }
+
+    private void onActive()
+    {
+        if (m_stormStart == 0L)
+            m_stormStart = m_manager.getClock().currentTimeMillis();
+    }
+
+
+
+    private static final class Candidate implements Comparable<Candidate>
+    {
+        private final P_BleDeviceImpl m_device;
+        private final long m_key;
+        private final int m_priority;
+        private final long m_lastSuccess;
+
+
+        Candidate(P_BleDeviceImpl device, long key, int priority, long lastSuccess)
+        {
+            m_device = device;
+            m_key = key;
+            m_priority = priority;
+            m_lastSuccess = lastSuccess;
+        }
+
+        // Highest priority first, then the most recently connected
+        @Override public final int compareTo(Candidate other)
+        {
+            if (m_priority != other.m_priority)
+                return m_priority > other.m_priority ? -1 : 1;
+
+            return m_lastSuccess == other.m_lastSuccess ? 0 : (m_lastSuccess > other.m_lastSuccess ? -1 : 1);
+        }
+    }
+}
@@ -104,7 +104,7 @@ final class P_ConnectionFailManager
     {
         resetFailCount();
 
-        m_timeOfFirstConnect = System.currentTimeMillis();
+        m_timeOfFirstConnect = m_device.getIManager().getClock().currentTimeMillis();
     }
 
     private void resetFailCount()
@@ -132,7 +132,7 @@ final class P_ConnectionFailManager
     {
         if (disconnectReason.getConnectFailReason() == null) return DO_NOT_RETRY;
 
-        final long currentTime = System.currentTimeMillis();
+        final long currentTime = m_device.getIManager().getClock().currentTimeMillis();
 
         //--- DRK > Can be null if this is a spontaneous connect (can happen with autoConnect sometimes for example).
         m_timeOfFirstConnect = m_timeOfFirstConnect != null ? m_timeOfFirstConnect : currentTime;
@@ -678,18 +678,18 @@ class P_DeviceConnectionManager
         DeviceConnectListener listener = m_ephemeralConnectListener;
         // Post to the ephemeral listener first, if it's not null
         if (listener != null)
-            getManager().postEvent(listener, event);
+            m_device.postEventAsCallback(listener, event);
 
         // Now post to the default listener, if there is one
         listener = getListener_Connect();
 
         if (listener != null)
-            getManager().postEvent(listener, event);
+            m_device.postEventAsCallback(listener, event);
 
         // Now post to the manager's listener, if there is one
         listener = getManager().getDefaultDeviceConnectListener();
         if (listener != null)
-            getManager().postEvent(listener, event);
+            m_device.postEventAsCallback(listener, event);
     }
 
 
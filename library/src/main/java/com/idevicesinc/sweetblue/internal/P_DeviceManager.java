@@ -21,9 +21,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.PriorityQueue;
 import com.idevicesinc.sweetblue.BleDevice;
 import com.idevicesinc.sweetblue.BleDeviceOrigin;
 import com.idevicesinc.sweetblue.BleDeviceState;
@@ -44,8 +43,8 @@ final class P_DeviceManager
 {
     private final Object m_lock = new Object();
 
-    // Map that holds all of our devices (and preserves insertion order)
-    private final LinkedHashMap<String, IBleDevice> m_map = new LinkedHashMap<>();
+    // Map that holds all of our devices, keyed by mac address (and preserves insertion order)
+    private final P_LongMap<IBleDevice> m_map = new P_LongMap<>();
 
     private final IBleManager m_mngr;
 
@@ -56,6 +55,13 @@ final class P_DeviceManager
     private P_DeviceManager m_deviceManagerCache;
     private DiscoveryListener m_discoveryListener;
 
+    // Min-heap of when each device is next due to be checked for undiscovery, so a purge only looks at devices that may have expired.
+    // Entries aren't touched when a device is rediscovered. Instead, an entry that comes due for a device that's been seen since gets
+    // pushed back by whatever's left of its keep-alive. It's built on the first purge, so the cache manager never keeps one.
+    private final PriorityQueue<ExpiryEntry> m_expiryIndex = new PriorityQueue<>();
+    private boolean m_expiryIndexDirty = true;
+    private double m_time = 0.0;
+
 
     P_DeviceManager(IBleManager mngr)
     {
@@ -82,7 +88,7 @@ final class P_DeviceManager
         ArrayList<IBleDevice> deviceList;
         synchronized (m_lock)
         {
-            deviceList = new ArrayList<>(m_map.values());
+            deviceList = m_map.addValuesTo(new ArrayList<>(m_map.size()));
         }
         if (sort && m_mngr.getConfigClone().defaultListComparator != null)
             Collections.sort(deviceList, wrapComparator(m_mngr.getConfigClone().defaultListComparator));
@@ -291,9 +297,9 @@ final class P_DeviceManager
 
     public boolean has(IBleDevice device)
     {
-        return device != null && m_map.containsKey(device.getMacAddress());
+        return device != null && m_map.containsKey(P_MacAddress.findKey(device.getMacAddress()));
         // Uncomment below to get old functionality back where we don't rely on equals, but rather check for the exact instance
-        //return m_map.get(device.getMacAddress()) == device;
+        //return m_map.get(P_MacAddress.findKey(device.getMacAddress())) == device;
     }
 
     //TODO:  Audit usage of this and see if we can get rid of it.  Random access is very slow
@@ -368,7 +374,7 @@ final class P_DeviceManager
         // Need to synchronize gets because modifications to the table can cause get to crash
         synchronized (m_lock)
         {
-            return m_map.get(uniqueId);
+            return m_map.get(P_MacAddress.findKey(uniqueId));
         }
     }
 
@@ -379,13 +385,19 @@ final class P_DeviceManager
 
         synchronized (m_lock)
         {
-            if (m_map.containsKey(device.getMacAddress()))
+            if (m_map.containsKey(P_MacAddress.findKey(device.getMacAddress())))
             {
                 logger().e("Already registered device " + device.getMacAddress());
                 return;
             }
 
-            m_map.put(device.getMacAddress(), device);
+            // Keeps a synthetic key alive for as long as the device is in here, see doRemoval()
+            final long key = P_MacAddress.retain(device.getMacAddress());
+
+            m_map.put(key, device);
+
+            if (!m_expiryIndexDirty)
+                indexDevice_locked(device, key);
         }
     }
 
@@ -401,18 +413,20 @@ final class P_DeviceManager
     {
         synchronized (m_lock)
         {
-            Iterator<Map.Entry<String, IBleDevice>> it = m_map.entrySet().iterator();
+            Iterator<IBleDevice> it = m_map.iterator();
 
             while (it.hasNext())
             {
-                Map.Entry<String, IBleDevice> entry = it.next();
+                IBleDevice device = it.next();
 
                 // Call the doRemove method, but tell it to not perform the actual removal itself...  We handle that here with the iterator
-                doRemoval(entry.getValue(), cache, false);
+                doRemoval(device, cache, false);
 
                 // Pull the entry out of the map
                 it.remove();
             }
+
+            m_expiryIndex.clear();
         }
     }
 
@@ -425,21 +439,30 @@ final class P_DeviceManager
     {
         synchronized (m_lock)
         {
-            m_mngr.ASSERT(m_map.containsKey(device.getMacAddress()), "");
+            final long key = P_MacAddress.findKey(device.getMacAddress());
+            final boolean registered = m_map.containsKey(key);
+
+            m_mngr.ASSERT(registered, "");
 
             // Sometimes the caller may handle the actual removal (in an iterator, for example), so we only execute the remove here if told to
             if (actuallyRemove)
-                m_map.remove(device.getMacAddress());
+                m_map.remove(key);
 
             final boolean cacheDevice = Utils_Config.bool(device.conf_device().cacheDeviceOnUndiscovery, device.conf_mngr().cacheDeviceOnUndiscovery);
 
             if (cacheDevice && cache != null)
                 cache.add(device);
+
+            // Released after the cache has picked it up, so a device just moving over keeps the same key
+            if (registered)
+                P_MacAddress.release(device.getMacAddress());
         }
     }
 
     void update(double timeStep)
     {
+        m_time += timeStep;
+
         if (m_purgeScanTime != null)
         {
             purgeStaleDevices();
@@ -639,37 +662,116 @@ final class P_DeviceManager
         m_discoveryListener = listener;
     }
 
-    void purgeStaleDevices()
+    /**
+     * Makes the next purge rebuild the expiry index, picking up new undiscovery intervals. Called when the manager's or a device's config changes.
+     */
+    void invalidateExpiryIndex()
     {
-        List<IBleDevice> list;
         synchronized (m_lock)
         {
-            list = getList();
+            m_expiryIndexDirty = true;
         }
+    }
 
-        for (IBleDevice device : list)
+    /**
+     * Same as {@link #invalidateExpiryIndex()}, but only if the given device is one of this manager's, so newly created devices don't cause a rebuild.
+     */
+    void invalidateExpiryIndex(final IBleDevice device)
+    {
+        synchronized (m_lock)
         {
-            Interval minScanTimeToInvokeUndiscovery = Utils_Config.interval(device.conf_device().minScanTimeNeededForUndiscovery, device.conf_mngr().minScanTimeNeededForUndiscovery);
-            if (Interval.isDisabled(minScanTimeToInvokeUndiscovery))
-                continue;
+            if (m_map.get(P_MacAddress.findKey(device.getMacAddress())) == device)
+                m_expiryIndexDirty = true;
+        }
+    }
 
-            Interval scanKeepAlive_interval = Utils_Config.interval(device.conf_device().undiscoveryKeepAlive, device.conf_mngr().undiscoveryKeepAlive);
-            if (Interval.isDisabled(scanKeepAlive_interval))
-                continue;
+    void purgeStaleDevices()
+    {
+        final List<IBleDevice> expired = new ArrayList<>();
 
-            if (m_purgeScanTime < Interval.secs(minScanTimeToInvokeUndiscovery))
-                continue;
+        synchronized (m_lock)
+        {
+            // Removed devices are only dropped from the index as their entries come due, so rebuild if they've piled up
+            if (m_expiryIndexDirty || m_expiryIndex.size() > m_map.size() * 2 + 16)
+                rebuildExpiryIndex_locked();
 
-            final boolean purgeable = device.getOrigin() != BleDeviceOrigin.EXPLICIT && ((device.getStateMask() & ~P_Bridge_User.bleDeviceStatePurgeableMask()) == 0x0);
+            List<ExpiryEntry> putBack = null;
 
-            if (purgeable)
+            while (!m_expiryIndex.isEmpty() && m_expiryIndex.peek().m_dueTime <= m_time)
             {
-                if (device.getTimeSinceLastDiscovery() > scanKeepAlive_interval.secs())
-                    undiscoverAndRemove(device, m_discoveryListener, m_deviceManagerCache, PA_StateTracker.E_Intent.UNINTENTIONAL);
+                final ExpiryEntry entry = m_expiryIndex.poll();
+                final IBleDevice device = entry.m_device;
+
+                // Device was removed (or replaced) since it was indexed
+                if (m_map.get(entry.m_key) != device)
+                    continue;
+
+                if (putBack == null)
+                    putBack = new ArrayList<>();
+
+                // Not scanning long enough to undiscover anything yet, so check it again next time
+                if (m_purgeScanTime < entry.m_minScanTime)
+                {
+                    putBack.add(entry);
+                    continue;
+                }
+
+                final double remaining = entry.m_keepAlive - device.getTimeSinceLastDiscovery();
+                final boolean purgeable = device.getOrigin() != BleDeviceOrigin.EXPLICIT && ((device.getStateMask() & ~P_Bridge_User.bleDeviceStatePurgeableMask()) == 0x0);
+
+                if (purgeable && remaining < 0.0)
+                {
+                    expired.add(device);
+                }
+                else
+                {
+                    // Either it's been seen since it was indexed, or it can't be purged right now; either way, look again once the keep-alive could run out
+                    entry.m_dueTime = m_time + (remaining > 0.0 ? remaining : entry.m_keepAlive);
+                    putBack.add(entry);
+                }
             }
+
+            if (putBack != null)
+                m_expiryIndex.addAll(putBack);
+        }
+
+        for (IBleDevice device : expired)
+        {
+            undiscoverAndRemove(device, m_discoveryListener, m_deviceManagerCache, PA_StateTracker.E_Intent.UNINTENTIONAL);
+        }
+    }
+
+    private void rebuildExpiryIndex_locked()
+    {
+        m_expiryIndex.clear();
+        m_expiryIndexDirty = false;
+
+        final Iterator<IBleDevice> it = m_map.iterator();
+
+        while (it.hasNext())
+        {
+            final IBleDevice device = it.next();
+
+            indexDevice_locked(device, P_MacAddress.findKey(device.getMacAddress()));
         }
     }
 
+    // The effective intervals are resolved here once, rather than against both configs for every device on every purge
+    private void indexDevice_locked(final IBleDevice device, final long key)
+    {
+        final Interval minScanTimeToInvokeUndiscovery = Utils_Config.interval(device.conf_device().minScanTimeNeededForUndiscovery, device.conf_mngr().minScanTimeNeededForUndiscovery);
+        if (Interval.isDisabled(minScanTimeToInvokeUndiscovery))
+            return;
+
+        final Interval scanKeepAlive_interval = Utils_Config.interval(device.conf_device().undiscoveryKeepAlive, device.conf_mngr().undiscoveryKeepAlive);
+        if (Interval.isDisabled(scanKeepAlive_interval))
+            return;
+
+        final double keepAlive = scanKeepAlive_interval.secs();
+
+        m_expiryIndex.add(new ExpiryEntry(device, key, Interval.secs(minScanTimeToInvokeUndiscovery), keepAlive, m_time + keepAlive - device.getTimeSinceLastDiscovery()));
+    }
+
     boolean hasDevice(BleDeviceState... filter)
     {
         // If the filter is null or empty, report true if we have any device at all
@@ -688,4 +790,28 @@ final class P_DeviceManager
 
         return false;
     }
+
+    private static final class ExpiryEntry implements Comparable<ExpiryEntry>
+    {
+        private final IBleDevice m_device;
+        private final long m_key;
+        private final double m_minScanTime;
+        private final double m_keepAlive;
+        private double m_dueTime;
+
+        ExpiryEntry(IBleDevice device, long key, double minScanTime, double keepAlive, double dueTime)
+        {
+            m_device = device;
+            m_key = key;
+            m_minScanTime = minScanTime;
+            m_keepAlive = keepAlive;
+            m_dueTime = dueTime;
+        }
+
+        @Override
+        public int compareTo(ExpiryEntry other)
+        {
+            return Double.compare(m_dueTime, other.m_dueTime);
+        }
+    }
 }
@@ -0,0 +1,302 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.idevicesinc.sweetblue.BleConnectionPriority;
+import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.DeviceSnapshot;
+import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * Keeps a {@link DeviceSnapshot} per device in its own {@link SharedPreferences} file, keyed by mac address, in a compact JSON form.
+ * Devices are marked dirty as their state changes, and only dirty devices get rewritten, batched into a single apply every
+ * {@link BleManagerConfig#DEFAULT_SNAPSHOT_WRITE_INTERVAL} seconds. Changes that happen all the time (RSSI, and the scan record
+ * when a device is rediscovered) only count once the device's snapshot is {@link BleManagerConfig#DEFAULT_SNAPSHOT_REFRESH_INTERVAL}
+ * seconds old.
+ */
+// Adding this suppresslint annotation as removing or clearing snapshots should hit the disk immediately. Batched writes from the
+// update thread use apply() instead, so they don't block it.
+@SuppressLint("ApplySharedPref")
+final class P_DeviceSnapshotStore
+{
+    private static final int ACCESS_MODE = Context.MODE_PRIVATE;
+
+    //--- Salted like the namespaces in P_DiskOptionsManager, to mitigate any possible conflict.
+    private static final String NAMESPACE = "sweetblue_sn@p5h0t_Wq";
+
+    private static final String KEY_NAME = "n";
+    private static final String KEY_SCAN_RECORD = "s";
+    private static final String KEY_RSSI = "r";
+    private static final String KEY_BONDED = "b";
+    private static final String KEY_MTU = "m";
+    private static final String KEY_CONNECTION_PRIORITY = "p";
+    private static final String KEY_SERVICES = "g";
+    private static final String KEY_TIME = "t";
+
+    private static final String CHAR_SEPARATOR = ",";
+
+    private final IBleManager m_manager;
+
+    // Insertion ordered so the oldest change gets written first. Keyed by mac address.
+    private final LinkedHashMap<String, IBleDevice> m_dirty = new LinkedHashMap<>();
+
+    // When each device's snapshot was last written, in m_time, for throttling markRefreshed(). Keyed by mac address.
+    private final HashMap<String, Double> m_lastWritten = new HashMap<>();
+
+    private SharedPreferences m_prefs;
+    private double m_timeSinceWrite = 0.0;
+    private double m_time = 0.0;
+
+
+    P_DeviceSnapshotStore(IBleManager manager)
+    {
+        m_manager = manager;
+    }
+
+    private SharedPreferences prefs()
+    {
+        if (m_prefs == null)
+        {
+            m_prefs = m_manager.getApplicationContext().getSharedPreferences(NAMESPACE, ACCESS_MODE);
+        }
+
+        return m_prefs;
+    }
+
+    final synchronized void markDirty(final IBleDevice device)
+    {
+        if (device == null || device.isNull()) return;
+
+        m_dirty.put(device.getMacAddress(), device);
+    }
+
+    /**
+     * Same as {@link #markDirty(IBleDevice)}, but for changes which happen too often to be worth a write each time. The device
+     * only gets marked if it has never been written, or its last write is at least {@link BleManagerConfig#DEFAULT_SNAPSHOT_REFRESH_INTERVAL}
+     * seconds old.
+     */
+    final synchronized void markRefreshed(final IBleDevice device)
+    {
+        if (device == null || device.isNull()) return;
+
+        final String macAddress = device.getMacAddress();
+
+        if (m_dirty.containsKey(macAddress)) return;
+
+        final Double lastWritten = m_lastWritten.get(macAddress);
+
+        if (lastWritten != null && m_time - lastWritten < BleManagerConfig.DEFAULT_SNAPSHOT_REFRESH_INTERVAL) return;
+
+        m_dirty.put(macAddress, device);
+    }
+
+    final void update(final double timeStep)
+    {
+        synchronized (this)
+        {
+            m_time += timeStep;
+        }
+
+        m_timeSinceWrite += timeStep;
+
+        if (m_timeSinceWrite < BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL) return;
+
+        m_timeSinceWrite = 0.0;
+
+        flush();
+    }
+
+    final void flush()
+    {
+        final List<IBleDevice> dirty;
+
+        synchronized (this)
+        {
+            if (m_dirty.isEmpty()) return;
+
+            dirty = new ArrayList<>(m_dirty.values());
+            m_dirty.clear();
+
+            for (int i = 0; i < dirty.size(); i++)
+            {
+                m_lastWritten.put(dirty.get(i).getMacAddress(), m_time);
+            }
+        }
+
+        final SharedPreferences.Editor editor = prefs().edit();
+
+        for (int i = 0; i < dirty.size(); i++)
+        {
+            final DeviceSnapshot snapshot = dirty.get(i).newSnapshot();
+
+            try
+            {
+                editor.putString(snapshot.macAddress(), toJson(snapshot).toString());
+            }
+            catch (JSONException e)
+            {
+                m_manager.getLogger().e("Unable to save snapshot for " + snapshot.macAddress() + ": " + e.getMessage());
+            }
+        }
+
+        editor.apply();
+
+        m_manager.getMetrics().add(BleMetric.SNAPSHOTS_WRITTEN, dirty.size());
+    }
+
+    final List<DeviceSnapshot> loadAll()
+    {
+        final Map<String, ?> all = prefs().getAll();
+        final List<DeviceSnapshot> snapshots = new ArrayList<>(all != null ? all.size() : 0);
+
+        if (all == null) return snapshots;
+
+        for (Map.Entry<String, ?> entry : all.entrySet())
+        {
+            if (!(entry.getValue() instanceof String)) continue;
+
+            try
+            {
+                snapshots.add(fromJson(entry.getKey(), new JSONObject((String) entry.getValue())));
+            }
+            catch (JSONException | IllegalArgumentException e)
+            {
+                m_manager.getLogger().e("Dropping unreadable snapshot for " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+
+        return snapshots;
+    }
+
+    final void remove(final String macAddress)
+    {
+        synchronized (this)
+        {
+            m_dirty.remove(macAddress);
+            m_lastWritten.remove(macAddress);
+        }
+
+        prefs().edit().remove(macAddress).commit();
+    }
+
+    final void clear()
+    {
+        synchronized (this)
+        {
+            m_dirty.clear();
+            m_lastWritten.clear();
+        }
+
+        prefs().edit().clear().commit();
+    }
+
+
+    private static JSONObject toJson(final DeviceSnapshot snapshot) throws JSONException
+    {
+        final JSONObject json = new JSONObject();
+        json.put(KEY_NAME, snapshot.name_native());
+
+        final byte[] scanRecord = snapshot.scanRecord();
+        if (scanRecord.length > 0)
+        {
+            json.put(KEY_SCAN_RECORD, Utils_String.bytesToHexString(scanRecord));
+        }
+
+        json.put(KEY_RSSI, snapshot.rssi());
+        json.put(KEY_BONDED, snapshot.wasBonded());
+        json.put(KEY_MTU, snapshot.mtu());
+        json.put(KEY_CONNECTION_PRIORITY, snapshot.connectionPriority().name());
+
+        // Characteristics are joined into one string per service, which keeps the entry small
+        final JSONObject services = new JSONObject();
+        final StringBuilder chars = new StringBuilder();
+        for (Map.Entry<UUID, List<UUID>> service : snapshot.services().entrySet())
+        {
+            chars.setLength(0);
+            for (UUID charUuid : service.getValue())
+            {
+                if (chars.length() > 0)
+                    chars.append(CHAR_SEPARATOR);
+                chars.append(charUuid.toString());
+            }
+            services.put(service.getKey().toString(), chars.toString());
+        }
+        json.put(KEY_SERVICES, services);
+
+        json.put(KEY_TIME, snapshot.timeSaved().toMilliseconds());
+
+        return json;
+    }
+
+    private static DeviceSnapshot fromJson(final String macAddress, final JSONObject json) throws JSONException
+    {
+        final String scanRecord_hex = json.optString(KEY_SCAN_RECORD, "");
+        final byte[] scanRecord = scanRecord_hex.length() > 0 ? Utils_String.hexStringToBytes(scanRecord_hex) : P_Const.EMPTY_BYTE_ARRAY;
+
+        final LinkedHashMap<UUID, List<UUID>> services = new LinkedHashMap<>();
+        final JSONObject services_json = json.optJSONObject(KEY_SERVICES);
+        if (services_json != null)
+        {
+            final Iterator<String> keys = services_json.keys();
+            while (keys.hasNext())
+            {
+                final String serviceUuid = keys.next();
+                final String chars_joined = services_json.getString(serviceUuid);
+                final String[] chars_split = chars_joined.length() > 0 ? chars_joined.split(CHAR_SEPARATOR) : new String[0];
+                final List<UUID> chars = new ArrayList<>(chars_split.length);
+                for (int i = 0; i < chars_split.length; i++)
+                {
+                    chars.add(UUID.fromString(chars_split[i]));
+                }
+                services.put(UUID.fromString(serviceUuid), chars);
+            }
+        }
+
+        return P_Bridge_User.newDeviceSnapshot(
+                macAddress,
+                json.optString(KEY_NAME, ""),
+                scanRecord,
+                json.optInt(KEY_RSSI, 0),
+                json.optBoolean(KEY_BONDED, false),
+                json.optInt(KEY_MTU, 0),
+                BleConnectionPriority.valueOf(json.optString(KEY_CONNECTION_PRIORITY, BleConnectionPriority.MEDIUM.name())),
+                services,
+                new EpochTime(json.optLong(KEY_TIME, 0L)));
+    }
+}
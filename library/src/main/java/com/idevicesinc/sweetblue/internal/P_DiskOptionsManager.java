@@ -19,7 +19,6 @@ package com.idevicesinc.sweetblue.internal;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -63,12 +62,17 @@ final class P_DiskOptionsManager
 
     private final IBleManager m_manager;
 
-    private final HashMap<String, Integer> m_inMemoryDb_lastDisconnect = new HashMap<>();
-    private final HashMap<String, Boolean> m_inMemoryDb_needsBonding = new HashMap<>();
-    private final HashMap<String, String> m_inMemoryDb_name = new HashMap<>();
-    private final HashMap<Object, String> m_inMemoryDb_adaptorName = new HashMap<>();
+    // The adaptor name isn't tied to a device, so it gets stored under a key that P_MacAddress will never hand out
+    private static final long ADAPTOR_NAME_KEY = Long.MIN_VALUE;
 
-    private final HashMap[] m_inMemoryDbs = new HashMap[E_Namespace.values().length];
+    // In-memory caches are keyed by the long form of the mac address (see P_MacAddress). SharedPreferences still use the string form.
+    // Each entry retains its key (see put_memory() and remove_memory()), as these outlive the devices they're for.
+    private final P_LongMap<State.ChangeIntent> m_inMemoryDb_lastDisconnect = new P_LongMap<>();
+    private final P_LongMap<Boolean> m_inMemoryDb_needsBonding = new P_LongMap<>();
+    private final P_LongMap<String> m_inMemoryDb_name = new P_LongMap<>();
+    private final P_LongMap<String> m_inMemoryDb_adaptorName = new P_LongMap<>();
+
+    private final P_LongMap[] m_inMemoryDbs = new P_LongMap[E_Namespace.values().length];
 
     private final SharedPreferences[] m_prefsInstances = new SharedPreferences[E_Namespace.values().length];
 
@@ -109,7 +113,7 @@ final class P_DiskOptionsManager
     final void saveLastDisconnect(final String mac, final State.ChangeIntent changeIntent, final boolean hitDisk)
     {
         final int diskValue = State.ChangeIntent.toDiskValue(changeIntent);
-        m_inMemoryDb_lastDisconnect.put(mac, diskValue);
+        put_memory(m_inMemoryDb_lastDisconnect, mac, changeIntent != null ? changeIntent : State.ChangeIntent.NULL);
 
         if (!hitDisk) return;
 
@@ -118,14 +122,10 @@ final class P_DiskOptionsManager
 
     final State.ChangeIntent loadLastDisconnect(final String mac, final boolean hitDisk)
     {
-        final Integer value_memory = m_inMemoryDb_lastDisconnect.get(mac);
-
-        if (value_memory != null)
-        {
-            final State.ChangeIntent lastDisconnect_memory = State.ChangeIntent.fromDiskValue(value_memory);
+        final State.ChangeIntent lastDisconnect_memory = m_inMemoryDb_lastDisconnect.get(P_MacAddress.findKey(mac));
 
+        if (lastDisconnect_memory != null)
             return lastDisconnect_memory;
-        }
 
         if (!hitDisk) return State.ChangeIntent.NULL;
 
@@ -144,14 +144,14 @@ final class P_DiskOptionsManager
         if (n == null)
             n = "";
 
-        m_inMemoryDb_adaptorName.put(null, n);
+        m_inMemoryDb_adaptorName.put(ADAPTOR_NAME_KEY, n);
 
         prefs(E_Namespace.ADAPTOR_NAME).edit().putString(PHONE_NAME_KEY, n).commit();
     }
 
     final boolean hasAdaptorAdvertisingName()
     {
-        final String value_memory = m_inMemoryDb_adaptorName.get(null);
+        final String value_memory = m_inMemoryDb_adaptorName.get(ADAPTOR_NAME_KEY);
 
         if (value_memory != null)   return true;
 
@@ -165,7 +165,7 @@ final class P_DiskOptionsManager
     // Don't use this for checking the name for the first time.
     final String getAdaptorAdvertisingName()
     {
-        final String value_memory = m_inMemoryDb_adaptorName.get(null);
+        final String value_memory = m_inMemoryDb_adaptorName.get(ADAPTOR_NAME_KEY);
 
         if (value_memory != null)   return value_memory;
 
@@ -178,7 +178,7 @@ final class P_DiskOptionsManager
 
     final void saveNeedsBonding(final String mac, final boolean hitDisk)
     {
-        m_inMemoryDb_needsBonding.put(mac, true);
+        put_memory(m_inMemoryDb_needsBonding, mac, Boolean.TRUE);
 
         if (!hitDisk) return;
 
@@ -187,7 +187,7 @@ final class P_DiskOptionsManager
 
     final void clearNeedsBonding(final String mac, final boolean hitDisk)
     {
-        m_inMemoryDb_needsBonding.remove(mac);
+        remove_memory(m_inMemoryDb_needsBonding, mac);
 
         if (!hitDisk) return;
 
@@ -196,7 +196,7 @@ final class P_DiskOptionsManager
 
     final boolean loadNeedsBonding(final String mac, final boolean hitDisk)
     {
-        final Boolean value_memory = m_inMemoryDb_needsBonding.get(mac);
+        final Boolean value_memory = m_inMemoryDb_needsBonding.get(P_MacAddress.findKey(mac));
 
         if (value_memory != null)   return value_memory;
 
@@ -213,7 +213,7 @@ final class P_DiskOptionsManager
     {
         final String name_override = name != null ? name : "";
 
-        m_inMemoryDb_name.put(mac, name_override);
+        put_memory(m_inMemoryDb_name, mac, name_override);
 
         if (!hitDisk) return;
 
@@ -222,7 +222,7 @@ final class P_DiskOptionsManager
 
     final String loadName(final String mac, final boolean hitDisk)
     {
-        final String value_memory = m_inMemoryDb_name.get(mac);
+        final String value_memory = m_inMemoryDb_name.get(P_MacAddress.findKey(mac));
 
         if (value_memory != null)   return value_memory;
 
@@ -244,10 +244,10 @@ final class P_DiskOptionsManager
             final SharedPreferences prefs = prefs(values[i]);
             prefs.edit().clear().commit();
 
-            final HashMap ith = m_inMemoryDbs[i];
+            final P_LongMap ith = m_inMemoryDbs[i];
 
             if (ith != null)
-                ith.clear();
+                clear_memory(ith);
         }
     }
 
@@ -289,9 +289,41 @@ final class P_DiskOptionsManager
         final SharedPreferences prefs = prefs(namespace);
         prefs.edit().remove(macAddress).commit();
 
-        final HashMap ith = m_inMemoryDbs[ordinal];
+        final P_LongMap ith = m_inMemoryDbs[ordinal];
 
         if (ith != null)
-            ith.remove(macAddress);
+            remove_memory(ith, macAddress);
+    }
+
+    private static <T> void put_memory(final P_LongMap<T> db, final String mac, final T value)
+    {
+        final long key = P_MacAddress.findKey(mac);
+
+        if (db.containsKey(key))
+        {
+            db.put(key, value);
+            return;
+        }
+
+        db.put(P_MacAddress.retain(mac), value);
+    }
+
+    private static void remove_memory(final P_LongMap db, final String mac)
+    {
+        if (db.remove(P_MacAddress.findKey(mac)) != null)
+            P_MacAddress.release(mac);
+    }
+
+    private static void clear_memory(final P_LongMap db)
+    {
+        final long[] keys = db.keys();
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != ADAPTOR_NAME_KEY)
+                P_MacAddress.release(P_MacAddress.fromKey(keys[i]));
+        }
+
+        db.clear();
     }
 }
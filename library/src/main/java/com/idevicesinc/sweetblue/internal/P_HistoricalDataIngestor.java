@@ -0,0 +1,354 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.BleNodeConfig;
+import com.idevicesinc.sweetblue.utils.EpochTime;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBackPressure;
+import java.util.UUID;
+
+
+/**
+ * Moves historical data logging for reads and notifications off of the update thread. Samples are copied into a bounded ring buffer
+ * (see {@link com.idevicesinc.sweetblue.BleManagerConfig#historicalDataIngestionBufferSize}), and a single writer thread drains them in
+ * batches. Each batch is split into runs of samples for the same device and characteristic, and every run is handed to the backing list
+ * in one {@link com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList#add_multiple} call, so a persistent backend can
+ * commit it as a single transaction.
+ * <br><br>
+ * The ring's slots are allocated once and reused, so logging a sample doesn't allocate anything on the update thread. When the buffer
+ * is disabled, samples are written inline, exactly as before.
+ */
+final class P_HistoricalDataIngestor
+{
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final IBleManager m_manager;
+    private final Object m_lock = new Object();
+
+    // Only touched by the writer thread
+    private final Sample[] m_batch = new Sample[MAX_BATCH_SIZE];
+
+    private Sample[] m_ring = new Sample[0];
+    private int m_head;
+    private int m_size;
+    private volatile int m_capacity;
+    private HistoricalDataBackPressure m_backPressure = HistoricalDataBackPressure.DROP_OLDEST;
+
+    private Thread m_writerThread;
+    private boolean m_committing;
+    private boolean m_shutdown;
+
+
+    P_HistoricalDataIngestor(IBleManager manager)
+    {
+        m_manager = manager;
+
+        for (int i = 0; i < m_batch.length; i++)
+        {
+            m_batch[i] = new Sample();
+        }
+    }
+
+    final void configure(int capacity, HistoricalDataBackPressure backPressure_nullable)
+    {
+        synchronized (m_lock)
+        {
+            capacity = Math.max(capacity, 0);
+
+            // Samples already queued are kept even if the new capacity is smaller, they'll just drain before anything new gets in.
+            final int length = Math.max(capacity, m_size);
+
+            if (length != m_ring.length)
+            {
+                final Sample[] ring = new Sample[length];
+
+                for (int i = 0; i < length; i++)
+                {
+                    ring[i] = i < m_size ? m_ring[(m_head + i) % m_ring.length] : new Sample();
+                }
+
+                m_ring = ring;
+                m_head = 0;
+            }
+
+            m_capacity = capacity;
+            m_backPressure = backPressure_nullable != null ? backPressure_nullable : HistoricalDataBackPressure.DROP_OLDEST;
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * Logs the given sample, either by queueing it up for the writer thread, or by writing it right away if the buffer is disabled.
+     */
+    final void submit(P_HistoricalDataManager target, UUID uuid, byte[] data, long time, BleNodeConfig.HistoricalDataLogFilter.Source source)
+    {
+        if (m_capacity <= 0)
+        {
+            target.add_single(uuid, data, new EpochTime(time), source);
+
+            return;
+        }
+
+        final P_Metrics metrics = m_manager.getMetrics();
+
+        synchronized (m_lock)
+        {
+            while (m_size >= m_capacity && m_capacity > 0)
+            {
+                if (m_backPressure == HistoricalDataBackPressure.DROP_NEWEST)
+                {
+                    metrics.increment(BleMetric.HISTORICAL_DATA_DROPPED);
+
+                    return;
+                }
+                else if (m_backPressure == HistoricalDataBackPressure.DROP_OLDEST)
+                {
+                    m_ring[m_head].clear();
+                    m_head = (m_head + 1) % m_ring.length;
+                    m_size--;
+                    metrics.increment(BleMetric.HISTORICAL_DATA_DROPPED);
+                }
+                else
+                {
+                    try
+                    {
+                        m_lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        metrics.increment(BleMetric.HISTORICAL_DATA_DROPPED);
+
+                        return;
+                    }
+                }
+            }
+
+            if (m_capacity <= 0)
+            {
+                // The buffer got disabled while we were waiting
+                target.add_single(uuid, data, new EpochTime(time), source);
+
+                return;
+            }
+
+            m_ring[(m_head + m_size) % m_ring.length].set(target, uuid, data, time, source, metrics.now());
+            m_size++;
+
+            metrics.increment(BleMetric.HISTORICAL_DATA_ENQUEUED);
+            metrics.setGauge(BleMetric.HISTORICAL_DATA_QUEUE_DEPTH, m_size);
+
+            startWriterIfNeeded();
+
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until every sample queued up so far has been handed to its backing list.
+     */
+    final void flush()
+    {
+        synchronized (m_lock)
+        {
+            if (Thread.currentThread() == m_writerThread)
+                return;
+
+            while ((m_size > 0 || m_committing) && m_writerThread != null)
+            {
+                try
+                {
+                    m_lock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes out whatever is still queued, then lets the writer thread die.
+     */
+    final void shutdown()
+    {
+        flush();
+
+        synchronized (m_lock)
+        {
+            m_shutdown = true;
+            m_lock.notifyAll();
+        }
+    }
+
+    final int getQueuedCount()
+    {
+        synchronized (m_lock)
+        {
+            return m_size;
+        }
+    }
+
+    private void startWriterIfNeeded()
+    {
+        if (m_writerThread != null)
+            return;
+
+        m_shutdown = false;
+        m_writerThread = new Thread(this::writerLoop, "SweetBlue Historical Data Writer");
+        m_writerThread.setDaemon(true);
+        m_writerThread.start();
+    }
+
+    private void writerLoop()
+    {
+        while (true)
+        {
+            final int count;
+
+            synchronized (m_lock)
+            {
+                while (m_size == 0 && !m_shutdown)
+                {
+                    try
+                    {
+                        m_lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        m_shutdown = true;
+                    }
+                }
+
+                if (m_size == 0)
+                {
+                    m_writerThread = null;
+                    m_lock.notifyAll();
+
+                    return;
+                }
+
+                count = Math.min(m_size, MAX_BATCH_SIZE);
+
+                for (int i = 0; i < count; i++)
+                {
+                    final Sample slot = m_ring[(m_head + i) % m_ring.length];
+                    m_batch[i].copy(slot);
+                    slot.clear();
+                }
+
+                m_head = (m_head + count) % m_ring.length;
+                m_size -= count;
+                m_committing = true;
+
+                m_manager.getMetrics().setGauge(BleMetric.HISTORICAL_DATA_QUEUE_DEPTH, m_size);
+
+                // Wake up anyone blocked on a full buffer
+                m_lock.notifyAll();
+            }
+
+            commit(count);
+
+            synchronized (m_lock)
+            {
+                m_committing = false;
+                m_lock.notifyAll();
+            }
+        }
+    }
+
+    private void commit(final int count)
+    {
+        final P_Metrics metrics = m_manager.getMetrics();
+        final long start = metrics.now();
+
+        int runStart = 0;
+
+        for (int i = 1; i <= count; i++)
+        {
+            if (i < count && m_batch[i].isSameRun(m_batch[runStart]))
+                continue;
+
+            try
+            {
+                m_batch[runStart].m_target.add_batch(m_batch[runStart].m_uuid, m_batch, runStart, i);
+            }
+            catch (RuntimeException e)
+            {
+                // Don't let one bad filter or backend take down the writer thread for everybody else.
+                m_manager.getLogger().e("Failed to write " + (i - runStart) + " historical data samples: " + e);
+            }
+
+            runStart = i;
+        }
+
+        metrics.add(BleMetric.HISTORICAL_DATA_WRITTEN, count);
+        metrics.recordSince(BleMetric.HISTORICAL_DATA_COMMIT_TIME, start);
+
+        for (int i = 0; i < count; i++)
+        {
+            metrics.recordSince(BleMetric.HISTORICAL_DATA_INGESTION_LAG, m_batch[i].m_enqueuedAt);
+            m_batch[i].clear();
+        }
+    }
+
+
+    /**
+     * A single read or notification waiting to be logged.
+     */
+    static final class Sample
+    {
+        P_HistoricalDataManager m_target;
+        UUID m_uuid;
+        byte[] m_data;
+        long m_time;
+        BleNodeConfig.HistoricalDataLogFilter.Source m_source;
+        long m_enqueuedAt;
+
+        final void set(P_HistoricalDataManager target, UUID uuid, byte[] data, long time, BleNodeConfig.HistoricalDataLogFilter.Source source, long enqueuedAt)
+        {
+            m_target = target;
+            m_uuid = uuid;
+            m_data = data;
+            m_time = time;
+            m_source = source;
+            m_enqueuedAt = enqueuedAt;
+        }
+
+        final void copy(Sample other)
+        {
+            set(other.m_target, other.m_uuid, other.m_data, other.m_time, other.m_source, other.m_enqueuedAt);
+        }
+
+        final void clear()
+        {
+            set(null, null, null, 0L, null, 0L);
+        }
+
+        final boolean isSameRun(Sample other)
+        {
+            return m_target == other.m_target && m_uuid.equals(other.m_uuid);
+        }
+    }
+}
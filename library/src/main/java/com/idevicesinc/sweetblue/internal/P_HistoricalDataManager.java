@@ -20,6 +20,7 @@ package com.idevicesinc.sweetblue.internal;
 import static com.idevicesinc.sweetblue.BleNodeConfig.HistoricalDataLogFilter.*;
 
 import com.idevicesinc.sweetblue.BleNode;
+import com.idevicesinc.sweetblue.BleNodeConfig;
 import com.idevicesinc.sweetblue.HistoricalDataLoadListener;
 import com.idevicesinc.sweetblue.P_Bridge_User;
 import com.idevicesinc.sweetblue.backend.historical.Backend_HistoricalDataList;
@@ -29,11 +30,17 @@ import com.idevicesinc.sweetblue.utils.EpochTime;
 import com.idevicesinc.sweetblue.utils.EpochTimeRange;
 import com.idevicesinc.sweetblue.utils.ForEach_Returning;
 import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+import com.idevicesinc.sweetblue.utils.HistoricalDataCodec;
 import com.idevicesinc.sweetblue.utils.HistoricalDataCursor;
+import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.P_Const;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 final class P_HistoricalDataManager
@@ -43,6 +50,7 @@ final class P_HistoricalDataManager
 	private final Object LIST_CREATE_MUTEX = new Object();
 
 	private final HashMap<UUID, Backend_HistoricalDataList> m_lists = new HashMap<>();
+	private final HashMap<UUID, P_HistoricalDataRollups> m_rollups = new HashMap<>();
 	private final IBleNode m_endPoint;
 	private final String m_macAddress;
 
@@ -135,13 +143,18 @@ final class P_HistoricalDataManager
 
 		final Please please = PU_HistoricalData.getPlease(m_endPoint, m_macAddress, uuid, data, epochTime, source);
 
-		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+		synchronized( list )
+		{
+			if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+
+			final HistoricalData historicalData = m_endPoint.newHistoricalData(PU_HistoricalData.getAmendedData(data, please), PU_HistoricalData.getAmendedTimestamp(epochTime, please));
 
-		final HistoricalData historicalData = m_endPoint.newHistoricalData(PU_HistoricalData.getAmendedData(data, please), PU_HistoricalData.getAmendedTimestamp(epochTime, please));
+			m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+			addToRollups(uuid, historicalData);
 
-		list.add_single(historicalData, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+			list.add_single(historicalData, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -162,11 +175,16 @@ final class P_HistoricalDataManager
 			historicalData_override = historicalData;
 		}
 
-		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+		synchronized( list )
+		{
+			if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+
+			m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+			addToRollups(uuid, historicalData_override);
 
-		list.add_single(historicalData_override, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+			list.add_single(historicalData_override, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -176,11 +194,32 @@ final class P_HistoricalDataManager
 
 		final Please please = PU_HistoricalData.getPlease(m_endPoint, m_macAddress, uuid, P_Const.EMPTY_BYTE_ARRAY, EpochTime.NULL, Source.MULTIPLE_MANUAL_ADDITIONS);
 
-		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+		synchronized( list )
+		{
+			if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+
+			m_previousUuidsWithDataAdded.addUuid(uuid);
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+			final BleNodeConfig.HistoricalDataValueExtractor extractor = PU_HistoricalData.getValueExtractor(m_endPoint);
+			final Iterator<HistoricalData> historicalData_tapped = extractor == null ? historicalData : new Iterator<HistoricalData>()
+			{
+				@Override public boolean hasNext()
+				{
+					return historicalData.hasNext();
+				}
 
-		list.add_multiple(historicalData, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+				@Override public HistoricalData next()
+				{
+					final HistoricalData next = historicalData.next();
+
+					addToRollups(uuid, extractor, next);
+
+					return next;
+				}
+			};
+
+			list.add_multiple(historicalData_tapped, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+		}
 	}
 
 	//GOOD
@@ -190,11 +229,234 @@ final class P_HistoricalDataManager
 
 		final Please please = PU_HistoricalData.getPlease(m_endPoint, m_macAddress, uuid, P_Const.EMPTY_BYTE_ARRAY, EpochTime.NULL, Source.MULTIPLE_MANUAL_ADDITIONS);
 
-		if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+		synchronized( list )
+		{
+			if( PU_HistoricalData.add_earlyOut(list, please) )  return;
+
+			m_previousUuidsWithDataAdded.addUuid(uuid);
+
+			final BleNodeConfig.HistoricalDataValueExtractor extractor = PU_HistoricalData.getValueExtractor(m_endPoint);
+			final ForEach_Returning<HistoricalData> historicalData_tapped = extractor == null ? historicalData : index ->
+			{
+				final HistoricalData next = historicalData.next(index);
+
+				if( next != null )
+				{
+					addToRollups(uuid, extractor, next);
+				}
+
+				return next;
+			};
+
+			list.add_multiple(historicalData_tapped, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+		}
+	}
+
+	/**
+	 * Every call into a {@link Backend_HistoricalDataList} made here holds that list's monitor, as lists are written to from
+	 * {@link P_HistoricalDataIngestor}'s writer thread, while the update thread and the app's threads read and delete from them.
+	 * See the threading contract on {@link Backend_HistoricalDataList}.
+	 * <br><br>
+	 * Logs samples [start, end) of the given batch, all of which are for the given uuid, from {@link P_HistoricalDataIngestor}'s writer
+	 * thread. The filter still sees every sample, but consecutive samples it wants persisted the same way are added to the list together.
+	 * The filter is app code, so it's run over the whole batch before the list's monitor is taken.
+	 */
+	void add_batch(final UUID uuid, final P_HistoricalDataIngestor.Sample[] batch, final int start, final int end)
+	{
+		final Backend_HistoricalDataList list = getList_createIfNotExists(uuid);
+		final BleNodeConfig.HistoricalDataValueExtractor extractor = PU_HistoricalData.getValueExtractor(m_endPoint);
+		final ArrayList<HistoricalData> run = new ArrayList<>(end - start);
+		final Please[] pleases = new Please[end - start];
+
+		for( int i = start; i < end; i++ )
+		{
+			final P_HistoricalDataIngestor.Sample sample = batch[i];
+
+			pleases[i - start] = PU_HistoricalData.getPlease(m_endPoint, m_macAddress, uuid, sample.m_data, new EpochTime(sample.m_time), sample.m_source);
+		}
+
+		synchronized( list )
+		{
+			int runPersistenceLevel = 0;
+			long runLimit = 0;
+
+			for( int i = start; i < end; i++ )
+			{
+				final P_HistoricalDataIngestor.Sample sample = batch[i];
+				final EpochTime epochTime = new EpochTime(sample.m_time);
+				final Please please = pleases[i - start];
+				final int persistenceLevel = P_Bridge_User.getPersistanceLevel(please);
+
+				if( !run.isEmpty() && (persistenceLevel != runPersistenceLevel || please.getLimit() != runLimit) )
+				{
+					list.add_multiple(run.iterator(), runPersistenceLevel, runLimit);
+					run.clear();
+				}
+
+				if( PU_HistoricalData.add_earlyOut(list, please) )  continue;
+
+				final HistoricalData historicalData = m_endPoint.newHistoricalData(PU_HistoricalData.getAmendedData(sample.m_data, please), PU_HistoricalData.getAmendedTimestamp(epochTime, please));
+
+				if( run.isEmpty() )
+				{
+					m_previousUuidsWithDataAdded.addUuid(uuid);
+				}
+
+				if( extractor != null )
+				{
+					addToRollups(uuid, extractor, historicalData);
+				}
 
-		m_previousUuidsWithDataAdded.addUuid(uuid);
+				run.add(historicalData);
+				runPersistenceLevel = persistenceLevel;
+				runLimit = please.getLimit();
+			}
 
-		list.add_multiple(historicalData, P_Bridge_User.getPersistanceLevel(please), please.getLimit());
+			if( !run.isEmpty() )
+			{
+				list.add_multiple(run.iterator(), runPersistenceLevel, runLimit);
+			}
+		}
+	}
+
+	private void addToRollups(final UUID uuid, final HistoricalData historicalData)
+	{
+		final BleNodeConfig.HistoricalDataValueExtractor extractor = PU_HistoricalData.getValueExtractor(m_endPoint);
+
+		if( extractor == null )  return;
+
+		addToRollups(uuid, extractor, historicalData);
+	}
+
+	//--- Backend_HistoricalDataList doesn't say which samples it evicts to stay under a Please's limit, so rollups just ignore the limit.
+	//--- They still leave out anything filtered out with PersistenceLevel_NONE, as add_earlyOut() bails before getting here.
+	private void addToRollups(final UUID uuid, final BleNodeConfig.HistoricalDataValueExtractor extractor, final HistoricalData historicalData)
+	{
+		final double value = extractor.extractValue(uuid, historicalData.getBlob());
+
+		if( Double.isNaN(value) )  return;
+
+		getRollups(uuid, true).add(historicalData.getEpochTime().toMilliseconds(), value);
+	}
+
+	private P_HistoricalDataRollups getRollups(final UUID uuid, final boolean create)
+	{
+		synchronized(m_rollups)
+		{
+			P_HistoricalDataRollups rollups = m_rollups.get(uuid);
+
+			if( rollups == null && create )
+			{
+				rollups = new P_HistoricalDataRollups();
+				m_rollups.put(uuid, rollups);
+			}
+
+			return rollups;
+		}
+	}
+
+	private void deleteFromRollups(final UUID uuid, final EpochTimeRange range)
+	{
+		final P_HistoricalDataRollups rollups = getRollups(uuid, false);
+
+		if( rollups == null )  return;
+
+		if( range.from().toMilliseconds() <= EpochTime.MIN.toMilliseconds() && range.to().toMilliseconds() >= EpochTime.MAX.toMilliseconds() )
+		{
+			rollups.clear();
+		}
+		else
+		{
+			rollups.delete(range);
+		}
+	}
+
+	/**
+	 * Replays everything currently in the list into fresh rollups, used once data is loaded from disk.
+	 */
+	private void rebuildRollups(final UUID uuid, final Backend_HistoricalDataList list)
+	{
+		final BleNodeConfig.HistoricalDataValueExtractor extractor = PU_HistoricalData.getValueExtractor(m_endPoint);
+
+		if( extractor == null )  return;
+
+		final P_HistoricalDataRollups rollups = getRollups(uuid, true);
+
+		// Hold the list's lock the whole time, so the writer thread can't add to it (or its rollups) half way through
+		synchronized(list)
+		{
+			final Iterator<HistoricalData> iterator = list.getIterator(EpochTimeRange.FROM_MIN_TO_MAX);
+
+			synchronized(rollups)
+			{
+				rollups.clear();
+
+				while( iterator.hasNext() )
+				{
+					addToRollups(uuid, extractor, iterator.next());
+				}
+			}
+		}
+	}
+
+	//GOOD
+	public int export(final UUID uuid, final EpochTimeRange range, final HistoricalDataCodec.Encoder encoder) throws IOException
+	{
+		final int count = encoder.write(getIterator(uuid, range));
+
+		encoder.finish();
+
+		return count;
+	}
+
+	/**
+	 * Each block is added with its own {@link #add_multiple(UUID, Iterator)} call, so only a block's worth of samples is ever held in
+	 * memory, and a persistent backend commits a block at a time.
+	 */
+	public int import_all(final UUID uuid, final HistoricalDataCodec.Decoder decoder) throws IOException
+	{
+		final ArrayList<HistoricalData> block = new ArrayList<>();
+		int count = 0;
+
+		while( decoder.nextBlock(block) > 0 )
+		{
+			add_multiple(uuid, block.iterator());
+
+			count += block.size();
+			block.clear();
+		}
+
+		return count;
+	}
+
+	//GOOD
+	public HistoricalDataAggregate getAggregate(final UUID uuid, final EpochTimeRange range)
+	{
+		final P_HistoricalDataRollups rollups = getRollups(uuid, false);
+
+		if( rollups == null )
+		{
+			return new HistoricalDataAggregate(range, 0, Double.NaN, Double.NaN, 0.0);
+		}
+		else
+		{
+			return rollups.aggregate(range);
+		}
+	}
+
+	//GOOD
+	public List<HistoricalDataAggregate> getSeries(final UUID uuid, final EpochTimeRange range, final Interval bucketSize)
+	{
+		final P_HistoricalDataRollups rollups = getRollups(uuid, false);
+
+		if( rollups == null )
+		{
+			return new ArrayList<>();
+		}
+		else
+		{
+			return rollups.series(range, bucketSize.millis());
+		}
 	}
 
 	//GOOD
@@ -208,7 +470,10 @@ final class P_HistoricalDataManager
 		}
 		else
 		{
-			return list.get(range, offset);
+			synchronized( list )
+			{
+				return list.get(range, offset);
+			}
 		}
 	}
 
@@ -217,18 +482,29 @@ final class P_HistoricalDataManager
 	{
 		final Backend_HistoricalDataList list = getList_doNotCreate(uuid);
 
+		if( !memoryOnly )
+		{
+			deleteFromRollups(uuid, range);
+		}
+
 		if( memoryOnly )
 		{
 			if( list != null )
 			{
-				list.delete_fromMemoryOnly(range, limit);
+				synchronized( list )
+				{
+					list.delete_fromMemoryOnly(range, limit);
+				}
 			}
 		}
 		else
 		{
 			if( list != null )
 			{
-				list.delete_fromMemoryAndDatabase(range, limit);
+				synchronized( list )
+				{
+					list.delete_fromMemoryAndDatabase(range, limit);
+				}
 			}
 			else
 			{
@@ -267,17 +543,25 @@ final class P_HistoricalDataManager
 
 			i++;
 
+			if( !memoryOnly )
+			{
+				deleteFromRollups(ith, range);
+			}
+
 			Backend_HistoricalDataList list = getList_doNotCreate(ith);
 
 			if( list == null )  continue;
 
-			if( memoryOnly )
-			{
-				list.delete_fromMemoryOnly(range, limit);
-			}
-			else
+			synchronized( list )
 			{
-				list.delete_fromMemoryOnlyForNowButDatabaseSoon(range, limit);
+				if( memoryOnly )
+				{
+					list.delete_fromMemoryOnly(range, limit);
+				}
+				else
+				{
+					list.delete_fromMemoryOnlyForNowButDatabaseSoon(range, limit);
+				}
 			}
 		}
 
@@ -294,7 +578,10 @@ final class P_HistoricalDataManager
 
 		if( list != null )
 		{
-			return list.getIterator(range);
+			synchronized( list )
+			{
+				return list.getIterator(range);
+			}
 		}
 		else
 		{
@@ -309,7 +596,10 @@ final class P_HistoricalDataManager
 
 		if( list != null )
 		{
-			return list.doForEach(range, forEach);
+			synchronized( list )
+			{
+				return list.doForEach(range, forEach);
+			}
 		}
 		else
 		{
@@ -322,7 +612,12 @@ final class P_HistoricalDataManager
 	{
 		final Backend_HistoricalDataList list = getList_onlyCreateIfDataIsOnDisk(uuid);
 
-		return list != null ? list.getCount(range) : 0;
+		if( list == null )  return 0;
+
+		synchronized( list )
+		{
+			return list.getCount(range);
+		}
 	}
 
 	//GOOD
@@ -332,7 +627,10 @@ final class P_HistoricalDataManager
 
 		if( list != null )
 		{
-			return list.getCursor(range);
+			synchronized( list )
+			{
+				return list.getCursor(range);
+			}
 		}
 		else
 		{
@@ -360,14 +658,14 @@ final class P_HistoricalDataManager
 
 			if( memoryOnly )
 			{
-				if( ithList != null && ithList.getCount(range) > 0 )
+				if( ithList != null && getCount(ithList, range) > 0 )
 				{
 					return true;
 				}
 			}
 			else
 			{
-				if( ithList != null && ithList.getCount(range) > 0 )
+				if( ithList != null && getCount(ithList, range) > 0 )
 				{
 					return true;
 				}
@@ -384,6 +682,30 @@ final class P_HistoricalDataManager
 		return false;
 	}
 
+	private static int getCount(final Backend_HistoricalDataList list, final EpochTimeRange range)
+	{
+		synchronized( list )
+		{
+			return list.getCount(range);
+		}
+	}
+
+	private static EpochTimeRange getRange(final Backend_HistoricalDataList list)
+	{
+		synchronized( list )
+		{
+			return list.getRange();
+		}
+	}
+
+	private static int getLoadState(final Backend_HistoricalDataList list)
+	{
+		synchronized( list )
+		{
+			return list.getLoadState();
+		}
+	}
+
 	//TODO: Need to implement the uui==null case
 	public void load(final UUID uuid_nullable, final HistoricalDataLoadListener listener_nullable)
 	{
@@ -395,7 +717,7 @@ final class P_HistoricalDataManager
 
 				if( list != null )
 				{
-					invokeListeners(uuid_nullable, list.getRange(), HistoricalDataLoadListener.Status.ALREADY_LOADED, listener_nullable);
+					invokeListeners(uuid_nullable, getRange(list), HistoricalDataLoadListener.Status.ALREADY_LOADED, listener_nullable);
 				}
 				else
 				{
@@ -415,7 +737,7 @@ final class P_HistoricalDataManager
 				{
 					final Backend_HistoricalDataList list = getList_createIfNotExists(uuid_nullable);
 
-					if( list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING )
+					if( getLoadState(list) == Backend_HistoricalDataList.LOAD_STATE__LOADING )
 					{
 						invokeListeners(uuid_nullable, EpochTimeRange.NULL, HistoricalDataLoadListener.Status.ALREADY_LOADING, listener_nullable);
 					}
@@ -424,21 +746,26 @@ final class P_HistoricalDataManager
 						invokeListeners(uuid_nullable, EpochTimeRange.NULL, HistoricalDataLoadListener.Status.STARTED_LOADING, listener_nullable);
 					}
 
-					list.load(() -> m_endPoint.getIManager().getPostManager().runOrPostToUpdateThread(() -> {
-                        if (list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADED)
-                        {
-                            invokeListeners(uuid_nullable, list.getRange(), HistoricalDataLoadListener.Status.LOADED, listener_nullable);
-                        }
-                        else if (list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__NOT_LOADED)
-                        {
-                            //--- DRK > Should be fringe but technically possible if user is doing things on multiple threads (they shouldn't but if they do...).
-                            invokeListeners(uuid_nullable, EpochTimeRange.NULL, HistoricalDataLoadListener.Status.NOTHING_TO_LOAD, listener_nullable);
-                        }
-                        else
-                        {
-                            m_endPoint.getIManager().ASSERT(false, "Didn't expect to still be loading historical data.");
-                        }
-                    }));
+					synchronized( list )
+					{
+						list.load(() -> m_endPoint.getIManager().getPostManager().runOrPostToUpdateThread(() -> {
+                            if (getLoadState(list) == Backend_HistoricalDataList.LOAD_STATE__LOADED)
+                            {
+                                rebuildRollups(uuid_nullable, list);
+
+                                invokeListeners(uuid_nullable, getRange(list), HistoricalDataLoadListener.Status.LOADED, listener_nullable);
+                            }
+                            else if (getLoadState(list) == Backend_HistoricalDataList.LOAD_STATE__NOT_LOADED)
+                            {
+                                //--- DRK > Should be fringe but technically possible if user is doing things on multiple threads (they shouldn't but if they do...).
+                                invokeListeners(uuid_nullable, EpochTimeRange.NULL, HistoricalDataLoadListener.Status.NOTHING_TO_LOAD, listener_nullable);
+                            }
+                            else
+                            {
+                                m_endPoint.getIManager().ASSERT(false, "Didn't expect to still be loading historical data.");
+                            }
+                        }));
+					}
 				}
 				else
 				{
@@ -461,7 +788,7 @@ final class P_HistoricalDataManager
 
 			if( list != null )
 			{
-				return list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADED;
+				return getLoadState(list) == Backend_HistoricalDataList.LOAD_STATE__LOADED;
 			}
 			else
 			{
@@ -478,7 +805,7 @@ final class P_HistoricalDataManager
 
 				final Backend_HistoricalDataList ithList = getList_doNotCreate(ithUuid);
 
-				if( ithList == null || ithList.getLoadState() != Backend_HistoricalDataList.LOAD_STATE__LOADED )
+				if( ithList == null || getLoadState(ithList) != Backend_HistoricalDataList.LOAD_STATE__LOADED )
 				{
 					return false;
 				}
@@ -497,7 +824,7 @@ final class P_HistoricalDataManager
 
 			if( list != null )
 			{
-				return list.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING;
+				return getLoadState(list) == Backend_HistoricalDataList.LOAD_STATE__LOADING;
 			}
 			else
 			{
@@ -516,7 +843,7 @@ final class P_HistoricalDataManager
 
 				if( ithList == null )  continue;
 
-				if( ithList.getLoadState() == Backend_HistoricalDataList.LOAD_STATE__LOADING )
+				if( getLoadState(ithList) == Backend_HistoricalDataList.LOAD_STATE__LOADING )
 				{
 					return true;
 				}
@@ -546,7 +873,7 @@ final class P_HistoricalDataManager
 		final HistoricalDataLoadListener.HistoricalDataLoadEvent event = event_nullable != null ? event_nullable : P_Bridge_User.newHistoricalDataLoadEvent(node, m_macAddress, uuid, range, status);
 		if( listener_nullable != null )
 		{
-			m_endPoint.getIManager().postEvent(listener_nullable, event);
+			m_endPoint.getIManager().postEvent(m_macAddress, listener_nullable, event);
 		}
 
 		return event;
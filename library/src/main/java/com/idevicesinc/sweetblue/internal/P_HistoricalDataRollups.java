@@ -0,0 +1,455 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minute, hour, and day rollups (count/min/max/sum) of the values logged for a single characteristic, kept up to date as each value is
+ * added. Aggregate queries are answered from the coarsest buckets which fit entirely inside the requested range, falling back to finer
+ * buckets only at the edges, so a 30 day range costs about 30 day buckets + 48 hour buckets + 120 minute buckets, no matter how many
+ * samples were logged. Ranges are resolved to the minute. Buckets are aligned to UTC.
+ * <br><br>
+ * Finer resolutions are only kept for so long (see the retention constants below). Once evicted, those older ranges are answered from the
+ * next coarser resolution, which means the edges of ranges that far back are resolved to the hour (or day).
+ */
+final class P_HistoricalDataRollups
+{
+	static final long MINUTE	= 60L * 1000L;
+	static final long HOUR		= 60L * MINUTE;
+	static final long DAY		= 24L * HOUR;
+
+	private static final int MINUTE_RETENTION	= 2 * 24 * 60;	// 2 days
+	private static final int HOUR_RETENTION		= 90 * 24;		// 90 days
+	private static final int DAY_RETENTION		= 10 * 366;		// 10 years
+
+	// Keep the math below well away from overflow when given EpochTime.MIN/MAX
+	private static final long TIME_LIMIT = Long.MAX_VALUE / 4;
+
+	private final Series[] m_series =
+	{
+		new Series(MINUTE, MINUTE_RETENTION, HOUR),
+		new Series(HOUR, HOUR_RETENTION, DAY),
+		new Series(DAY, DAY_RETENTION, DAY)
+	};
+
+	private final Accumulator m_accumulator = new Accumulator();
+
+
+	synchronized void add(final long time, final double value)
+	{
+		if( Double.isNaN(value) )  return;
+
+		for( int i = 0; i < m_series.length; i++ )
+		{
+			m_series[i].add(time, value);
+		}
+	}
+
+	/**
+	 * Drops every bucket which overlaps the given range, as they would no longer be accurate.
+	 */
+	synchronized void delete(final EpochTimeRange range)
+	{
+		final long from = from(range);
+		final long to = to(range);
+
+		for( int i = 0; i < m_series.length; i++ )
+		{
+			m_series[i].delete(from, to);
+		}
+	}
+
+	synchronized void clear()
+	{
+		for( int i = 0; i < m_series.length; i++ )
+		{
+			m_series[i].clear();
+		}
+	}
+
+	synchronized HistoricalDataAggregate aggregate(final EpochTimeRange range)
+	{
+		final long from = from(range);
+		final long to = to(range);
+
+		m_accumulator.reset();
+
+		cover(m_series.length - 1, from, to, m_accumulator);
+
+		return m_accumulator.toAggregate(range);
+	}
+
+	/**
+	 * Returns the non-empty buckets of the given size (which is rounded up to at least a minute) within the given range, in chronological order.
+	 * Each is built from the coarsest rollup whose bucket size is no bigger than <code>bucketSize</code>.
+	 */
+	synchronized List<HistoricalDataAggregate> series(final EpochTimeRange range, long bucketSize)
+	{
+		bucketSize = Math.max(bucketSize, MINUTE);
+
+		final long from = from(range);
+		final long to = to(range);
+
+		int level = 0;
+		while( level + 1 < m_series.length && m_series[level + 1].m_size <= bucketSize )
+		{
+			level++;
+		}
+
+		final ArrayList<HistoricalDataAggregate> out = new ArrayList<>();
+		final Accumulator acc = new Accumulator();
+		long outStart = Long.MIN_VALUE;
+
+		final Series series = m_series[level];
+		long start = from;
+
+		//--- Anything older than what this resolution still holds comes from the next coarser one.
+		if( start < series.m_completeFrom && level + 1 < m_series.length )
+		{
+			final Series coarse = m_series[level + 1];
+			final long end = Math.min(to, series.m_completeFrom);
+
+			for( int i = coarse.lowerBound(floor(start, coarse.m_size)); i < coarse.m_count && coarse.m_start[i] < end; i++ )
+			{
+				outStart = emit(out, acc, outStart, floor(coarse.m_start[i], bucketSize), bucketSize);
+				acc.add(coarse, i);
+			}
+
+			start = end;
+		}
+
+		for( int i = series.lowerBound(floor(start, series.m_size)); i < series.m_count && series.m_start[i] < to; i++ )
+		{
+			outStart = emit(out, acc, outStart, floor(series.m_start[i], bucketSize), bucketSize);
+			acc.add(series, i);
+		}
+
+		emit(out, acc, outStart, Long.MIN_VALUE, bucketSize);
+
+		return out;
+	}
+
+	private static long emit(final List<HistoricalDataAggregate> out, final Accumulator acc, final long outStart, final long nextStart, final long bucketSize)
+	{
+		if( outStart == nextStart )  return outStart;
+
+		if( acc.m_count > 0 )
+		{
+			out.add(acc.toAggregate(new EpochTimeRange(outStart, outStart + bucketSize - 1)));
+		}
+
+		acc.reset();
+
+		return nextStart;
+	}
+
+	/**
+	 * Adds the half-open range [from, to) to the accumulator, using the series at the given level where it fits, and finer ones at the edges.
+	 */
+	private void cover(final int level, long from, final long to, final Accumulator acc)
+	{
+		if( from >= to )  return;
+
+		final Series series = m_series[level];
+
+		if( from < series.m_completeFrom )
+		{
+			final long split = Math.min(to, series.m_completeFrom);
+
+			if( level + 1 < m_series.length )
+			{
+				final Series coarse = m_series[level + 1];
+				coarse.accumulate(floor(from, coarse.m_size), split, acc);
+			}
+
+			from = split;
+
+			if( from >= to )  return;
+		}
+
+		if( level == 0 )
+		{
+			series.accumulate(floor(from, series.m_size), to, acc);
+
+			return;
+		}
+
+		final long lo = ceil(from, series.m_size);
+		final long hi = floor(to, series.m_size);
+
+		if( lo < hi )
+		{
+			cover(level - 1, from, lo, acc);
+			series.accumulate(lo, hi, acc);
+			cover(level - 1, hi, to, acc);
+		}
+		else
+		{
+			cover(level - 1, from, to, acc);
+		}
+	}
+
+	private static long from(final EpochTimeRange range)
+	{
+		return Math.max(-TIME_LIMIT, range.from().toMilliseconds());
+	}
+
+	// EpochTimeRange is inclusive, whereas everything in here is half-open
+	private static long to(final EpochTimeRange range)
+	{
+		return Math.min(TIME_LIMIT, range.to().toMilliseconds()) + 1;
+	}
+
+	private static long floor(final long time, final long size)
+	{
+		return Math.floorDiv(time, size) * size;
+	}
+
+	private static long ceil(final long time, final long size)
+	{
+		return -Math.floorDiv(-time, size) * size;
+	}
+
+
+	private static final class Accumulator
+	{
+		private long m_count;
+		private double m_min;
+		private double m_max;
+		private double m_sum;
+
+		Accumulator()
+		{
+			reset();
+		}
+
+		void reset()
+		{
+			m_count = 0;
+			m_min = Double.POSITIVE_INFINITY;
+			m_max = Double.NEGATIVE_INFINITY;
+			m_sum = 0.0;
+		}
+
+		void add(final Series series, final int index)
+		{
+			m_count += series.m_counts[index];
+			m_min = Math.min(m_min, series.m_min[index]);
+			m_max = Math.max(m_max, series.m_max[index]);
+			m_sum += series.m_sum[index];
+		}
+
+		HistoricalDataAggregate toAggregate(final EpochTimeRange range)
+		{
+			if( m_count == 0 )
+			{
+				return new HistoricalDataAggregate(range, 0, Double.NaN, Double.NaN, 0.0);
+			}
+
+			return new HistoricalDataAggregate(range, m_count, m_min, m_max, m_sum);
+		}
+	}
+
+
+	/**
+	 * A single resolution of buckets, held in parallel arrays sorted by start time. Values nearly always arrive in order, so adding is
+	 * normally an update to (or append after) the last bucket.
+	 */
+	private static final class Series
+	{
+		private final long m_size;
+		private final int m_retention;
+		private final long m_evictAlignment;
+
+		private long[] m_start = new long[16];
+		private long[] m_counts = new long[16];
+		private double[] m_min = new double[16];
+		private double[] m_max = new double[16];
+		private double[] m_sum = new double[16];
+		private int m_count = 0;
+
+		// Buckets starting before this have been evicted, so data before it can't be answered at this resolution.
+		private long m_completeFrom = Long.MIN_VALUE;
+
+		Series(final long size, final int retention, final long evictAlignment)
+		{
+			m_size = size;
+			m_retention = retention;
+			m_evictAlignment = evictAlignment;
+		}
+
+		void add(final long time, final double value)
+		{
+			final long start = floor(time, m_size);
+
+			if( start < m_completeFrom )  return;
+
+			int index;
+
+			if( m_count > 0 && m_start[m_count - 1] == start )
+			{
+				index = m_count - 1;
+			}
+			else if( m_count == 0 || m_start[m_count - 1] < start )
+			{
+				index = insert(m_count, start);
+			}
+			else
+			{
+				index = lowerBound(start);
+
+				if( index >= m_count || m_start[index] != start )
+				{
+					index = insert(index, start);
+				}
+			}
+
+			m_counts[index]++;
+			m_min[index] = Math.min(m_min[index], value);
+			m_max[index] = Math.max(m_max[index], value);
+			m_sum[index] += value;
+
+			//--- Evict in chunks, so this stays amortized O(1).
+			if( m_count > m_retention + m_retention / 4 )
+			{
+				evictBefore(ceil(m_start[m_count - m_retention], m_evictAlignment));
+			}
+		}
+
+		void accumulate(final long from, final long to, final Accumulator acc)
+		{
+			for( int i = lowerBound(from); i < m_count && m_start[i] < to; i++ )
+			{
+				acc.add(this, i);
+			}
+		}
+
+		void delete(final long from, final long to)
+		{
+			int write = 0;
+
+			for( int read = 0; read < m_count; read++ )
+			{
+				final long start = m_start[read];
+
+				if( start < to && start + m_size > from )  continue;
+
+				if( write != read )
+				{
+					move(read, write);
+				}
+
+				write++;
+			}
+
+			m_count = write;
+		}
+
+		void clear()
+		{
+			m_count = 0;
+			m_completeFrom = Long.MIN_VALUE;
+		}
+
+		int lowerBound(final long start)
+		{
+			int low = 0;
+			int high = m_count;
+
+			while( low < high )
+			{
+				final int mid = (low + high) >>> 1;
+
+				if( m_start[mid] < start )
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		private void evictBefore(final long start)
+		{
+			final int count = lowerBound(start);
+
+			if( count == 0 )  return;
+
+			final int remaining = m_count - count;
+			System.arraycopy(m_start, count, m_start, 0, remaining);
+			System.arraycopy(m_counts, count, m_counts, 0, remaining);
+			System.arraycopy(m_min, count, m_min, 0, remaining);
+			System.arraycopy(m_max, count, m_max, 0, remaining);
+			System.arraycopy(m_sum, count, m_sum, 0, remaining);
+			m_count = remaining;
+			m_completeFrom = start;
+		}
+
+		private int insert(final int index, final long start)
+		{
+			if( m_count == m_start.length )
+			{
+				final int capacity = m_start.length * 2;
+				m_start = Arrays.copyOf(m_start, capacity);
+				m_counts = Arrays.copyOf(m_counts, capacity);
+				m_min = Arrays.copyOf(m_min, capacity);
+				m_max = Arrays.copyOf(m_max, capacity);
+				m_sum = Arrays.copyOf(m_sum, capacity);
+			}
+
+			final int tail = m_count - index;
+
+			if( tail > 0 )
+			{
+				System.arraycopy(m_start, index, m_start, index + 1, tail);
+				System.arraycopy(m_counts, index, m_counts, index + 1, tail);
+				System.arraycopy(m_min, index, m_min, index + 1, tail);
+				System.arraycopy(m_max, index, m_max, index + 1, tail);
+				System.arraycopy(m_sum, index, m_sum, index + 1, tail);
+			}
+
+			m_start[index] = start;
+			m_counts[index] = 0;
+			m_min[index] = Double.POSITIVE_INFINITY;
+			m_max[index] = Double.NEGATIVE_INFINITY;
+			m_sum[index] = 0.0;
+			m_count++;
+
+			return index;
+		}
+
+		private void move(final int from, final int to)
+		{
+			m_start[to] = m_start[from];
+			m_counts[to] = m_counts[from];
+			m_min[to] = m_min[from];
+			m_max[to] = m_max[from];
+			m_sum[to] = m_sum[from];
+		}
+	}
+}
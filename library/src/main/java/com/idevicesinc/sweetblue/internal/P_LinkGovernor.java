@@ -0,0 +1,216 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleConnectionPriority;
+import com.idevicesinc.sweetblue.BleDeviceState;
+import com.idevicesinc.sweetblue.LinkGovernorConfig;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Phy;
+import com.idevicesinc.sweetblue.utils.Utils_Config;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+
+
+/**
+ * Raises and lowers a device's connection priority, MTU and PHY based on its read/write traffic. See {@link LinkGovernorConfig} for the rules.
+ * Traffic is counted as it happens (tasks queued and ended, bytes read and written), and only looked at once per evaluation window on the update loop.
+ */
+final class P_LinkGovernor
+{
+
+    private final IBleDevice m_device;
+
+    // Resolved from the device and manager configs when either changes, rather than every tick
+    private volatile boolean m_configDirty = true;
+    private LinkGovernorConfig m_config;
+
+    private int m_pending;
+    private int m_peakPending;
+    private long m_bytes;
+
+    private double m_windowTime;
+    private double m_idleTime;
+    private double m_timeSinceChange = Double.MAX_VALUE;
+    private int m_busyWindows;
+
+    private boolean m_raised;
+    // What the link was before it was raised, or null if the governor didn't change that part
+    private BleConnectionPriority m_priorityBeforeRaise;
+    private Phy m_phyBeforeRaise;
+
+
+    P_LinkGovernor(IBleDevice device)
+    {
+        m_device = device;
+    }
+
+
+    final synchronized void onReadWriteQueued()
+    {
+        m_pending++;
+        m_peakPending = Math.max(m_peakPending, m_pending);
+    }
+
+    final synchronized void onReadWriteEnded()
+    {
+        if (m_pending > 0)
+            m_pending--;
+    }
+
+    final synchronized void onBytesTransferred(final int byteCount)
+    {
+        m_bytes += byteCount;
+    }
+
+    final boolean isRaised()
+    {
+        return m_raised;
+    }
+
+    /**
+     * Called when the device's or the manager's config changes, so the next tick resolves {@link LinkGovernorConfig} again.
+     */
+    final void onConfigChanged()
+    {
+        m_configDirty = true;
+    }
+
+    final void update(final double timeStep)
+    {
+        if (m_configDirty)
+        {
+            m_configDirty = false;
+            m_config = Utils_Config.filter(m_device.conf_device().linkGovernor, m_device.conf_mngr().linkGovernor);
+
+            if (m_config == null)
+                reset();
+        }
+
+        final LinkGovernorConfig config = m_config;
+
+        if (config == null)
+            return;
+
+        if (!m_device.is(BleDeviceState.INITIALIZED))
+        {
+            // Whatever the link was raised to went away with the connection. Put back the priority the app had, so a reconnect doesn't
+            // replay the raise, and start from scratch on the next connection.
+            if (m_priorityBeforeRaise != null)
+                m_device.updateConnectionPriority(m_priorityBeforeRaise);
+
+            reset();
+            return;
+        }
+
+        m_windowTime += timeStep;
+        m_timeSinceChange += timeStep;
+
+        if (m_windowTime < config.evaluationWindow.secs())
+            return;
+
+        final int peakPending;
+        final double bytesPerSecond;
+        final double windowTime = m_windowTime;
+
+        synchronized (this)
+        {
+            peakPending = m_peakPending;
+            bytesPerSecond = m_bytes / windowTime;
+            resetWindow();
+        }
+
+        final boolean busy = peakPending >= config.raiseQueueDepth || bytesPerSecond >= config.raiseBytesPerSecond;
+        final boolean quiet = peakPending <= config.lowerQueueDepth && bytesPerSecond <= config.lowerBytesPerSecond;
+
+        m_busyWindows = busy ? m_busyWindows + 1 : 0;
+        m_idleTime = quiet ? m_idleTime + windowTime : 0.0;
+
+        final boolean canChange = m_timeSinceChange >= Interval.secs(config.minTimeBetweenChanges);
+
+        if (!m_raised && m_busyWindows >= config.busyWindowsBeforeRaising && canChange)
+        {
+            m_device.getIManager().getLogger().i(Utils_String.makeString("Raising link for ", m_device.getMacAddress(), " (", peakPending, " queued, ", bytesPerSecond, " bytes/sec)"));
+            raise(config);
+        }
+        else if (m_raised && m_idleTime >= Interval.secs(config.idleTimeBeforeLowering) && canChange)
+        {
+            m_device.getIManager().getLogger().i(Utils_String.makeString("Lowering link for ", m_device.getMacAddress(), " after ", m_idleTime, " seconds idle"));
+            lower();
+        }
+    }
+
+    private void raise(final LinkGovernorConfig config)
+    {
+        m_raised = true;
+        m_timeSinceChange = 0.0;
+        m_idleTime = 0.0;
+
+        if (config.raisedPriority != null && m_device.getConnectionPriority() != config.raisedPriority)
+        {
+            m_priorityBeforeRaise = m_device.getConnectionPriority();
+            m_device.setConnectionPriority(config.raisedPriority, null);
+        }
+
+        if (config.raisedMtu > m_device.getMtu())
+            m_device.negotiateMtu(config.raisedMtu, null);
+
+        if (config.useHighSpeedPhy && m_device.getIManager().isBluetooth5SupportedByAndroidVersion() && m_device.getIManager().isBluetooth5HighSpeedSupported() && m_device.getPhy_private() != Phy.HIGH_SPEED)
+        {
+            m_phyBeforeRaise = m_device.getPhy_private();
+            m_device.setPhyOptions(Phy.HIGH_SPEED, null);
+        }
+    }
+
+    private void lower()
+    {
+        m_raised = false;
+        m_timeSinceChange = 0.0;
+        m_busyWindows = 0;
+
+        if (m_priorityBeforeRaise != null)
+        {
+            m_device.setConnectionPriority(m_priorityBeforeRaise, null);
+            m_priorityBeforeRaise = null;
+        }
+
+        if (m_phyBeforeRaise != null)
+        {
+            m_device.setPhyOptions(m_phyBeforeRaise, null);
+            m_phyBeforeRaise = null;
+        }
+    }
+
+    private void reset()
+    {
+        resetWindow();
+        m_busyWindows = 0;
+        m_idleTime = 0.0;
+        m_timeSinceChange = Double.MAX_VALUE;
+        m_raised = false;
+        m_priorityBeforeRaise = null;
+        m_phyBeforeRaise = null;
+    }
+
+    private void resetWindow()
+    {
+        m_windowTime = 0.0;
+        m_bytes = 0L;
+        m_peakPending = m_pending;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Map keyed by primitive <code>long</code>s (usually a mac address from {@link P_MacAddress}), using open addressing with linear
+ * probing, so lookups don't box the key or chase entry nodes. Like {@link java.util.LinkedHashMap}, iteration follows insertion
+ * order (replacing the value for an existing key does not change its position).
+ *
+ * This class is NOT thread safe, callers are expected to do their own locking, the same as they would with a {@link java.util.HashMap}.
+ */
+final class P_LongMap<V> implements Iterable<V>
+{
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    private static final int NONE = -1;
+
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private byte[] m_states;
+    // Doubly linked list threaded through the slots to keep track of insertion order
+    private int[] m_before;
+    private int[] m_after;
+
+    private int m_head = NONE;
+    private int m_tail = NONE;
+    private int m_size;
+    // Count of slots which are not FREE (so live entries plus tombstones). This is what determines probe lengths.
+    private int m_occupied;
+
+
+    public P_LongMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public P_LongMap(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    public final int size()
+    {
+        return m_size;
+    }
+
+    public final boolean isEmpty()
+    {
+        return m_size == 0;
+    }
+
+    public final boolean containsKey(long key)
+    {
+        return find(key) != NONE;
+    }
+
+    @SuppressWarnings("unchecked")
+    public final V get(long key)
+    {
+        final int slot = find(key);
+        return slot == NONE ? null : (V) m_values[slot];
+    }
+
+    /**
+     * Puts the value into the map, and returns the value previously held for the key, if any.
+     */
+    @SuppressWarnings("unchecked")
+    public final V put(long key, V value)
+    {
+        int slot = find(key);
+        if (slot != NONE)
+        {
+            final V old = (V) m_values[slot];
+            m_values[slot] = value;
+            return old;
+        }
+
+        if ((m_occupied + 1) * 4 > m_keys.length * 3)
+        {
+            // If most of the occupied slots are tombstones, just clean up in place, otherwise grow
+            final int newCapacity = (m_size + 1) * 2 > m_keys.length ? m_keys.length * 2 : m_keys.length;
+            rehash(newCapacity);
+        }
+
+        slot = insertSlot(key);
+        if (m_states[slot] == FREE)
+            m_occupied++;
+
+        m_states[slot] = USED;
+        m_keys[slot] = key;
+        m_values[slot] = value;
+        link(slot);
+        m_size++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for the given key, and returns the value it held, if any.
+     */
+    @SuppressWarnings("unchecked")
+    public final V remove(long key)
+    {
+        final int slot = find(key);
+        if (slot == NONE)
+            return null;
+
+        final V old = (V) m_values[slot];
+        removeSlot(slot);
+        return old;
+    }
+
+    /**
+     * Removes, and returns the oldest entry in the map, or <code>null</code> if the map is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public final V removeFirst()
+    {
+        if (m_head == NONE)
+            return null;
+
+        final int slot = m_head;
+        final V old = (V) m_values[slot];
+        removeSlot(slot);
+        return old;
+    }
+
+    public final void clear()
+    {
+        if (m_size == 0 && m_occupied == 0)
+            return;
+
+        Arrays.fill(m_states, FREE);
+        Arrays.fill(m_values, null);
+        m_head = m_tail = NONE;
+        m_size = 0;
+        m_occupied = 0;
+    }
+
+    /**
+     * Returns the keys of this map, in insertion order.
+     */
+    public final long[] keys()
+    {
+        final long[] keys = new long[m_size];
+        int i = 0;
+        for (int slot = m_head; slot != NONE; slot = m_after[slot])
+            keys[i++] = m_keys[slot];
+        return keys;
+    }
+
+    /**
+     * Adds all values of this map to the given {@link Collection}, in insertion order.
+     */
+    @SuppressWarnings("unchecked")
+    public final <C extends Collection<? super V>> C addValuesTo(C collection)
+    {
+        for (int slot = m_head; slot != NONE; slot = m_after[slot])
+            collection.add((V) m_values[slot]);
+        return collection;
+    }
+
+    /**
+     * Convenience method so call sites read the same as they would with a {@link java.util.Map}. The returned {@link Iterable} is a
+     * live view, and its {@link Iterator} supports {@link Iterator#remove()}.
+     */
+    public final Iterable<V> values()
+    {
+        return this;
+    }
+
+    @Override
+    public final Iterator<V> iterator()
+    {
+        return new ValueIterator();
+    }
+
+
+    private int find(long key)
+    {
+        final int mask = m_keys.length - 1;
+        int slot = hash(key) & mask;
+        byte state;
+        while ((state = m_states[slot]) != FREE)
+        {
+            if (state == USED && m_keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    // Assumes the key is not already in the map. Returns the first reusable slot along the key's probe sequence.
+    private int insertSlot(long key)
+    {
+        final int mask = m_keys.length - 1;
+        int slot = hash(key) & mask;
+        while (m_states[slot] == USED)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void removeSlot(int slot)
+    {
+        unlink(slot);
+        m_states[slot] = DELETED;
+        m_values[slot] = null;
+        m_size--;
+    }
+
+    private void link(int slot)
+    {
+        m_before[slot] = m_tail;
+        m_after[slot] = NONE;
+        if (m_tail == NONE)
+            m_head = slot;
+        else
+            m_after[m_tail] = slot;
+        m_tail = slot;
+    }
+
+    private void unlink(int slot)
+    {
+        final int before = m_before[slot];
+        final int after = m_after[slot];
+        if (before == NONE)
+            m_head = after;
+        else
+            m_after[before] = after;
+        if (after == NONE)
+            m_tail = before;
+        else
+            m_before[after] = before;
+    }
+
+    private void rehash(int newCapacity)
+    {
+        final long[] oldKeys = m_keys;
+        final Object[] oldValues = m_values;
+        final int[] oldAfter = m_after;
+        final int oldHead = m_head;
+
+        allocate(newCapacity);
+
+        // Re-insert following the old linked list, so insertion order is preserved
+        for (int old = oldHead; old != NONE; old = oldAfter[old])
+        {
+            final int slot = insertSlot(oldKeys[old]);
+            m_states[slot] = USED;
+            m_keys[slot] = oldKeys[old];
+            m_values[slot] = oldValues[old];
+            link(slot);
+            m_size++;
+            m_occupied++;
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_states = new byte[capacity];
+        m_before = new int[capacity];
+        m_after = new int[capacity];
+        m_head = m_tail = NONE;
+        m_size = 0;
+        m_occupied = 0;
+    }
+
+    private static int capacityFor(int expectedSize)
+    {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * 3 < Math.max(expectedSize, 0) * 4)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    // The finalizer from murmur3, so sequential mac addresses (which share their upper bytes) spread across the table
+    private static int hash(long key)
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+
+    private final class ValueIterator implements Iterator<V>
+    {
+        private int m_next = m_head;
+        private int m_last = NONE;
+
+        @Override
+        public boolean hasNext()
+        {
+            return m_next != NONE;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V next()
+        {
+            if (m_next == NONE)
+                throw new NoSuchElementException();
+
+            m_last = m_next;
+            m_next = m_after[m_next];
+            return (V) m_values[m_last];
+        }
+
+        @Override
+        public void remove()
+        {
+            if (m_last == NONE)
+                throw new IllegalStateException();
+
+            removeSlot(m_last);
+            m_last = NONE;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import java.util.HashMap;
+
+
+/**
+ * Converts between the {@link String} form of a mac address (which is what's exposed in the public API), and a primitive
+ * <code>long</code> holding the 48 bits of the address. The long form is what the library uses internally as a device's identity
+ * for its hot-path maps ({@link P_LongMap}), so lookups don't have to hash and compare strings, or allocate boxed keys.
+ */
+final class P_MacAddress
+{
+
+    /**
+     * Returned from {@link #parse(String)} when the given string isn't a valid mac address.
+     */
+    public static final long INVALID = -1L;
+
+    // Keys handed out by retain() for strings which aren't valid mac addresses start above the 48 bit range, so they can never
+    // collide with a real address.
+    private static final long SYNTHETIC_KEY_START = 1L << 48;
+
+    private static final int MAC_LENGTH = 17;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // Synthetic keys only live as long as something holds onto them (see retain() and release()), so made up identifiers
+    // don't pile up here for the life of the process.
+    private static final HashMap<String, Synthetic> s_syntheticKeys = new HashMap<>();
+    private static final HashMap<Long, Synthetic> s_syntheticValues = new HashMap<>();
+
+    // Never reused, so a key that's been released can't end up pointing at a different string later on
+    private static long s_nextSyntheticKey = SYNTHETIC_KEY_START;
+
+
+    private P_MacAddress()
+    {
+    }
+
+
+    /**
+     * Parses the given mac address into the low 48 bits of a <code>long</code>. Case is ignored, and any of the delimiters
+     * understood by {@link com.idevicesinc.sweetblue.utils.Utils_String#normalizeMacAddress(String)} are accepted. Returns
+     * {@link #INVALID} if the string can't be parsed.
+     */
+    public static long parse(final String macAddress)
+    {
+        if (macAddress == null || macAddress.length() != MAC_LENGTH)
+            return INVALID;
+
+        long value = 0L;
+
+        for (int i = 0; i < MAC_LENGTH; i++)
+        {
+            final char c = macAddress.charAt(i);
+
+            if (i % 3 == 2)
+            {
+                if (!isDelimiter(c))
+                    return INVALID;
+            }
+            else
+            {
+                final int nibble = Character.digit(c, 16);
+
+                if (nibble < 0)
+                    return INVALID;
+
+                value = (value << 4) | nibble;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns <code>true</code> if the given value holds a parsed mac address (as opposed to {@link #INVALID}, or a key
+     * returned from {@link #retain(String)} for a non-mac string).
+     */
+    public static boolean isValid(final long macAddress)
+    {
+        return macAddress >= 0L && macAddress < SYNTHETIC_KEY_START;
+    }
+
+    /**
+     * Formats the given 48 bit address into the normalized string form (uppercase, colon delimited), ie "AA:BB:CC:DD:EE:FF".
+     */
+    public static String format(final long macAddress)
+    {
+        final char[] chars = new char[MAC_LENGTH];
+
+        for (int i = 0, shift = 40; i < MAC_LENGTH; i += 3, shift -= 8)
+        {
+            final int b = (int) (macAddress >>> shift) & 0xFF;
+            chars[i] = HEX[b >>> 4];
+            chars[i + 1] = HEX[b & 0xF];
+            if (i + 2 < MAC_LENGTH)
+                chars[i + 2] = ':';
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Returns the key to use in a {@link P_LongMap} for the given string. Valid mac addresses map to their parsed value (so the
+     * same address with different case or delimiters maps to the same key). Anything else (unit tests sometimes use made up
+     * identifiers) only has a key while it's {@link #retain(String) retained}, otherwise {@link #INVALID} is returned. Use this for
+     * every lookup and removal; keys are only ever handed out by {@link #retain(String)}.
+     */
+    public static long findKey(final String macAddress)
+    {
+        final long parsed = parse(macAddress);
+
+        if (parsed != INVALID)
+            return parsed;
+
+        synchronized (s_syntheticKeys)
+        {
+            final Synthetic synthetic = s_syntheticKeys.get(macAddress == null ? "" : macAddress);
+
+            return synthetic != null ? synthetic.m_key : INVALID;
+        }
+    }
+
+    /**
+     * Same as {@link #findKey(String)}, but hands out a key for a string that isn't a valid mac address if it doesn't have one yet,
+     * and marks it as in use, so it sticks around (and stays the same) until {@link #release(String)} is called for the same string.
+     * Two different strings never share a key. Call this when storing an entry, and {@link #release(String)} once the entry is
+     * gone. Valid mac addresses don't need any bookkeeping, so both are no-ops for them.
+     */
+    public static long retain(final String macAddress)
+    {
+        final long parsed = parse(macAddress);
+
+        if (parsed != INVALID)
+            return parsed;
+
+        synchronized (s_syntheticKeys)
+        {
+            final Synthetic synthetic = getSynthetic(macAddress);
+            synthetic.m_refCount++;
+
+            return synthetic.m_key;
+        }
+    }
+
+    /**
+     * Undoes a call to {@link #retain(String)}. Once nothing holds onto a synthetic key anymore, it's forgotten, and the
+     * next {@link #retain(String)} for the same string hands out a new one.
+     */
+    public static void release(final String macAddress)
+    {
+        if (parse(macAddress) != INVALID)
+            return;
+
+        synchronized (s_syntheticKeys)
+        {
+            final Synthetic synthetic = s_syntheticKeys.get(macAddress == null ? "" : macAddress);
+
+            if (synthetic == null || --synthetic.m_refCount > 0)
+                return;
+
+            s_syntheticKeys.remove(synthetic.m_value);
+            s_syntheticValues.remove(synthetic.m_key);
+        }
+    }
+
+    /**
+     * The inverse of {@link #findKey(String)}. Returns an empty string for a synthetic key that's since been released.
+     */
+    public static String fromKey(final long key)
+    {
+        if (isValid(key))
+            return format(key);
+
+        synchronized (s_syntheticKeys)
+        {
+            final Synthetic synthetic = s_syntheticValues.get(key);
+
+            return synthetic != null ? synthetic.m_value : "";
+        }
+    }
+
+
+    // Must be called while synchronized on s_syntheticKeys
+    private static Synthetic getSynthetic(final String macAddress)
+    {
+        final String value = macAddress == null ? "" : macAddress;
+
+        Synthetic synthetic = s_syntheticKeys.get(value);
+
+        if (synthetic == null)
+        {
+            synthetic = new Synthetic(s_nextSyntheticKey++, value);
+            s_syntheticKeys.put(value, synthetic);
+            s_syntheticValues.put(synthetic.m_key, synthetic);
+        }
+
+        return synthetic;
+    }
+
+    private static boolean isDelimiter(final char c)
+    {
+        return c == ':' || c == '-' || c == '.' || c == ' ' || c == '_';
+    }
+
+
+    private static final class Synthetic
+    {
+        private final long m_key;
+        private final String m_value;
+
+        // How many retain() calls haven't been released yet
+        private int m_refCount;
+
+
+        private Synthetic(final long key, final String value)
+        {
+            m_key = key;
+            m_value = value;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.P_Bridge_Utils;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Holds the values for every {@link BleMetric}. Everything is pre-allocated, and keyed by the metric's ordinal, so recording
+ * is just an atomic add (no locks, no map lookups, no allocations). Counters are striped by thread, so the update thread and
+ * the native callback threads don't fight over the same cache line. When disabled, every method returns after a single field
+ * check, and {@link #now()} doesn't even read the clock.
+ */
+final class P_Metrics
+{
+
+    // AtomicLongArray is 8 bytes per slot, so 8 slots of padding puts each stripe on its own cache line.
+    private static final int STRIPE_COUNT = 8;
+    private static final int STRIPE_MASK = STRIPE_COUNT - 1;
+    private static final int PADDING = 8;
+
+    private static final int HISTOGRAM_COUNT_INDEX = MetricsSnapshot.BUCKET_COUNT;
+    private static final int HISTOGRAM_SUM_INDEX = MetricsSnapshot.BUCKET_COUNT + 1;
+    private static final int HISTOGRAM_MAX_INDEX = MetricsSnapshot.BUCKET_COUNT + 2;
+    private static final int HISTOGRAM_SIZE = MetricsSnapshot.BUCKET_COUNT + 3;
+
+    private static final BleMetric[] METRICS = BleMetric.values();
+    private static final int STRIDE = METRICS.length + PADDING;
+
+
+    private final AtomicLongArray m_values;
+    private final AtomicLongArray[] m_histograms;
+
+    private volatile boolean m_enabled;
+
+
+    P_Metrics(boolean enabled)
+    {
+        m_enabled = enabled;
+        m_values = new AtomicLongArray(STRIDE * STRIPE_COUNT);
+        m_histograms = new AtomicLongArray[METRICS.length];
+        for (int i = 0; i < METRICS.length; i++)
+        {
+            if (METRICS[i].kind() == BleMetric.Kind.HISTOGRAM)
+            {
+                m_histograms[i] = new AtomicLongArray(HISTOGRAM_SIZE);
+            }
+        }
+    }
+
+    final void setEnabled(boolean enabled)
+    {
+        m_enabled = enabled;
+    }
+
+    final boolean isEnabled()
+    {
+        return m_enabled;
+    }
+
+    /**
+     * Returns {@link System#nanoTime()} if enabled, otherwise <code>0</code>. Pass the result to {@link #recordSince(BleMetric, long)}.
+     */
+    final long now()
+    {
+        return m_enabled ? System.nanoTime() : 0L;
+    }
+
+    final void increment(BleMetric metric)
+    {
+        add(metric, 1L);
+    }
+
+    final void add(BleMetric metric, long delta)
+    {
+        if (!m_enabled)
+            return;
+
+        final int stripe = (int) Thread.currentThread().getId() & STRIPE_MASK;
+        m_values.addAndGet(stripe * STRIDE + metric.ordinal(), delta);
+    }
+
+    final void setGauge(BleMetric metric, long value)
+    {
+        if (!m_enabled)
+            return;
+
+        m_values.set(metric.ordinal(), value);
+    }
+
+    /**
+     * Records the time elapsed since the given start time (which should have come from {@link #now()}), and returns the
+     * current time, so it can be used as the start time of the next phase.
+     */
+    final long recordSince(BleMetric metric, long startNanos)
+    {
+        if (!m_enabled || startNanos == 0L)
+            return 0L;
+
+        final long now = System.nanoTime();
+        record(metric, now - startNanos);
+        return now;
+    }
+
+    final void record(BleMetric metric, long nanos)
+    {
+        if (!m_enabled)
+            return;
+
+        final AtomicLongArray h = m_histograms[metric.ordinal()];
+        if (h == null)
+            return;
+
+        if (nanos < 0L)
+            nanos = 0L;
+
+        h.incrementAndGet(MetricsSnapshot.getBucketIndex(nanos));
+        h.incrementAndGet(HISTOGRAM_COUNT_INDEX);
+        h.addAndGet(HISTOGRAM_SUM_INDEX, nanos);
+        long max = h.get(HISTOGRAM_MAX_INDEX);
+        while (nanos > max && !h.compareAndSet(HISTOGRAM_MAX_INDEX, max, nanos))
+        {
+            max = h.get(HISTOGRAM_MAX_INDEX);
+        }
+    }
+
+    /**
+     * Wraps the given callback so that the time it waits to run, and the time it takes to run are recorded. Returns the
+     * callback as-is when disabled.
+     */
+    final Runnable wrapCallback(final Runnable callback)
+    {
+        if (!m_enabled)
+            return callback;
+
+        increment(BleMetric.CALLBACKS_DISPATCHED);
+        final long posted = System.nanoTime();
+        return () ->
+        {
+            final long start = recordSince(BleMetric.CALLBACK_LATENCY, posted);
+            callback.run();
+            recordSince(BleMetric.CALLBACK_DURATION, start);
+        };
+    }
+
+    final MetricsSnapshot snapshot(long now)
+    {
+        final long[] values = new long[METRICS.length];
+        final long[][] histograms = new long[METRICS.length][];
+        for (int i = 0; i < METRICS.length; i++)
+        {
+            switch (METRICS[i].kind())
+            {
+                case COUNTER:
+                    long sum = 0L;
+                    for (int s = 0; s < STRIPE_COUNT; s++)
+                    {
+                        sum += m_values.get(s * STRIDE + i);
+                    }
+                    values[i] = sum;
+                    break;
+                case GAUGE:
+                    values[i] = m_values.get(i);
+                    break;
+                case HISTOGRAM:
+                    final AtomicLongArray h = m_histograms[i];
+                    final long[] data = new long[HISTOGRAM_SIZE];
+                    for (int j = 0; j < HISTOGRAM_SIZE; j++)
+                    {
+                        data[j] = h.get(j);
+                    }
+                    histograms[i] = data;
+                    break;
+            }
+        }
+        return P_Bridge_Utils.newMetricsSnapshot(now, values, histograms);
+    }
+
+    final void reset()
+    {
+        for (int i = 0; i < m_values.length(); i++)
+        {
+            m_values.set(i, 0L);
+        }
+        for (AtomicLongArray h : m_histograms)
+        {
+            if (h == null)
+                continue;
+
+            for (int j = 0; j < HISTOGRAM_SIZE; j++)
+            {
+                h.set(j, 0L);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleDescriptorRead;
+import com.idevicesinc.sweetblue.BleDescriptorWrite;
+import com.idevicesinc.sweetblue.BleNotify;
+import com.idevicesinc.sweetblue.BleOp;
+import com.idevicesinc.sweetblue.BleOpChain;
+import com.idevicesinc.sweetblue.BleRead;
+import com.idevicesinc.sweetblue.BleWrite;
+import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.ReadWriteListener;
+
+
+/**
+ * Runs a {@link BleOpChain} on a device. Every step is sent out through the device's regular read/write/notify paths, with its listener
+ * swapped for a {@link StepListener}. Tasks call {@link StepListener#armSuccessor(byte[])} right before they end, so the next step is
+ * already sitting in the queue when the task manager dequeues, which gets rid of the trip through the user's callback thread and the
+ * next update tick that chaining from a {@link ReadWriteListener} costs.
+ */
+final class P_OpChain
+{
+
+    private final IBleDevice m_device;
+    private final BleOpChain m_chain;
+    private final IBleTransaction m_txn;
+    private final int m_size;
+
+    private int m_stepsRun;
+    private boolean m_done;
+
+
+    P_OpChain(IBleDevice device, BleOpChain chain, IBleTransaction txn_nullable)
+    {
+        m_device = device;
+        m_chain = chain;
+        m_txn = txn_nullable;
+        m_size = chain.size();
+    }
+
+    final void start()
+    {
+        if (!runFrom(0, null))
+        {
+            finish(null);
+        }
+    }
+
+    /**
+     * Sends out the first step at or after the given index whose condition passes. Returns <code>false</code> if there was none left.
+     */
+    private boolean runFrom(int index, byte[] previousData)
+    {
+        for (int i = index; i < m_size && !m_done; i++)
+        {
+            final BleOpChain.Condition condition = P_Bridge_User.getChainCondition(m_chain, i);
+
+            if (condition != null && !condition.shouldRun(previousData))
+                continue;
+
+            BleOp op = P_Bridge_User.createDuplicate(P_Bridge_User.getChainOp(m_chain, i));
+
+            final BleOpChain.Transform transform = P_Bridge_User.getChainTransform(m_chain, i);
+
+            if (transform != null)
+            {
+                op = transform.transform(op, previousData);
+
+                if (op == null)
+                    continue;
+            }
+
+            final StepListener listener = new StepListener(i, op.getReadWriteListener());
+            op.setReadWriteListener(listener);
+            m_stepsRun++;
+
+            send(op);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private void send(BleOp op)
+    {
+        final IBleTransaction saved = m_device.getThreadLocalTransaction();
+
+        try
+        {
+            m_device.setThreadLocalTransaction(m_txn);
+
+            if (op instanceof BleRead)
+                m_device.read((BleRead) op);
+            else if (op instanceof BleDescriptorRead)
+                m_device.read((BleDescriptorRead) op);
+            else if (op instanceof BleWrite)
+                m_device.write((BleWrite) op);
+            else if (op instanceof BleDescriptorWrite)
+                m_device.write((BleDescriptorWrite) op);
+            else
+                m_device.enableNotify((BleNotify) op);
+        }
+        finally
+        {
+            m_device.setThreadLocalTransaction(saved);
+        }
+    }
+
+    private void finish(ReadWriteListener.ReadWriteEvent lastEvent_nullable)
+    {
+        if (m_done)
+            return;
+
+        m_done = true;
+
+        m_device.getIManager().getLogger().i("Op chain finished after " + m_stepsRun + " of " + m_size + " steps.");
+
+        m_device.postEventAsCallback(m_chain.getListener(), P_Bridge_User.newOpChainEvent(m_device.getBleDevice(), m_stepsRun, lastEvent_nullable));
+    }
+
+
+    private final class StepListener extends PA_CallbackWrapper implements ReadWriteListener, PA_Task_ReadOrWrite.I_SuccessorArmer
+    {
+        private final int m_index;
+        private final ReadWriteListener m_stepListener;
+
+        private boolean m_armed;
+        private boolean m_hasSuccessor;
+
+
+        private StepListener(int index, ReadWriteListener stepListener_nullable)
+        {
+            super(m_device.getIManager().getPostManager().getUIHandler(), false);
+
+            m_index = index;
+            m_stepListener = stepListener_nullable;
+        }
+
+        @Override
+        public final void armSuccessor(byte[] data)
+        {
+            if (m_armed)
+                return;
+
+            m_armed = true;
+            m_hasSuccessor = runFrom(m_index + 1, data);
+        }
+
+        @Override
+        public final void onEvent(ReadWriteEvent e)
+        {
+            // Being a PA_CallbackWrapper, this runs on the update thread, so hand the event off to the step's own listener properly
+            m_device.postEventAsCallback(m_stepListener, e);
+
+            if (m_done)
+                return;
+
+            if (!e.wasSuccess())
+            {
+                finish(e);
+                return;
+            }
+
+            // Some success paths (like a notification that's already enabled) never go through a task
+            armSuccessor(e.data());
+
+            if (!m_hasSuccessor)
+                finish(e);
+        }
+    }
+}
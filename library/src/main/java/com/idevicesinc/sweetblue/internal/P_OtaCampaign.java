@@ -0,0 +1,451 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleDevice;
+import com.idevicesinc.sweetblue.BleDeviceState;
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.BleTransaction;
+import com.idevicesinc.sweetblue.DeviceConnectListener;
+import com.idevicesinc.sweetblue.DeviceReconnectFilter;
+import com.idevicesinc.sweetblue.OtaCampaign;
+import com.idevicesinc.sweetblue.OtaCampaignConfig;
+import com.idevicesinc.sweetblue.OtaCampaignListener;
+import com.idevicesinc.sweetblue.OtaImageProvider;
+import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
+import com.idevicesinc.sweetblue.utils.TimeEstimator;
+import java.util.ArrayList;
+import java.util.Collections;
+
+
+/**
+ * Runs an {@link OtaCampaign}. Devices are kept in {@link OtaCampaignConfig#order}, and each tick the first ones which are waiting (and
+ * whose retry backoff is up) are started, until {@link OtaCampaignConfig#maxConcurrentDevices} are connecting or updating. A device which
+ * isn't {@link BleDeviceState#INITIALIZED} is connected first, then handed to {@link OtaImageProvider#newOta(BleDevice, int)}.
+ * <br><br>
+ * {@link P_TransactionManager} reports every OTA transaction that ends through {@link IBleManager_Internal#onOtaTransactionEnded(IBleDevice, IBleTransaction, BleTransaction.EndReason)},
+ * which is how we find out how each update went without touching the user's transaction. Everything here runs on the update thread,
+ * apart from the getters, which only read volatile counts.
+ */
+final class P_OtaCampaign implements IOtaCampaign
+{
+
+    private enum E_State
+    {
+        WAITING,
+        CONNECTING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        SKIPPED;
+
+        private boolean isDone()
+        {
+            return ordinal() >= SUCCEEDED.ordinal();
+        }
+    }
+
+    private final IBleManager m_manager;
+    private final OtaImageProvider m_provider;
+    private final OtaCampaignListener m_listener;
+    private final ArrayList<Entry> m_entries;
+    private final OtaCampaign m_campaign;
+    private final TimeEstimator m_estimator;
+
+    private final int m_maxConcurrent;
+    private final int m_maxRetries;
+    private final double m_retryBackoff;
+    private final double m_maxRetryBackoff;
+    private final int m_maxConsecutiveOtaTasks;
+    private final boolean m_disconnectWhenDone;
+
+    private double m_time = 0.0;
+
+    private volatile boolean m_running = true;
+    private volatile int m_succeeded = 0;
+    private volatile int m_failed = 0;
+    private volatile int m_skipped = 0;
+    private volatile double m_timeElapsed = 0.0;
+    private volatile double m_timeRemaining;
+
+
+    P_OtaCampaign(IBleManager manager, Iterable<BleDevice> devices, OtaImageProvider provider, OtaCampaignConfig config, OtaCampaignListener listener_nullable)
+    {
+        m_manager = manager;
+        m_provider = provider;
+        m_listener = listener_nullable;
+
+        m_maxConcurrent = Math.max(1, config.maxConcurrentDevices);
+        m_maxRetries = Math.max(0, config.maxRetries);
+        m_retryBackoff = Interval.isEnabled(config.retryBackoff) ? config.retryBackoff.secs() : 0.0;
+        m_maxRetryBackoff = Interval.isEnabled(config.maxRetryBackoff) ? config.maxRetryBackoff.secs() : Double.POSITIVE_INFINITY;
+        m_maxConsecutiveOtaTasks = Math.max(0, config.maxConsecutiveOtaTasks);
+        m_disconnectWhenDone = config.disconnectWhenDone;
+
+        final ArrayList<BleDevice> sorted = new ArrayList<>();
+        for (BleDevice device : devices)
+        {
+            if (device != null && !device.isNull() && !sorted.contains(device))
+                sorted.add(device);
+        }
+
+        if (config.order != null)
+            Collections.sort(sorted, config.order);
+
+        m_entries = new ArrayList<>(sorted.size());
+        for (BleDevice device : sorted)
+        {
+            m_entries.add(new Entry(device));
+        }
+
+        final double estimatedTimePerDevice = Interval.isEnabled(config.estimatedTimePerDevice) ? config.estimatedTimePerDevice.secs() : 0.0;
+        m_estimator = new TimeEstimator(m_entries.size(), estimatedTimePerDevice, m_maxConcurrent * 2);
+        updateTimeRemaining();
+
+        m_campaign = P_Bridge_User.newOtaCampaign(this);
+    }
+
+
+    final OtaCampaign getCampaign()
+    {
+        return m_campaign;
+    }
+
+    final int getMaxConsecutiveOtaTasks()
+    {
+        return m_maxConsecutiveOtaTasks;
+    }
+
+    final void update(double timeStep)
+    {
+        if (!m_running)
+            return;
+
+        m_time += timeStep;
+        m_timeElapsed = m_time;
+
+        int active = 0;
+        boolean allDone = true;
+
+        for (int i = 0; i < m_entries.size(); i++)
+        {
+            final Entry entry = m_entries.get(i);
+
+            // Covers devices that were already connecting when their turn came up, so never got a connect callback of their own
+            if (entry.m_state == E_State.CONNECTING && isReady(entry.m_device))
+                startOta(entry);
+
+            if (entry.m_state == E_State.CONNECTING || entry.m_state == E_State.RUNNING)
+                active++;
+
+            allDone &= entry.m_state.isDone();
+        }
+
+        if (allDone)
+        {
+            finishCampaign();
+            return;
+        }
+
+        for (int i = 0; i < m_entries.size() && active < m_maxConcurrent && m_running; i++)
+        {
+            final Entry entry = m_entries.get(i);
+
+            if (entry.m_state == E_State.WAITING && entry.m_readyTime <= m_time)
+            {
+                start(entry);
+                active++;
+            }
+        }
+    }
+
+    final void onOtaTransactionEnded(IBleTransaction txn, BleTransaction.EndReason reason)
+    {
+        if (!m_running)
+            return;
+
+        for (int i = 0; i < m_entries.size(); i++)
+        {
+            final Entry entry = m_entries.get(i);
+
+            if (entry.m_state == E_State.RUNNING && entry.m_txn == txn)
+            {
+                entry.m_txn = null;
+
+                if (reason == BleTransaction.EndReason.SUCCEEDED)
+                {
+                    m_manager.getMetrics().increment(BleMetric.OTA_CAMPAIGN_DEVICES_SUCCEEDED);
+                    finish(entry, E_State.SUCCEEDED, OtaCampaignListener.Type.DEVICE_SUCCEEDED);
+                }
+                else
+                {
+                    onAttemptFailed(entry, reason);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override public final void cancel()
+    {
+        m_manager.getPostManager().runOrPostToUpdateThread(this::cancel_updateThread);
+    }
+
+    @Override public final boolean isRunning()
+    {
+        return m_running;
+    }
+
+    @Override public final int getDeviceCount()
+    {
+        return m_entries.size();
+    }
+
+    @Override public final int getSucceededCount()
+    {
+        return m_succeeded;
+    }
+
+    @Override public final int getFailedCount()
+    {
+        return m_failed;
+    }
+
+    @Override public final int getSkippedCount()
+    {
+        return m_skipped;
+    }
+
+    @Override public final Percent getProgress()
+    {
+        final int total = m_entries.size();
+
+        return total == 0 ? Percent.HUNDRED : Percent.fromDouble_clamped(100.0 * (m_succeeded + m_failed + m_skipped) / total);
+    }
+
+    @Override public final Interval getTimeElapsed()
+    {
+        return Interval.secs(m_timeElapsed);
+    }
+
+    @Override public final Interval getTimeRemaining()
+    {
+        return Interval.secs(m_timeRemaining);
+    }
+
+
+    private void start(final Entry entry)
+    {
+        entry.m_attempt++;
+
+        if (entry.m_firstStartTime < 0.0)
+            entry.m_firstStartTime = m_time;
+
+        if (isReady(entry.m_device))
+        {
+            startOta(entry);
+            return;
+        }
+
+        entry.m_state = E_State.CONNECTING;
+
+        if (!entry.m_device.isAny(BleDeviceState.CONNECTING_OVERALL, BleDeviceState.BLE_CONNECTED))
+            entry.m_connectedByUs = true;
+
+        final DeviceReconnectFilter.ConnectFailEvent earlyOut = entry.m_device.connect(entry);
+
+        // The connect callback may have already run inline, so only count this if nothing else has moved the device along
+        if (!earlyOut.isNull() && earlyOut.status() != DeviceReconnectFilter.Status.ALREADY_CONNECTING_OR_CONNECTED && entry.m_state == E_State.CONNECTING)
+            onAttemptFailed(entry, null);
+    }
+
+    private void startOta(final Entry entry)
+    {
+        final BleTransaction.Ota ota = m_provider.newOta(entry.m_device, entry.m_attempt);
+
+        if (ota == null)
+        {
+            finish(entry, E_State.SKIPPED, OtaCampaignListener.Type.DEVICE_SKIPPED);
+            return;
+        }
+
+        // Set up before starting, as the transaction can end before performOta() even returns
+        entry.m_state = E_State.RUNNING;
+        entry.m_txn = P_Bridge_User.getIBleTransaction(ota);
+        postEvent(OtaCampaignListener.Type.DEVICE_STARTED, entry, false, null);
+
+        if (!entry.m_device.performOta(ota) && entry.m_state == E_State.RUNNING)
+        {
+            entry.m_txn = null;
+            onAttemptFailed(entry, null);
+        }
+    }
+
+    private void onAttemptFailed(final Entry entry, final BleTransaction.EndReason reason_nullable)
+    {
+        m_manager.getMetrics().increment(BleMetric.OTA_CAMPAIGN_ATTEMPTS_FAILED);
+
+        if (entry.m_attempt > m_maxRetries)
+        {
+            finish(entry, E_State.FAILED, OtaCampaignListener.Type.DEVICE_FAILED, reason_nullable);
+            return;
+        }
+
+        entry.m_state = E_State.WAITING;
+        entry.m_readyTime = m_time + Math.min(m_retryBackoff * Math.pow(2.0, entry.m_attempt - 1), m_maxRetryBackoff);
+
+        // Let the slot go to the next device while this one waits
+        disconnectIfNeeded(entry);
+
+        postEvent(OtaCampaignListener.Type.DEVICE_FAILED, entry, true, reason_nullable);
+    }
+
+    private void finish(final Entry entry, final E_State state, final OtaCampaignListener.Type type)
+    {
+        finish(entry, state, type, null);
+    }
+
+    private void finish(final Entry entry, final E_State state, final OtaCampaignListener.Type type, final BleTransaction.EndReason reason_nullable)
+    {
+        entry.m_state = state;
+
+        switch (state)
+        {
+            case SUCCEEDED:     m_succeeded++;      break;
+            case FAILED:        m_failed++;         break;
+            case SKIPPED:       m_skipped++;        break;
+        }
+
+        m_estimator.addTime(m_time - entry.m_firstStartTime);
+        updateTimeRemaining();
+
+        disconnectIfNeeded(entry);
+
+        postEvent(type, entry, false, reason_nullable);
+    }
+
+    private void cancel_updateThread()
+    {
+        if (!m_running)
+            return;
+
+        // Stop listening first, so the cancelled transactions don't get treated as failures
+        m_running = false;
+
+        for (int i = 0; i < m_entries.size(); i++)
+        {
+            final Entry entry = m_entries.get(i);
+
+            if (entry.m_state == E_State.RUNNING && entry.m_txn != null)
+                entry.m_txn.cancel();
+
+            if (entry.m_state == E_State.CONNECTING || entry.m_state == E_State.RUNNING)
+                disconnectIfNeeded(entry);
+
+            entry.m_txn = null;
+        }
+
+        postFinished();
+    }
+
+    private void finishCampaign()
+    {
+        m_running = false;
+        m_timeRemaining = 0.0;
+
+        postFinished();
+    }
+
+    private void disconnectIfNeeded(final Entry entry)
+    {
+        if (m_disconnectWhenDone && entry.m_connectedByUs)
+        {
+            entry.m_connectedByUs = false;
+            entry.m_device.disconnect();
+        }
+    }
+
+    private void updateTimeRemaining()
+    {
+        // The estimator thinks in one device at a time, but we run several at once
+        final int lanes = Math.max(1, Math.min(m_maxConcurrent, m_estimator.getStepsRemaining()));
+
+        m_timeRemaining = m_estimator.getTimeRemaining() / lanes;
+    }
+
+    private void postEvent(final OtaCampaignListener.Type type, final Entry entry, final boolean willRetry, final BleTransaction.EndReason reason_nullable)
+    {
+        if (m_listener == null)
+            return;
+
+        m_manager.postEvent(m_listener, P_Bridge_User.newOtaCampaignEvent(m_campaign, type, entry.m_device, entry.m_attempt, willRetry, reason_nullable, getProgress(), getTimeRemaining()));
+    }
+
+    private void postFinished()
+    {
+        if (m_listener == null)
+            return;
+
+        m_manager.postEvent(m_listener, P_Bridge_User.newOtaCampaignEvent(m_campaign, OtaCampaignListener.Type.FINISHED, BleDevice.NULL, 0, false, null, getProgress(), getTimeRemaining()));
+    }
+
+    private static boolean isReady(final BleDevice device)
+    {
+        return device.is(BleDeviceState.INITIALIZED) && !device.is(BleDeviceState.RECONNECTING_SHORT_TERM);
+    }
+
+
+    /**
+     * One device in the campaign. Doubles as the connect listener, which runs on the update thread as a {@link PA_CallbackWrapper}.
+     */
+    private final class Entry extends PA_CallbackWrapper implements DeviceConnectListener
+    {
+        private final BleDevice m_device;
+
+        private E_State m_state = E_State.WAITING;
+        private int m_attempt = 0;
+        private double m_readyTime = 0.0;
+        private double m_firstStartTime = -1.0;
+        private boolean m_connectedByUs = false;
+        private IBleTransaction m_txn;
+
+        private Entry(BleDevice device)
+        {
+            super(m_manager.getPostManager().getUIHandler(), false);
+
+            m_device = device;
+        }
+
+        @Override public final void onEvent(ConnectEvent e)
+        {
+            if (!m_running || m_state != E_State.CONNECTING)
+                return;
+
+            if (e.wasSuccess())
+            {
+                startOta(this);
+            }
+            else if (!e.isRetrying() && e.failEvent().status() != DeviceReconnectFilter.Status.ALREADY_CONNECTING_OR_CONNECTED)
+            {
+                onAttemptFailed(this, null);
+            }
+        }
+    }
+}
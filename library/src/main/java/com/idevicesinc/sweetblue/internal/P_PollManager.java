@@ -31,6 +31,7 @@ import com.idevicesinc.sweetblue.BleStatuses;
 import com.idevicesinc.sweetblue.DescriptorFilter;
 import com.idevicesinc.sweetblue.NotificationListener;
 import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.PayloadListener;
 import com.idevicesinc.sweetblue.ReadWriteListener;
 import com.idevicesinc.sweetblue.ReadWriteListener.ReadWriteEvent;
 import com.idevicesinc.sweetblue.ReadWriteListener.Status;
@@ -512,6 +513,14 @@ final class P_PollManager
 			NotificationListener.NotificationEvent result = P_Bridge_User.newNotificationEvent(m_device.getBleDevice(), notify, type, status, gattStatus, 0.0, 0.0, true);
 			m_device.invokeNotificationCallback(null, result);
 
+			if (status == NotificationListener.Status.SUCCESS)
+			{
+				final PayloadListener.PayloadEvent payloadEvent = P_Bridge_User.newPayloadEvent(m_device.getBleDevice(), m_bleOp, m_serviceUuid, m_charUuid, true, value);
+
+				if (payloadEvent != null)
+					m_device.postEventAsCallback(P_Bridge_User.getPayloadListener(m_bleOp), payloadEvent);
+			}
+
 			m_timeTracker = 0.0;
 		}
 
@@ -20,6 +20,7 @@ package com.idevicesinc.sweetblue.internal;
 
 import android.os.Handler;
 
+import com.idevicesinc.sweetblue.BleManagerConfig;
 import com.idevicesinc.sweetblue.utils.UpdateThreadType;
 import com.idevicesinc.sweetblue.utils.Utils;
 
@@ -30,6 +31,7 @@ final class P_PostManager
     private final P_SweetHandler m_uiHandler;
     private final P_SweetHandler m_updateHandler;
     private final IBleManager m_manager;
+    private final P_CallbackLanes m_callbackLanes;
 
 
     P_PostManager(IBleManager mgr, P_SweetHandler uiHandler, P_SweetHandler updateHandler)
@@ -37,6 +39,7 @@ final class P_PostManager
         m_uiHandler = uiHandler;
         m_updateHandler = updateHandler;
         m_manager = mgr;
+        m_callbackLanes = new P_CallbackLanes(mgr, updateHandler);
     }
 
     public final void postToMain(Runnable action)
@@ -79,10 +82,28 @@ final class P_PostManager
 
     public final void postCallback(Runnable action)
     {
-        if (m_manager.getConfigClone().postCallbacksToMainThread)
+        postCallback(P_CallbackLanes.MANAGER_LANE, action);
+    }
+
+    /**
+     * Same as {@link #postCallback(Runnable)}, but if {@link com.idevicesinc.sweetblue.BleManagerConfig#callbackExecutor} is in use, the
+     * callback runs in the lane for the given key, after anything else posted to it.
+     */
+    public final void postCallback(Object laneKey, Runnable action)
+    {
+        action = m_manager.getMetrics().wrapCallback(action);
+        action = m_manager.getTracer().wrapCallback(laneKey, action);
+
+        final BleManagerConfig config = m_manager.getConfigClone();
+
+        if (config.postCallbacksToMainThread)
         {
             postToMain(action);
         }
+        else if (config.callbackExecutor != null)
+        {
+            m_callbackLanes.post(config.callbackExecutor, laneKey, action);
+        }
         else
         {
             if (isOnSweetBlueThread())
@@ -179,6 +200,42 @@ final class P_PostManager
         return m_updateHandler;
     }
 
+    /**
+     * Blocks until both handlers have run everything that's ready at the current {@link com.idevicesinc.sweetblue.utils.Clock} time,
+     * including anything one handler posts to the other. Handlers not backed by a {@link ThreadHandler} are always considered idle.
+     * Returns <code>false</code> if this didn't happen within the given amount of real time.
+     */
+    final boolean awaitIdle(long timeoutMs)
+    {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        do
+        {
+            final long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            if (!awaitIdle(m_updateHandler, remaining) || !awaitIdle(m_uiHandler, remaining))
+                return false;
+        }
+        while (!isIdle(m_updateHandler) || !isIdle(m_uiHandler));
+        return true;
+    }
+
+    private static boolean awaitIdle(P_SweetHandler handler, long timeoutMs)
+    {
+        if (handler instanceof ThreadHandler)
+            return ((ThreadHandler) handler).awaitIdle(timeoutMs);
+        else if (handler instanceof P_SweetUIHandler)
+            return ((P_SweetUIHandler) handler).awaitIdle(timeoutMs);
+        return true;
+    }
+
+    private static boolean isIdle(P_SweetHandler handler)
+    {
+        if (handler instanceof ThreadHandler)
+            return ((ThreadHandler) handler).isIdle();
+        else if (handler instanceof P_SweetUIHandler)
+            return ((P_SweetUIHandler) handler).isIdle();
+        return true;
+    }
+
     final boolean isOnSweetBlueThread()
     {
         return Thread.currentThread() == m_updateHandler.getThread();
@@ -36,6 +36,7 @@ final class P_ReconnectManager
 	private double m_totalTime;
 	private int m_attemptCount;
 	private double m_delay = 0.0;
+	private double m_backoffDelay = 0.0;
 	private Interval m_timeout = null;
 	private double m_timeTracker = NOT_RUNNING;
 	private int m_gattStatusOfOriginalDisconnect = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
@@ -80,6 +81,7 @@ final class P_ReconnectManager
 			}
 			
 			m_timeTracker = 0.0;
+			m_backoffDelay = m_delay;
 			m_gattStatusOfOriginalDisconnect = gattStatusOfDisconnect;
 		}
 	}
@@ -192,6 +194,7 @@ final class P_ReconnectManager
 			{
 				m_delay = getDelayTime(m_connectionFailEvent);
 			}
+			m_backoffDelay = admission().nextBackoff(m_delay, m_backoffDelay);
 			m_timeTracker = 0.0;
 		}
 	}
@@ -207,9 +210,10 @@ final class P_ReconnectManager
 		
 		m_timeTracker += timeStep;
 
-		if (m_timeTracker >= m_delay)
+		if (m_timeTracker >= m_backoffDelay)
 		{
-			if (!m_device.is_internal(BleDeviceState.CONNECTING_OVERALL) && shouldContinueRunning())
+			//--- Ask for admission last, so we don't hold a place in line if we're not going to use it.
+			if (!m_device.is_internal(BleDeviceState.CONNECTING_OVERALL) && shouldContinueRunning() && admission().tryAdmit(m_device))
 			{
 				m_device.getConnectionManager().attemptReconnect();
 			}
@@ -272,6 +276,8 @@ final class P_ReconnectManager
 			m_device.getIManager().popWakeLock();
 		}
 		
+		admission().remove(m_device);
+
 		m_timeTracker = NOT_RUNNING;
 		m_attemptCount = 0;
 		m_totalTime = 0.0;
@@ -280,6 +286,11 @@ final class P_ReconnectManager
 		m_gattStatusOfOriginalDisconnect = BleStatuses.GATT_STATUS_NOT_APPLICABLE;
 	}
 
+	private P_ConnectionAdmissionManager admission()
+	{
+		return m_device.getIManager().getConnectionAdmissionManager();
+	}
+
 	private ReconnectFilter.ConnectionLostEvent newEvent(BleNode node, final String macAddress, int failureCount, Interval totalTimeReconnecting, Interval previousDelay, ReconnectFilter.ConnectFailEvent connectionFailEvent, final ReconnectFilter.Type type)
 	{
 		return P_Bridge_User.newConnectLostEvent(node, macAddress, failureCount, totalTimeReconnecting, previousDelay, connectionFailEvent, type);
@@ -0,0 +1,163 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.utils.RssiFilter;
+
+/**
+ * Per-device state for an {@link RssiFilter}. All state is primitive or preallocated, so feeding a reading does not allocate.
+ * Not thread safe, only touched from the update thread.
+ */
+final class P_RssiEstimator
+{
+	private final RssiFilter m_filter;
+
+	private boolean m_hasValue = false;
+	private double m_value = 0.0;
+
+	// Kalman error covariance.
+	private double m_p = 0.0;
+
+	// Median ring buffer, plus scratch space for sorting so nothing is allocated per reading.
+	private final int[] m_ring;
+	private final int[] m_sorted;
+	private int m_ringIndex = 0;
+	private int m_ringCount = 0;
+
+
+	P_RssiEstimator(final RssiFilter filter)
+	{
+		m_filter = filter != null ? filter : RssiFilter.NONE;
+
+		if( m_filter.getType() == RssiFilter.Type.MEDIAN )
+		{
+			m_ring = new int[m_filter.getWindow()];
+			m_sorted = new int[m_filter.getWindow()];
+		}
+		else
+		{
+			m_ring = null;
+			m_sorted = null;
+		}
+	}
+
+	final RssiFilter getFilter()
+	{
+		return m_filter;
+	}
+
+	final boolean hasValue()
+	{
+		return m_hasValue;
+	}
+
+	final double getValue()
+	{
+		return m_value;
+	}
+
+	final double update(final int rssi)
+	{
+		switch( m_filter.getType() )
+		{
+			case EWMA:
+			{
+				if( !m_hasValue )
+				{
+					m_value = rssi;
+				}
+				else
+				{
+					m_value += m_filter.getAlpha() * (rssi - m_value);
+				}
+
+				break;
+			}
+
+			case MEDIAN:
+			{
+				m_ring[m_ringIndex] = rssi;
+				m_ringIndex = (m_ringIndex + 1) % m_ring.length;
+				m_ringCount = Math.min(m_ringCount + 1, m_ring.length);
+
+				m_value = median();
+
+				break;
+			}
+
+			case KALMAN:
+			{
+				if( !m_hasValue )
+				{
+					m_value = rssi;
+					m_p = m_filter.getMeasurementNoise();
+				}
+				else
+				{
+					m_p += m_filter.getProcessNoise();
+					final double k = m_p / (m_p + m_filter.getMeasurementNoise());
+					m_value += k * (rssi - m_value);
+					m_p *= (1.0 - k);
+				}
+
+				break;
+			}
+
+			default:
+			{
+				m_value = rssi;
+
+				break;
+			}
+		}
+
+		m_hasValue = true;
+
+		return m_value;
+	}
+
+	private double median()
+	{
+		// Insertion sort, the window is small.
+		for( int i = 0; i < m_ringCount; i++ )
+		{
+			final int value = m_ring[i];
+			int j = i - 1;
+
+			while( j >= 0 && m_sorted[j] > value )
+			{
+				m_sorted[j + 1] = m_sorted[j];
+				j--;
+			}
+
+			m_sorted[j + 1] = value;
+		}
+
+		final int mid = m_ringCount / 2;
+
+		if( (m_ringCount & 1) == 1 )
+		{
+			return m_sorted[mid];
+		}
+		else
+		{
+			return (m_sorted[mid - 1] + m_sorted[mid]) / 2.0;
+		}
+	}
+}
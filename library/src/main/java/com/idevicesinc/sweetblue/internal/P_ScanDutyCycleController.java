@@ -0,0 +1,171 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.AdaptiveScanConfig;
+import com.idevicesinc.sweetblue.BleScanPower;
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * Picks the scan power and pause length for infinite scans from the rate of new or changed advertisements, as described in
+ * {@link AdaptiveScanConfig}. All timing comes from the update loop's time step, never from the wall clock.
+ */
+final class P_ScanDutyCycleController
+{
+
+    private static final BleScanPower[] DEFAULT_LEVELS = { BleScanPower.LOW_POWER, BleScanPower.MEDIUM_POWER, BleScanPower.HIGH_POWER };
+
+    private final AdaptiveScanConfig m_config;
+    private final BleScanPower[] m_levels;
+    private final double[] m_timeAtLevel;
+    private final double m_window;
+    private final double m_minPause;
+    private final double m_maxPause;
+
+    private int m_level;
+    private int m_eventsThisWindow;
+    private double m_windowTime;
+    private int m_quietWindows;
+
+
+    P_ScanDutyCycleController(final AdaptiveScanConfig config)
+    {
+        m_config = config;
+        m_levels = config.powerLevels != null && config.powerLevels.length > 0 ? config.powerLevels.clone() : DEFAULT_LEVELS;
+        m_timeAtLevel = new double[m_levels.length];
+        m_window = Interval.isEnabled(config.evaluationWindow) ? config.evaluationWindow.secs() : 5.0;
+        m_minPause = Interval.isEnabled(config.minPauseInterval) ? config.minPauseInterval.secs() : 0.0;
+        m_maxPause = Interval.isEnabled(config.maxPauseInterval) ? Math.max(m_minPause, config.maxPauseInterval.secs()) : m_minPause;
+        m_level = config.startAtHighestLevel ? m_levels.length - 1 : 0;
+    }
+
+
+    final AdaptiveScanConfig getConfig()
+    {
+        return m_config;
+    }
+
+    /**
+     * Called from scan ingestion with the number of advertisements that were either from new devices, or had changed contents.
+     */
+    final synchronized void onAdvertisements(final int newCount, final int changedCount)
+    {
+        m_eventsThisWindow += newCount;
+
+        if( m_config.countChangedAdvertisements )
+            m_eventsThisWindow += changedCount;
+    }
+
+    /**
+     * Advances the controller by one update loop tick. <code>scanning</code> should be <code>true</code> only while the radio is
+     * actually scanning, as paused time is charged to the current level but doesn't count toward the rate. Returns <code>true</code> if the level changed.
+     */
+    final synchronized boolean update(final double timeStep, final boolean scanning)
+    {
+        m_timeAtLevel[m_level] += timeStep;
+
+        if( !scanning )
+            return false;
+
+        m_windowTime += timeStep;
+
+        if( m_windowTime < m_window )
+            return false;
+
+        final double rate = m_eventsThisWindow / m_windowTime;
+
+        m_windowTime = 0.0;
+        m_eventsThisWindow = 0;
+
+        if( rate >= m_config.raiseThreshold )
+        {
+            m_quietWindows = 0;
+
+            if( m_level < m_levels.length - 1 )
+            {
+                m_level++;
+                return true;
+            }
+        }
+        else if( rate <= m_config.lowerThreshold )
+        {
+            m_quietWindows++;
+
+            if( m_level > 0 && m_quietWindows >= Math.max(1, m_config.quietWindowsBeforeLowering) )
+            {
+                m_quietWindows = 0;
+                m_level--;
+                return true;
+            }
+        }
+        else
+        {
+            // In the hysteresis band, so stay put
+            m_quietWindows = 0;
+        }
+
+        return false;
+    }
+
+    final synchronized BleScanPower getPower()
+    {
+        return m_levels[m_level];
+    }
+
+    /**
+     * The pause is interpolated linearly between the configured bounds, with the highest level getting the shortest pause.
+     */
+    final synchronized Interval getPauseInterval()
+    {
+        if( m_levels.length == 1 )
+            return Interval.secs(m_minPause);
+
+        final double fraction = (double) m_level / (m_levels.length - 1);
+
+        return Interval.secs(m_maxPause - (m_maxPause - m_minPause) * fraction);
+    }
+
+    final synchronized int getLevel()
+    {
+        return m_level;
+    }
+
+    final synchronized Map<BleScanPower, Interval> getTimeInModes()
+    {
+        final EnumMap<BleScanPower, Double> totals = new EnumMap<>(BleScanPower.class);
+
+        for( int i = 0; i < m_levels.length; i++ )
+        {
+            final Double soFar = totals.get(m_levels[i]);
+            totals.put(m_levels[i], (soFar != null ? soFar : 0.0) + m_timeAtLevel[i]);
+        }
+
+        final EnumMap<BleScanPower, Interval> toReturn = new EnumMap<>(BleScanPower.class);
+
+        for( Map.Entry<BleScanPower, Double> entry : totals.entrySet() )
+        {
+            toReturn.put(entry.getKey(), Interval.secs(entry.getValue()));
+        }
+
+        return toReturn;
+    }
+}
@@ -19,54 +19,73 @@ package com.idevicesinc.sweetblue.internal;
 
 import java.util.ArrayList;
 import java.util.List;
+import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.CompiledScanFilter;
 import com.idevicesinc.sweetblue.P_Bridge_User;
 import com.idevicesinc.sweetblue.ScanFilter;
 import com.idevicesinc.sweetblue.ScanFilter.Please;
 import com.idevicesinc.sweetblue.ScanFilter.ScanEvent;
+import com.idevicesinc.sweetblue.utils.NativeScanFilter;
 
 
 final class P_ScanFilterManager
 {
+	// Results of prefilter()
+	static final int RAW_REJECT = 0;
+	static final int RAW_ACCEPT = 1;
+	static final int RAW_NEEDS_EVENT = 2;
+
+	private static final ScanFilter[] NO_FILTERS = new ScanFilter[0];
+
 	private ScanFilter m_default;  // Regular default scan filter
 	private ScanFilter m_ephemeral = null;  // Temporary filter for just the current scan
 	private ScanFilter.ApplyMode m_ephemeralApplyMode = ScanFilter.ApplyMode.CombineEither;  // How should the ephemeral filter be applied?
 	private final IBleManager m_mngr;
 
+	// Rebuilt whenever the filters or apply mode change, so the per-advertisement path doesn't allocate a new list each time
+	private volatile ScanFilter[] m_activeFilters = NO_FILTERS;
+
 	
 	P_ScanFilterManager(final IBleManager mngr, final ScanFilter defaultFilter)
 	{
 		m_mngr = mngr;
 		m_default = defaultFilter;
+		refreshActiveFilters();
 	}
 
 	void setDefaultFilter(ScanFilter filter)
 	{
 		m_default = filter;
+		refreshActiveFilters();
 	}
 
 	void setEphemeralFilter(ScanFilter ephemeral)
 	{
 		m_ephemeral = ephemeral;
+		refreshActiveFilters();
 	}
 
 	void setEphemeralFilter(ScanFilter ephemeral, ScanFilter.ApplyMode applyMode)
 	{
 		m_ephemeral = ephemeral;
 		m_ephemeralApplyMode = applyMode;
+		refreshActiveFilters();
 	}
 
 	void setEphemeralFilterApplyMode(ScanFilter.ApplyMode applyMode)
 	{
 		m_ephemeralApplyMode = applyMode;
+		refreshActiveFilters();
 	}
 
 	void clearEphemeralFilter()
 	{
 		m_ephemeral = null;
 		m_ephemeralApplyMode = ScanFilter.ApplyMode.CombineEither;
+		refreshActiveFilters();
 	}
 
-	private List<ScanFilter> activeFilters()
+	private void refreshActiveFilters()
 	{
 		List<ScanFilter> l = new ArrayList<>();
 		if (m_ephemeralApplyMode == ScanFilter.ApplyMode.Override)
@@ -81,19 +100,108 @@ final class P_ScanFilterManager
 			if (m_ephemeral != null)
 				l.add(m_ephemeral);
 		}
-		return l;
+		m_activeFilters = l.isEmpty() ? NO_FILTERS : l.toArray(new ScanFilter[l.size()]);
 	}
 
 	public boolean makeEvent()
 	{
-		return activeFilters().size() > 0;
+		return m_activeFilters.length > 0;
+	}
+
+	/**
+	 * Runs any {@link CompiledScanFilter}s against the raw advertisement, before a {@link ScanEvent} has been built. Returns
+	 * {@link #RAW_REJECT} or {@link #RAW_ACCEPT} if that's enough to decide, otherwise {@link #RAW_NEEDS_EVENT}, meaning
+	 * {@link #allow(P_Logger, ScanEvent)} has to be called with a full event.
+	 */
+	int prefilter(final String macAddress, final int rssi, final byte[] scanRecord)
+	{
+		final ScanFilter[] activeFilters = m_activeFilters;
+
+		if (activeFilters.length == 0)
+			return RAW_ACCEPT;
+
+		final boolean combineBoth = m_ephemeralApplyMode == ScanFilter.ApplyMode.CombineBoth;
+		boolean undecided = false;
+		for (int i = 0; i < activeFilters.length; i++)
+		{
+			final int verdict = prefilter(activeFilters[i], macAddress, rssi, scanRecord);
+
+			if (verdict == RAW_REJECT && combineBoth)
+				return RAW_REJECT;
+
+			// The first filter to accept supplies the Please, so an earlier filter that needs the full event has to get its say first
+			if (verdict == RAW_ACCEPT && !combineBoth)
+				return undecided ? RAW_NEEDS_EVENT : RAW_ACCEPT;
+
+			if (verdict == RAW_NEEDS_EVENT)
+				undecided = true;
+		}
+
+		if (undecided)
+			return RAW_NEEDS_EVENT;
+
+		// If we got here, every filter agreed
+		return combineBoth ? RAW_ACCEPT : RAW_REJECT;
+	}
+
+	/**
+	 * Returns the {@link Please} to use when {@link #prefilter(String, int, byte[])} returned {@link #RAW_ACCEPT}. This mirrors
+	 * {@link #allow(P_Logger, ScanEvent)}, in that the first filter to accept the device supplies the {@link Please}.
+	 */
+	Please acceptedPlease(final String macAddress, final int rssi, final byte[] scanRecord)
+	{
+		final ScanFilter[] activeFilters = m_activeFilters;
+		for (int i = 0; i < activeFilters.length; i++)
+		{
+			if (prefilter(activeFilters[i], macAddress, rssi, scanRecord) == RAW_ACCEPT)
+				return P_Bridge_User.acknowledge((CompiledScanFilter) activeFilters[i]);
+		}
+		return Please.acknowledge();
+	}
+
+	/**
+	 * Returns the native filters to hand to the bluetooth controller. The configured list wins if it's been set, otherwise the active
+	 * {@link CompiledScanFilter}s are pushed down, but only when doing so can't hide a device that the software filters would accept.
+	 */
+	List<NativeScanFilter> nativeFilters(final List<NativeScanFilter> configured)
+	{
+		if (configured != BleManagerConfig.EMPTY_NATIVE_FILTER)
+			return configured;
+
+		final ScanFilter[] activeFilters = m_activeFilters;
+
+		if (activeFilters.length == 0)
+			return configured;
+
+		final boolean combineBoth = m_ephemeralApplyMode == ScanFilter.ApplyMode.CombineBoth;
+		final List<NativeScanFilter> list = new ArrayList<>();
+		for (ScanFilter filter : activeFilters)
+		{
+			final List<NativeScanFilter> filterList = filter instanceof CompiledScanFilter ? ((CompiledScanFilter) filter).getNativeScanFilters() : null;
+
+			// When both filters must pass, either one's native filters narrow things down safely, so the first one that can be pushed
+			// down is enough. Otherwise, a device only needs to pass one filter, so they all have to be pushed down.
+			if (combineBoth)
+			{
+				if (filterList != null)
+					return filterList;
+			}
+			else
+			{
+				if (filterList == null)
+					return configured;
+
+				list.addAll(filterList);
+			}
+		}
+		return list.isEmpty() ? configured : list;
 	}
 	
 	ScanFilter.Please allow(P_Logger logger, final ScanEvent e)
 	{
-		List<ScanFilter> activeFilters = activeFilters();
+		final ScanFilter[] activeFilters = m_activeFilters;
 
-		if (activeFilters.isEmpty())
+		if (activeFilters.length == 0)
 			return Please.acknowledge();
 
 		Please yesPlease = null;
@@ -122,6 +230,19 @@ final class P_ScanFilterManager
 		return m_ephemeralApplyMode == ScanFilter.ApplyMode.CombineBoth && yesPlease != null ? yesPlease : ScanFilter.Please.ignore();
 	}
 
+	private static int prefilter(final ScanFilter filter, final String macAddress, final int rssi, final byte[] scanRecord)
+	{
+		if (!(filter instanceof CompiledScanFilter))
+			return RAW_NEEDS_EVENT;
+
+		final CompiledScanFilter compiled = (CompiledScanFilter) filter;
+
+		if (!compiled.matches(macAddress, rssi, scanRecord))
+			return RAW_REJECT;
+
+		return compiled.hasFallback() ? RAW_NEEDS_EVENT : RAW_ACCEPT;
+	}
+
 	private void stopScanningIfNeeded(final ScanFilter filter, final ScanFilter.Please please_nullable)
 	{
 		if( please_nullable != null )
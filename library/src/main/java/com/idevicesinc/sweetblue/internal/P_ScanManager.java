@@ -21,10 +21,12 @@ package com.idevicesinc.sweetblue.internal;
 import android.app.PendingIntent;
 import android.bluetooth.BluetoothAdapter;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.idevicesinc.sweetblue.BleDeviceOrigin;
 import com.idevicesinc.sweetblue.BleManagerConfig;
+import com.idevicesinc.sweetblue.BleMetric;
 import com.idevicesinc.sweetblue.BleScanApi;
 import com.idevicesinc.sweetblue.BleScanPower;
 import com.idevicesinc.sweetblue.BleStatuses;
@@ -40,11 +42,10 @@ import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.utils.Utils_String;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.idevicesinc.sweetblue.BleManagerState.SCANNING;
@@ -62,7 +63,8 @@ final class P_ScanManager
     private final IBleManager m_manager;
     private AtomicReference<BleScanApi> mCurrentApi;
     private AtomicReference<BleScanPower> mCurrentPower;
-    private Set<ScanInfo> m_scanEntries;
+    // Keyed by mac address, only the first result for a given device is held until the update loop drains it (in the order they came in)
+    private P_LongMap<ScanInfo> m_scanEntries;
     private final Object entryLock = new Object();
 
 
@@ -79,6 +81,9 @@ final class P_ScanManager
     private double m_classicLength;
     private double m_timeClassicBoosting;
     private ScanOptions m_currentScanOptions;
+    private P_ScanDutyCycleController m_dutyCycle;
+    private boolean m_restartForDutyCycle;
+    private final P_BatchScanController m_batchScan = new P_BatchScanController();
 
 
     P_ScanManager(IBleManager mgr)
@@ -86,7 +91,7 @@ final class P_ScanManager
         m_manager = mgr;
         mCurrentApi = new AtomicReference<>(mgr.getConfigClone().scanApi);
         mCurrentPower = new AtomicReference<>(BleScanPower.AUTO);
-        m_scanEntries = new HashSet<>();
+        m_scanEntries = new P_LongMap<>();
     }
 
 
@@ -198,10 +203,13 @@ final class P_ScanManager
 
     final void addScanResult(final P_DeviceHolder device, final int rssi, final byte[] scanRecord)
     {
-        final ScanInfo info = new ScanInfo(device, rssi, scanRecord);
+        m_manager.getMetrics().increment(BleMetric.SCAN_RESULTS_RECEIVED);
+
+        final long now = m_manager.getClock().currentTimeMillis();
+
         synchronized (entryLock)
         {
-            m_scanEntries.add(info);
+            addScanEntry_locked(device, rssi, scanRecord, now);
         }
     }
 
@@ -212,16 +220,34 @@ final class P_ScanManager
 
     final void addBatchScanResults(final List<L_Util.ScanResult> devices)
     {
+        m_manager.getMetrics().add(BleMetric.SCAN_RESULTS_RECEIVED, devices.size());
+
+        // Native timestamps are nanos since boot, so grab both clocks once here, and convert each result's timestamp to epoch time
+        final long now = m_manager.getClock().currentTimeMillis();
+        final long nowNanos = SystemClock.elapsedRealtimeNanos();
+
         synchronized (entryLock)
         {
             for (L_Util.ScanResult res : devices)
             {
-                final ScanInfo info = new ScanInfo(res.getDevice(), res.getRssi(), res.getRecord());
-                m_scanEntries.add(info);
+                final long timestampNanos = res.getTimestampNanos();
+                final long time = timestampNanos > 0L && timestampNanos <= nowNanos ? now - (nowNanos - timestampNanos) / 1000000L : now;
+                addScanEntry_locked(res.getDevice(), res.getRssi(), res.getRecord(), time);
             }
         }
     }
 
+    private void addScanEntry_locked(final P_DeviceHolder device, final int rssi, final byte[] scanRecord, final long time)
+    {
+        if (device == null)
+            return;
+
+        // Keep the first entry we got for a device, later ones are dropped until this one has been processed. The entry retains
+        // its key until it's taken back out.
+        if (!m_scanEntries.containsKey(P_MacAddress.findKey(device.getAddress())))
+            m_scanEntries.put(P_MacAddress.retain(device.getAddress()), new ScanInfo(device, rssi, scanRecord, time));
+    }
+
     final void resetTimeNotScanning()
     {
         m_timeNotScanning = 0.0;
@@ -239,9 +265,18 @@ final class P_ScanManager
 
             int size = m_scanEntries.size();
 
-            handleScanEntries(size);
+            handleScanEntries(size, config);
+
+            final P_ScanDutyCycleController dutyCycle = getDutyCycle(config);
 
-            if (!m_forceActualInfinite && m_doingInfiniteScan && Interval.isEnabled(config.infiniteScanInterval) && m_intervalTimeScanning >= config.infiniteScanInterval.secs())
+            if (dutyCycle != null && dutyCycle.update(timeStep, /*scanning=*/true))
+            {
+                // The native scan has to be restarted to pick up the new power, so do a zero-length pause
+                m_manager.getLogger().i(Utils_String.makeString("Adaptive scan moving to ", dutyCycle.getPower(), " with a pause of ", dutyCycle.getPauseInterval()));
+                m_restartForDutyCycle = true;
+                pauseScan();
+            }
+            else if (!m_forceActualInfinite && m_doingInfiniteScan && Interval.isEnabled(config.infiniteScanInterval) && m_intervalTimeScanning >= config.infiniteScanInterval.secs())
                 pauseScan();
         }
 
@@ -258,9 +293,22 @@ final class P_ScanManager
 
                 if (m_doingInfiniteScan)
                 {
-                    Interval pauseTime = Interval.isEnabled(config.infinitePauseInterval) ? config.infinitePauseInterval : Interval.secs(BleManagerConfig.DEFAULT_SCAN_INFINITE_PAUSE_TIME);
+                    final P_ScanDutyCycleController dutyCycle = getDutyCycle(config);
+                    final Interval pauseTime;
+
+                    if (dutyCycle != null)
+                    {
+                        dutyCycle.update(timeStep, /*scanning=*/false);
+                        pauseTime = m_restartForDutyCycle ? Interval.ZERO : dutyCycle.getPauseInterval();
+                    }
+                    else
+                    {
+                        pauseTime = Interval.isEnabled(config.infinitePauseInterval) ? config.infinitePauseInterval : Interval.secs(BleManagerConfig.DEFAULT_SCAN_INFINITE_PAUSE_TIME);
+                    }
+
                     if (m_timePausedScan >= pauseTime.secs())
                     {
+                        m_restartForDutyCycle = false;
                         m_manager.getLogger().i("Restarting paused scan...");
                         startScan(PA_StateTracker.E_Intent.INTENTIONAL, m_currentScanOptions);
                     }
@@ -306,6 +354,49 @@ final class P_ScanManager
         return startScan;
     }
 
+    /**
+     * Returns the duty cycle controller for the current infinite scan, or <code>null</code> if {@link BleManagerConfig#adaptiveScan} isn't set
+     * or this isn't an infinite scan. A new controller is made whenever the config instance changes.
+     */
+    private P_ScanDutyCycleController getDutyCycle(final BleManagerConfig config)
+    {
+        if (config.adaptiveScan == null)
+        {
+            m_dutyCycle = null;
+        }
+        else if (m_dutyCycle == null || m_dutyCycle.getConfig() != config.adaptiveScan)
+        {
+            m_dutyCycle = new P_ScanDutyCycleController(config.adaptiveScan);
+        }
+
+        return m_doingInfiniteScan ? m_dutyCycle : null;
+    }
+
+    /**
+     * Called after a batch of scan results has been turned into discoveries, to feed the adaptive duty cycle.
+     */
+    final void onAdvertisementsIngested(final int newCount, final int changedCount)
+    {
+        final P_ScanDutyCycleController dutyCycle = m_dutyCycle;
+
+        if (dutyCycle != null && m_doingInfiniteScan)
+            dutyCycle.onAdvertisements(newCount, changedCount);
+    }
+
+    final boolean isCountingChangedAdvertisements()
+    {
+        final P_ScanDutyCycleController dutyCycle = m_dutyCycle;
+
+        return dutyCycle != null && m_doingInfiniteScan && dutyCycle.getConfig().countChangedAdvertisements;
+    }
+
+    final Map<BleScanPower, Interval> getTimeInScanPowerModes()
+    {
+        final P_ScanDutyCycleController dutyCycle = m_dutyCycle;
+
+        return dutyCycle != null ? dutyCycle.getTimeInModes() : new EnumMap<BleScanPower, Interval>(BleScanPower.class);
+    }
+
     private void clearScanningFlags()
     {
         m_manager.getStateTracker().update(PA_StateTracker.E_Intent.UNINTENTIONAL, BleStatuses.GATT_STATUS_NOT_APPLICABLE, SCANNING, false, SCANNING_PAUSED, false,
@@ -424,6 +515,8 @@ final class P_ScanManager
                 m_manager.getLogger().log_native(Log.VERBOSE, macAddress, "Discovered new device via POST-LOLLIPOP scan (batch).");
             }
         }
+        if (Interval.isEnabled(m_manager.getConfigClone().batchScanLatency))
+            m_batchScan.onBatch(results.size());
         addBatchScanResults(results);
     }
 
@@ -466,25 +559,33 @@ final class P_ScanManager
         return BleScanApi.PRE_LOLLIPOP;
     }
 
-    private void handleScanEntries(int size)
+    private void handleScanEntries(int size, BleManagerConfig config)
     {
+        final P_Metrics metrics = m_manager.getMetrics();
+        metrics.setGauge(BleMetric.PENDING_SCAN_RESULTS, size);
+
         if (size > 0)
         {
+            final boolean batched = Interval.isEnabled(config.batchScanLatency);
+            final long start = metrics.now();
+            final long traceStart = m_manager.getTracer().now();
+            final long start_batch = batched ? System.nanoTime() : 0L;
             final List<ScanInfo> infos;
 
             // Get our max scan entries to process based off the update loop rate, with
-            // a minimum of 5.
-            final long upRate = m_manager.getConfigClone().autoUpdateRate.millis();
-            final int maxEntries = (int) Math.min(size, Math.max(5, upRate));
+            // a minimum of 5. When batching in hardware, the whole backlog is taken in one pass, as
+            // the app has already said how long it's willing to wait for results.
+            final long upRate = config.autoUpdateRate.millis();
+            final int maxEntries = batched ? size : (int) Math.min(size, Math.max(5, upRate));
             infos = new ArrayList<>(maxEntries);
             synchronized (entryLock)
             {
                 int current = 0;
-                final Iterator<ScanInfo> it = m_scanEntries.iterator();
-                while (it.hasNext() && current < maxEntries)
+                while (!m_scanEntries.isEmpty() && current < maxEntries)
                 {
-                    infos.add(it.next());
-                    it.remove();
+                    final ScanInfo info = m_scanEntries.removeFirst();
+                    P_MacAddress.release(info.m_device.getAddress());
+                    infos.add(info);
                     current++;
                 }
             }
@@ -496,7 +597,7 @@ final class P_ScanManager
                 final IBluetoothDevice layer = P_Bridge_User.newDeviceLayer(m_manager, P_BleDeviceImpl.EMPTY_DEVICE(m_manager));
                 layer.setNativeDevice(info.m_device.getDevice(), info.m_device);
 
-                if (m_manager.getConfigClone().enableCrashResolver)
+                if (config.enableCrashResolver)
                 {
                     if (mCurrentApi.get() == BleScanApi.PRE_LOLLIPOP)
                     {
@@ -508,10 +609,17 @@ final class P_ScanManager
                     }
                 }
 
-                entries.add(DiscoveryEntry.newEntry(layer, info.m_rssi, info.m_record));
+                entries.add(DiscoveryEntry.newEntry(layer, info.m_rssi, info.m_record, info.m_time));
             }
 
             m_manager.onDiscoveredFromNativeStack(entries);
+
+            if (batched)
+                m_batchScan.onIngested(entries.size(), System.nanoTime() - start_batch);
+
+            metrics.add(BleMetric.SCAN_RESULTS_PROCESSED, entries.size());
+            metrics.recordSince(BleMetric.SCAN_INGESTION_TIME, start);
+            m_manager.getTracer().complete(P_Tracer.CAT_SCAN, "scan batch", null, traceStart);
         }
     }
 
@@ -569,6 +677,10 @@ final class P_ScanManager
         // what's held in the list may not actually be within range anymore, or some other data on it has changed).
         synchronized (entryLock)
         {
+            for (ScanInfo info : m_scanEntries)
+            {
+                P_MacAddress.release(info.m_device.getAddress());
+            }
             m_scanEntries.clear();
         }
     }
@@ -645,7 +757,8 @@ final class P_ScanManager
     {
         int nativePowerMode;
         boolean success = true;
-        BleScanPower power = m_manager.getConfigClone().scanPower;
+        final P_ScanDutyCycleController dutyCycle = getDutyCycle(m_manager.getConfigClone());
+        BleScanPower power = dutyCycle != null ? dutyCycle.getPower() : m_manager.getConfigClone().scanPower;
         if (power == BleScanPower.AUTO)
         {
             if (m_manager.isForegrounded())
@@ -769,7 +882,19 @@ final class P_ScanManager
 
     private Interval getReportDelay()
     {
-        Interval delay = m_manager.getConfigClone().scanReportDelay;
+        final BleManagerConfig config = m_manager.getConfigClone();
+        if (Interval.isEnabled(config.batchScanLatency))
+        {
+            final int backlog;
+            synchronized (entryLock)
+            {
+                backlog = m_scanEntries.size();
+            }
+            final Interval batchDelay = m_batchScan.chooseReportDelay(config.batchScanLatency, backlog, config.autoUpdateRate.secs());
+            m_manager.getLogger().d(Utils_String.makeString("Using a scan report delay of ", batchDelay, " (average batch size ", m_batchScan.getAverageBatchSize(), ")"));
+            return batchDelay;
+        }
+        Interval delay = config.scanReportDelay;
         if (Build.MODEL.toLowerCase(Locale.US).contains("pixel"))
             delay = Interval.ZERO;
         return delay;
@@ -836,6 +961,7 @@ final class P_ScanManager
         private final IBluetoothDevice deviceLayer;
         private final int rssi;
         private final byte[] scanRecord;
+        private final long time;
 
         IBleDevice m_bleDevice;
         BleDeviceOrigin m_origin;
@@ -844,11 +970,12 @@ final class P_ScanManager
         boolean m_stopScan;
 
 
-        DiscoveryEntry(IBluetoothDevice layer, int rssi, byte[] record)
+        DiscoveryEntry(IBluetoothDevice layer, int rssi, byte[] record, long time)
         {
             deviceLayer = layer;
             this.rssi = rssi;
             scanRecord = record;
+            this.time = time;
         }
 
         IBluetoothDevice device()
@@ -866,9 +993,15 @@ final class P_ScanManager
             return scanRecord;
         }
 
-        static DiscoveryEntry newEntry(IBluetoothDevice layer, int rssi, byte[] record)
+        // Epoch millis of when the advertisement was actually seen, which can be well before now for hardware batched results
+        long time()
+        {
+            return time;
+        }
+
+        static DiscoveryEntry newEntry(IBluetoothDevice layer, int rssi, byte[] record, long time)
         {
-            return new DiscoveryEntry(layer, rssi, record);
+            return new DiscoveryEntry(layer, rssi, record, time);
         }
     }
 
@@ -879,37 +1012,14 @@ final class P_ScanManager
         private final P_DeviceHolder m_device;
         private final int m_rssi;
         private final byte[] m_record;
+        private final long m_time;
 
-        ScanInfo(P_DeviceHolder device, int rssi, byte[] record)
+        ScanInfo(P_DeviceHolder device, int rssi, byte[] record, long time)
         {
             m_device = device;
             m_rssi = rssi;
             m_record = record;
-        }
-
-        @Override
-        public int hashCode()
-        {
-            if (m_device != null)
-            {
-                return m_device.getAddress().hashCode();
-            }
-            return super.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object obj)
-        {
-            if (obj == null)
-                return false;
-            if (obj instanceof ScanInfo)
-            {
-                ScanInfo other = (ScanInfo) obj;
-                if ((m_device == null && other.m_device != null) || (m_device != null && other.m_device == null))
-                    return false;
-                return m_device != null && m_device.getAddress().equals(other.m_device.getAddress());
-            }
-            return false;
+            m_time = time;
         }
     }
 
@@ -54,7 +54,7 @@ final class P_ServerConnectionFailEntry
 	{
 		resetFailCount();
 
-		m_timeOfFirstConnect = System.currentTimeMillis();
+		m_timeOfFirstConnect = m_mngr.m_server.getIManager().getClock().currentTimeMillis();
 	}
 
 	private void resetFailCount()
@@ -66,7 +66,7 @@ final class P_ServerConnectionFailEntry
 
 	void onNativeConnectFail(final P_DeviceHolder nativeDevice, final ServerReconnectFilter.Status status, final int gattStatus)
 	{
-		final long currentTime = System.currentTimeMillis();
+		final long currentTime = m_mngr.m_server.getIManager().getClock().currentTimeMillis();
 
 		//--- DRK > Can be null if this is a spontaneous connect (can happen with autoConnect sometimes for example).
 		m_timeOfFirstConnect = m_timeOfFirstConnect != null ? m_timeOfFirstConnect : currentTime;
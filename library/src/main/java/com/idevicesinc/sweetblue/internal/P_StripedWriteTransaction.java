@@ -36,7 +36,7 @@ final class P_StripedWriteTransaction extends BleTransaction
     private final boolean m_requiresBonding;
     private final ReadWriteListener.Type m_writeType;
     private final List<P_Task_Write> m_writeList;
-    private final WriteListener m_internalListener;
+    private WriteListener m_internalListener;
     private BleWrite m_write;
 
 
@@ -47,7 +47,6 @@ final class P_StripedWriteTransaction extends BleTransaction
         m_requiresBonding = requiresBonding;
         m_writeType = writeType;
         m_writeList = new ArrayList<>();
-        m_internalListener = new WriteListener();
     }
 
 
@@ -57,6 +56,7 @@ final class P_StripedWriteTransaction extends BleTransaction
         int curIndex = 0;
         FutureData curData;
         final IBleDevice idevice = P_Bridge_User.getIBleDevice(getDevice());
+        m_internalListener = new WriteListener(idevice);
         while (curIndex < allData.length)
         {
             int end = Math.min(allData.length, curIndex + getDevice().getEffectiveWriteMtuSize());
@@ -69,34 +69,68 @@ final class P_StripedWriteTransaction extends BleTransaction
 
             curIndex = end;
         }
-        idevice.getIManager().getTaskManager().add(m_writeList.remove(0));
+        m_internalListener.sendNext();
     }
 
-    private final class WriteListener implements ReadWriteListener
+    /**
+     * Runs on the update thread (being a {@link PA_CallbackWrapper}), and queues up each stripe right before the previous one ends, so
+     * stripes go out back to back, rather than each one waiting on a callback post and the next update tick.
+     */
+    private final class WriteListener extends PA_CallbackWrapper implements ReadWriteListener, PA_Task_ReadOrWrite.I_SuccessorArmer
     {
 
+        private final IBleDevice m_device;
+
+        private int m_sent;
+        private int m_succeeded;
+
+
+        private WriteListener(IBleDevice device)
+        {
+            super(device.getIManager().getPostManager().getUIHandler(), false);
+
+            m_device = device;
+        }
+
+        private void sendNext()
+        {
+            m_sent++;
+            m_device.getIManager().getTaskManager().add(m_writeList.remove(0));
+        }
+
+        @Override public final void armSuccessor(byte[] data)
+        {
+            // Only the stripe that's ending should be in flight
+            if (m_sent == m_succeeded + 1 && m_writeList.size() > 0)
+                sendNext();
+        }
+
         @Override public final void onEvent(ReadWriteListener.ReadWriteEvent e)
         {
             if (e.wasSuccess())
             {
+                m_succeeded++;
+
+                if (m_sent > m_succeeded)
+                {
+                    // The next stripe was already sent out
+                    return;
+                }
+
                 if (m_writeList.size() > 0)
                 {
-                    P_Bridge_User.getIBleDevice(getDevice()).getIManager().getTaskManager().add(m_writeList.remove(0));
+                    sendNext();
                 }
                 else
                 {
                     succeed();
-                    final ReadWriteListener listener = m_write.getReadWriteListener();
-                    if (listener != null)
-                        listener.onEvent(e);
+                    m_device.postEventAsCallback(m_write.getReadWriteListener(), e);
                 }
             }
             else
             {
                 fail();
-                final ReadWriteListener listener = m_write.getReadWriteListener();
-                if (listener != null)
-                    listener.onEvent(e);
+                m_device.postEventAsCallback(m_write.getReadWriteListener(), e);
             }
         }
     }
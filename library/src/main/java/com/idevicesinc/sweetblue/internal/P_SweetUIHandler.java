@@ -50,6 +50,7 @@ final class P_SweetUIHandler implements P_SweetHandler
         if (unitTest)
         {
             m_thread = new P_SweetBlueThread("Mocked UI Thread");
+            m_thread.setClock(mgr.getClock());
             m_handler = null;
         }
         else
@@ -112,6 +113,19 @@ final class P_SweetUIHandler implements P_SweetHandler
             return m_thread.getThread();
     }
 
+    /**
+     * Only meaningful when unit testing, where this handler is backed by a {@link ThreadHandler}. See {@link ThreadHandler#awaitIdle(long)}.
+     */
+    boolean awaitIdle(long timeoutMs)
+    {
+        return m_thread == null || m_thread.awaitIdle(timeoutMs);
+    }
+
+    boolean isIdle()
+    {
+        return m_thread == null || m_thread.isIdle();
+    }
+
     @Override public void quit()
     {
         if (m_thread != null)
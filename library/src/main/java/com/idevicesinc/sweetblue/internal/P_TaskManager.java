@@ -17,8 +17,10 @@
 
 package com.idevicesinc.sweetblue.internal;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import com.idevicesinc.sweetblue.BleMetric;
 import com.idevicesinc.sweetblue.utils.Interval;
 
 
@@ -41,6 +43,14 @@ final class P_TaskManager
 
     private int m_currentOrdinal;
 
+    // Locks of the queue-atomic transactions that are running, so a transaction's ops can be handed to its lock as they're added
+    private final HashMap<IBleTransaction, P_Task_TxnLock> m_txnLocks = new HashMap<>();
+
+    // Fair sharing of the queue between OTA transactions and everything else, see OtaCampaignConfig#maxConsecutiveOtaTasks
+    private int m_maxConsecutiveOtaTasks = 0;
+    private int m_otaTasksInARow = 0;
+    private long m_traceDelayStart = 0L;
+
     P_TaskManager(IBleManager mngr)
     {
         m_mngr = mngr;
@@ -211,6 +221,9 @@ final class P_TaskManager
         {
             newTask.init();
 
+            if (newTask instanceof P_Task_TxnLock)
+                m_txnLocks.put(((P_Task_TxnLock) newTask).getTxn(), (P_Task_TxnLock) newTask);
+
             // Check the idle status to ensure the new task gets executed as soon as possible (rather than
             // waiting until the idle interval's next tick)
             m_mngr.checkIdleStatus();
@@ -222,12 +235,20 @@ final class P_TaskManager
             else if (tryInterruptingCurrentTask(newTask))
             {
                 // Why don't we dequeue here, if we do after cancel?
+                // An op that just interrupted its own transaction's lock is at the front of the queue, so it can start now rather than next tick
+                if (getCurrent() == null && getTxnLock(newTask) != null)
+                    dequeue();
             }
             else
             {
                 // Toss the task into the queue at the 'best' location (earliest spot it can go)
                 m_queue.insertAtSoonestPosition(newTask);
                 onTaskAddedToQueue(newTask);
+
+                final P_Task_TxnLock lock = getTxnLock(newTask);
+                if (lock != null)
+                    lock.addOp((PA_Task_Transactionable) newTask);
+
                 // return here, to avoid calling print(), as the above method already calls it
                 return;
             }
@@ -268,34 +289,9 @@ final class P_TaskManager
                 current.update_internal(timeStep, currentTime);
                 executingTask = true;
 
-                //HACK:  Look to see if a lock is running.  If it is, try to find a task that we can pull to the front of the queue and run
+                // If a lock is running, run the next op from its transaction's sub-queue
                 if (current instanceof P_Task_TxnLock)
-                {
-                    // Find another task that we can attempt to dequeue and execute now
-                    final IBleTransaction transaction = ((P_Task_TxnLock) current).getTxn();
-                    PA_Task transactionTask = m_queue.forEachTask(new P_TaskQueue.ForEachTaskHandler()
-                    {
-                        @Override
-                        public ProcessResult process(PA_Task d)
-                        {
-                            // If the task is armable, dequeue it and return
-                            if (!(d instanceof PA_Task_Transactionable))
-                                return ProcessResult.Continue;
-
-                            if (d.isArmable() && ((PA_Task_Transactionable) d).getTxn() == transaction)
-                                return ProcessResult.ReturnAndDequeue;
-
-                            // Otherwise, keep walking the queue
-                            return ProcessResult.Continue;
-                        }
-                    }).getTask();
-
-                    if (transactionTask != null)
-                    {
-                        m_logger.i("Moving task " + transactionTask + " ahead in the queue since it's associated with the running transaction lock");
-                        addTask(transactionTask);
-                    }
-                }
+                    dispatchTransactionTask((P_Task_TxnLock) current);
             }
 
             m_updateCount++;
@@ -310,7 +306,16 @@ final class P_TaskManager
         if (Interval.isDisabled(delayTime))
             return true;
 
-        return m_timeSinceEnding >= delayTime.secs();
+        final boolean passed = m_timeSinceEnding >= delayTime.secs();
+
+        if (passed && m_traceDelayStart != 0L)
+        {
+            final P_Tracer tracer = m_mngr.getTracer();
+            tracer.async(P_Tracer.CAT_TASK, "delayBetweenTasks", null, null, null, 0L, m_traceDelayStart, tracer.now());
+            m_traceDelayStart = 0L;
+        }
+
+        return passed;
     }
 
     private boolean dequeue()
@@ -333,23 +338,25 @@ final class P_TaskManager
                 return false;
 
             // Locate the next armable task, if any, in the queue
-            PA_Task nextTask = m_queue.forEachTask(new P_TaskQueue.ForEachTaskHandler()
+            final NextTaskFinder finder = new NextTaskFinder(m_maxConsecutiveOtaTasks > 0 && m_otaTasksInARow >= m_maxConsecutiveOtaTasks);
+            m_queue.forEachTask(finder);
+            final PA_Task nextTask = finder.getNextTask();
+
+            // If we found a next task, take it out of the queue and run it
+            if (nextTask != null && m_queue.remove(nextTask))
             {
-                @Override
-                public ProcessResult process(PA_Task d)
+                if (isOtaTask(nextTask))
+                {
+                    m_otaTasksInARow++;
+                }
+                else if (!isOtaLock(nextTask))
                 {
-                    // If the task is armable, dequeue it and return
-                    if (d.isArmable())
-                        return ProcessResult.ReturnAndDequeue;
+                    if (finder.m_deferredOta != null)
+                        m_mngr.getMetrics().increment(BleMetric.OTA_TASKS_DEFERRED);
 
-                    // Otherwise, keep walking the queue
-                    return ProcessResult.Continue;
+                    m_otaTasksInARow = 0;
                 }
-            }).getTask();
 
-            // If we found a next task, run it.  It will already have been removed from the queue
-            if (nextTask != null)
-            {
                 m_current.set(nextTask);
                 nextTask.arm();
                 if (!nextTask.tryExecuting())
@@ -363,6 +370,193 @@ final class P_TaskManager
         return false;
     }
 
+    /**
+     * Sets how many OTA reads and writes can run in a row while other tasks are waiting. 0 turns this off.
+     */
+    final void setMaxConsecutiveOtaTasks(final int max)
+    {
+        synchronized (m_lock)
+        {
+            m_maxConsecutiveOtaTasks = Math.max(0, max);
+            m_otaTasksInARow = 0;
+        }
+    }
+
+    private static boolean isOtaTask(final PA_Task task)
+    {
+        if (!(task instanceof PA_Task_Transactionable))
+            return false;
+
+        final IBleTransaction txn = ((PA_Task_Transactionable) task).getTxn();
+
+        return txn != null && txn == task.getDevice().getTxnManager().m_otaTxn;
+    }
+
+    /**
+     * Whether the given task is the lock of a queue-atomic OTA transaction. Its ops are handed out by {@link #dispatchTransactionTask(P_Task_TxnLock)},
+     * so the lock has to wait its turn like the ops would.
+     */
+    private static boolean isOtaLock(final PA_Task task)
+    {
+        if (!(task instanceof P_Task_TxnLock))
+            return false;
+
+        final IBleTransaction txn = ((P_Task_TxnLock) task).getTxn();
+
+        return txn != null && txn == task.getDevice().getTxnManager().m_otaTxn;
+    }
+
+    /**
+     * Returns <code>true</code> if OTA tasks have had their turn, and something else that's at least as important is waiting.
+     */
+    private boolean shouldYieldOta()
+    {
+        if (m_maxConsecutiveOtaTasks <= 0 || m_otaTasksInARow < m_maxConsecutiveOtaTasks)
+            return false;
+
+        final NextTaskFinder finder = new NextTaskFinder(true);
+        m_queue.forEachTask(finder);
+        final PA_Task other = finder.m_nextTask;
+
+        return other != null && !isOtaTask(other) && !isOtaLock(other);
+    }
+
+    /**
+     * Walks the queue for the first armable task. When OTA tasks have had their turn, the first armable OTA task is passed over in
+     * favor of the next armable task that's at least as important, if there is one.
+     */
+    private static final class NextTaskFinder extends P_TaskQueue.ForEachTaskHandler
+    {
+        private final boolean m_yieldOta;
+        private PA_Task m_deferredOta;
+        private PA_Task m_nextTask;
+
+        private NextTaskFinder(boolean yieldOta)
+        {
+            m_yieldOta = yieldOta;
+        }
+
+        @Override
+        public ProcessResult process(PA_Task task)
+        {
+            // Keep walking the queue until we find an armable task
+            if (!task.isArmable())
+                return ProcessResult.Continue;
+
+            if (m_yieldOta && (isOtaTask(task) || isOtaLock(task)))
+            {
+                if (m_deferredOta == null)
+                    m_deferredOta = task;
+
+                return ProcessResult.Continue;
+            }
+
+            // Don't let something less important, like a scan, jump ahead of the OTA
+            if (m_deferredOta != null && m_deferredOta.isMoreImportantThan(task))
+            {
+                m_nextTask = m_deferredOta;
+                m_deferredOta = null;
+                return ProcessResult.Return;
+            }
+
+            m_nextTask = task;
+            return ProcessResult.Return;
+        }
+
+        private PA_Task getNextTask()
+        {
+            return m_nextTask != null ? m_nextTask : m_deferredOta;
+        }
+    }
+
+    private P_Task_TxnLock getTxnLock(final PA_Task task)
+    {
+        if (!(task instanceof PA_Task_Transactionable) || m_txnLocks.isEmpty())
+            return null;
+
+        final IBleTransaction txn = ((PA_Task_Transactionable) task).getTxn();
+
+        return txn != null ? m_txnLocks.get(txn) : null;
+    }
+
+    /**
+     * Takes the next armable op out of the given lock's sub-queue, and runs it. If the lock is the current task, it gets interrupted
+     * and goes back to the front of the queue, same as when an op is added while the lock is running. Returns <code>true</code> if an op was found.
+     * OTA ops count towards {@link #setMaxConsecutiveOtaTasks(int)} here too; once they've had their turn, the op is left for later, and the
+     * lock goes back in line so that whatever else is waiting can run first.
+     */
+    private boolean dispatchTransactionTask(final P_Task_TxnLock lock)
+    {
+        synchronized (m_lock)
+        {
+            final PA_Task current = getCurrent();
+            if (current != null && current != lock)
+                return false;
+
+            final PA_Task_Transactionable next = lock.pollNextOp();
+            if (next == null)
+                return false;
+
+            final boolean ota = isOtaTask(next);
+            if (ota && shouldYieldOta())
+            {
+                lock.putBackOp(next);
+
+                if (current == lock)
+                {
+                    endCurrentTask(PE_TaskState.INTERRUPTED, true);
+                    addToFront(lock);
+                }
+
+                return false;
+            }
+
+            if (!m_queue.remove(next))
+                return false;
+
+            // Obey the delay timer by going through the queue like any other task
+            if (!Interval.isDisabled(m_mngr.getConfigClone().delayBetweenTasks))
+            {
+                addTask(next);
+                return true;
+            }
+
+            m_logger.i("Running task " + next + " now since it's associated with the running transaction lock");
+
+            m_otaTasksInARow = ota ? m_otaTasksInARow + 1 : 0;
+
+            if (current == lock)
+            {
+                endCurrentTask(PE_TaskState.INTERRUPTED, true);
+                addToFront(lock);
+            }
+
+            m_current.set(next);
+            next.arm();
+            if (!next.tryExecuting())
+                print();
+
+            return true;
+        }
+    }
+
+    final int getTxnLockCount()
+    {
+        synchronized (m_lock)
+        {
+            return m_txnLocks.size();
+        }
+    }
+
+    final void onTxnLockEnded(final P_Task_TxnLock lock)
+    {
+        synchronized (m_lock)
+        {
+            if (m_txnLocks.get(lock.getTxn()) == lock)
+                m_txnLocks.remove(lock.getTxn());
+        }
+    }
+
     public final long getUpdateCount()
     {
         return m_updateCount;
@@ -393,11 +587,23 @@ final class P_TaskManager
 
             m_current.set(null);
             m_timeSinceEnding = -1.0 / 1000;
+            m_traceDelayStart = m_mngr.getTracer().now();
             current_saved.setEndingState(endingState);
 
             boolean printed = false;
+            boolean dispatched = false;
+
+            // When an op of a queue-atomic transaction ends and its lock is next up, the transaction's next op can start straight away,
+            // instead of the lock getting dequeued first and handing it off on the next tick
+            final P_Task_TxnLock lock = dontDequeue ? null : getTxnLock(current_saved);
+            if (lock != null && m_queue.peek() == lock && m_recursionCounter < kRecursionLimit && Interval.isDisabled(m_mngr.getConfigClone().delayBetweenTasks) && m_mngr.getPostManager().isOnSweetBlueThread())
+            {
+                m_recursionCounter++;
+                dispatched = dispatchTransactionTask(lock);
+                m_recursionCounter--;
+            }
 
-            if (!dontDequeue && m_queue.size() > 0 && m_recursionCounter++ < kRecursionLimit)
+            if (!dispatched && !dontDequeue && m_queue.size() > 0 && m_recursionCounter++ < kRecursionLimit)
                 printed = dequeue();
 
             --m_recursionCounter;
@@ -197,6 +197,14 @@ public final class P_TaskQueue
         }
     }
 
+    final boolean remove(PA_Task task)
+    {
+        synchronized (m_lock)
+        {
+            return m_taskList.remove(task);
+        }
+    }
+
     final int size()
     {
         synchronized (m_lock)
@@ -0,0 +1,266 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+
+import com.idevicesinc.sweetblue.BleCharacteristic;
+import com.idevicesinc.sweetblue.BleManagerState;
+import com.idevicesinc.sweetblue.BleNodeConfig;
+import com.idevicesinc.sweetblue.BleServerState;
+import com.idevicesinc.sweetblue.BleStatuses;
+import com.idevicesinc.sweetblue.BleTask;
+import com.idevicesinc.sweetblue.BroadcastListener;
+import com.idevicesinc.sweetblue.ExchangeListener;
+import com.idevicesinc.sweetblue.OutgoingListener;
+import com.idevicesinc.sweetblue.P_Bridge_User;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
+import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.P_Const;
+import com.idevicesinc.sweetblue.utils.Utils;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Sends one value to several clients as a single task. The payload is evaluated and set on the characteristic once, then offered
+ * to each client in turn. Each client gets {@link com.idevicesinc.sweetblue.BleManagerConfig#broadcastClientTimeout} to confirm
+ * before it's marked as timed out and skipped, so the task's own timeout doesn't apply. Clients after a slow one wait their turn,
+ * as Android only allows one outstanding notification per server.
+ */
+final class P_Task_BroadcastNotification extends PA_Task_RequiresBleOn implements PA_Task.I_StateListener
+{
+	private final List<IBluetoothDevice> m_clients;
+	private final LinkedHashMap<String, OutgoingListener.Status> m_results;
+
+	private final BroadcastListener m_listener;
+	private final FutureData m_futureData;
+
+	private final UUID m_charUuid;
+	private final UUID m_serviceUuid;
+
+	private final boolean m_confirm;
+	private final double m_clientTimeout;
+
+	private BleCharacteristic m_characteristic = null;
+	private byte[] m_data_sent = null;
+	private long m_timeStarted = 0;
+
+	private int m_index = 0;
+	private String m_waitingOn = null;
+	private double m_timeWaiting = 0.0;
+
+
+	public P_Task_BroadcastNotification(IBleServer server, List<IBluetoothDevice> clients, final UUID serviceUuid, final UUID charUuid, final FutureData futureData, boolean confirm, final Interval clientTimeout, final BroadcastListener listener)
+	{
+		super(server, null);
+
+		m_clients = clients;
+		m_results = new LinkedHashMap<>(clients.size() * 2);
+		m_futureData = futureData;
+		m_listener = listener;
+		m_charUuid = charUuid;
+		m_serviceUuid = serviceUuid;
+		m_confirm = confirm;
+		// Interval.INFINITE comes through as positive infinity, so that client is simply never timed out
+		m_clientTimeout = Interval.isDisabled(clientTimeout) ? BleNodeConfig.DefaultTaskTimeoutRequestFilter.DEFAULT_TASK_TIMEOUT : clientTimeout.secs();
+	}
+
+	private byte[] data_sent()
+	{
+		if( m_data_sent == null )
+		{
+			m_data_sent = m_futureData.getData();
+		}
+
+		return m_data_sent;
+	}
+
+	@Override protected BleTask getTaskType()
+	{
+		return BleTask.SEND_NOTIFICATION;
+	}
+
+	@Override void execute()
+	{
+		m_timeStarted = getManager().getClock().currentTimeMillis();
+
+		final BleCharacteristic characteristic = getServer().getNativeBleCharacteristic(m_serviceUuid, m_charUuid, null);
+
+		if( characteristic == null )
+		{
+			fail(OutgoingListener.Status.NO_MATCHING_TARGET);
+		}
+		else if( !P_Bridge_User.setCharValue(characteristic, data_sent()) )
+		{
+			fail(OutgoingListener.Status.FAILED_TO_SET_VALUE_ON_TARGET);
+		}
+		else
+		{
+			m_characteristic = characteristic;
+
+			// Slow clients are handled one by one in update(), so the task as a whole never times out
+			resetTimeout(Interval.INFINITE.secs());
+
+			sendToNextClient();
+		}
+	}
+
+	private void sendToNextClient()
+	{
+		m_waitingOn = null;
+
+		while( m_index < m_clients.size() )
+		{
+			final IBluetoothDevice client = m_clients.get(m_index);
+			final String macAddress = client.getAddress();
+
+			if( !getServer().isAny(macAddress, BleServerState.CONNECTED.bit()) )
+			{
+				onClientDone(OutgoingListener.Status.NOT_CONNECTED);
+			}
+			else if( !getServer().getNativeLayer().notifyCharacteristicChanged(P_DeviceHolder.newHolder(client.getNativeDevice()), m_characteristic, m_confirm) )
+			{
+				onClientDone(OutgoingListener.Status.FAILED_TO_SEND_OUT);
+			}
+			else
+			{
+				m_waitingOn = macAddress;
+				m_timeWaiting = 0.0;
+
+				return;
+			}
+		}
+
+		super.succeed();
+
+		invokeCallback(OutgoingListener.Status.SUCCESS);
+	}
+
+	private void onClientDone(final OutgoingListener.Status status)
+	{
+		m_results.put(m_clients.get(m_index).getAddress(), status);
+		m_index++;
+	}
+
+	/**
+	 * Returns <code>true</code> if this task was waiting on the given client.
+	 */
+	boolean onNotificationSent(final P_DeviceHolder device, final int gattStatus)
+	{
+		if( m_waitingOn == null || !m_waitingOn.equals(device.getAddress()) )
+			return false;
+
+		onClientDone(Utils.isSuccess(gattStatus) ? OutgoingListener.Status.SUCCESS : OutgoingListener.Status.REMOTE_GATT_FAILURE);
+
+		sendToNextClient();
+
+		return true;
+	}
+
+	@Override protected void update(double timeStep)
+	{
+		if( getState() != PE_TaskState.EXECUTING || m_waitingOn == null )
+			return;
+
+		m_timeWaiting += timeStep;
+
+		// A client which dropped off will never confirm, so don't hold everyone else up waiting for it
+		if( !getServer().isAny(m_waitingOn, BleServerState.CONNECTED.bit()) )
+		{
+			onClientDone(OutgoingListener.Status.NOT_CONNECTED);
+
+			sendToNextClient();
+		}
+		else if( m_timeWaiting >= m_clientTimeout )
+		{
+			getLogger().w("Skipping " + m_waitingOn + " in broadcast, as it didn't confirm within " + m_clientTimeout + " seconds.");
+
+			onClientDone(OutgoingListener.Status.TIMED_OUT);
+
+			sendToNextClient();
+		}
+	}
+
+	@Override protected void onNotExecutable()
+	{
+		fail(OutgoingListener.Status.NOT_CONNECTED);
+	}
+
+	private ExchangeListener.Type getType()
+	{
+		return m_confirm ? ExchangeListener.Type.INDICATION : ExchangeListener.Type.NOTIFICATION;
+	}
+
+	private void fail(final OutgoingListener.Status status)
+	{
+		super.fail();
+
+		invokeCallback(status);
+	}
+
+	private void invokeCallback(final OutgoingListener.Status status)
+	{
+		// Whoever didn't get it yet, won't
+		m_waitingOn = null;
+		while( m_index < m_clients.size() )
+		{
+			onClientDone(status);
+		}
+
+		final long timeEnded = getManager().getClock().currentTimeMillis();
+		final Interval totalTime = m_timeStarted == 0 ? Interval.ZERO : Interval.delta(m_timeStarted, timeEnded);
+
+		final BroadcastListener.BroadcastEvent e = P_Bridge_User.newBroadcastEvent(
+			getServer().getBleServer(), m_serviceUuid, m_charUuid, getType(), m_data_sent != null ? m_data_sent : P_Const.EMPTY_BYTE_ARRAY, status, m_results, totalTime
+		);
+
+		getServer().invokeBroadcastListener(e, m_listener);
+	}
+
+	private OutgoingListener.Status getCancelStatusType()
+	{
+		if( getManager().isAny(BleManagerState.TURNING_OFF, BleManagerState.OFF) )
+		{
+			return OutgoingListener.Status.CANCELLED_FROM_BLE_TURNING_OFF;
+		}
+		else
+		{
+			return OutgoingListener.Status.CANCELLED_FROM_DISCONNECT;
+		}
+	}
+
+	public PE_TaskPriority getPriority()
+	{
+		return PE_TaskPriority.FOR_NORMAL_READS_WRITES;
+	}
+
+	@Override public void onStateChange( PA_Task task, PE_TaskState state )
+	{
+		if( state == PE_TaskState.SOFTLY_CANCELLED )
+		{
+			invokeCallback(getCancelStatusType());
+		}
+		else if( state == PE_TaskState.TIMED_OUT )
+		{
+			invokeCallback(OutgoingListener.Status.TIMED_OUT);
+		}
+	}
+}
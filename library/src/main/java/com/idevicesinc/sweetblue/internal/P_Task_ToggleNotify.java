@@ -168,10 +168,20 @@ final class P_Task_ToggleNotify extends PA_Task_ReadOrWrite implements PA_Task.I
             getDevice().getPollManager().onNotifyStateChange(getServiceUuid(), getCharUuid(), P_PollManager.E_NotifyState__NOT_ENABLED);
         }
 
+        armSuccessor(m_writeValue);
+
         super.succeed();
 
         final NotificationListener.NotificationEvent nEvent = newNotifyEvent(NotificationListener.Status.SUCCESS, BleStatuses.GATT_SUCCESS, m_bleOp);
         getDevice().invokeNotificationCallback(getNotifyListener(), nEvent);
+
+        // A successful toggle normally only goes out as a notification event, but a sequence of operations needs to hear about it
+        // to know it's done
+        final ReadWriteListener listener = m_bleOp.getReadWriteListener();
+        if (listener instanceof I_SuccessorArmer)
+        {
+            getDevice().invokeReadWriteCallback(listener, newReadWriteEvent(Status.SUCCESS, BleStatuses.GATT_SUCCESS, Target.DESCRIPTOR, m_bleOp));
+        }
     }
 
     private NotificationListener getNotifyListener()
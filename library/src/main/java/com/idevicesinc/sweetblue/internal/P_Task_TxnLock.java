@@ -17,6 +17,9 @@
 
 package com.idevicesinc.sweetblue.internal;
 
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
 import com.idevicesinc.sweetblue.BleTask;
 import com.idevicesinc.sweetblue.utils.Interval;
 
@@ -24,6 +27,10 @@ import com.idevicesinc.sweetblue.utils.Interval;
 final class P_Task_TxnLock extends PA_Task_RequiresBleOn
 {
 	private final IBleTransaction m_txn;
+
+	//--- Ops for this transaction that went into the queue while the lock was held, in the order they were added. They stay in
+	//--- the main queue too, this is just so P_TaskManager can find the next one without walking the whole queue.
+	private final ArrayDeque<PA_Task_Transactionable> m_ops = new ArrayDeque<>();
 	
 	public P_Task_TxnLock(IBleDevice device, IBleTransaction txn)
 	{
@@ -42,6 +49,62 @@ final class P_Task_TxnLock extends PA_Task_RequiresBleOn
 		return m_txn;
 	}
 	
+	void addOp(PA_Task_Transactionable op)
+	{
+		m_ops.addLast(op);
+	}
+
+	/**
+	 * Returns and removes the first op that's still waiting in the queue and ready to arm. Ops that have already run,
+	 * or were cleared out of the queue, get dropped along the way.
+	 */
+	PA_Task_Transactionable pollNextOp()
+	{
+		final Iterator<PA_Task_Transactionable> it = m_ops.iterator();
+
+		while( it.hasNext() )
+		{
+			final PA_Task_Transactionable op = it.next();
+
+			if( op.getState() != PE_TaskState.QUEUED )
+			{
+				it.remove();
+			}
+			else if( op.isArmable() )
+			{
+				it.remove();
+
+				return op;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Puts an op taken with {@link #pollNextOp()} back at the front, for when it can't run just yet.
+	 */
+	void putBackOp(PA_Task_Transactionable op)
+	{
+		m_ops.addFirst(op);
+	}
+
+	@Override void setEndingState(PE_TaskState endingState)
+	{
+		super.setEndingState(endingState);
+
+		//--- An interrupted lock goes right back into the queue, so it's only really done for any other ending state
+		if( getState() != PE_TaskState.INTERRUPTED && getState().isEndingState() )
+		{
+			m_ops.clear();
+
+			if( getQueue() != null )
+			{
+				getQueue().onTxnLockEnded(this);
+			}
+		}
+	}
+	
 	@Override public void execute()
 	{
 		//--- DRK > Nothing to do here...basically just spins infinitely until read/write comes in or txn ends.
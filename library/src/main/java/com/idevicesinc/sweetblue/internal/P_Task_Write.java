@@ -31,6 +31,8 @@ import com.idevicesinc.sweetblue.ReadWriteListener.Status;
 import com.idevicesinc.sweetblue.ReadWriteListener.Target;
 import com.idevicesinc.sweetblue.ReadWriteListener.Type;
 import com.idevicesinc.sweetblue.internal.android.P_GattHolder;
+import com.idevicesinc.sweetblue.utils.FutureData;
+import com.idevicesinc.sweetblue.utils.PayloadWriter;
 import com.idevicesinc.sweetblue.utils.Utils;
 import com.idevicesinc.sweetblue.UhOhListener.UhOh;
 
@@ -49,7 +51,10 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 	{
 		final BleCharacteristic char_native = getDevice().getNativeBleCharacteristic(bleOp.getServiceUuid(), bleOp.getCharacteristicUuid());
 		final Type type = P_DeviceServiceManager.modifyResultType(char_native, Type.WRITE);
-		final BleWrite write = new BleWrite(bleOp.getServiceUuid(), bleOp.getCharacteristicUuid()).setDescriptorFilter(bleOp.getDescriptorFilter()).setBytes(bleOp.getData().getData());
+		final FutureData data = bleOp.getData();
+		// Pooled payload buffers get reused once this task is done, so the event needs its own copy
+		final byte[] bytes = data instanceof PayloadWriter ? ((PayloadWriter) data).toByteArray() : data.getData();
+		final BleWrite write = new BleWrite(bleOp.getServiceUuid(), bleOp.getCharacteristicUuid()).setDescriptorFilter(bleOp.getDescriptorFilter()).setBytes(bytes);
 
 		return P_Bridge_User.newReadWriteEvent(getDevice().getBleDevice(), write, type, target, status, gattStatus, getTotalTime(), getTotalTimeExecuting(), /*solicited=*/true);
 	}
@@ -61,7 +66,9 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 
 	@Override protected void executeReadOrWrite()
 	{
-		if( false == write_earlyOut(m_bleOp.getData().getData()) )
+		final byte[] data = m_bleOp.getData().getData();
+
+		if( false == write_earlyOut(data) )
 		{
 			final BleCharacteristic char_native = getFilteredCharacteristic() != null ? getFilteredCharacteristic() : getDevice().getNativeBleCharacteristic(getServiceUuid(), getCharUuid(), m_bleOp.getDescriptorFilter());
 
@@ -77,7 +84,7 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 				// Set the write type now, if it is not null
 				P_Bridge_User.setCharWriteType(char_native, get().getWriteType());
 
-				if( false == getDevice().nativeManager().setCharValue(char_native, m_bleOp.getData().getData()) )
+				if( false == getDevice().nativeManager().setCharValue(char_native, data) )
 				{
 					fail(Status.FAILED_TO_SET_VALUE_ON_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, getDefaultTarget(), getCharUuid(), ReadWriteEvent.NON_APPLICABLE_UUID);
 				}
@@ -130,6 +137,14 @@ final class P_Task_Write extends PA_Task_ReadOrWrite
 		{
 			getDevice().invokeReadWriteCallback(m_bleOp.getReadWriteListener(), newReadWriteEvent(getCancelType(), BleStatuses.GATT_STATUS_NOT_APPLICABLE, getDefaultTarget(), m_bleOp));
 		}
+
+		if( state.isEndingState() && m_bleOp.getData() instanceof PayloadWriter )
+		{
+			// The result event is built after the state change when succeeding or failing, so hand the buffer back to the pool on
+			// the next pass of the update thread, rather than right now.
+			final PayloadWriter writer = (PayloadWriter) m_bleOp.getData();
+			getManager().getPostManager().postToUpdateThread(writer::recycle);
+		}
 	}
 	
 	@Override protected BleTask getTaskType()
@@ -70,8 +70,9 @@ final class P_Task_WriteDescriptor extends PA_Task_ReadOrWrite
 
 	@Override protected void executeReadOrWrite()
 	{
+		final byte[] data = getData();
 
-		if( false == write_earlyOut(getData()) )
+		if( false == write_earlyOut(data) )
 		{
 			final BleDescriptor desc_native = getDevice().getNativeBleDescriptor(getServiceUuid(), getCharUuid(), getDescUuid());
 
@@ -86,7 +87,7 @@ final class P_Task_WriteDescriptor extends PA_Task_ReadOrWrite
 				if (!m_bleOp.isCharUuidValid())
 					m_bleOp.setCharacteristicUUID(desc_native.getCharacteristic().getUuid());
 
-				if( false == getDevice().nativeManager().setDescValue(desc_native, getData()) )
+				if( false == getDevice().nativeManager().setDescValue(desc_native, data) )
 				{
 					fail(Status.FAILED_TO_SET_VALUE_ON_TARGET, BleStatuses.GATT_STATUS_NOT_APPLICABLE, getDefaultTarget(), getCharUuid(), getDescUuid());
 				}
@@ -0,0 +1,354 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Records spans for the lifecycle of every {@link PA_Task}, native callbacks, callback dispatch, update loop ticks and scan
+ * ingestion into a fixed size ring buffer, and exports them as Chrome trace-event JSON (which Perfetto and chrome://tracing
+ * can both open). Recording an event is lock-free and allocation-free: each event claims a slot with a single atomic increment, and
+ * only stores references to strings which already exist (enum names, mac addresses). Once the buffer wraps, the oldest
+ * events are overwritten. When disabled, every method returns after a single field check.
+ */
+final class P_Tracer
+{
+
+    static final String CAT_TASK = "task";
+    static final String CAT_NATIVE = "native";
+    static final String CAT_CALLBACK = "callback";
+    static final String CAT_UPDATE = "update";
+    static final String CAT_SCAN = "scan";
+
+    private static final String MANAGER_TRACK = "BleManager";
+
+    private static final int PHASE_COMPLETE = 0;
+    private static final int PHASE_ASYNC = 1;
+    private static final int PHASE_INSTANT = 2;
+
+    private static final int START = 0;
+    private static final int DURATION = 1;
+    private static final int THREAD = 2;
+    private static final int ID = 3;
+    private static final int PHASE = 4;
+    private static final int LONG_COUNT = 5;
+
+    private static final int CATEGORY = 0;
+    private static final int NAME = 1;
+    private static final int STATE = 2;
+    private static final int TRACK = 3;
+    private static final int PRIORITY = 4;
+    private static final int STRING_COUNT = 5;
+
+
+    private final int m_capacity;
+    private final int m_mask;
+    private final AtomicLong m_cursor = new AtomicLong();
+    // Holds index + 1 once a slot has been fully written, and 0 while it's being written.
+    private final AtomicLongArray m_sequences;
+    private final AtomicLongArray m_longs;
+    private final AtomicReferenceArray<String> m_strings;
+    private final long m_originNanos;
+
+
+    /**
+     * Pass a capacity of <code>0</code> to get a tracer which is disabled, and has no buffer.
+     */
+    P_Tracer(int capacity)
+    {
+        m_capacity = capacity > 0 ? roundUpToPowerOfTwo(capacity) : 0;
+        m_mask = m_capacity - 1;
+        m_sequences = new AtomicLongArray(m_capacity);
+        m_longs = new AtomicLongArray(m_capacity * LONG_COUNT);
+        m_strings = new AtomicReferenceArray<>(m_capacity * STRING_COUNT);
+        m_originNanos = System.nanoTime();
+    }
+
+    final boolean isEnabled()
+    {
+        return m_capacity > 0;
+    }
+
+    final int getCapacity()
+    {
+        return m_capacity;
+    }
+
+    /**
+     * Returns {@link System#nanoTime()} if enabled, otherwise <code>0</code>. Pass the result as the start time of a span.
+     */
+    final long now()
+    {
+        return m_capacity > 0 ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a span from the given start time until now, on the thread that calls this. Spans recorded this way on the same
+     * thread have to nest properly, so only use this for things that run start to finish on one thread.
+     */
+    final void complete(String category, String name, String track, long startNanos)
+    {
+        if (m_capacity == 0 || startNanos == 0L)
+            return;
+
+        record(PHASE_COMPLETE, category, name, null, track, null, 0L, startNanos, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a span from the given start time to the given end time, which may overlap other spans on the same track (for
+     * instance, several tasks waiting in the queue at once). Spans with the same id are shown on the same row.
+     */
+    final void async(String category, String name, String state, String track, String priority, long id, long startNanos, long endNanos)
+    {
+        if (m_capacity == 0 || startNanos == 0L)
+            return;
+
+        record(PHASE_ASYNC, category, name, state, track, priority, id, startNanos, endNanos - startNanos);
+    }
+
+    final void instant(String category, String name, String state, String track, String priority)
+    {
+        if (m_capacity == 0)
+            return;
+
+        record(PHASE_INSTANT, category, name, state, track, priority, 0L, System.nanoTime(), 0L);
+    }
+
+    /**
+     * Wraps the given callback so that the time it waits to run, and the time it takes to run are recorded on the track
+     * for the given lane key (a device's mac address, or anything else for the manager's track). Returns the callback as-is when
+     * disabled.
+     */
+    final Runnable wrapCallback(final Object laneKey, final Runnable callback)
+    {
+        if (m_capacity == 0)
+            return callback;
+
+        final String track = laneKey instanceof String ? (String) laneKey : null;
+        final long id = System.identityHashCode(callback);
+        final long posted = System.nanoTime();
+        return () ->
+        {
+            final long start = System.nanoTime();
+            async(CAT_CALLBACK, "callback", "WAITING", track, null, id, posted, start);
+            callback.run();
+            async(CAT_CALLBACK, "callback", "RUNNING", track, null, id, start, System.nanoTime());
+        };
+    }
+
+    private void record(int phase, String category, String name, String state, String track, String priority, long id, long start, long duration)
+    {
+        final long index = m_cursor.getAndIncrement();
+        final int slot = (int) index & m_mask;
+        final int l = slot * LONG_COUNT;
+        final int s = slot * STRING_COUNT;
+
+        m_sequences.set(slot, 0L);
+
+        m_longs.set(l + START, start);
+        m_longs.set(l + DURATION, duration);
+        m_longs.set(l + THREAD, Thread.currentThread().getId());
+        m_longs.set(l + ID, id);
+        m_longs.set(l + PHASE, phase);
+
+        m_strings.set(s + CATEGORY, category);
+        m_strings.set(s + NAME, name);
+        m_strings.set(s + STATE, state);
+        m_strings.set(s + TRACK, track);
+        m_strings.set(s + PRIORITY, priority);
+
+        m_sequences.set(slot, index + 1);
+    }
+
+    final void clear()
+    {
+        for (int i = 0; i < m_capacity; i++)
+        {
+            m_sequences.set(i, 0L);
+        }
+    }
+
+    /**
+     * Returns every event still in the buffer, oldest first, as Chrome trace-event JSON. Each device gets its own process,
+     * named with its mac address, and everything else goes under a process named {@link #MANAGER_TRACK}. Events which are
+     * being overwritten while this runs are skipped.
+     */
+    final String toChromeTraceJson()
+    {
+        final StringBuilder b = new StringBuilder(128 + m_capacity * 160);
+        final HashMap<String, Integer> pids = new HashMap<>();
+        pids.put(MANAGER_TRACK, 1);
+
+        b.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        appendProcessName(b, 1, MANAGER_TRACK);
+
+        final long end = m_cursor.get();
+        final long begin = Math.max(0L, end - m_capacity);
+
+        for (long index = begin; index < end; index++)
+        {
+            final int slot = (int) index & m_mask;
+            final int l = slot * LONG_COUNT;
+            final int s = slot * STRING_COUNT;
+
+            if (m_sequences.get(slot) != index + 1)
+                continue;
+
+            final long start = m_longs.get(l + START);
+            final long duration = m_longs.get(l + DURATION);
+            final long thread = m_longs.get(l + THREAD);
+            final long id = m_longs.get(l + ID);
+            final int phase = (int) m_longs.get(l + PHASE);
+            final String category = m_strings.get(s + CATEGORY);
+            final String name = m_strings.get(s + NAME);
+            final String state = m_strings.get(s + STATE);
+            final String track = m_strings.get(s + TRACK);
+            final String priority = m_strings.get(s + PRIORITY);
+
+            // The slot was claimed by a newer event while we were reading it
+            if (m_sequences.get(slot) != index + 1)
+                continue;
+
+            final String trackName = track != null ? track : MANAGER_TRACK;
+            Integer pid = pids.get(trackName);
+            if (pid == null)
+            {
+                pid = pids.size() + 1;
+                pids.put(trackName, pid);
+                appendProcessName(b, pid, trackName);
+            }
+
+            final String fullName = state != null ? name + " " + state : name;
+
+            switch (phase)
+            {
+                case PHASE_COMPLETE:
+                    appendEvent(b, "X", category, fullName, pid, thread, start);
+                    b.append(",\"dur\":");
+                    appendMicros(b, duration);
+                    appendArgs(b, track, state, priority);
+                    break;
+                case PHASE_ASYNC:
+                    appendEvent(b, "b", category, fullName, pid, thread, start);
+                    b.append(",\"id\":").append(id);
+                    appendArgs(b, track, state, priority);
+                    appendEvent(b, "e", category, fullName, pid, thread, start + duration);
+                    b.append(",\"id\":").append(id).append('}');
+                    break;
+                case PHASE_INSTANT:
+                    appendEvent(b, "i", category, fullName, pid, thread, start);
+                    b.append(",\"s\":\"t\"");
+                    appendArgs(b, track, state, priority);
+                    break;
+            }
+        }
+
+        b.append("]}");
+        return b.toString();
+    }
+
+    private void appendProcessName(StringBuilder b, int pid, String name)
+    {
+        if (pid > 1)
+            b.append(',');
+
+        b.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":").append(pid).append(",\"tid\":0,\"args\":{\"name\":");
+        appendString(b, name);
+        b.append("}}");
+    }
+
+    private void appendEvent(StringBuilder b, String ph, String category, String name, int pid, long thread, long nanos)
+    {
+        b.append(",{\"ph\":\"").append(ph).append("\",\"cat\":");
+        appendString(b, category);
+        b.append(",\"name\":");
+        appendString(b, name);
+        b.append(",\"pid\":").append(pid).append(",\"tid\":").append(thread).append(",\"ts\":");
+        appendMicros(b, nanos - m_originNanos);
+    }
+
+    private static void appendArgs(StringBuilder b, String track, String state, String priority)
+    {
+        b.append(",\"args\":{");
+        boolean first = true;
+        if (track != null)
+        {
+            b.append("\"mac\":");
+            appendString(b, track);
+            first = false;
+        }
+        if (state != null)
+        {
+            b.append(first ? "" : ",").append("\"state\":");
+            appendString(b, state);
+            first = false;
+        }
+        if (priority != null)
+        {
+            b.append(first ? "" : ",").append("\"priority\":");
+            appendString(b, priority);
+        }
+        b.append("}}");
+    }
+
+    // Chrome traces are in microseconds, so print nanos with 3 decimal places, without going through a double
+    private static void appendMicros(StringBuilder b, long nanos)
+    {
+        if (nanos < 0L)
+        {
+            b.append('-');
+            nanos = -nanos;
+        }
+        final long fraction = nanos % 1000L;
+        b.append(nanos / 1000L).append('.');
+        if (fraction < 100L)
+            b.append('0');
+        if (fraction < 10L)
+            b.append('0');
+        b.append(fraction);
+    }
+
+    private static void appendString(StringBuilder b, String value)
+    {
+        b.append('"');
+        if (value != null)
+        {
+            for (int i = 0; i < value.length(); i++)
+            {
+                final char c = value.charAt(i);
+                if (c == '"' || c == '\\')
+                    b.append('\\').append(c);
+                else if (c < 0x20)
+                    b.append(' ');
+                else
+                    b.append(c);
+            }
+        }
+        b.append('"');
+    }
+
+    private static int roundUpToPowerOfTwo(int value)
+    {
+        final int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
@@ -182,6 +182,12 @@ final class P_TransactionManager
     {
         clearQueueLock();
 
+        // Let any OTA campaign know, before the early outs below for devices which are no longer connected
+        if (txn == m_otaTxn)
+        {
+            m_device.getIManager().onOtaTransactionEnded(m_device, txn, reason);
+        }
+
         m_current = null;
 
         if (!m_device.is_internal(BleDeviceState.BLE_CONNECTED))
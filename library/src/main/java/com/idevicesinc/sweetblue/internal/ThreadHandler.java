@@ -19,6 +19,7 @@ package com.idevicesinc.sweetblue.internal;
 
 
 import com.idevicesinc.sweetblue.annotations.Advanced;
+import com.idevicesinc.sweetblue.utils.Clock;
 import java.util.Iterator;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,6 +38,8 @@ public class ThreadHandler implements P_SweetHandler
     private final LinkedBlockingQueue<SweetRunnable> m_runnables;
     private /*final-ish*/ Thread m_thread = null;
     protected final AtomicBoolean m_running;
+    private volatile Clock m_clock = Clock.SYSTEM;
+    private volatile boolean m_processing = false;
 
 
     /**
@@ -60,6 +63,46 @@ public class ThreadHandler implements P_SweetHandler
         m_thread = thread;
     }
 
+    /**
+     * Sets the {@link Clock} used to decide when delayed runnables are ready. Called by the manager with
+     * {@link com.idevicesinc.sweetblue.BleManagerConfig#clock}.
+     */
+    void setClock(Clock clock)
+    {
+        m_clock = clock != null ? clock : Clock.SYSTEM;
+    }
+
+    /**
+     * Blocks the calling thread until every runnable which is ready at the clock's current time has run, including any they post
+     * which are ready as well. This is meant for tests driving a {@link com.idevicesinc.sweetblue.utils.ManualClock}, to know when
+     * the effects of advancing the clock have settled. Returns <code>false</code> if this didn't happen within the given amount of
+     * real time, or if called from this handler's own thread.
+     */
+    boolean awaitIdle(long timeoutMs)
+    {
+        if (Thread.currentThread() == m_thread)
+            return false;
+
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        while (m_running.get())
+        {
+            if (isIdle())
+                return true;
+
+            if (System.currentTimeMillis() > deadline)
+                return false;
+
+            try
+            {
+                Thread.sleep(1);
+            } catch (InterruptedException e)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
 
     /**
@@ -82,7 +125,7 @@ public class ThreadHandler implements P_SweetHandler
     @Override
     public final void post(Runnable action)
     {
-        m_runnables.add(new SweetRunnable(action, System.currentTimeMillis()));
+        m_runnables.add(new SweetRunnable(action, m_clock.currentTimeMillis()));
     }
 
     /**
@@ -103,7 +146,7 @@ public class ThreadHandler implements P_SweetHandler
     @Override
     public void postDelayed(Runnable action, long delay, Object tag)
     {
-        m_runnables.add(new SweetRunnable(action, System.currentTimeMillis(), delay, tag));
+        m_runnables.add(new SweetRunnable(action, m_clock.currentTimeMillis(), delay, tag));
     }
 
     /**
@@ -204,13 +247,28 @@ public class ThreadHandler implements P_SweetHandler
         {
             if (m_canceled || m_delay == null)
                 return true;
-            return (curTime - m_postedTime) > m_delay;
+            return (curTime - m_postedTime) >= m_delay;
         }
+    }
 
-        public final boolean ready()
+    /**
+     * Returns <code>true</code> if nothing is running, and nothing is ready to run at the clock's current time.
+     */
+    boolean isIdle()
+    {
+        // Check the flag first, so a pass that starts in between still has its runnable in the queue
+        return !m_processing && !hasReadyRunnables();
+    }
+
+    private boolean hasReadyRunnables()
+    {
+        final long now = m_clock.currentTimeMillis();
+        for (SweetRunnable run : m_runnables)
         {
-            return ready(System.currentTimeMillis());
+            if (run.ready(now))
+                return true;
         }
+        return false;
     }
 
     private void processRunnables()
@@ -219,24 +277,33 @@ public class ThreadHandler implements P_SweetHandler
         {
             if (m_thread.isInterrupted())
                 return;
-            final Iterator<SweetRunnable> it = m_runnables.iterator();
-            while (it.hasNext())
+            m_processing = true;
+            try
             {
-                if (!m_running.get())
-                    break;
-
-                if (m_thread.isInterrupted())
-                    return;
-
-                SweetRunnable run = it.next();
-
-                // Skip any tasks that aren't ready
-                if (!run.ready())
-                    continue;
-
-                // Run the task then remove it.  If the task was already canceled, it will not perform it's run operation
-                run.run();
-                it.remove();
+                final long now = m_clock.currentTimeMillis();
+                final Iterator<SweetRunnable> it = m_runnables.iterator();
+                while (it.hasNext())
+                {
+                    if (!m_running.get())
+                        break;
+
+                    if (m_thread.isInterrupted())
+                        return;
+
+                    SweetRunnable run = it.next();
+
+                    // Skip any tasks that aren't ready
+                    if (!run.ready(now))
+                        continue;
+
+                    // Run the task then remove it.  If the task was already canceled, it will not perform it's run operation
+                    run.run();
+                    it.remove();
+                }
+            }
+            finally
+            {
+                m_processing = false;
             }
         }
     }
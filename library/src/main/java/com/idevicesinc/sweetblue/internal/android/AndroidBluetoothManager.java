@@ -337,13 +337,13 @@ public final class AndroidBluetoothManager implements IBluetoothManager
     @Override
     public final void startLScan(int scanMode, Interval delay, L_Util.ScanCallback callback)
     {
-        L_Util.startNativeScan(m_adaptor, scanMode, delay, m_bleManager.getConfigClone().defaultNativeScanFilterList, callback);
+        L_Util.startNativeScan(m_adaptor, scanMode, delay, m_bleManager.getNativeScanFilterList(), callback);
     }
 
     @Override
     public final void startMScan(int scanMode, int matchMode, int matchNum, Interval delay, L_Util.ScanCallback callback)
     {
-        M_Util.startNativeScan(m_adaptor, scanMode, matchMode, matchNum, delay, m_bleManager.getConfigClone().defaultNativeScanFilterList, callback);
+        M_Util.startNativeScan(m_adaptor, scanMode, matchMode, matchNum, delay, m_bleManager.getNativeScanFilterList(), callback);
     }
 
     @SuppressLint("MissingPermission")
@@ -359,7 +359,7 @@ public final class AndroidBluetoothManager implements IBluetoothManager
     @Override
     public boolean startPendingIntentScan(int scanMode, int matchMode, int matchNum, Interval delay, PendingIntent pendingIntent)
     {
-        return O_Util.startScan(m_adaptor, scanMode, matchMode, matchNum, delay, m_bleManager.getConfigClone().defaultNativeScanFilterList, pendingIntent);
+        return O_Util.startScan(m_adaptor, scanMode, matchMode, matchNum, delay, m_bleManager.getNativeScanFilterList(), pendingIntent);
     }
 
     @SuppressLint("MissingPermission")
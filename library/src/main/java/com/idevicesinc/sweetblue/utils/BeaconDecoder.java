@@ -0,0 +1,185 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+
+
+/**
+ * Decodes one beacon format straight out of a raw scan record, without copying out the AD structure or building intermediate
+ * objects. Register implementations with a {@link BeaconDecoderRegistry}, keyed by either manufacturer id or service data uuid.
+ * <br><br>
+ * Implementations should fill in and return a holder they own (see {@link BeaconFrame}) so that decoding doesn't allocate.
+ * Decoders are not expected to be thread-safe.
+ */
+public interface BeaconDecoder
+{
+
+    /**
+     * Decodes the data at <code>offset</code> in <code>scanRecord</code>. For manufacturer data, <code>offset</code> points just past the
+     * two byte company id. For service data, it points just past the service uuid. <code>length</code> is the number of bytes left in the
+     * AD structure from there.
+     *
+     * @return the decoded frame, or <code>null</code> if the data isn't a format this decoder understands.
+     */
+    @Nullable(Nullable.Prevalence.NORMAL)
+    BeaconFrame decode(byte[] scanRecord, int offset, int length);
+
+
+    /**
+     * Decodes Apple iBeacons, which are sent as manufacturer data under {@link BeaconDecoderRegistry#APPLE_MANUFACTURER_ID}.
+     */
+    class IBeaconDecoder implements BeaconDecoder
+    {
+        private static final int TYPE = 0x02;
+        private static final int DATA_LENGTH = 0x15;
+
+        private final BeaconFrame.IBeacon m_frame = new BeaconFrame.IBeacon();
+
+        @Override public BeaconFrame.IBeacon decode(final byte[] scanRecord, final int offset, final int length)
+        {
+            if (length < 2 + DATA_LENGTH)
+                return null;
+
+            if ((scanRecord[offset] & 0xFF) != TYPE || (scanRecord[offset + 1] & 0xFF) != DATA_LENGTH)
+                return null;
+
+            final int i = offset + 2;
+            m_frame.set(
+                    BeaconFrame.readLongBE(scanRecord, i),
+                    BeaconFrame.readLongBE(scanRecord, i + 8),
+                    BeaconFrame.readUShortBE(scanRecord, i + 16),
+                    BeaconFrame.readUShortBE(scanRecord, i + 18),
+                    scanRecord[i + 20]
+            );
+            return m_frame;
+        }
+    }
+
+    /**
+     * Decodes AltBeacons. The format can be sent under any manufacturer id, so register this with
+     * {@link BeaconDecoderRegistry#ANY_MANUFACTURER}.
+     */
+    class AltBeaconDecoder implements BeaconDecoder
+    {
+        private static final int BEACON_CODE_0 = 0xBE;
+        private static final int BEACON_CODE_1 = 0xAC;
+        private static final int DATA_LENGTH = 2 + BeaconFrame.AltBeacon.BEACON_ID_LENGTH + 2;
+
+        private final BeaconFrame.AltBeacon m_frame = new BeaconFrame.AltBeacon();
+
+        @Override public BeaconFrame.AltBeacon decode(final byte[] scanRecord, final int offset, final int length)
+        {
+            if (length < DATA_LENGTH)
+                return null;
+
+            if ((scanRecord[offset] & 0xFF) != BEACON_CODE_0 || (scanRecord[offset + 1] & 0xFF) != BEACON_CODE_1)
+                return null;
+
+            // The company id sits just before the offset we're given, little endian
+            final int manufacturerId = (scanRecord[offset - 2] & 0xFF) | ((scanRecord[offset - 1] & 0xFF) << 8);
+            final int idOffset = offset + 2;
+            m_frame.set(
+                    manufacturerId,
+                    scanRecord,
+                    idOffset,
+                    scanRecord[idOffset + BeaconFrame.AltBeacon.BEACON_ID_LENGTH],
+                    scanRecord[idOffset + BeaconFrame.AltBeacon.BEACON_ID_LENGTH + 1] & 0xFF
+            );
+            return m_frame;
+        }
+    }
+
+    /**
+     * Decodes Eddystone UID, URL, TLM, and EID frames, which are sent as service data under {@link BeaconDecoderRegistry#EDDYSTONE_SERVICE_UUID}.
+     * Each frame type has its own holder, so a UID frame doesn't clobber the last TLM frame you saw.
+     */
+    class EddystoneDecoder implements BeaconDecoder
+    {
+        public static final int FRAME_UID = 0x00;
+        public static final int FRAME_URL = 0x10;
+        public static final int FRAME_TLM = 0x20;
+        public static final int FRAME_EID = 0x30;
+
+        private static final int UID_LENGTH = 2 + BeaconFrame.EddystoneUid.NAMESPACE_LENGTH + BeaconFrame.EddystoneUid.INSTANCE_LENGTH;
+        private static final int URL_MIN_LENGTH = 3;
+        private static final int TLM_LENGTH = 14;
+        private static final int EID_LENGTH = 2 + BeaconFrame.EddystoneEid.EID_LENGTH;
+
+        private final BeaconFrame.EddystoneUid m_uid = new BeaconFrame.EddystoneUid();
+        private final BeaconFrame.EddystoneUrl m_url = new BeaconFrame.EddystoneUrl();
+        private final BeaconFrame.EddystoneTlm m_tlm = new BeaconFrame.EddystoneTlm();
+        private final BeaconFrame.EddystoneEid m_eid = new BeaconFrame.EddystoneEid();
+
+        @Override public BeaconFrame decode(final byte[] scanRecord, final int offset, final int length)
+        {
+            if (length < 1)
+                return null;
+
+            switch (scanRecord[offset] & 0xFF)
+            {
+                case FRAME_UID:
+                    if (length < UID_LENGTH)
+                        return null;
+
+                    m_uid.set(scanRecord[offset + 1], scanRecord, offset + 2);
+                    return m_uid;
+
+                case FRAME_URL:
+                    if (length < URL_MIN_LENGTH)
+                        return null;
+
+                    m_url.set(scanRecord[offset + 1], scanRecord[offset + 2] & 0xFF, scanRecord, offset + 3, length - URL_MIN_LENGTH);
+                    return m_url;
+
+                case FRAME_TLM:
+                    if (length < 2)
+                        return null;
+
+                    final int version = scanRecord[offset + 1] & 0xFF;
+                    if (version == BeaconFrame.EddystoneTlm.VERSION_ENCRYPTED)
+                    {
+                        m_tlm.set(version, 0, 0x8000, 0, 0);
+                        return m_tlm;
+                    }
+
+                    if (length < TLM_LENGTH)
+                        return null;
+
+                    m_tlm.set(
+                            version,
+                            BeaconFrame.readUShortBE(scanRecord, offset + 2),
+                            BeaconFrame.readUShortBE(scanRecord, offset + 4),
+                            BeaconFrame.readUIntBE(scanRecord, offset + 6),
+                            BeaconFrame.readUIntBE(scanRecord, offset + 10)
+                    );
+                    return m_tlm;
+
+                case FRAME_EID:
+                    if (length < EID_LENGTH)
+                        return null;
+
+                    m_eid.set(scanRecord[offset + 1], scanRecord, offset + 2);
+                    return m_eid;
+
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import java.util.Arrays;
+import java.util.UUID;
+
+
+/**
+ * Maps manufacturer ids and service data uuids to {@link BeaconDecoder}s, and runs them directly against raw scan records. Decoding walks
+ * the record's AD structures once and doesn't allocate, so it's cheap enough to call from a {@link com.idevicesinc.sweetblue.ScanFilter}
+ * for every advertisement. See {@link com.idevicesinc.sweetblue.ScanFilter.ScanEvent#decodeBeacon(BeaconDecoderRegistry)} and
+ * {@link com.idevicesinc.sweetblue.DiscoveryListener.DiscoveryEvent#decodeBeacon(BeaconDecoderRegistry)}.
+ * <br><br>
+ * Like the decoders it holds, this class is not thread-safe. Register everything up front, and use one registry per thread if you need
+ * to decode from more than one.
+ */
+public final class BeaconDecoderRegistry
+{
+
+    /**
+     * Pass to {@link #addManufacturerDecoder(int, BeaconDecoder)} to run a decoder against manufacturer data from any company. Decoders
+     * registered for a specific id are tried first.
+     */
+    public static final int ANY_MANUFACTURER = -1;
+
+    /**
+     * The company id iBeacons are advertised under.
+     */
+    public static final int APPLE_MANUFACTURER_ID = 0x004C;
+
+    /**
+     * The service uuid Eddystone frames are advertised under.
+     */
+    public static final UUID EDDYSTONE_SERVICE_UUID = Uuids.fromShort(0xFEAA);
+
+    private static final int DATA_TYPE_MANUFACTURER_SPECIFIC_DATA = 0xFF;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] m_manufacturerIds = new int[INITIAL_CAPACITY];
+    private BeaconDecoder[] m_manufacturerDecoders = new BeaconDecoder[INITIAL_CAPACITY];
+    private int m_manufacturerCount = 0;
+
+    private UUID[] m_serviceUuids = new UUID[INITIAL_CAPACITY];
+    private BeaconDecoder[] m_serviceDecoders = new BeaconDecoder[INITIAL_CAPACITY];
+    private int m_serviceCount = 0;
+
+
+    /**
+     * Returns a new registry with the built-in iBeacon, AltBeacon, and Eddystone decoders registered.
+     */
+    public static BeaconDecoderRegistry newDefault()
+    {
+        final BeaconDecoderRegistry registry = new BeaconDecoderRegistry();
+        registry.addManufacturerDecoder(APPLE_MANUFACTURER_ID, new BeaconDecoder.IBeaconDecoder());
+        registry.addManufacturerDecoder(ANY_MANUFACTURER, new BeaconDecoder.AltBeaconDecoder());
+        registry.addServiceDataDecoder(EDDYSTONE_SERVICE_UUID, new BeaconDecoder.EddystoneDecoder());
+        return registry;
+    }
+
+    /**
+     * Creates an empty registry.
+     */
+    public BeaconDecoderRegistry()
+    {
+    }
+
+
+    /**
+     * Registers a decoder for manufacturer data sent under the given company id, or {@link #ANY_MANUFACTURER}. More than one decoder may be
+     * registered for the same id, they're tried in the order they were added.
+     */
+    public final BeaconDecoderRegistry addManufacturerDecoder(final int manufacturerId, final BeaconDecoder decoder)
+    {
+        if (decoder == null)
+            throw new NullPointerException("decoder can't be null.");
+
+        if (m_manufacturerCount == m_manufacturerIds.length)
+        {
+            m_manufacturerIds = Arrays.copyOf(m_manufacturerIds, m_manufacturerCount * 2);
+            m_manufacturerDecoders = Arrays.copyOf(m_manufacturerDecoders, m_manufacturerCount * 2);
+        }
+        m_manufacturerIds[m_manufacturerCount] = manufacturerId == ANY_MANUFACTURER ? ANY_MANUFACTURER : manufacturerId & 0xFFFF;
+        m_manufacturerDecoders[m_manufacturerCount] = decoder;
+        m_manufacturerCount++;
+        return this;
+    }
+
+    /**
+     * Registers a decoder for service data sent under the given service uuid. 16 and 32 bit uuids should be passed expanded against the
+     * standard base uuid, eg with {@link Uuids#fromShort(int)}.
+     */
+    public final BeaconDecoderRegistry addServiceDataDecoder(final UUID serviceUuid, final BeaconDecoder decoder)
+    {
+        if (serviceUuid == null || decoder == null)
+            throw new NullPointerException("serviceUuid and decoder can't be null.");
+
+        if (m_serviceCount == m_serviceUuids.length)
+        {
+            m_serviceUuids = Arrays.copyOf(m_serviceUuids, m_serviceCount * 2);
+            m_serviceDecoders = Arrays.copyOf(m_serviceDecoders, m_serviceCount * 2);
+        }
+        m_serviceUuids[m_serviceCount] = serviceUuid;
+        m_serviceDecoders[m_serviceCount] = decoder;
+        m_serviceCount++;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if no decoders have been registered.
+     */
+    public final boolean isEmpty()
+    {
+        return m_manufacturerCount == 0 && m_serviceCount == 0;
+    }
+
+    /**
+     * Decodes the first beacon frame any registered decoder recognizes in the given raw scan record, or returns <code>null</code>.
+     * The returned frame is owned by its decoder and will be overwritten by the next call, see {@link BeaconFrame}.
+     */
+    @Nullable(Nullable.Prevalence.NORMAL)
+    public final BeaconFrame decode(final byte[] scanRecord)
+    {
+        if (scanRecord == null || isEmpty())
+            return null;
+
+        int currentPos = 0;
+        while (currentPos + 2 < scanRecord.length)
+        {
+            final int length = scanRecord[currentPos] & 0xFF;
+            if (length == 0)
+                break;
+
+            final int fieldType = scanRecord[currentPos + 1] & 0xFF;
+            final int dataLength = Utils_ScanRecord.getAdDataLength(scanRecord, currentPos);
+            final BeaconFrame frame;
+            if (fieldType == DATA_TYPE_MANUFACTURER_SPECIFIC_DATA)
+            {
+                frame = decodeManufacturerData(scanRecord, currentPos + 2, dataLength);
+            }
+            else
+            {
+                final int uuidLength = Utils_ScanRecord.getServiceDataUuidSize(fieldType);
+                frame = uuidLength != 0 ? decodeServiceData(scanRecord, currentPos + 2, dataLength, uuidLength) : null;
+            }
+
+            if (frame != null)
+                return frame;
+
+            currentPos += length + 1;
+        }
+        return null;
+    }
+
+
+    private BeaconFrame decodeManufacturerData(final byte[] scanRecord, final int offset, final int dataLength)
+    {
+        if (dataLength < 2 || m_manufacturerCount == 0)
+            return null;
+
+        final int id = ((scanRecord[offset + 1] & 0xFF) << 8) | (scanRecord[offset] & 0xFF);
+
+        // Specific ids get first crack, then the catch-all decoders
+        for (int i = 0; i < m_manufacturerCount; i++)
+        {
+            if (m_manufacturerIds[i] == id)
+            {
+                final BeaconFrame frame = m_manufacturerDecoders[i].decode(scanRecord, offset + 2, dataLength - 2);
+                if (frame != null)
+                    return frame;
+            }
+        }
+        for (int i = 0; i < m_manufacturerCount; i++)
+        {
+            if (m_manufacturerIds[i] == ANY_MANUFACTURER)
+            {
+                final BeaconFrame frame = m_manufacturerDecoders[i].decode(scanRecord, offset + 2, dataLength - 2);
+                if (frame != null)
+                    return frame;
+            }
+        }
+        return null;
+    }
+
+    private BeaconFrame decodeServiceData(final byte[] scanRecord, final int offset, final int dataLength, final int uuidLength)
+    {
+        if (dataLength < uuidLength)
+            return null;
+
+        for (int i = 0; i < m_serviceCount; i++)
+        {
+            if (Utils_ScanRecord.uuidEquals(scanRecord, offset, uuidLength, m_serviceUuids[i]))
+            {
+                final BeaconFrame frame = m_serviceDecoders[i].decode(scanRecord, offset + uuidLength, dataLength - uuidLength);
+                if (frame != null)
+                    return frame;
+            }
+        }
+        return null;
+    }
+}
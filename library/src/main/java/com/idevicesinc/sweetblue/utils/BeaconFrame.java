@@ -0,0 +1,495 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.utils;
+
+
+import java.util.UUID;
+
+
+/**
+ * Base class of the reusable holders filled in by a {@link BeaconDecoder}. A decoder owns its holders and refills the same instance for
+ * every advertisement it decodes, so read out what you need during the callback (or {@link com.idevicesinc.sweetblue.ScanFilter}) rather
+ * than keeping the frame around. Getters returning arrays return the holder's own array, for the same reason.
+ * <br><br>
+ * Built-in frames are nested in this class. Custom decoders can extend this class for their own formats.
+ */
+public abstract class BeaconFrame
+{
+
+    protected BeaconFrame()
+    {
+    }
+
+
+    /**
+     * An Apple iBeacon frame.
+     */
+    public static final class IBeacon extends BeaconFrame
+    {
+        private long m_uuidMsb;
+        private long m_uuidLsb;
+        private int m_major;
+        private int m_minor;
+        private int m_measuredPower;
+
+        IBeacon()
+        {
+        }
+
+        final void set(long uuidMsb, long uuidLsb, int major, int minor, int measuredPower)
+        {
+            m_uuidMsb = uuidMsb;
+            m_uuidLsb = uuidLsb;
+            m_major = major;
+            m_minor = minor;
+            m_measuredPower = measuredPower;
+        }
+
+        /**
+         * Returns the proximity uuid. This allocates a new {@link UUID}, use {@link #getUuidMostSignificantBits()} and
+         * {@link #getUuidLeastSignificantBits()} to compare against a known uuid without allocating.
+         */
+        public final UUID getUuid()
+        {
+            return new UUID(m_uuidMsb, m_uuidLsb);
+        }
+
+        public final long getUuidMostSignificantBits()
+        {
+            return m_uuidMsb;
+        }
+
+        public final long getUuidLeastSignificantBits()
+        {
+            return m_uuidLsb;
+        }
+
+        public final int getMajor()
+        {
+            return m_major;
+        }
+
+        public final int getMinor()
+        {
+            return m_minor;
+        }
+
+        /**
+         * Returns the calibrated RSSI at 1 meter, in dBm.
+         */
+        public final int getMeasuredPower()
+        {
+            return m_measuredPower;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "uuid", getUuid(), "major", m_major, "minor", m_minor, "measuredPower", m_measuredPower);
+        }
+    }
+
+    /**
+     * An AltBeacon frame.
+     */
+    public static final class AltBeacon extends BeaconFrame
+    {
+        public static final int BEACON_ID_LENGTH = 20;
+
+        private final byte[] m_beaconId = new byte[BEACON_ID_LENGTH];
+        private int m_manufacturerId;
+        private int m_referenceRssi;
+        private int m_reserved;
+
+        AltBeacon()
+        {
+        }
+
+        final void set(int manufacturerId, byte[] scanRecord, int idOffset, int referenceRssi, int reserved)
+        {
+            m_manufacturerId = manufacturerId;
+            System.arraycopy(scanRecord, idOffset, m_beaconId, 0, BEACON_ID_LENGTH);
+            m_referenceRssi = referenceRssi;
+            m_reserved = reserved;
+        }
+
+        /**
+         * Returns the id of the company that advertised this beacon.
+         */
+        public final int getManufacturerId()
+        {
+            return m_manufacturerId;
+        }
+
+        /**
+         * Returns the full 20 byte beacon id. This is the holder's own array, so don't modify it.
+         */
+        public final byte[] getBeaconId()
+        {
+            return m_beaconId;
+        }
+
+        /**
+         * Returns the first 16 bytes of the beacon id as a {@link UUID}, which is how most AltBeacons lay out their id. This allocates.
+         */
+        public final UUID getId1()
+        {
+            return new UUID(readLongBE(m_beaconId, 0), readLongBE(m_beaconId, 8));
+        }
+
+        /**
+         * Returns bytes 16 and 17 of the beacon id.
+         */
+        public final int getId2()
+        {
+            return ((m_beaconId[16] & 0xFF) << 8) | (m_beaconId[17] & 0xFF);
+        }
+
+        /**
+         * Returns bytes 18 and 19 of the beacon id.
+         */
+        public final int getId3()
+        {
+            return ((m_beaconId[18] & 0xFF) << 8) | (m_beaconId[19] & 0xFF);
+        }
+
+        /**
+         * Returns the calibrated RSSI at 1 meter, in dBm.
+         */
+        public final int getReferenceRssi()
+        {
+            return m_referenceRssi;
+        }
+
+        /**
+         * Returns the manufacturer reserved byte.
+         */
+        public final int getReserved()
+        {
+            return m_reserved;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "manufacturerId", m_manufacturerId, "id1", getId1(), "id2", getId2(), "id3", getId3(), "referenceRssi", m_referenceRssi);
+        }
+    }
+
+    /**
+     * An Eddystone-UID frame.
+     */
+    public static final class EddystoneUid extends BeaconFrame
+    {
+        public static final int NAMESPACE_LENGTH = 10;
+        public static final int INSTANCE_LENGTH = 6;
+
+        private final byte[] m_namespace = new byte[NAMESPACE_LENGTH];
+        private final byte[] m_instance = new byte[INSTANCE_LENGTH];
+        private int m_txPower;
+
+        EddystoneUid()
+        {
+        }
+
+        final void set(int txPower, byte[] scanRecord, int namespaceOffset)
+        {
+            m_txPower = txPower;
+            System.arraycopy(scanRecord, namespaceOffset, m_namespace, 0, NAMESPACE_LENGTH);
+            System.arraycopy(scanRecord, namespaceOffset + NAMESPACE_LENGTH, m_instance, 0, INSTANCE_LENGTH);
+        }
+
+        /**
+         * Returns the calibrated tx power at 0 meters, in dBm.
+         */
+        public final int getTxPower()
+        {
+            return m_txPower;
+        }
+
+        /**
+         * Returns the 10 byte namespace. This is the holder's own array, so don't modify it.
+         */
+        public final byte[] getNamespace()
+        {
+            return m_namespace;
+        }
+
+        /**
+         * Returns the 6 byte instance. This is the holder's own array, so don't modify it.
+         */
+        public final byte[] getInstance()
+        {
+            return m_instance;
+        }
+
+        /**
+         * Returns the instance as a number, which is handy for comparing or using as a key.
+         */
+        public final long getInstanceAsLong()
+        {
+            long value = 0;
+            for (int i = 0; i < INSTANCE_LENGTH; i++)
+            {
+                value = (value << 8) | (m_instance[i] & 0xFF);
+            }
+            return value;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "namespace", Utils_String.bytesToHexString(m_namespace), "instance", Utils_String.bytesToHexString(m_instance), "txPower", m_txPower);
+        }
+    }
+
+    /**
+     * An Eddystone-URL frame.
+     */
+    public static final class EddystoneUrl extends BeaconFrame
+    {
+        private static final String[] SCHEMES = {"http://www.", "https://www.", "http://", "https://"};
+        private static final String[] EXPANSIONS = {".com/", ".org/", ".edu/", ".net/", ".info/", ".biz/", ".gov/", ".com", ".org", ".edu", ".net", ".info", ".biz", ".gov"};
+
+        public static final int MAX_ENCODED_LENGTH = 17;
+
+        private final byte[] m_encoded = new byte[MAX_ENCODED_LENGTH];
+        private int m_encodedLength;
+        private int m_scheme;
+        private int m_txPower;
+
+        EddystoneUrl()
+        {
+        }
+
+        final void set(int txPower, int scheme, byte[] scanRecord, int encodedOffset, int encodedLength)
+        {
+            m_txPower = txPower;
+            m_scheme = scheme;
+            m_encodedLength = Math.min(encodedLength, MAX_ENCODED_LENGTH);
+            System.arraycopy(scanRecord, encodedOffset, m_encoded, 0, m_encodedLength);
+        }
+
+        /**
+         * Returns the calibrated tx power at 0 meters, in dBm.
+         */
+        public final int getTxPower()
+        {
+            return m_txPower;
+        }
+
+        /**
+         * Returns the url scheme prefix code.
+         */
+        public final int getScheme()
+        {
+            return m_scheme;
+        }
+
+        /**
+         * Returns the number of encoded url bytes after the scheme.
+         */
+        public final int getEncodedLength()
+        {
+            return m_encodedLength;
+        }
+
+        /**
+         * Returns the encoded url bytes after the scheme. Only the first {@link #getEncodedLength()} bytes are valid. This is the holder's own
+         * array, so don't modify it.
+         */
+        public final byte[] getEncoded()
+        {
+            return m_encoded;
+        }
+
+        /**
+         * Expands the encoded url into a {@link String}. This allocates, so only call it for frames you actually care about.
+         */
+        public final String getUrl()
+        {
+            final StringBuilder builder = new StringBuilder();
+            if (m_scheme >= 0 && m_scheme < SCHEMES.length)
+                builder.append(SCHEMES[m_scheme]);
+
+            for (int i = 0; i < m_encodedLength; i++)
+            {
+                final int b = m_encoded[i] & 0xFF;
+                if (b < EXPANSIONS.length)
+                    builder.append(EXPANSIONS[b]);
+                else
+                    builder.append((char) b);
+            }
+            return builder.toString();
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "url", getUrl(), "txPower", m_txPower);
+        }
+    }
+
+    /**
+     * An Eddystone-TLM (telemetry) frame.
+     */
+    public static final class EddystoneTlm extends BeaconFrame
+    {
+        public static final int VERSION_UNENCRYPTED = 0x00;
+        public static final int VERSION_ENCRYPTED = 0x01;
+
+        private int m_version;
+        private int m_batteryMillivolts;
+        private int m_temperatureRaw;
+        private long m_advertisingCount;
+        private long m_uptime;
+
+        EddystoneTlm()
+        {
+        }
+
+        final void set(int version, int batteryMillivolts, int temperatureRaw, long advertisingCount, long uptime)
+        {
+            m_version = version;
+            m_batteryMillivolts = batteryMillivolts;
+            m_temperatureRaw = temperatureRaw;
+            m_advertisingCount = advertisingCount;
+            m_uptime = uptime;
+        }
+
+        /**
+         * Returns {@link #VERSION_UNENCRYPTED} or {@link #VERSION_ENCRYPTED}. For encrypted frames, none of the other getters are filled in.
+         */
+        public final int getVersion()
+        {
+            return m_version;
+        }
+
+        public final boolean isEncrypted()
+        {
+            return m_version == VERSION_ENCRYPTED;
+        }
+
+        /**
+         * Returns the battery voltage in millivolts, or <code>0</code> if the beacon doesn't report it.
+         */
+        public final int getBatteryMillivolts()
+        {
+            return m_batteryMillivolts;
+        }
+
+        /**
+         * Returns the beacon temperature in degrees Celsius, or {@link Double#NaN} if the beacon doesn't report it.
+         */
+        public final double getTemperature()
+        {
+            // Signed 8.8 fixed point, with 0x8000 meaning not supported
+            if (m_temperatureRaw == 0x8000)
+                return Double.NaN;
+
+            return ((short) m_temperatureRaw) / 256.0;
+        }
+
+        /**
+         * Returns the number of advertisements sent since the beacon powered up or rebooted.
+         */
+        public final long getAdvertisingCount()
+        {
+            return m_advertisingCount;
+        }
+
+        /**
+         * Returns the time since the beacon powered up or rebooted.
+         */
+        public final Interval getUptime()
+        {
+            return Interval.millis(m_uptime * 100);
+        }
+
+        /**
+         * Returns the time since the beacon powered up or rebooted, in the 0.1 second units it's sent in. Unlike {@link #getUptime()}, this does not allocate.
+         */
+        public final long getUptimeDeciseconds()
+        {
+            return m_uptime;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "version", m_version, "battery", m_batteryMillivolts, "temperature", getTemperature(), "advertisingCount", m_advertisingCount, "uptime", m_uptime);
+        }
+    }
+
+    /**
+     * An Eddystone-EID (ephemeral id) frame.
+     */
+    public static final class EddystoneEid extends BeaconFrame
+    {
+        public static final int EID_LENGTH = 8;
+
+        private final byte[] m_eid = new byte[EID_LENGTH];
+        private int m_txPower;
+
+        EddystoneEid()
+        {
+        }
+
+        final void set(int txPower, byte[] scanRecord, int eidOffset)
+        {
+            m_txPower = txPower;
+            System.arraycopy(scanRecord, eidOffset, m_eid, 0, EID_LENGTH);
+        }
+
+        /**
+         * Returns the calibrated tx power at 0 meters, in dBm.
+         */
+        public final int getTxPower()
+        {
+            return m_txPower;
+        }
+
+        /**
+         * Returns the 8 byte ephemeral id. This is the holder's own array, so don't modify it.
+         */
+        public final byte[] getEid()
+        {
+            return m_eid;
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString(this.getClass(), "eid", Utils_String.bytesToHexString(m_eid), "txPower", m_txPower);
+        }
+    }
+
+
+    static long readLongBE(final byte[] bytes, final int offset)
+    {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    static int readUShortBE(final byte[] bytes, final int offset)
+    {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    static long readUIntBE(final byte[] bytes, final int offset)
+    {
+        return ((long) readUShortBE(bytes, offset) << 16) | readUShortBE(bytes, offset + 2);
+    }
+}
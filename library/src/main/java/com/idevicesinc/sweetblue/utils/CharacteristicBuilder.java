@@ -41,6 +41,7 @@ public final class CharacteristicBuilder
     private BleCharacteristic m_characteristic;
 
     private byte[] m_value;
+    private boolean m_served;
     private int m_properties;
     private int m_permissions;
 
@@ -131,6 +132,19 @@ public final class CharacteristicBuilder
         return this;
     }
 
+    /**
+     * Same as {@link #setValue(byte[])}, but the {@link com.idevicesinc.sweetblue.BleServer} also answers client reads of this
+     * {@link BleCharacteristic} from the value itself, without calling the {@link com.idevicesinc.sweetblue.IncomingListener}.
+     * Client writes update the value the same way. Use {@link com.idevicesinc.sweetblue.BleServer#setAttributeValue(UUID, UUID, byte[], boolean)}
+     * to change it later.
+     */
+    public final CharacteristicBuilder serveValue(byte[] value)
+    {
+        m_value = value;
+        m_served = true;
+        return this;
+    }
+
     /**
      * Add a new {@link BleDescriptor} to be added to this {@link BleCharacteristic}.
      */
@@ -153,6 +167,8 @@ public final class CharacteristicBuilder
         }
         m_characteristic = new BleCharacteristic(characteristic);
         m_serviceBuilder.addCharacteristic(m_characteristic);
+        if (m_served)
+            m_serviceBuilder.markServed(m_charUuid, null);
         return m_serviceBuilder;
     }
 
@@ -178,4 +194,9 @@ public final class CharacteristicBuilder
     {
         m_descriptors.add(descriptor);
     }
+
+    void markServed(UUID descUuid)
+    {
+        m_serviceBuilder.markServed(m_charUuid, descUuid);
+    }
 }
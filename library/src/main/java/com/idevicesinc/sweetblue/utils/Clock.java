@@ -0,0 +1,57 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Advanced;
+
+
+/**
+ * The source of time for everything a {@link com.idevicesinc.sweetblue.BleManager} schedules or measures - posted runnables,
+ * the update loop, task timeouts, reconnect backoff, and timestamps of logged {@link HistoricalData}. The default,
+ * {@link #SYSTEM}, is the wall clock. Tests can swap in a {@link ManualClock} through
+ * {@link com.idevicesinc.sweetblue.BleManagerConfig#clock} to make time pass instantly.
+ */
+@Advanced
+public abstract class Clock
+{
+	/**
+	 * Clock backed by {@link System#currentTimeMillis()}.
+	 */
+	public static final Clock SYSTEM = new Clock()
+	{
+		@Override public long currentTimeMillis()
+		{
+			return System.currentTimeMillis();
+		}
+	};
+
+
+	/**
+	 * Returns the current time, in milliseconds since the epoch.
+	 */
+	public abstract long currentTimeMillis();
+
+	/**
+	 * Returns the current time wrapped in an {@link EpochTime}.
+	 */
+	public EpochTime now()
+	{
+		return new EpochTime(currentTimeMillis());
+	}
+}
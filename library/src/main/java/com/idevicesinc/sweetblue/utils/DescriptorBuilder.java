@@ -38,6 +38,7 @@ public final class DescriptorBuilder
 
     private int m_permissions;
     private byte[] m_value;
+    private boolean m_served;
 
 
     DescriptorBuilder(CharacteristicBuilder charBuilder, UUID descUuid)
@@ -82,6 +83,17 @@ public final class DescriptorBuilder
         return this;
     }
 
+    /**
+     * Same as {@link #setValue(byte[])}, but the {@link com.idevicesinc.sweetblue.BleServer} also answers client reads and writes
+     * of this {@link BleDescriptor} from the value itself, without calling the {@link com.idevicesinc.sweetblue.IncomingListener}.
+     */
+    public final DescriptorBuilder serveValue(byte[] value)
+    {
+        m_value = value;
+        m_served = true;
+        return this;
+    }
+
     /**
      * Set the permissions for this {@link BleDescriptor}.
      */
@@ -99,6 +111,8 @@ public final class DescriptorBuilder
         descriptor.setValue(m_value);
         m_descriptor = new BleDescriptor(descriptor);
         m_charBuilder.addDescriptor(m_descriptor);
+        if (m_served)
+            m_charBuilder.markServed(m_descUuid);
         return m_charBuilder;
     }
 
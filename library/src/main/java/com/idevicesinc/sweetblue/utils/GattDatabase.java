@@ -21,7 +21,9 @@ package com.idevicesinc.sweetblue.utils;
 import android.bluetooth.BluetoothGattService;
 import com.idevicesinc.sweetblue.BleService;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -33,11 +35,13 @@ public class GattDatabase
 {
 
     private final List<BleService> m_services;
+    private final Set<String> m_servedAttributes;
 
 
     public GattDatabase()
     {
         m_services = new ArrayList<>();
+        m_servedAttributes = new HashSet<>();
     }
 
     /**
@@ -80,5 +84,20 @@ public class GattDatabase
         m_services.add(service);
     }
 
+    void addServedAttribute(UUID serviceUuid, UUID charUuid, UUID descUuid_nullable)
+    {
+        m_servedAttributes.add(servedKey(serviceUuid, charUuid, descUuid_nullable));
+    }
+
+    boolean isServed(UUID serviceUuid, UUID charUuid, UUID descUuid_nullable)
+    {
+        return !m_servedAttributes.isEmpty() && m_servedAttributes.contains(servedKey(serviceUuid, charUuid, descUuid_nullable));
+    }
+
+    private static String servedKey(UUID serviceUuid, UUID charUuid, UUID descUuid_nullable)
+    {
+        return serviceUuid + "/" + charUuid + "/" + descUuid_nullable;
+    }
+
 
 }
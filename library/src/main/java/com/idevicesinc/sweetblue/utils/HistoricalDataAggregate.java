@@ -0,0 +1,123 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+
+/**
+ * Simple struct holding the count, minimum, maximum and sum of the values logged as {@link HistoricalData} over a given time range,
+ * as returned by {@link com.idevicesinc.sweetblue.BleDevice#getHistoricalData_aggregate(java.util.UUID, EpochTimeRange)} and
+ * {@link com.idevicesinc.sweetblue.BleDevice#getHistoricalData_series(java.util.UUID, EpochTimeRange, Interval)}. The values are those
+ * returned by {@link com.idevicesinc.sweetblue.BleNodeConfig#historicalDataValueExtractor}.
+ */
+@Immutable
+public final class HistoricalDataAggregate implements UsesCustomNull
+{
+	/**
+	 * Special value that replaces Java's built-int <code>null</code> and
+	 * is used everywhere Java's would otherwise be used.
+	 */
+	public static final HistoricalDataAggregate NULL = new HistoricalDataAggregate(EpochTimeRange.NULL, 0, Double.NaN, Double.NaN, 0.0);
+
+	private final EpochTimeRange m_range;
+	private final long m_count;
+	private final double m_min;
+	private final double m_max;
+	private final double m_sum;
+
+	public HistoricalDataAggregate(final EpochTimeRange range, final long count, final double min, final double max, final double sum)
+	{
+		m_range = range;
+		m_count = count;
+		m_min = min;
+		m_max = max;
+		m_sum = sum;
+	}
+
+	/**
+	 * The time range the values were aggregated over.
+	 */
+	public EpochTimeRange getRange()
+	{
+		return m_range;
+	}
+
+	/**
+	 * The number of values in the range.
+	 */
+	public long getCount()
+	{
+		return m_count;
+	}
+
+	/**
+	 * The smallest value in the range, or {@link Double#NaN} if {@link #getCount()} is <code>0</code>.
+	 */
+	public double getMin()
+	{
+		return m_min;
+	}
+
+	/**
+	 * The largest value in the range, or {@link Double#NaN} if {@link #getCount()} is <code>0</code>.
+	 */
+	public double getMax()
+	{
+		return m_max;
+	}
+
+	/**
+	 * The sum of all values in the range.
+	 */
+	public double getSum()
+	{
+		return m_sum;
+	}
+
+	/**
+	 * The average of all values in the range, or {@link Double#NaN} if {@link #getCount()} is <code>0</code>.
+	 */
+	public double getAverage()
+	{
+		return m_count == 0 ? Double.NaN : m_sum / m_count;
+	}
+
+	@Override public boolean isNull()
+	{
+		return this == NULL;
+	}
+
+	@Override public String toString()
+	{
+		if( isNull() )
+		{
+			return "NULL";
+		}
+
+		return Utils_String.toString
+		(
+			getClass(),
+			"from",		m_range.from().toMilliseconds(),
+			"to",		m_range.to().toMilliseconds(),
+			"count",	m_count,
+			"min",		m_min,
+			"max",		m_max,
+			"avg",		getAverage()
+		);
+	}
+}
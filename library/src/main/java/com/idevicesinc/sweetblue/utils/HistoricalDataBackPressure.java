@@ -0,0 +1,43 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+/**
+ * Enumeration used to strictly type what happens when the buffer set by
+ * {@link com.idevicesinc.sweetblue.BleManagerConfig#historicalDataIngestionBufferSize} is full, and another read or notification
+ * needs to be logged as {@link HistoricalData}.
+ */
+public enum HistoricalDataBackPressure
+{
+	/**
+	 * The oldest sample still waiting to be written is thrown away to make room. This is the default, and keeps the update thread
+	 * from ever waiting on storage.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The new sample is thrown away.
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * The thread logging the sample (normally SweetBlue's update thread) waits until the writer thread has made room. Nothing is lost,
+	 * but a slow backend will then slow down everything else, just like when the buffer is disabled.
+	 */
+	BLOCK;
+}
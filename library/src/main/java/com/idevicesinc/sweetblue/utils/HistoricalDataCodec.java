@@ -0,0 +1,794 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact, streaming binary format for moving large amounts of {@link HistoricalData} around, for example when syncing a device's logs up
+ * to a server. Samples are written in blocks of up to {@link #DEFAULT_BLOCK_SIZE}, so only one block is ever held in memory, no matter how
+ * long the series is. Within a block, timestamps are stored as zig-zag varint delta-of-deltas (so a steady sample rate costs about a byte per
+ * timestamp), and payloads are stored whichever way is smallest for that block:
+ * <ul>
+ *     <li>raw - varint length, then the bytes.</li>
+ *     <li>dictionary - for blocks with few distinct payloads, each distinct payload is stored once, then each sample is a varint index.</li>
+ *     <li>xor - each payload is XOR'd against the one before it, and only the bytes which changed are stored, plus a bitmap of where they go.
+ *     This suits sensor readings where most bytes stay the same from one sample to the next.</li>
+ * </ul>
+ * Each block ends with a CRC32 of its contents, which {@link Decoder} checks before handing anything out.
+ * <br><br>
+ * Layout: the magic bytes <code>SBHD</code>, a version byte, then any number of blocks, each being
+ * <code>[varint sample count][encoding byte][varint body length][body][4 byte CRC32 of body]</code>, then a single <code>0</code> byte
+ * (a block with no samples) to mark the end.
+ *
+ * @see com.idevicesinc.sweetblue.BleDevice#exportHistoricalData(java.util.UUID, EpochTimeRange, OutputStream)
+ * @see com.idevicesinc.sweetblue.BleDevice#importHistoricalData(java.util.UUID, InputStream)
+ */
+public final class HistoricalDataCodec
+{
+	/**
+	 * Number of samples an {@link Encoder} puts in each block, unless told otherwise.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private static final byte[] MAGIC = {'S', 'B', 'H', 'D'};
+	private static final int VERSION = 1;
+
+	private static final int ENCODING_RAW			= 0;
+	private static final int ENCODING_DICTIONARY	= 1;
+	private static final int ENCODING_XOR			= 2;
+
+	// Refuse to allocate more than this for a single block body, so a corrupt length can't blow up the heap.
+	private static final int MAX_BODY_LENGTH = 64 * 1024 * 1024;
+
+	private HistoricalDataCodec()
+	{
+	}
+
+
+	/**
+	 * Writes {@link HistoricalData} to an {@link OutputStream} or {@link WritableByteChannel} (such as a {@link java.nio.channels.FileChannel})
+	 * as it's given, a block at a time. Call {@link #finish()} once everything has been written. Not thread safe.
+	 */
+	public static final class Encoder
+	{
+		private final OutputStream m_stream;
+		private final WritableByteChannel m_channel;
+		private final int m_blockSize;
+
+		private final long[] m_times;
+		private final byte[][] m_payloads;
+		private int m_count = 0;
+
+		private final Buffer m_body = new Buffer();
+		private final Buffer m_block = new Buffer();
+		private final HashMap<ByteBuffer, Integer> m_dictionary = new HashMap<>();
+		private final CRC32 m_crc = new CRC32();
+
+		private boolean m_headerWritten = false;
+		private boolean m_finished = false;
+		private long m_sampleCount = 0;
+		private long m_byteCount = 0;
+
+		public Encoder(final OutputStream out)
+		{
+			this(out, null, DEFAULT_BLOCK_SIZE);
+		}
+
+		public Encoder(final WritableByteChannel out)
+		{
+			this(null, out, DEFAULT_BLOCK_SIZE);
+		}
+
+		public Encoder(final OutputStream out, final int blockSize)
+		{
+			this(out, null, blockSize);
+		}
+
+		public Encoder(final WritableByteChannel out, final int blockSize)
+		{
+			this(null, out, blockSize);
+		}
+
+		private Encoder(final OutputStream stream, final WritableByteChannel channel, final int blockSize)
+		{
+			if( blockSize <= 0 )
+			{
+				throw new IllegalArgumentException("Block size must be greater than 0.");
+			}
+
+			m_stream = stream;
+			m_channel = channel;
+			m_blockSize = blockSize;
+			m_times = new long[blockSize];
+			m_payloads = new byte[blockSize][];
+		}
+
+		/**
+		 * Adds a single sample, writing out a block if this fills it.
+		 */
+		public void write(final HistoricalData data) throws IOException
+		{
+			if( m_finished )
+			{
+				throw new IllegalStateException("Encoder has already been finished.");
+			}
+
+			m_times[m_count] = data.getEpochTime().toMilliseconds();
+			m_payloads[m_count] = data.getBlob();
+			m_count++;
+
+			if( m_count == m_blockSize )
+			{
+				writeBlock();
+			}
+		}
+
+		/**
+		 * Adds every sample from the given iterator, returning how many there were.
+		 */
+		public int write(final Iterator<HistoricalData> data) throws IOException
+		{
+			int count = 0;
+
+			while( data.hasNext() )
+			{
+				write(data.next());
+				count++;
+			}
+
+			return count;
+		}
+
+		/**
+		 * Writes out any partially filled block, then the end of stream marker. This does not close the underlying stream or channel.
+		 */
+		public void finish() throws IOException
+		{
+			if( m_finished )  return;
+
+			if( m_count > 0 )
+			{
+				writeBlock();
+			}
+
+			m_block.reset();
+			writeHeaderIfNeeded();
+			m_block.writeVarint(0);
+			emit(m_block);
+
+			if( m_stream != null )
+			{
+				m_stream.flush();
+			}
+
+			m_finished = true;
+		}
+
+		/**
+		 * Returns the number of samples written so far.
+		 */
+		public long getSampleCount()
+		{
+			return m_sampleCount;
+		}
+
+		/**
+		 * Returns the number of bytes written so far.
+		 */
+		public long getByteCount()
+		{
+			return m_byteCount;
+		}
+
+		private void writeHeaderIfNeeded()
+		{
+			if( m_headerWritten )  return;
+
+			m_block.writeBytes(MAGIC, 0, MAGIC.length);
+			m_block.writeByte(VERSION);
+			m_headerWritten = true;
+		}
+
+		private void writeBlock() throws IOException
+		{
+			m_body.reset();
+
+			//--- Timestamps
+			long previous = 0;
+			long previousDelta = 0;
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				final long delta = m_times[i] - previous;
+				m_body.writeSignedVarint(i == 0 ? m_times[i] : delta - previousDelta);
+				previousDelta = i == 0 ? 0 : delta;
+				previous = m_times[i];
+			}
+
+			//--- Payloads
+			final int encoding = chooseEncoding();
+
+			if( encoding == ENCODING_DICTIONARY )
+			{
+				writeDictionary();
+			}
+			else if( encoding == ENCODING_XOR )
+			{
+				writeXor();
+			}
+			else
+			{
+				for( int i = 0; i < m_count; i++ )
+				{
+					m_body.writeVarint(m_payloads[i].length);
+					m_body.writeBytes(m_payloads[i], 0, m_payloads[i].length);
+				}
+			}
+
+			m_crc.reset();
+			m_crc.update(m_body.m_data, 0, m_body.m_length);
+
+			m_block.reset();
+			writeHeaderIfNeeded();
+			m_block.writeVarint(m_count);
+			m_block.writeByte(encoding);
+			m_block.writeVarint(m_body.m_length);
+			m_block.writeBytes(m_body.m_data, 0, m_body.m_length);
+			m_block.writeInt((int) m_crc.getValue());
+
+			emit(m_block);
+
+			m_sampleCount += m_count;
+			Arrays.fill(m_payloads, 0, m_count, null);
+			m_count = 0;
+		}
+
+		private int chooseEncoding()
+		{
+			long rawSize = 0;
+			long xorSize = 0;
+			byte[] previous = P_Const.EMPTY_BYTE_ARRAY;
+
+			m_dictionary.clear();
+			long dictionarySize = 0;
+
+			// Once a quarter of the block is distinct payloads, a dictionary isn't going to win, so stop paying for the hashing.
+			final int maxDictionarySize = Math.max(m_count / 4, 1);
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				final byte[] payload = m_payloads[i];
+				final int lengthSize = varintSize(payload.length);
+
+				rawSize += lengthSize + payload.length;
+				xorSize += lengthSize + (payload.length + 7) / 8 + changedByteCount(previous, payload);
+				previous = payload;
+
+				if( dictionarySize == Long.MAX_VALUE )  continue;
+
+				final ByteBuffer key = ByteBuffer.wrap(payload);
+
+				if( !m_dictionary.containsKey(key) )
+				{
+					if( m_dictionary.size() == maxDictionarySize )
+					{
+						dictionarySize = Long.MAX_VALUE;
+
+						continue;
+					}
+
+					m_dictionary.put(key, m_dictionary.size());
+					dictionarySize += lengthSize + payload.length;
+				}
+			}
+
+			if( dictionarySize != Long.MAX_VALUE )
+			{
+				dictionarySize += varintSize(m_dictionary.size()) + (long) m_count * varintSize(m_dictionary.size());
+			}
+
+			if( dictionarySize < rawSize && dictionarySize < xorSize )
+			{
+				return ENCODING_DICTIONARY;
+			}
+			else if( xorSize < rawSize )
+			{
+				return ENCODING_XOR;
+			}
+			else
+			{
+				return ENCODING_RAW;
+			}
+		}
+
+		private void writeDictionary()
+		{
+			// m_dictionary was filled in by chooseEncoding(), with indices in order of first appearance
+			final byte[][] entries = new byte[m_dictionary.size()][];
+
+			for( int i = 0, next = 0; i < m_count && next < entries.length; i++ )
+			{
+				final int index = m_dictionary.get(ByteBuffer.wrap(m_payloads[i]));
+
+				if( index == next )
+				{
+					entries[next++] = m_payloads[i];
+				}
+			}
+
+			m_body.writeVarint(entries.length);
+
+			for( int i = 0; i < entries.length; i++ )
+			{
+				m_body.writeVarint(entries[i].length);
+				m_body.writeBytes(entries[i], 0, entries[i].length);
+			}
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				m_body.writeVarint(m_dictionary.get(ByteBuffer.wrap(m_payloads[i])));
+			}
+		}
+
+		private void writeXor()
+		{
+			byte[] previous = P_Const.EMPTY_BYTE_ARRAY;
+
+			for( int i = 0; i < m_count; i++ )
+			{
+				final byte[] payload = m_payloads[i];
+
+				m_body.writeVarint(payload.length);
+
+				final int bitmapStart = m_body.m_length;
+				final int bitmapLength = (payload.length + 7) / 8;
+				m_body.ensureCapacity(bitmapLength + payload.length);
+				Arrays.fill(m_body.m_data, bitmapStart, bitmapStart + bitmapLength, (byte) 0);
+				m_body.m_length += bitmapLength;
+
+				for( int j = 0; j < payload.length; j++ )
+				{
+					final int xor = (payload[j] ^ byteAt(previous, j)) & 0xFF;
+
+					if( xor != 0 )
+					{
+						m_body.m_data[bitmapStart + (j >>> 3)] |= (byte) (1 << (j & 7));
+						m_body.writeByte(xor);
+					}
+				}
+
+				previous = payload;
+			}
+		}
+
+		private void emit(final Buffer buffer) throws IOException
+		{
+			if( m_stream != null )
+			{
+				m_stream.write(buffer.m_data, 0, buffer.m_length);
+			}
+			else
+			{
+				final ByteBuffer bytes = ByteBuffer.wrap(buffer.m_data, 0, buffer.m_length);
+
+				while( bytes.hasRemaining() )
+				{
+					m_channel.write(bytes);
+				}
+			}
+
+			m_byteCount += buffer.m_length;
+		}
+	}
+
+
+	/**
+	 * Reads back what an {@link Encoder} wrote, a block at a time. Not thread safe.
+	 */
+	public static final class Decoder
+	{
+		private final InputStream m_stream;
+		private final ReadableByteChannel m_channel;
+		private final byte[] m_single = new byte[1];
+		private final CRC32 m_crc = new CRC32();
+
+		private byte[] m_body = new byte[256];
+		private int m_position;
+		private int m_bodyLength;
+
+		private boolean m_headerRead = false;
+		private boolean m_done = false;
+
+		public Decoder(final InputStream in)
+		{
+			m_stream = in;
+			m_channel = null;
+		}
+
+		public Decoder(final ReadableByteChannel in)
+		{
+			m_stream = null;
+			m_channel = in;
+		}
+
+		/**
+		 * Decodes the next block into the given list, returning the number of samples added, or <code>0</code> once the end of the stream
+		 * is reached. Throws an {@link IOException} if the stream is truncated, or a block's checksum doesn't match.
+		 */
+		public int nextBlock(final List<HistoricalData> out) throws IOException
+		{
+			if( m_done )  return 0;
+
+			if( !m_headerRead )
+			{
+				readHeader();
+			}
+
+			final long count = readStreamVarint();
+
+			if( count == 0 )
+			{
+				m_done = true;
+
+				return 0;
+			}
+
+			final int encoding = readStreamByte();
+			final long bodyLength = readStreamVarint();
+
+			if( count > Integer.MAX_VALUE || bodyLength > MAX_BODY_LENGTH )
+			{
+				throw new IOException("Historical data block is too large: " + count + " samples, " + bodyLength + " bytes.");
+			}
+
+			//--- Every sample takes at least a byte for its timestamp, so anything claiming more samples than that is corrupt. Checked
+			//--- before the timestamp array gets allocated, so a bad count can't make us allocate far more than the block could hold.
+			if( count > bodyLength )
+			{
+				throw new IOException("Historical data block claims " + count + " samples, but is only " + bodyLength + " bytes.");
+			}
+
+			if( m_body.length < bodyLength )
+			{
+				m_body = new byte[(int) Math.max(bodyLength, m_body.length * 2L)];
+			}
+
+			m_bodyLength = (int) bodyLength;
+			readFully(m_body, 0, m_bodyLength);
+
+			final byte[] crcBytes = new byte[4];
+			readFully(crcBytes, 0, 4);
+
+			m_crc.reset();
+			m_crc.update(m_body, 0, m_bodyLength);
+
+			if( (int) m_crc.getValue() != Utils_Byte.bytesToInt(crcBytes) )
+			{
+				throw new IOException("Historical data block failed its checksum.");
+			}
+
+			m_position = 0;
+
+			final int sampleCount = (int) count;
+			final long[] times = new long[sampleCount];
+
+			long previous = 0;
+			long previousDelta = 0;
+
+			for( int i = 0; i < sampleCount; i++ )
+			{
+				final long value = readSignedVarint();
+				final long delta = i == 0 ? value : previousDelta + value;
+				times[i] = i == 0 ? value : previous + delta;
+				previousDelta = i == 0 ? 0 : delta;
+				previous = times[i];
+			}
+
+			if( encoding == ENCODING_DICTIONARY )
+			{
+				final byte[][] entries = new byte[checkedLength(readVarint())][];
+
+				for( int i = 0; i < entries.length; i++ )
+				{
+					entries[i] = readPayload();
+				}
+
+				for( int i = 0; i < sampleCount; i++ )
+				{
+					final long index = readVarint();
+
+					if( index >= entries.length )
+					{
+						throw new IOException("Historical data dictionary index out of range.");
+					}
+
+					out.add(new HistoricalData(entries[(int) index], times[i]));
+				}
+			}
+			else if( encoding == ENCODING_XOR )
+			{
+				byte[] previousPayload = P_Const.EMPTY_BYTE_ARRAY;
+
+				for( int i = 0; i < sampleCount; i++ )
+				{
+					final byte[] payload = new byte[checkedLength(readVarint())];
+					final int bitmapStart = m_position;
+					m_position += (payload.length + 7) / 8;
+
+					for( int j = 0; j < payload.length; j++ )
+					{
+						final boolean changed = (bodyByte(bitmapStart + (j >>> 3)) & (1 << (j & 7))) != 0;
+						payload[j] = (byte) (byteAt(previousPayload, j) ^ (changed ? bodyByte(m_position++) : 0));
+					}
+
+					out.add(new HistoricalData(payload, times[i]));
+					previousPayload = payload;
+				}
+			}
+			else if( encoding == ENCODING_RAW )
+			{
+				for( int i = 0; i < sampleCount; i++ )
+				{
+					out.add(new HistoricalData(readPayload(), times[i]));
+				}
+			}
+			else
+			{
+				throw new IOException("Unknown historical data encoding: " + encoding);
+			}
+
+			return sampleCount;
+		}
+
+		private void readHeader() throws IOException
+		{
+			final byte[] magic = new byte[MAGIC.length];
+			readFully(magic, 0, magic.length);
+
+			if( !Arrays.equals(magic, MAGIC) )
+			{
+				throw new IOException("Not a historical data stream.");
+			}
+
+			final int version = readStreamByte();
+
+			if( version != VERSION )
+			{
+				throw new IOException("Unsupported historical data stream version: " + version);
+			}
+
+			m_headerRead = true;
+		}
+
+		private byte[] readPayload() throws IOException
+		{
+			final int length = checkedLength(readVarint());
+
+			if( m_position + length > m_bodyLength )
+			{
+				throw new EOFException("Historical data block is truncated.");
+			}
+
+			final byte[] payload = Arrays.copyOfRange(m_body, m_position, m_position + length);
+			m_position += length;
+
+			return payload;
+		}
+
+		private int checkedLength(final long length) throws IOException
+		{
+			if( length < 0 || length > m_bodyLength )
+			{
+				throw new IOException("Invalid length in historical data block: " + length);
+			}
+
+			return (int) length;
+		}
+
+		private int bodyByte(final int index) throws IOException
+		{
+			if( index >= m_bodyLength )
+			{
+				throw new EOFException("Historical data block is truncated.");
+			}
+
+			return m_body[index] & 0xFF;
+		}
+
+		private long readVarint() throws IOException
+		{
+			long value = 0;
+
+			for( int shift = 0; shift < 64; shift += 7 )
+			{
+				final int b = bodyByte(m_position++);
+				value |= (long) (b & 0x7F) << shift;
+
+				if( (b & 0x80) == 0 )  return value;
+			}
+
+			throw new IOException("Malformed varint in historical data block.");
+		}
+
+		private long readSignedVarint() throws IOException
+		{
+			final long value = readVarint();
+
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		private long readStreamVarint() throws IOException
+		{
+			long value = 0;
+
+			for( int shift = 0; shift < 64; shift += 7 )
+			{
+				final int b = readStreamByte();
+				value |= (long) (b & 0x7F) << shift;
+
+				if( (b & 0x80) == 0 )  return value;
+			}
+
+			throw new IOException("Malformed varint in historical data stream.");
+		}
+
+		private int readStreamByte() throws IOException
+		{
+			readFully(m_single, 0, 1);
+
+			return m_single[0] & 0xFF;
+		}
+
+		private void readFully(final byte[] buffer, int offset, int length) throws IOException
+		{
+			if( m_stream != null )
+			{
+				while( length > 0 )
+				{
+					final int read = m_stream.read(buffer, offset, length);
+
+					if( read < 0 )
+					{
+						throw new EOFException("Historical data stream ended unexpectedly.");
+					}
+
+					offset += read;
+					length -= read;
+				}
+			}
+			else
+			{
+				final ByteBuffer bytes = ByteBuffer.wrap(buffer, offset, length);
+
+				while( bytes.hasRemaining() )
+				{
+					if( m_channel.read(bytes) < 0 )
+					{
+						throw new EOFException("Historical data stream ended unexpectedly.");
+					}
+				}
+			}
+		}
+	}
+
+
+	private static int byteAt(final byte[] bytes, final int index)
+	{
+		return index < bytes.length ? bytes[index] : 0;
+	}
+
+	private static int changedByteCount(final byte[] previous, final byte[] current)
+	{
+		int count = 0;
+
+		for( int i = 0; i < current.length; i++ )
+		{
+			if( current[i] != (byte) byteAt(previous, i) )
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static int varintSize(long value)
+	{
+		int size = 1;
+
+		while( (value & ~0x7FL) != 0 )
+		{
+			value >>>= 7;
+			size++;
+		}
+
+		return size;
+	}
+
+
+	/**
+	 * Growable byte array used to build up each block before it's written out in a single call.
+	 */
+	private static final class Buffer
+	{
+		private byte[] m_data = new byte[256];
+		private int m_length = 0;
+
+		void reset()
+		{
+			m_length = 0;
+		}
+
+		void ensureCapacity(final int extra)
+		{
+			if( m_length + extra > m_data.length )
+			{
+				m_data = Arrays.copyOf(m_data, Math.max(m_data.length * 2, m_length + extra));
+			}
+		}
+
+		void writeByte(final int value)
+		{
+			ensureCapacity(1);
+			m_data[m_length++] = (byte) value;
+		}
+
+		void writeBytes(final byte[] bytes, final int offset, final int length)
+		{
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, m_data, m_length, length);
+			m_length += length;
+		}
+
+		void writeInt(final int value)
+		{
+			writeByte(value >>> 24);
+			writeByte(value >>> 16);
+			writeByte(value >>> 8);
+			writeByte(value);
+		}
+
+		void writeVarint(long value)
+		{
+			while( (value & ~0x7FL) != 0 )
+			{
+				writeByte((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+
+			writeByte((int) value);
+		}
+
+		void writeSignedVarint(final long value)
+		{
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+	}
+}
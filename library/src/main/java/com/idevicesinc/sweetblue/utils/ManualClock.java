@@ -0,0 +1,84 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Advanced;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A {@link Clock} which only moves when told to. Set an instance as {@link com.idevicesinc.sweetblue.BleManagerConfig#clock}, then
+ * call {@link #advance(Interval)} to jump ahead - runnables, task timeouts, and reconnect delays then fire as if that much time had
+ * passed. This is what lets hours of scanning or reconnect attempts run in a unit test in seconds.
+ * <br><br>
+ * Note that jumping far ahead in one call only runs SweetBlue's update loop once. To step through every update, advance by
+ * {@link com.idevicesinc.sweetblue.BleManagerConfig#autoUpdateRate} at a time, waiting for the update thread between steps.
+ */
+@Advanced
+public class ManualClock extends Clock
+{
+	private final AtomicLong m_time;
+
+
+	/**
+	 * Creates a clock starting at the current wall clock time.
+	 */
+	public ManualClock()
+	{
+		this(System.currentTimeMillis());
+	}
+
+	public ManualClock(long startTimeMillis)
+	{
+		m_time = new AtomicLong(startTimeMillis);
+	}
+
+
+	@Override public long currentTimeMillis()
+	{
+		return m_time.get();
+	}
+
+	/**
+	 * Moves the clock ahead by the given amount, and returns the new time.
+	 */
+	public long advance(long millis)
+	{
+		if( millis < 0 )
+			throw new IllegalArgumentException("Time can't be moved backwards. Tried to advance by " + millis + "ms.");
+
+		return m_time.addAndGet(millis);
+	}
+
+	/**
+	 * Overload of {@link #advance(long)}.
+	 */
+	public long advance(Interval amount)
+	{
+		return advance(amount.millis());
+	}
+
+	/**
+	 * Moves the clock to the given time, which may not be before the current one.
+	 */
+	public void setTime(long timeMillis)
+	{
+		advance(timeMillis - m_time.get());
+	}
+}
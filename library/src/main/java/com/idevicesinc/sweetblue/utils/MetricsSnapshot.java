@@ -0,0 +1,292 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.BleMetric;
+import com.idevicesinc.sweetblue.annotations.Immutable;
+
+
+/**
+ * A point-in-time copy of every {@link BleMetric}, returned from {@link com.idevicesinc.sweetblue.BleManager#getMetricsSnapshot()}.
+ * The values are copied out when the snapshot is taken, so it's safe to hold on to, and pass to other threads. Use
+ * {@link #toJson()} if you want to ship the values off to some other service.
+ */
+@Immutable
+public final class MetricsSnapshot
+{
+    /**
+     * The number of buckets in every {@link Histogram}.
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    /**
+     * The upper bound (exclusive), in nanoseconds, of the first bucket of every {@link Histogram}. Each following bucket's
+     * upper bound is double the previous one's, with the last bucket catching everything else.
+     */
+    public static final long FIRST_BUCKET_BOUND = 1024L;
+
+
+    private final long m_timestamp;
+    private final long[] m_values;
+    private final Histogram[] m_histograms;
+
+
+    MetricsSnapshot(long timestamp, long[] values, long[][] histogramData)
+    {
+        m_timestamp = timestamp;
+        m_values = values;
+        m_histograms = new Histogram[histogramData.length];
+        for (int i = 0; i < histogramData.length; i++)
+        {
+            if (histogramData[i] != null)
+            {
+                m_histograms[i] = new Histogram(histogramData[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the time this snapshot was taken, in milliseconds since the epoch.
+     */
+    public final long getTimestamp()
+    {
+        return m_timestamp;
+    }
+
+    /**
+     * Returns the value of the given {@link BleMetric.Kind#COUNTER} metric, or <code>0</code> if the metric is not a counter.
+     */
+    public final long getCount(BleMetric metric)
+    {
+        return metric.kind() == BleMetric.Kind.COUNTER ? m_values[metric.ordinal()] : 0L;
+    }
+
+    /**
+     * Returns the value of the given {@link BleMetric.Kind#GAUGE} metric, or <code>0</code> if the metric is not a gauge.
+     */
+    public final long getGauge(BleMetric metric)
+    {
+        return metric.kind() == BleMetric.Kind.GAUGE ? m_values[metric.ordinal()] : 0L;
+    }
+
+    /**
+     * Returns the {@link Histogram} of the given {@link BleMetric.Kind#HISTOGRAM} metric, or {@link Histogram#EMPTY} if
+     * the metric is not a histogram.
+     */
+    public final Histogram getHistogram(BleMetric metric)
+    {
+        final Histogram h = m_histograms[metric.ordinal()];
+        return h != null ? h : Histogram.EMPTY;
+    }
+
+    /**
+     * Returns the upper bound (exclusive), in nanoseconds, of the given bucket index.
+     * The last bucket returns {@link Long#MAX_VALUE}.
+     */
+    public static long getBucketUpperBound(int bucket)
+    {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : FIRST_BUCKET_BOUND << bucket;
+    }
+
+    /**
+     * Returns the bucket index the given duration (in nanoseconds) falls in.
+     */
+    public static int getBucketIndex(long nanos)
+    {
+        final int index = 64 - Long.numberOfLeadingZeros(nanos >>> 10);
+        return index < BUCKET_COUNT ? index : BUCKET_COUNT - 1;
+    }
+
+    /**
+     * Returns every metric in this snapshot as a JSON object, with the keys being the {@link BleMetric} names, grouped
+     * under <code>"counters"</code>, <code>"gauges"</code>, and <code>"histograms"</code>.
+     */
+    public final String toJson()
+    {
+        final StringBuilder b = new StringBuilder(2048);
+        b.append("{\"timestamp\":").append(m_timestamp);
+        appendValues(b, "counters", BleMetric.Kind.COUNTER);
+        appendValues(b, "gauges", BleMetric.Kind.GAUGE);
+        b.append(",\"histograms\":{");
+        boolean first = true;
+        for (BleMetric metric : BleMetric.values())
+        {
+            if (metric.kind() != BleMetric.Kind.HISTOGRAM)
+                continue;
+
+            if (!first)
+                b.append(',');
+
+            first = false;
+            final Histogram h = getHistogram(metric);
+            b.append('"').append(metric.name()).append("\":{\"count\":").append(h.getCount())
+                    .append(",\"sum\":").append(h.getSum())
+                    .append(",\"max\":").append(h.getMax())
+                    .append(",\"p50\":").append(h.getPercentile(50))
+                    .append(",\"p99\":").append(h.getPercentile(99))
+                    .append(",\"buckets\":[");
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                if (i > 0)
+                    b.append(',');
+                b.append(h.getBucket(i));
+            }
+            b.append("]}");
+        }
+        b.append("}}");
+        return b.toString();
+    }
+
+    private void appendValues(StringBuilder b, String name, BleMetric.Kind kind)
+    {
+        b.append(",\"").append(name).append("\":{");
+        boolean first = true;
+        for (BleMetric metric : BleMetric.values())
+        {
+            if (metric.kind() != kind)
+                continue;
+
+            if (!first)
+                b.append(',');
+
+            first = false;
+            b.append('"').append(metric.name()).append("\":").append(m_values[metric.ordinal()]);
+        }
+        b.append('}');
+    }
+
+    @Override public final String toString()
+    {
+        final StringBuilder b = new StringBuilder(1024);
+        for (BleMetric metric : BleMetric.values())
+        {
+            b.append(metric.name()).append('=');
+            if (metric.kind() == BleMetric.Kind.HISTOGRAM)
+            {
+                b.append(getHistogram(metric));
+            }
+            else
+            {
+                b.append(m_values[metric.ordinal()]);
+            }
+            b.append('\n');
+        }
+        return b.toString();
+    }
+
+
+    /**
+     * The recorded distribution of a {@link BleMetric.Kind#HISTOGRAM} metric. All values are in nanoseconds. Buckets are
+     * exponential, see {@link MetricsSnapshot#getBucketUpperBound(int)}.
+     */
+    @Immutable
+    public static final class Histogram
+    {
+        /**
+         * Returned when a histogram has no data.
+         */
+        public static final Histogram EMPTY = new Histogram(new long[BUCKET_COUNT + 3]);
+
+        // Layout is [buckets..., count, sum, max]
+        private final long[] m_data;
+
+
+        Histogram(long[] data)
+        {
+            m_data = data;
+        }
+
+        /**
+         * Returns how many values were recorded.
+         */
+        public final long getCount()
+        {
+            return m_data[BUCKET_COUNT];
+        }
+
+        /**
+         * Returns the sum of all values recorded.
+         */
+        public final long getSum()
+        {
+            return m_data[BUCKET_COUNT + 1];
+        }
+
+        /**
+         * Returns the largest value recorded.
+         */
+        public final long getMax()
+        {
+            return m_data[BUCKET_COUNT + 2];
+        }
+
+        /**
+         * Returns the average of all values recorded, or <code>0</code> if nothing was recorded.
+         */
+        public final double getMean()
+        {
+            final long count = getCount();
+            return count == 0 ? 0.0 : (double) getSum() / count;
+        }
+
+        /**
+         * Returns how many values fell into the given bucket.
+         */
+        public final long getBucket(int bucket)
+        {
+            return m_data[bucket];
+        }
+
+        /**
+         * Returns an estimate of the given percentile (0-100). As values are bucketed, this returns the upper bound
+         * of the bucket the percentile falls in, capped at {@link #getMax()}.
+         */
+        public final long getPercentile(double percentile)
+        {
+            final long count = getCount();
+            if (count == 0)
+                return 0L;
+
+            final long target = Math.max(1L, (long) Math.ceil(count * (percentile / 100.0)));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++)
+            {
+                seen += m_data[i];
+                if (seen >= target)
+                {
+                    return Math.min(getBucketUpperBound(i), getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override public final String toString()
+        {
+            return Utils_String.toString
+            (
+                getClass(),
+                "count",    getCount(),
+                "mean",     getMean(),
+                "p50",      getPercentile(50),
+                "p99",      getPercentile(99),
+                "max",      getMax()
+            );
+        }
+    }
+}
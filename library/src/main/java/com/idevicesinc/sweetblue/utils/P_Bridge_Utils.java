@@ -20,6 +20,7 @@ package com.idevicesinc.sweetblue.utils;
 import android.bluetooth.le.AdvertiseData;
 import android.bluetooth.le.AdvertiseSettings;
 import com.idevicesinc.sweetblue.BleAdvertisingSettings;
+import java.util.UUID;
 
 
 public class P_Bridge_Utils
@@ -41,4 +42,14 @@ public class P_Bridge_Utils
         return packet.getNativeData();
     }
 
+    public static boolean isServed(GattDatabase database, UUID serviceUuid, UUID charUuid, UUID descUuid_nullable)
+    {
+        return database.isServed(serviceUuid, charUuid, descUuid_nullable);
+    }
+
+    public static MetricsSnapshot newMetricsSnapshot(long timestamp, long[] values, long[][] histogramData)
+    {
+        return new MetricsSnapshot(timestamp, values, histogramData);
+    }
+
 }
@@ -0,0 +1,715 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+
+/**
+ * Describes the byte layout of a characteristic's value, so it can be decoded straight out of the received buffer with a
+ * {@link PayloadView}, or encoded with a {@link PayloadWriter}, without the boxing and array copies you get with
+ * {@link Utils_Byte#bytesToInt(byte[], int)} and friends. Build one up front (they're immutable, and safe to share), then
+ * refer to the fields by their index, which is simply the order they were declared in the {@link Builder}, for example:
+ * <pre>
+ * {@code
+ * // Heart Rate Measurement, with a 16 bit value
+ * static final PayloadLayout HEART_RATE = new PayloadLayout.Builder()
+ *      .field("flags", FieldType.UINT8)         // 0
+ *      .bits("sensorContact", 1, 2)             // 1
+ *      .field("bpm", FieldType.UINT16)          // 2
+ *      .field("energy", FieldType.UINT16)       // 3
+ *      .build();
+ * }
+ * </pre>
+ *
+ * Multi-byte fields are {@link ByteOrder#LITTLE_ENDIAN} unless otherwise specified, as that's what the Bluetooth SIG uses for
+ * all of its characteristics.
+ *
+ * @see com.idevicesinc.sweetblue.BleRead#setPayloadListener(PayloadLayout, com.idevicesinc.sweetblue.PayloadListener)
+ * @see com.idevicesinc.sweetblue.BleNotify#setPayloadListener(PayloadLayout, com.idevicesinc.sweetblue.PayloadListener)
+ * @see com.idevicesinc.sweetblue.BleWrite#setPayload(PayloadWriter)
+ */
+@Immutable
+public final class PayloadLayout
+{
+
+    /**
+     * Pass this in as the count to {@link Builder#field(String, FieldType, int)} for an array which takes up the rest of the payload.
+     * Only the last field in a layout can do this.
+     */
+    public static final int REMAINING = -1;
+
+    /**
+     * The types of fields a {@link PayloadLayout} can hold.
+     */
+    public enum FieldType
+    {
+        UINT8(1, false),
+        SINT8(1, true),
+        UINT16(2, false),
+        SINT16(2, true),
+        UINT24(3, false),
+        SINT24(3, true),
+        UINT32(4, false),
+        SINT32(4, true),
+        UINT48(6, false),
+        SINT64(8, true),
+
+        /**
+         * 16 bit IEEE-11073 float (4 bit exponent, 12 bit mantissa), as used by the GATT Characteristic Presentation Format.
+         */
+        SFLOAT(2, true),
+
+        /**
+         * 32 bit IEEE-11073 float (8 bit exponent, 24 bit mantissa), as used by the GATT Characteristic Presentation Format.
+         */
+        FLOAT(4, true),
+
+        /**
+         * Standard IEEE-754 single precision float.
+         */
+        FLOAT32(4, true),
+
+        /**
+         * Standard IEEE-754 double precision float.
+         */
+        FLOAT64(8, true),
+
+        /**
+         * A range of bits of another field. Use {@link Builder#bits(String, int, int)} to declare these.
+         */
+        BITS(0, false);
+
+        private final int m_size;
+        private final boolean m_signed;
+
+        FieldType(int size, boolean signed)
+        {
+            m_size = size;
+            m_signed = signed;
+        }
+
+        /**
+         * Returns how many bytes this type takes up in the payload.
+         */
+        public final int size()
+        {
+            return m_size;
+        }
+
+        /**
+         * Returns <code>true</code> if this type holds a signed value.
+         */
+        public final boolean isSigned()
+        {
+            return m_signed;
+        }
+
+        final boolean isIntegral()
+        {
+            return ordinal() <= SINT64.ordinal() || this == BITS;
+        }
+    }
+
+
+    // Upper bound on how many idle writers we'll hold on to per layout
+    private static final int MAX_POOL_SIZE = 8;
+
+    private static final double[] POW10 = new double[129];
+
+    static
+    {
+        POW10[0] = 1.0;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10.0;
+    }
+
+    private static final int SFLOAT_NAN = 0x07FF;
+    private static final int SFLOAT_NRES = 0x0800;
+    private static final int SFLOAT_RESERVED = 0x0801;
+    private static final int SFLOAT_POSITIVE_INFINITY = 0x07FE;
+    private static final int SFLOAT_NEGATIVE_INFINITY = 0x0802;
+    private static final int SFLOAT_MAX_MANTISSA = 2045;
+
+    private static final int FLOAT_NAN = 0x007FFFFF;
+    private static final int FLOAT_NRES = 0x00800000;
+    private static final int FLOAT_RESERVED = 0x00800001;
+    private static final int FLOAT_POSITIVE_INFINITY = 0x007FFFFE;
+    private static final int FLOAT_NEGATIVE_INFINITY = 0x00800002;
+    private static final int FLOAT_MAX_MANTISSA = 0x007FFFFD;
+
+
+    // Field descriptions are held in parallel arrays, so decoding a field is just a few array lookups
+    final String[] m_names;
+    final FieldType[] m_types;
+    final int[] m_offsets;
+    final int[] m_counts;
+    final boolean[] m_bigEndian;
+    final int[] m_parents;
+    final int[] m_bitOffsets;
+    final int[] m_bitCounts;
+    private final int m_fixedSize;
+    private final int m_remainingField;
+
+    private final ArrayDeque<PayloadWriter> m_pool = new ArrayDeque<>(MAX_POOL_SIZE);
+
+
+    private PayloadLayout(Builder builder)
+    {
+        final int size = builder.m_fields.size();
+        m_names = new String[size];
+        m_types = new FieldType[size];
+        m_offsets = new int[size];
+        m_counts = new int[size];
+        m_bigEndian = new boolean[size];
+        m_parents = new int[size];
+        m_bitOffsets = new int[size];
+        m_bitCounts = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            final Field f = builder.m_fields.get(i);
+            m_names[i] = f.name;
+            m_types[i] = f.type;
+            m_offsets[i] = f.offset;
+            m_counts[i] = f.count;
+            m_bigEndian[i] = f.bigEndian;
+            m_parents[i] = f.parent;
+            m_bitOffsets[i] = f.bitOffset;
+            m_bitCounts[i] = f.bitCount;
+        }
+        m_fixedSize = builder.m_offset;
+        m_remainingField = builder.m_remainingField;
+    }
+
+
+    /**
+     * Returns the number of fields (including bit fields) in this layout.
+     */
+    public final int getFieldCount()
+    {
+        return m_names.length;
+    }
+
+    /**
+     * Returns the index of the field with the given name, or <code>-1</code> if there isn't one. It's best to do this once and hold on
+     * to the index, rather than look it up every time you decode a payload.
+     */
+    public final int indexOf(String name)
+    {
+        for (int i = 0; i < m_names.length; i++)
+        {
+            if (m_names[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name of the field at the given index.
+     */
+    public final String getName(int field)
+    {
+        return m_names[field];
+    }
+
+    /**
+     * Returns the {@link FieldType} of the field at the given index.
+     */
+    public final FieldType getType(int field)
+    {
+        return m_types[field];
+    }
+
+    /**
+     * Returns the byte offset of the field at the given index.
+     */
+    public final int getOffset(int field)
+    {
+        return m_offsets[field];
+    }
+
+    /**
+     * Returns the minimum amount of bytes a payload must have to hold every field in this layout (a {@link #REMAINING} array counts
+     * as empty here).
+     */
+    public final int getMinimumSize()
+    {
+        return m_fixedSize;
+    }
+
+    /**
+     * Returns a new {@link PayloadView} for this layout. Views are reusable, so you only need one per thread decoding payloads.
+     */
+    public final PayloadView newView()
+    {
+        return new PayloadView(this);
+    }
+
+    /**
+     * Returns a zeroed out {@link PayloadWriter} from this layout's pool (or a new one if the pool is empty). The writer goes back to the
+     * pool by itself when used with {@link com.idevicesinc.sweetblue.BleWrite#setPayload(PayloadWriter)} once the write is done,
+     * otherwise call {@link PayloadWriter#recycle()} when you're finished with it.
+     */
+    public final PayloadWriter obtainWriter()
+    {
+        PayloadWriter writer;
+        synchronized (m_pool)
+        {
+            writer = m_pool.pollFirst();
+        }
+        if (writer == null)
+            writer = new PayloadWriter(this, new byte[m_fixedSize], true);
+        else
+            writer.clear();
+        synchronized (writer)
+        {
+            writer.m_inUse = true;
+        }
+        return writer;
+    }
+
+    /**
+     * Returns a new {@link PayloadWriter} sized to hold <code>remainingCount</code> elements in this layout's {@link #REMAINING} array.
+     * These writers aren't pooled (unless the count is 0), as their size varies.
+     */
+    public final PayloadWriter obtainWriter(int remainingCount)
+    {
+        if (remainingCount <= 0 || m_remainingField == -1)
+            return obtainWriter();
+
+        final int size = m_fixedSize + remainingCount * m_types[m_remainingField].size();
+        return new PayloadWriter(this, new byte[size], false);
+    }
+
+    @Override
+    public final String toString()
+    {
+        final StringBuilder b = new StringBuilder("PayloadLayout[");
+        for (int i = 0; i < m_names.length; i++)
+        {
+            if (i > 0)
+                b.append(", ");
+            b.append(m_names[i]).append(':').append(m_types[i]);
+        }
+        return b.append(']').toString();
+    }
+
+
+    final void recycle(PayloadWriter writer)
+    {
+        synchronized (m_pool)
+        {
+            if (m_pool.size() < MAX_POOL_SIZE)
+                m_pool.addLast(writer);
+        }
+    }
+
+    // Returns how many elements of the given field fit in a payload of the given length
+    final int count(int field, int length)
+    {
+        if (m_types[field] == FieldType.BITS)
+            return count(m_parents[field], length);
+
+        final int count = m_counts[field];
+        if (count == REMAINING)
+            return Math.max(0, (length - m_offsets[field]) / m_types[field].size());
+
+        return length >= m_offsets[field] + count * m_types[field].size() ? count : 0;
+    }
+
+
+    static long readIntegral(PayloadLayout layout, byte[] data, int offset, int field, int index)
+    {
+        final FieldType type = layout.m_types[field];
+        if (type == FieldType.BITS)
+        {
+            final long parent = readIntegral(layout, data, offset, layout.m_parents[field], 0);
+            return (parent >>> layout.m_bitOffsets[field]) & ((1L << layout.m_bitCounts[field]) - 1);
+        }
+
+        final int size = type.size();
+        long value = readRaw(data, offset + layout.m_offsets[field] + index * size, size, layout.m_bigEndian[field]);
+        if (type.isSigned() && size < 8)
+        {
+            final int shift = 64 - (size << 3);
+            value = (value << shift) >> shift;
+        }
+        return value;
+    }
+
+    static double readDouble(PayloadLayout layout, byte[] data, int offset, int field, int index)
+    {
+        final FieldType type = layout.m_types[field];
+        switch (type)
+        {
+            case SFLOAT:
+            case FLOAT:
+            case FLOAT32:
+            case FLOAT64:
+                final int size = type.size();
+                final long raw = readRaw(data, offset + layout.m_offsets[field] + index * size, size, layout.m_bigEndian[field]);
+                if (type == FieldType.SFLOAT)
+                    return sfloatToDouble((int) raw);
+                else if (type == FieldType.FLOAT)
+                    return floatToDouble((int) raw);
+                else if (type == FieldType.FLOAT32)
+                    return Float.intBitsToFloat((int) raw);
+                else
+                    return Double.longBitsToDouble(raw);
+            default:
+                return readIntegral(layout, data, offset, field, index);
+        }
+    }
+
+    static void writeIntegral(PayloadLayout layout, byte[] data, int field, int index, long value)
+    {
+        final FieldType type = layout.m_types[field];
+        if (type == FieldType.BITS)
+        {
+            final int parent = layout.m_parents[field];
+            final long mask = ((1L << layout.m_bitCounts[field]) - 1) << layout.m_bitOffsets[field];
+            final long current = readIntegral(layout, data, 0, parent, 0);
+            writeIntegral(layout, data, parent, 0, (current & ~mask) | ((value << layout.m_bitOffsets[field]) & mask));
+            return;
+        }
+
+        switch (type)
+        {
+            case SFLOAT:
+            case FLOAT:
+            case FLOAT32:
+            case FLOAT64:
+                writeDouble(layout, data, field, index, value);
+                return;
+            default:
+                final int size = type.size();
+                writeRaw(data, layout.m_offsets[field] + index * size, size, layout.m_bigEndian[field], value);
+        }
+    }
+
+    static void writeDouble(PayloadLayout layout, byte[] data, int field, int index, double value)
+    {
+        final FieldType type = layout.m_types[field];
+        final int size = type.size();
+        final long raw;
+        switch (type)
+        {
+            case SFLOAT:
+                raw = doubleToSfloat(value);
+                break;
+            case FLOAT:
+                raw = doubleToFloat(value);
+                break;
+            case FLOAT32:
+                raw = Float.floatToRawIntBits((float) value);
+                break;
+            case FLOAT64:
+                raw = Double.doubleToRawLongBits(value);
+                break;
+            default:
+                writeIntegral(layout, data, field, index, Math.round(value));
+                return;
+        }
+        writeRaw(data, layout.m_offsets[field] + index * size, size, layout.m_bigEndian[field], raw);
+    }
+
+    static long readRaw(byte[] data, int position, int size, boolean bigEndian)
+    {
+        long value = 0;
+        if (bigEndian)
+        {
+            for (int i = 0; i < size; i++)
+                value = (value << 8) | (data[position + i] & 0xFF);
+        }
+        else
+        {
+            for (int i = size - 1; i >= 0; i--)
+                value = (value << 8) | (data[position + i] & 0xFF);
+        }
+        return value;
+    }
+
+    static void writeRaw(byte[] data, int position, int size, boolean bigEndian, long value)
+    {
+        if (bigEndian)
+        {
+            for (int i = size - 1; i >= 0; i--, value >>>= 8)
+                data[position + i] = (byte) value;
+        }
+        else
+        {
+            for (int i = 0; i < size; i++, value >>>= 8)
+                data[position + i] = (byte) value;
+        }
+    }
+
+    /**
+     * Converts a raw IEEE-11073 16 bit SFLOAT into a double. The reserved values (NaN, NRes) come back as {@link Double#NaN}.
+     */
+    public static double sfloatToDouble(int raw)
+    {
+        raw &= 0xFFFF;
+        switch (raw)
+        {
+            case SFLOAT_NAN:
+            case SFLOAT_NRES:
+            case SFLOAT_RESERVED:
+                return Double.NaN;
+            case SFLOAT_POSITIVE_INFINITY:
+                return Double.POSITIVE_INFINITY;
+            case SFLOAT_NEGATIVE_INFINITY:
+                return Double.NEGATIVE_INFINITY;
+        }
+        final int mantissa = (raw << 20) >> 20;
+        final int exponent = (raw << 16) >> 28;
+        return scale(mantissa, exponent);
+    }
+
+    /**
+     * Converts a raw IEEE-11073 32 bit FLOAT into a double. The reserved values (NaN, NRes) come back as {@link Double#NaN}.
+     */
+    public static double floatToDouble(int raw)
+    {
+        switch (raw)
+        {
+            case FLOAT_NAN:
+            case FLOAT_NRES:
+            case FLOAT_RESERVED:
+                return Double.NaN;
+            case FLOAT_POSITIVE_INFINITY:
+                return Double.POSITIVE_INFINITY;
+            case FLOAT_NEGATIVE_INFINITY:
+                return Double.NEGATIVE_INFINITY;
+        }
+        final int mantissa = (raw << 8) >> 8;
+        final int exponent = raw >> 24;
+        return scale(mantissa, exponent);
+    }
+
+    /**
+     * Converts the given value into a raw IEEE-11073 16 bit SFLOAT, keeping as much precision as the format allows. Values too
+     * large to represent are encoded as +/- infinity.
+     */
+    public static int doubleToSfloat(double value)
+    {
+        if (Double.isNaN(value))
+            return SFLOAT_NAN;
+        final long packed = encode(value, -8, 7, SFLOAT_MAX_MANTISSA, 4);
+        if (packed == Long.MAX_VALUE)
+            return value > 0 ? SFLOAT_POSITIVE_INFINITY : SFLOAT_NEGATIVE_INFINITY;
+        final int mantissa = (int) packed;
+        final int exponent = (int) (packed >> 32);
+        return ((exponent & 0xF) << 12) | (mantissa & 0xFFF);
+    }
+
+    /**
+     * Converts the given value into a raw IEEE-11073 32 bit FLOAT, keeping as much precision as the format allows. Values too
+     * large to represent are encoded as +/- infinity.
+     */
+    public static int doubleToFloat(double value)
+    {
+        if (Double.isNaN(value))
+            return FLOAT_NAN;
+        final long packed = encode(value, -128, 127, FLOAT_MAX_MANTISSA, 7);
+        if (packed == Long.MAX_VALUE)
+            return value > 0 ? FLOAT_POSITIVE_INFINITY : FLOAT_NEGATIVE_INFINITY;
+        final int mantissa = (int) packed;
+        final int exponent = (int) (packed >> 32);
+        return ((exponent & 0xFF) << 24) | (mantissa & 0xFFFFFF);
+    }
+
+    private static double scale(int mantissa, int exponent)
+    {
+        // Dividing by an exact power of 10 rounds correctly, multiplying by 10^-n does not
+        return exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+    }
+
+    // Returns the exponent in the upper 32 bits, and the mantissa in the lower, or Long.MAX_VALUE if the value doesn't fit
+    private static long encode(double value, int minExponent, int maxExponent, int maxMantissa, int digits)
+    {
+        if (Double.isInfinite(value))
+            return Long.MAX_VALUE;
+        if (value == 0.0)
+            return 0L;
+
+        // Start at the exponent which gives us the most significant digits, and work up until the mantissa fits
+        int exponent = (int) Math.floor(Math.log10(Math.abs(value))) - (digits - 1);
+        exponent = Math.max(minExponent, Math.min(maxExponent, exponent));
+        for (; exponent <= maxExponent; exponent++)
+        {
+            final double scaled = exponent < 0 ? value * POW10[-exponent] : value / POW10[exponent];
+            final long mantissa = Math.round(scaled);
+            if (Math.abs(mantissa) <= maxMantissa)
+                return ((long) exponent << 32) | (mantissa & 0xFFFFFFFFL);
+        }
+        return Long.MAX_VALUE;
+    }
+
+
+    private static final class Field
+    {
+        private String name;
+        private FieldType type;
+        private int offset;
+        private int count = 1;
+        private boolean bigEndian;
+        private int parent = -1;
+        private int bitOffset;
+        private int bitCount;
+    }
+
+
+    /**
+     * Builder class used to declare the fields of a {@link PayloadLayout}, in the order they appear in the payload.
+     */
+    public static final class Builder
+    {
+        private final ArrayList<Field> m_fields = new ArrayList<>();
+        private final ByteOrder m_defaultOrder;
+        private int m_offset = 0;
+        private int m_lastByteField = -1;
+        private int m_remainingField = -1;
+
+
+        /**
+         * Creates a new builder whose fields default to {@link ByteOrder#LITTLE_ENDIAN}.
+         */
+        public Builder()
+        {
+            this(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Creates a new builder whose fields default to the given {@link ByteOrder}.
+         */
+        public Builder(ByteOrder defaultOrder)
+        {
+            m_defaultOrder = defaultOrder;
+        }
+
+        /**
+         * Adds a single field of the given type.
+         */
+        public final Builder field(String name, FieldType type)
+        {
+            return field(name, type, 1, m_defaultOrder);
+        }
+
+        /**
+         * Adds a single field of the given type, with the given {@link ByteOrder}.
+         */
+        public final Builder field(String name, FieldType type, ByteOrder order)
+        {
+            return field(name, type, 1, order);
+        }
+
+        /**
+         * Adds an array of <code>count</code> elements of the given type, or use {@link #REMAINING} for an array which takes up the rest of the payload.
+         */
+        public final Builder field(String name, FieldType type, int count)
+        {
+            return field(name, type, count, m_defaultOrder);
+        }
+
+        /**
+         * Adds an array of <code>count</code> elements of the given type, with the given {@link ByteOrder}.
+         */
+        public final Builder field(String name, FieldType type, int count, ByteOrder order)
+        {
+            if (type == FieldType.BITS)
+                throw new IllegalArgumentException("Use bits() to declare a bit field.");
+            if (count < 1 && count != REMAINING)
+                throw new IllegalArgumentException("Field count must be at least 1, or REMAINING.");
+            checkNotRemaining();
+
+            final Field f = newField(name, type);
+            f.offset = m_offset;
+            f.count = count;
+            f.bigEndian = order == ByteOrder.BIG_ENDIAN;
+            if (count == REMAINING)
+                m_remainingField = m_fields.size();
+            else
+                m_offset += type.size() * count;
+            m_lastByteField = m_fields.size();
+            m_fields.add(f);
+            return this;
+        }
+
+        /**
+         * Adds a bit field covering <code>bitCount</code> bits of the previously declared (integral) field, starting at <code>bitOffset</code>
+         * (where 0 is the least significant bit). Bit fields don't take up any bytes of their own.
+         */
+        public final Builder bits(String name, int bitOffset, int bitCount)
+        {
+            if (m_lastByteField == -1)
+                throw new IllegalStateException("A bit field must come after the field it's part of.");
+
+            final Field parent = m_fields.get(m_lastByteField);
+            if (!parent.type.isIntegral() || parent.count != 1)
+                throw new IllegalStateException("Bit fields can only be declared on single integral fields.");
+            if (bitOffset < 0 || bitCount < 1 || bitOffset + bitCount > parent.type.size() * 8)
+                throw new IllegalArgumentException("Bit range is out of bounds for field " + parent.name);
+
+            final Field f = newField(name, FieldType.BITS);
+            f.offset = parent.offset;
+            f.bigEndian = parent.bigEndian;
+            f.parent = m_lastByteField;
+            f.bitOffset = bitOffset;
+            f.bitCount = bitCount;
+            m_fields.add(f);
+            return this;
+        }
+
+        /**
+         * Skips over the given number of bytes (for reserved, or unused parts of the payload).
+         */
+        public final Builder skip(int byteCount)
+        {
+            checkNotRemaining();
+            m_offset += byteCount;
+            return this;
+        }
+
+        /**
+         * Builds the {@link PayloadLayout}.
+         */
+        public final PayloadLayout build()
+        {
+            return new PayloadLayout(this);
+        }
+
+
+        private Field newField(String name, FieldType type)
+        {
+            final Field f = new Field();
+            f.name = name != null ? name : "";
+            f.type = type;
+            return f;
+        }
+
+        private void checkNotRemaining()
+        {
+            if (m_remainingField != -1)
+                throw new IllegalStateException("A REMAINING array must be the last field in the payload.");
+        }
+    }
+}
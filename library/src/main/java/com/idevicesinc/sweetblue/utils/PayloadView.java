@@ -0,0 +1,216 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+/**
+ * Reusable, zero-copy reader which decodes the fields of a {@link PayloadLayout} directly from the byte array it wraps. Nothing
+ * is copied or boxed, so it's fine to wrap every notification as it comes in. Get an instance from {@link PayloadLayout#newView()}.
+ *
+ * This class is not thread safe, each thread decoding payloads should use its own view. The getters assume the field is present,
+ * use {@link #has(int)} (or {@link #isValid()} for fixed size layouts) if the payload may be shorter than the layout.
+ */
+public final class PayloadView
+{
+
+    private final PayloadLayout m_layout;
+
+    private byte[] m_data = P_Const.EMPTY_BYTE_ARRAY;
+    private int m_offset;
+    private int m_length;
+
+
+    PayloadView(PayloadLayout layout)
+    {
+        m_layout = layout;
+    }
+
+
+    /**
+     * Points this view at the given array. The array is not copied, so it shouldn't be modified while it's being read.
+     */
+    public final PayloadView wrap(byte[] data)
+    {
+        return wrap(data, 0, data != null ? data.length : 0);
+    }
+
+    /**
+     * Points this view at <code>length</code> bytes of the given array, starting at <code>offset</code>.
+     */
+    public final PayloadView wrap(byte[] data, int offset, int length)
+    {
+        m_data = data != null ? data : P_Const.EMPTY_BYTE_ARRAY;
+        m_offset = offset;
+        m_length = data != null ? length : 0;
+        return this;
+    }
+
+    /**
+     * Returns the {@link PayloadLayout} this view decodes.
+     */
+    public final PayloadLayout getLayout()
+    {
+        return m_layout;
+    }
+
+    /**
+     * Returns the array this view is currently wrapping.
+     */
+    public final byte[] getData()
+    {
+        return m_data;
+    }
+
+    /**
+     * Returns the number of bytes this view is currently reading.
+     */
+    public final int length()
+    {
+        return m_length;
+    }
+
+    /**
+     * Returns <code>true</code> if the wrapped payload is long enough to hold every fixed size field in the layout.
+     */
+    public final boolean isValid()
+    {
+        return m_length >= m_layout.getMinimumSize();
+    }
+
+    /**
+     * Returns <code>true</code> if the wrapped payload holds the given field (for arrays, every element of it).
+     */
+    public final boolean has(int field)
+    {
+        return m_layout.count(field, m_length) > 0;
+    }
+
+    /**
+     * Returns the number of elements of the given field in the wrapped payload. This is mostly useful for {@link PayloadLayout#REMAINING} arrays.
+     */
+    public final int count(int field)
+    {
+        return m_layout.count(field, m_length);
+    }
+
+    /**
+     * Returns the given field as an int. Unsigned 32 bit values larger than {@link Integer#MAX_VALUE} will overflow, use {@link #getLong(int)}
+     * for those.
+     */
+    public final int getInt(int field)
+    {
+        return (int) getLong(field, 0);
+    }
+
+    /**
+     * Returns the element at <code>index</code> of the given array field as an int.
+     */
+    public final int getInt(int field, int index)
+    {
+        return (int) getLong(field, index);
+    }
+
+    /**
+     * Returns the given field as a long.
+     */
+    public final long getLong(int field)
+    {
+        return getLong(field, 0);
+    }
+
+    /**
+     * Returns the element at <code>index</code> of the given array field as a long. Float fields are truncated.
+     */
+    public final long getLong(int field, int index)
+    {
+        if (m_layout.m_types[field].isIntegral())
+            return PayloadLayout.readIntegral(m_layout, m_data, m_offset, field, index);
+        return (long) PayloadLayout.readDouble(m_layout, m_data, m_offset, field, index);
+    }
+
+    /**
+     * Returns the given field as a float. This handles {@link PayloadLayout.FieldType#SFLOAT}, and {@link PayloadLayout.FieldType#FLOAT} fields.
+     */
+    public final float getFloat(int field)
+    {
+        return (float) PayloadLayout.readDouble(m_layout, m_data, m_offset, field, 0);
+    }
+
+    /**
+     * Returns the element at <code>index</code> of the given array field as a float.
+     */
+    public final float getFloat(int field, int index)
+    {
+        return (float) PayloadLayout.readDouble(m_layout, m_data, m_offset, field, index);
+    }
+
+    /**
+     * Returns the given field as a double.
+     */
+    public final double getDouble(int field)
+    {
+        return PayloadLayout.readDouble(m_layout, m_data, m_offset, field, 0);
+    }
+
+    /**
+     * Returns the element at <code>index</code> of the given array field as a double.
+     */
+    public final double getDouble(int field, int index)
+    {
+        return PayloadLayout.readDouble(m_layout, m_data, m_offset, field, index);
+    }
+
+    /**
+     * Returns <code>true</code> if the given field (usually a bit field) is not 0.
+     */
+    public final boolean getBoolean(int field)
+    {
+        return getLong(field, 0) != 0;
+    }
+
+    /**
+     * Copies <code>count</code> elements of the given array field into the given int array, starting at <code>destOffset</code>. Returns
+     * the number of elements copied (which may be less than asked for if the payload is short).
+     */
+    public final int getInts(int field, int[] dest, int destOffset, int count)
+    {
+        final int n = Math.min(count, count(field));
+        for (int i = 0; i < n; i++)
+            dest[destOffset + i] = getInt(field, i);
+        return n;
+    }
+
+    @Override
+    public final String toString()
+    {
+        final StringBuilder b = new StringBuilder("PayloadView[");
+        for (int i = 0; i < m_layout.getFieldCount(); i++)
+        {
+            if (i > 0)
+                b.append(", ");
+            b.append(m_layout.getName(i)).append('=');
+            if (!has(i))
+                b.append("n/a");
+            else if (m_layout.getType(i).isIntegral())
+                b.append(getLong(i));
+            else
+                b.append(getDouble(i));
+        }
+        return b.append(']').toString();
+    }
+}
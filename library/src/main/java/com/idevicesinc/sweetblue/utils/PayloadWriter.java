@@ -0,0 +1,161 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Encodes the fields of a {@link PayloadLayout} into a byte array, which is typically pooled by the layout (see {@link PayloadLayout#obtainWriter()}).
+ * This implements {@link FutureData}, so it can be handed straight to a write, or use {@link com.idevicesinc.sweetblue.BleWrite#setPayload(PayloadWriter)}.
+ * Values which don't fit in a field are truncated, the same as a cast would.
+ */
+public final class PayloadWriter implements FutureData
+{
+
+    private final PayloadLayout m_layout;
+    private final byte[] m_buffer;
+    private final boolean m_pooled;
+
+    boolean m_inUse;
+
+
+    PayloadWriter(PayloadLayout layout, byte[] buffer, boolean pooled)
+    {
+        m_layout = layout;
+        m_buffer = buffer;
+        m_pooled = pooled;
+    }
+
+
+    /**
+     * Returns the {@link PayloadLayout} this writer encodes.
+     */
+    public final PayloadLayout getLayout()
+    {
+        return m_layout;
+    }
+
+    public final PayloadWriter setInt(int field, int value)
+    {
+        PayloadLayout.writeIntegral(m_layout, m_buffer, field, 0, value);
+        return this;
+    }
+
+    public final PayloadWriter setInt(int field, int index, int value)
+    {
+        PayloadLayout.writeIntegral(m_layout, m_buffer, field, index, value);
+        return this;
+    }
+
+    public final PayloadWriter setLong(int field, long value)
+    {
+        PayloadLayout.writeIntegral(m_layout, m_buffer, field, 0, value);
+        return this;
+    }
+
+    public final PayloadWriter setLong(int field, int index, long value)
+    {
+        PayloadLayout.writeIntegral(m_layout, m_buffer, field, index, value);
+        return this;
+    }
+
+    /**
+     * Sets a float field (or an integral one, in which case the value is rounded). {@link PayloadLayout.FieldType#SFLOAT}, and
+     * {@link PayloadLayout.FieldType#FLOAT} fields keep as much precision as the format allows.
+     */
+    public final PayloadWriter setDouble(int field, double value)
+    {
+        PayloadLayout.writeDouble(m_layout, m_buffer, field, 0, value);
+        return this;
+    }
+
+    public final PayloadWriter setDouble(int field, int index, double value)
+    {
+        PayloadLayout.writeDouble(m_layout, m_buffer, field, index, value);
+        return this;
+    }
+
+    public final PayloadWriter setFloat(int field, float value)
+    {
+        return setDouble(field, value);
+    }
+
+    public final PayloadWriter setFloat(int field, int index, float value)
+    {
+        return setDouble(field, index, value);
+    }
+
+    public final PayloadWriter setBoolean(int field, boolean value)
+    {
+        return setLong(field, value ? 1 : 0);
+    }
+
+    /**
+     * Zeroes out the buffer.
+     */
+    public final PayloadWriter clear()
+    {
+        Arrays.fill(m_buffer, (byte) 0);
+        return this;
+    }
+
+    /**
+     * Returns the encoded buffer. This is NOT a copy, so if this writer came from a pool, don't hold on to the array after calling
+     * {@link #recycle()}.
+     */
+    @Override
+    public final byte[] getData()
+    {
+        return m_buffer;
+    }
+
+    /**
+     * Returns a copy of the encoded buffer.
+     */
+    public final byte[] toByteArray()
+    {
+        return m_buffer.clone();
+    }
+
+    /**
+     * Returns <code>true</code> if this writer came from a {@link PayloadLayout}'s pool, and goes back to it when {@link #recycle()} is called.
+     */
+    public final boolean isPooled()
+    {
+        return m_pooled;
+    }
+
+    /**
+     * Puts this writer back into its layout's pool. Calling this more than once, or on a writer which isn't pooled, does nothing.
+     */
+    public final void recycle()
+    {
+        if (!m_pooled)
+            return;
+
+        synchronized (this)
+        {
+            if (!m_inUse)
+                return;
+            m_inUse = false;
+        }
+        m_layout.recycle(this);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.annotations.Immutable;
+
+/**
+ * Describes how a {@link com.idevicesinc.sweetblue.BleDevice} smooths its raw RSSI readings, set through
+ * {@link com.idevicesinc.sweetblue.BleDeviceConfig#rssiFilter}. This class only holds the settings. Each device keeps its own filter
+ * state, so one instance can be shared by any number of devices and configs.
+ */
+@Immutable
+public final class RssiFilter
+{
+	/**
+	 * The kinds of filter available.
+	 */
+	public enum Type
+	{
+		/**
+		 * No smoothing, the filtered value is always the latest raw reading.
+		 */
+		NONE,
+
+		/**
+		 * Exponentially weighted moving average, see {@link #ewma(double)}.
+		 */
+		EWMA,
+
+		/**
+		 * Median of the last N readings, see {@link #median(int)}.
+		 */
+		MEDIAN,
+
+		/**
+		 * One dimensional Kalman filter, see {@link #kalman(double, double)}.
+		 */
+		KALMAN;
+	}
+
+	/**
+	 * Default value for {@link #ewma(double)}'s smoothing factor.
+	 */
+	public static final double DEFAULT_EWMA_ALPHA = 0.25;
+
+	/**
+	 * Default window for {@link #median(int)}.
+	 */
+	public static final int DEFAULT_MEDIAN_WINDOW = 5;
+
+	/**
+	 * Default process noise for {@link #kalman(double, double)}.
+	 */
+	public static final double DEFAULT_KALMAN_PROCESS_NOISE = 0.008;
+
+	/**
+	 * Default measurement noise for {@link #kalman(double, double)}.
+	 */
+	public static final double DEFAULT_KALMAN_MEASUREMENT_NOISE = 4.0;
+
+	/**
+	 * No smoothing.
+	 */
+	public static final RssiFilter NONE = new RssiFilter(Type.NONE, 0.0, 0.0, 0);
+
+	private final Type m_type;
+	private final double m_param1;
+	private final double m_param2;
+	private final int m_window;
+
+
+	private RssiFilter(final Type type, final double param1, final double param2, final int window)
+	{
+		m_type = type;
+		m_param1 = param1;
+		m_param2 = param2;
+		m_window = window;
+	}
+
+	/**
+	 * Returns an exponentially weighted moving average filter. <code>alpha</code> is between 0 and 1. Larger values follow new readings
+	 * more quickly, and smaller values smooth more.
+	 */
+	public static RssiFilter ewma(final double alpha)
+	{
+		return new RssiFilter(Type.EWMA, Math.max(0.0, Math.min(1.0, alpha)), 0.0, 0);
+	}
+
+	/**
+	 * Overload of {@link #ewma(double)} which uses {@link #DEFAULT_EWMA_ALPHA}.
+	 */
+	public static RssiFilter ewma()
+	{
+		return ewma(DEFAULT_EWMA_ALPHA);
+	}
+
+	/**
+	 * Returns a filter that reports the median of the last <code>window</code> readings. This ignores single outliers completely,
+	 * but it takes about half a window to follow a real change.
+	 */
+	public static RssiFilter median(final int window)
+	{
+		return new RssiFilter(Type.MEDIAN, 0.0, 0.0, Math.max(1, window));
+	}
+
+	/**
+	 * Overload of {@link #median(int)} which uses {@link #DEFAULT_MEDIAN_WINDOW}.
+	 */
+	public static RssiFilter median()
+	{
+		return median(DEFAULT_MEDIAN_WINDOW);
+	}
+
+	/**
+	 * Returns a one dimensional Kalman filter, which assumes the true RSSI stays about the same between readings. <code>processNoise</code>
+	 * is how much the true value is expected to drift per reading, and <code>measurementNoise</code> is the variance of a single reading.
+	 * Raising the ratio of process noise to measurement noise makes the filter follow new readings more quickly.
+	 */
+	public static RssiFilter kalman(final double processNoise, final double measurementNoise)
+	{
+		return new RssiFilter(Type.KALMAN, Math.max(0.0, processNoise), Math.max(Double.MIN_VALUE, measurementNoise), 0);
+	}
+
+	/**
+	 * Overload of {@link #kalman(double, double)} which uses {@link #DEFAULT_KALMAN_PROCESS_NOISE} and {@link #DEFAULT_KALMAN_MEASUREMENT_NOISE}.
+	 */
+	public static RssiFilter kalman()
+	{
+		return kalman(DEFAULT_KALMAN_PROCESS_NOISE, DEFAULT_KALMAN_MEASUREMENT_NOISE);
+	}
+
+	public final Type getType()
+	{
+		return m_type;
+	}
+
+	/**
+	 * Returns the smoothing factor for {@link Type#EWMA}.
+	 */
+	public final double getAlpha()
+	{
+		return m_type == Type.EWMA ? m_param1 : 0.0;
+	}
+
+	/**
+	 * Returns the window size for {@link Type#MEDIAN}.
+	 */
+	public final int getWindow()
+	{
+		return m_window;
+	}
+
+	/**
+	 * Returns the process noise for {@link Type#KALMAN}.
+	 */
+	public final double getProcessNoise()
+	{
+		return m_type == Type.KALMAN ? m_param1 : 0.0;
+	}
+
+	/**
+	 * Returns the measurement noise for {@link Type#KALMAN}.
+	 */
+	public final double getMeasurementNoise()
+	{
+		return m_type == Type.KALMAN ? m_param2 : 0.0;
+	}
+
+	@Override public String toString()
+	{
+		switch (m_type)
+		{
+			case EWMA:		return Utils_String.makeString(m_type, "(alpha=", m_param1, ")");
+			case MEDIAN:	return Utils_String.makeString(m_type, "(window=", m_window, ")");
+			case KALMAN:	return Utils_String.makeString(m_type, "(q=", m_param1, ", r=", m_param2, ")");
+			default:		return m_type.name();
+		}
+	}
+}
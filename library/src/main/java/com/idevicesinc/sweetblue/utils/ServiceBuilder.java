@@ -122,6 +122,17 @@ public final class ServiceBuilder
     }
 
 
+    final UUID getServiceUuid()
+    {
+        return m_serviceUuid;
+    }
+
+    final void markServed(UUID charUuid, UUID descUuid_nullable)
+    {
+        if (m_database != null)
+            m_database.addServedAttribute(m_serviceUuid, charUuid, descUuid_nullable);
+    }
+
     private GattDatabase getDatabase()
     {
         return m_database;
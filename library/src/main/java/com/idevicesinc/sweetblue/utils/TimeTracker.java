@@ -27,6 +27,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * @deprecated The library no longer records anything here. Use {@link com.idevicesinc.sweetblue.BleManagerConfig#enableMetrics},
+ * and {@link com.idevicesinc.sweetblue.BleManager#getMetricsSnapshot()} instead.
+ */
+@Deprecated
 public class TimeTracker
 {
     private static TimeTracker s_instance = null;
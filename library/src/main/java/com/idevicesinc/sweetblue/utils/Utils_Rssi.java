@@ -51,6 +51,11 @@ public final class Utils_Rssi extends Utils
 	{
 		return (((double)(rssi-rssi_min)) / ((double)(rssi_max-rssi_min))) * 100.0;
 	}
+
+	public static double percent(final double rssi, final int rssi_min, final int rssi_max)
+	{
+		return ((rssi-rssi_min) / ((double)(rssi_max-rssi_min))) * 100.0;
+	}
 	
 	public static double distance(final int txPower, final int rssi)
 	{
@@ -58,13 +63,26 @@ public final class Utils_Rssi extends Utils
 	}
 	
 	public static double distance(final int txPower, final int rssi, double a, double b, double c)
+	{
+		return distance(txPower, (double) rssi, a, b, c);
+	}
+
+	/**
+	 * Same as {@link #distance(int, int)}, but for a fractional RSSI, like the smoothed value from an {@link RssiFilter}.
+	 */
+	public static double distance(final int txPower, final double rssi)
+	{
+		return distance(txPower, rssi, 0.89976, 7.7095, 0.111);
+	}
+
+	public static double distance(final int txPower, final double rssi, double a, double b, double c)
 	{
 		if (rssi == 0)
 		{
 			return -1.0;
 		}
 
-		final double ratio = ((double)rssi) * (1.0 / ((double)txPower));
+		final double ratio = rssi * (1.0 / ((double)txPower));
 		
 		if (ratio < 1.0)
 		{
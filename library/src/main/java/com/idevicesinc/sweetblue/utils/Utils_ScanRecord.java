@@ -252,6 +252,230 @@ public final class Utils_ScanRecord extends com.idevicesinc.sweetblue.utils.Util
 		return name;
 	}
 
+	/**
+	 * Returns the offset of the first AD structure at or after <code>fromOffset</code> whose type is <code>fieldType</code>, or <code>-1</code>
+	 * if there is none. <code>fromOffset</code> must point at the length byte of a structure (<code>0</code> for the start of the record). The
+	 * returned offset also points at the length byte, so the structure's data starts at <code>offset + 2</code>, and is
+	 * {@link #getAdDataLength(byte[], int)} bytes long. Nothing is allocated, so this is safe to call for every advertisement.
+	 */
+	public static int findAdStructure(final byte[] scanRecord, final int fieldType, final int fromOffset)
+	{
+		if (scanRecord == null || fromOffset < 0)
+			return -1;
+
+		int currentPos = fromOffset;
+		// Same bounds as parseScanRecord(), so malformed trailing structures are skipped in both places
+		while (currentPos + 2 < scanRecord.length)
+		{
+			final int length = scanRecord[currentPos] & 0xFF;
+			if (length == 0)
+				break;
+
+			if ((scanRecord[currentPos + 1] & 0xFF) == fieldType)
+				return currentPos;
+
+			currentPos += length + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the length of the data portion of the AD structure at the given offset (as returned by {@link #findAdStructure(byte[], int, int)}),
+	 * clamped to the end of the record.
+	 */
+	public static int getAdDataLength(final byte[] scanRecord, final int structureOffset)
+	{
+		final int declared = (scanRecord[structureOffset] & 0xFF) - 1;
+		final int available = scanRecord.length - structureOffset - 2;
+		return Math.max(0, Math.min(declared, available));
+	}
+
+	/**
+	 * Returns <code>true</code> if the raw scan record advertises the given service {@link UUID} in any of its 16, 32, or 128 bit
+	 * service uuid lists. Unlike {@link #parseScanRecord(byte[])}, this works directly on the bytes and does not allocate.
+	 */
+	public static boolean hasServiceUuid(final byte[] scanRecord, final UUID serviceUuid)
+	{
+		if (scanRecord == null || serviceUuid == null)
+			return false;
+
+		int currentPos = 0;
+		while (currentPos + 2 < scanRecord.length)
+		{
+			final int length = scanRecord[currentPos] & 0xFF;
+			if (length == 0)
+				break;
+
+			final int uuidLength = getServiceUuidListSize(scanRecord[currentPos + 1] & 0xFF);
+			if (uuidLength != 0)
+			{
+				final int dataStart = currentPos + 2;
+				final int dataEnd = dataStart + getAdDataLength(scanRecord, currentPos);
+				for (int i = dataStart; i + uuidLength <= dataEnd; i += uuidLength)
+				{
+					if (uuidEquals(scanRecord, i, uuidLength, serviceUuid))
+						return true;
+				}
+			}
+			currentPos += length + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the raw scan record contains manufacturer specific data with the given id, whose data (not including the
+	 * two id bytes) starts with <code>data</code>. If <code>mask</code> is not <code>null</code>, only the bits set in the mask are compared. If
+	 * <code>data</code> is <code>null</code>, only the manufacturer id is checked. This does not allocate.
+	 */
+	public static boolean matchesManufacturerData(final byte[] scanRecord, final int manufacturerId, final byte[] data, final byte[] mask)
+	{
+		int offset = findAdStructure(scanRecord, DATA_TYPE_MANUFACTURER_SPECIFIC_DATA, 0);
+		while (offset != -1)
+		{
+			final int dataLength = getAdDataLength(scanRecord, offset);
+			if (dataLength >= 2)
+			{
+				final int id = ((scanRecord[offset + 3] & 0xFF) << 8) | (scanRecord[offset + 2] & 0xFF);
+				if (id == (manufacturerId & 0xFFFF) && partialMatch(scanRecord, offset + 4, dataLength - 2, data, mask))
+					return true;
+			}
+			offset = findAdStructure(scanRecord, DATA_TYPE_MANUFACTURER_SPECIFIC_DATA, offset + (scanRecord[offset] & 0xFF) + 1);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the raw scan record contains service data for the given {@link UUID}, whose payload starts with <code>data</code>.
+	 * Masking works the same as {@link #matchesManufacturerData(byte[], int, byte[], byte[])}. This does not allocate.
+	 */
+	public static boolean matchesServiceData(final byte[] scanRecord, final UUID serviceUuid, final byte[] data, final byte[] mask)
+	{
+		if (scanRecord == null || serviceUuid == null)
+			return false;
+
+		int currentPos = 0;
+		while (currentPos + 2 < scanRecord.length)
+		{
+			final int length = scanRecord[currentPos] & 0xFF;
+			if (length == 0)
+				break;
+
+			final int uuidLength = getServiceDataUuidSize(scanRecord[currentPos + 1] & 0xFF);
+			if (uuidLength != 0)
+			{
+				final int dataLength = getAdDataLength(scanRecord, currentPos);
+				if (dataLength >= uuidLength && uuidEquals(scanRecord, currentPos + 2, uuidLength, serviceUuid)
+						&& partialMatch(scanRecord, currentPos + 2 + uuidLength, dataLength - uuidLength, data, mask))
+					return true;
+			}
+			currentPos += length + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if the local name (short or complete) in the raw scan record starts with the given bytes. Pass the prefix
+	 * already encoded, eg <code>"Sensor".getBytes()</code>, so that nothing has to be decoded or allocated per advertisement.
+	 */
+	public static boolean localNameStartsWith(final byte[] scanRecord, final byte[] prefix)
+	{
+		if (scanRecord == null || prefix == null)
+			return false;
+
+		int currentPos = 0;
+		while (currentPos + 2 < scanRecord.length)
+		{
+			final int length = scanRecord[currentPos] & 0xFF;
+			if (length == 0)
+				break;
+
+			final int fieldType = scanRecord[currentPos + 1] & 0xFF;
+			if ((fieldType == DATA_TYPE_LOCAL_NAME_SHORT || fieldType == DATA_TYPE_LOCAL_NAME_COMPLETE)
+					&& partialMatch(scanRecord, currentPos + 2, getAdDataLength(scanRecord, currentPos), prefix, null))
+				return true;
+
+			currentPos += length + 1;
+		}
+		return false;
+	}
+
+	private static int getServiceUuidListSize(final int fieldType)
+	{
+		switch (fieldType)
+		{
+			case DATA_TYPE_SERVICE_UUIDS_16_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_16_BIT_COMPLETE:
+				return UUID_BYTES_16_BIT;
+			case DATA_TYPE_SERVICE_UUIDS_32_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_32_BIT_COMPLETE:
+				return UUID_BYTES_32_BIT;
+			case DATA_TYPE_SERVICE_UUIDS_128_BIT_PARTIAL:
+			case DATA_TYPE_SERVICE_UUIDS_128_BIT_COMPLETE:
+				return UUID_BYTES_128_BIT;
+			default:
+				return 0;
+		}
+	}
+
+	static int getServiceDataUuidSize(final int fieldType)
+	{
+		switch (fieldType)
+		{
+			case DATA_TYPE_SERVICE_DATA_16_BIT:
+				return UUID_BYTES_16_BIT;
+			case DATA_TYPE_SERVICE_DATA_32_BIT:
+				return UUID_BYTES_32_BIT;
+			case DATA_TYPE_SERVICE_DATA_128_BIT:
+				return UUID_BYTES_128_BIT;
+			default:
+				return 0;
+		}
+	}
+
+	// Compares a little endian uuid in the record against the given UUID, expanding 16 and 32 bit uuids against the base uuid
+	// without building a new UUID instance.
+	static boolean uuidEquals(final byte[] scanRecord, final int offset, final int uuidLength, final UUID uuid)
+	{
+		if (uuidLength == UUID_BYTES_128_BIT)
+		{
+			return readLongLE(scanRecord, offset, 8) == uuid.getLeastSignificantBits() &&
+					readLongLE(scanRecord, offset + 8, 8) == uuid.getMostSignificantBits();
+		}
+
+		final long msb = uuid.getMostSignificantBits();
+		if (uuid.getLeastSignificantBits() != BASE_UUID.getLeastSignificantBits() || (msb & 0xFFFFFFFFL) != (BASE_UUID.getMostSignificantBits() & 0xFFFFFFFFL))
+			return false;
+
+		return (msb >>> 32) == readLongLE(scanRecord, offset, uuidLength);
+	}
+
+	private static long readLongLE(final byte[] bytes, final int offset, final int length)
+	{
+		long value = 0;
+		for (int i = length - 1; i >= 0; i--)
+		{
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
+
+	private static boolean partialMatch(final byte[] scanRecord, final int offset, final int available, final byte[] data, final byte[] mask)
+	{
+		if (data == null)
+			return true;
+
+		if (available < data.length)
+			return false;
+
+		for (int i = 0; i < data.length; i++)
+		{
+			final int m = mask != null && i < mask.length ? mask[i] & 0xFF : 0xFF;
+			if ((scanRecord[offset + i] & 0xFF & m) != (data[i] & 0xFF & m))
+				return false;
+		}
+		return true;
+	}
+
 	// Parse service UUIDs.
 	private static int parseServiceUuid(byte[] scanRecord, int currentPos, int dataLength, int uuidLength, final List<UUID> serviceUuids_nullable)
 	{
@@ -0,0 +1,242 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.framework.AbstractTestClass;
+import com.idevicesinc.sweetblue.utils.BeaconDecoder;
+import com.idevicesinc.sweetblue.utils.BeaconDecoderRegistry;
+import com.idevicesinc.sweetblue.utils.BeaconFrame;
+import com.idevicesinc.sweetblue.utils.BleScanRecord;
+import com.idevicesinc.sweetblue.utils.ManufacturerData;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+
+public class BeaconDecoderTest extends AbstractTestClass
+{
+
+    private static final UUID PROXIMITY_UUID = UUID.fromString("f7826da6-4fa2-4e98-8024-bc5b71e0893e");
+
+
+    @Test(timeout = 5000)
+    public void iBeaconTest() throws Exception
+    {
+        startSynchronousTest();
+        final byte[] record = newIBeaconRecord(PROXIMITY_UUID, 0x1234, 0xBEEF, -59);
+        final BeaconFrame frame = BeaconDecoderRegistry.newDefault().decode(record);
+        assertTrue(frame instanceof BeaconFrame.IBeacon);
+        final BeaconFrame.IBeacon beacon = (BeaconFrame.IBeacon) frame;
+        assertTrue(PROXIMITY_UUID.equals(beacon.getUuid()));
+        assertEquals(0x1234, beacon.getMajor());
+        assertEquals(0xBEEF, beacon.getMinor());
+        assertEquals(-59, beacon.getMeasuredPower());
+
+        // Same payload under a different company id shouldn't decode
+        final byte[] notApple = new BleScanRecord().addManufacturerData((short) 0x0059, iBeaconPayload(PROXIMITY_UUID, 1, 2, -59)).buildPacket();
+        assertNull(BeaconDecoderRegistry.newDefault().decode(notApple));
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void altBeaconTest() throws Exception
+    {
+        startSynchronousTest();
+        final byte[] payload = new byte[24];
+        payload[0] = (byte) 0xBE;
+        payload[1] = (byte) 0xAC;
+        for (int i = 0; i < 20; i++)
+            payload[2 + i] = (byte) i;
+        payload[22] = (byte) -65;
+        payload[23] = 0x07;
+        final byte[] record = new BleScanRecord().addManufacturerData((short) 0x0118, payload).buildPacket();
+
+        final BeaconFrame frame = BeaconDecoderRegistry.newDefault().decode(record);
+        assertTrue(frame instanceof BeaconFrame.AltBeacon);
+        final BeaconFrame.AltBeacon beacon = (BeaconFrame.AltBeacon) frame;
+        assertEquals(0x0118, beacon.getManufacturerId());
+        assertTrue(UUID.fromString("00010203-0405-0607-0809-0a0b0c0d0e0f").equals(beacon.getId1()));
+        assertEquals(0x1011, beacon.getId2());
+        assertEquals(0x1213, beacon.getId3());
+        assertEquals(-65, beacon.getReferenceRssi());
+        assertEquals(0x07, beacon.getReserved());
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void eddystoneTest() throws Exception
+    {
+        startSynchronousTest();
+        final BeaconDecoderRegistry registry = BeaconDecoderRegistry.newDefault();
+
+        final byte[] uid = new byte[20];
+        uid[0] = 0x00;
+        uid[1] = (byte) -20;
+        for (int i = 0; i < 16; i++)
+            uid[2 + i] = (byte) (0xA0 + i);
+        BeaconFrame frame = registry.decode(eddystoneRecord(uid));
+        assertTrue(frame instanceof BeaconFrame.EddystoneUid);
+        final BeaconFrame.EddystoneUid uidFrame = (BeaconFrame.EddystoneUid) frame;
+        assertEquals(-20, uidFrame.getTxPower());
+        assertEquals((byte) 0xA0, uidFrame.getNamespace()[0]);
+        assertEquals((byte) 0xA9, uidFrame.getNamespace()[9]);
+        assertEquals(0xAAABACADAEAFL, uidFrame.getInstanceAsLong());
+
+        // https://www.example.com/
+        final byte[] url = new byte[] { 0x10, (byte) -18, 0x01, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0x00 };
+        frame = registry.decode(eddystoneRecord(url));
+        assertTrue(frame instanceof BeaconFrame.EddystoneUrl);
+        assertEquals("https://www.example.com/", ((BeaconFrame.EddystoneUrl) frame).getUrl());
+
+        // 3000mV, 25.5C, 1000 advertisements, 60 seconds up
+        final byte[] tlm = new byte[] { 0x20, 0x00, 0x0B, (byte) 0xB8, 0x19, (byte) 0x80, 0x00, 0x00, 0x03, (byte) 0xE8, 0x00, 0x00, 0x02, 0x58 };
+        frame = registry.decode(eddystoneRecord(tlm));
+        assertTrue(frame instanceof BeaconFrame.EddystoneTlm);
+        final BeaconFrame.EddystoneTlm tlmFrame = (BeaconFrame.EddystoneTlm) frame;
+        assertFalse(tlmFrame.isEncrypted());
+        assertEquals(3000, tlmFrame.getBatteryMillivolts());
+        assertEquals(25.5, tlmFrame.getTemperature(), 0.0001);
+        assertEquals(1000, tlmFrame.getAdvertisingCount());
+        assertEquals(600, tlmFrame.getUptimeDeciseconds());
+
+        final byte[] eid = new byte[] { 0x30, (byte) -10, 1, 2, 3, 4, 5, 6, 7, 8 };
+        frame = registry.decode(eddystoneRecord(eid));
+        assertTrue(frame instanceof BeaconFrame.EddystoneEid);
+        assertEquals(8, ((BeaconFrame.EddystoneEid) frame).getEid()[7]);
+
+        // Truncated and unknown frames are ignored
+        assertNull(registry.decode(eddystoneRecord(new byte[] { 0x00, 0x01, 0x02 })));
+        assertNull(registry.decode(eddystoneRecord(new byte[] { 0x40, 0x00 })));
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void customDecoderTest() throws Exception
+    {
+        startSynchronousTest();
+        final CustomFrame custom = new CustomFrame();
+        final BeaconDecoderRegistry registry = new BeaconDecoderRegistry();
+        registry.addServiceDataDecoder(Uuids.fromShort(0xFE9A), (scanRecord, offset, length) ->
+        {
+            if (length < 1)
+                return null;
+            custom.value = scanRecord[offset] & 0xFF;
+            return custom;
+        });
+
+        final byte[] record = new BleScanRecord().addServiceData(Uuids.fromShort(0xFE9A), new byte[] { 0x42 }).buildPacket();
+        assertTrue(custom == registry.decode(record));
+        assertEquals(0x42, custom.value);
+
+        // No Eddystone decoder registered here
+        assertNull(registry.decode(eddystoneRecord(new byte[] { 0x30, 0, 1, 2, 3, 4, 5, 6, 7, 8 })));
+        succeed();
+    }
+
+    @Test(timeout = 60000)
+    public void throughputTest() throws Exception
+    {
+        startSynchronousTest();
+        final byte[][] records = new byte[256][];
+        for (int i = 0; i < records.length; i++)
+        {
+            final byte[] random = Util_Unit.randomBytes(4);
+            records[i] = newIBeaconRecord(PROXIMITY_UUID, ((random[0] & 0xFF) << 8) | (random[1] & 0xFF), ((random[2] & 0xFF) << 8) | (random[3] & 0xFF), -59);
+        }
+
+        final BeaconDecoderRegistry registry = BeaconDecoderRegistry.newDefault();
+        final int iterations = 100000;
+        long registrySum = 0;
+        long parseSum = 0;
+
+        // Warm up both paths, then time them
+        for (int pass = 0; pass < 2; pass++)
+        {
+            registrySum = 0;
+            parseSum = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                final BeaconFrame.IBeacon beacon = (BeaconFrame.IBeacon) registry.decode(records[i & 0xFF]);
+                registrySum += beacon.getMajor() + beacon.getMinor();
+            }
+            final long registryTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                final BleScanRecord parsed = Utils_ScanRecord.parseScanRecord(records[i & 0xFF]);
+                for (ManufacturerData data : parsed.getManufacturerDataList())
+                {
+                    if (data.m_id == BeaconDecoderRegistry.APPLE_MANUFACTURER_ID && data.m_data.length >= 23)
+                        parseSum += (((data.m_data[18] & 0xFF) << 8) | (data.m_data[19] & 0xFF)) + (((data.m_data[20] & 0xFF) << 8) | (data.m_data[21] & 0xFF));
+                }
+            }
+            final long parseTime = System.nanoTime() - start;
+
+            if (pass == 1 && Boolean.getBoolean("sweetblue.printTimings"))
+                System.out.println("BeaconDecoderRegistry: " + (registryTime / iterations) + "ns/record, parseScanRecord: " + (parseTime / iterations) + "ns/record");
+        }
+
+        // Both paths have to agree on the values
+        assertEquals(parseSum, registrySum);
+        succeed();
+    }
+
+
+    private static byte[] newIBeaconRecord(UUID uuid, int major, int minor, int measuredPower)
+    {
+        return new BleScanRecord().addManufacturerData((short) BeaconDecoderRegistry.APPLE_MANUFACTURER_ID, iBeaconPayload(uuid, major, minor, measuredPower)).buildPacket();
+    }
+
+    private static byte[] iBeaconPayload(UUID uuid, int major, int minor, int measuredPower)
+    {
+        final byte[] payload = new byte[23];
+        payload[0] = 0x02;
+        payload[1] = 0x15;
+        final long msb = uuid.getMostSignificantBits();
+        final long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++)
+        {
+            payload[2 + i] = (byte) (msb >>> (56 - i * 8));
+            payload[10 + i] = (byte) (lsb >>> (56 - i * 8));
+        }
+        payload[18] = (byte) (major >> 8);
+        payload[19] = (byte) major;
+        payload[20] = (byte) (minor >> 8);
+        payload[21] = (byte) minor;
+        payload[22] = (byte) measuredPower;
+        return payload;
+    }
+
+    private static byte[] eddystoneRecord(byte[] frame)
+    {
+        return new BleScanRecord().addServiceData(BeaconDecoderRegistry.EDDYSTONE_SERVICE_UUID, frame).buildPacket();
+    }
+
+
+    private static final class CustomFrame extends BeaconFrame
+    {
+        private int value;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class CallbackExecutorTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+    private final static int READ_COUNT = 30;
+    private final static String THREAD_NAME = "CallbackLane";
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().read().setPermissions().read().completeService();
+
+    private final ExecutorService m_executor = Executors.newFixedThreadPool(4, r -> new Thread(r, THREAD_NAME));
+
+
+    @Test(timeout = 15000)
+    public void callbacksRunInOrderPerDeviceTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.postCallbacksToMainThread = false;
+        m_config.callbackExecutor = m_executor;
+        m_config.callbackLaneCapacity = 4;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device1 = m_manager.newDevice(Util_Unit.randomMacAddress(), "Lane One");
+        final BleDevice device2 = m_manager.newDevice(Util_Unit.randomMacAddress(), "Lane Two");
+        final AtomicInteger finished = new AtomicInteger();
+
+        final Runnable onDeviceDone = () -> {
+            if (finished.incrementAndGet() == 2)
+            {
+                succeed();
+            }
+        };
+
+        readInOrder(device1, onDeviceDone);
+        readInOrder(device2, onDeviceDone);
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void stateConnectAndReadCallbacksShareLaneTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.postCallbacksToMainThread = false;
+        m_config.callbackExecutor = m_executor;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Lane Mixed");
+        final AtomicBoolean running = new AtomicBoolean();
+        final AtomicBoolean sawInitialized = new AtomicBoolean();
+        final AtomicBoolean readsDone = new AtomicBoolean();
+        final AtomicInteger nextIndex = new AtomicInteger();
+
+        device.setListener_State(e -> {
+            assertTrue(running.compareAndSet(false, true));
+            assertTrue(Thread.currentThread().getName().startsWith(THREAD_NAME));
+
+            // Slow state listener, so any callback for this device that isn't in the same lane would overtake it
+            sleep(20);
+
+            if (e.didEnter(BleDeviceState.INITIALIZED))
+            {
+                sawInitialized.set(true);
+            }
+            running.set(false);
+
+            if (e.didEnter(BleDeviceState.DISCONNECTED) && readsDone.get())
+            {
+                succeed();
+            }
+        });
+
+        device.connect(e -> {
+            assertTrue(running.compareAndSet(false, true));
+            assertTrue(e.wasSuccess());
+
+            // The state event for INITIALIZED was posted before this one, so it has to have run already
+            assertTrue(sawInitialized.get());
+
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                final int index = i;
+
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                    assertTrue(running.compareAndSet(false, true));
+                    assertTrue(r.wasSuccess());
+                    assertEquals(nextIndex.getAndIncrement(), index);
+                    running.set(false);
+
+                    if (index == READ_COUNT - 1)
+                    {
+                        readsDone.set(true);
+                        device.disconnect();
+                    }
+                }));
+            }
+            running.set(false);
+        });
+
+        startAsyncTest();
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readInOrder(final BleDevice device, final Runnable onDone)
+    {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean();
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                final int index = i;
+
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                    // Callbacks for one device must never overlap, and must come back in the order the reads were queued
+                    assertTrue(running.compareAndSet(false, true));
+                    assertTrue(Thread.currentThread().getName().startsWith(THREAD_NAME));
+                    assertTrue(r.wasSuccess());
+                    assertEquals(nextIndex.getAndIncrement(), index);
+                    running.set(false);
+
+                    if (index == READ_COUNT - 1)
+                    {
+                        onDone.run();
+                    }
+                }));
+            }
+        });
+    }
+
+    @After
+    public void shutdownExecutor()
+    {
+        m_executor.shutdownNow();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new UnitTestBluetoothGatt(device, db);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class DeviceSnapshotTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test(timeout = 20000)
+    public void snapshotRestoredAfterRestartTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_config.saveDeviceSnapshots = true;
+        m_config.enableMetrics = true;
+        m_manager.setConfig(m_config);
+        m_manager.clearSharedPreferences();
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = m_manager.newDevice(mac, "Snapper");
+
+        device.connect(e -> {
+            if (e.wasSuccess())
+            {
+                device.negotiateMtu(100);
+                device.setConnectionPriority(BleConnectionPriority.HIGH);
+            }
+        });
+
+        Util_Native.advanceTime(m_manager, Interval.secs(5));
+        assertTrue(device.is(BleDeviceState.INITIALIZED));
+        assertEquals(100, device.getMtu());
+        assertTrue(device.getSnapshot().isNull());
+
+        // Give the store a chance to write, then simulate the process restarting
+        Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL * 2));
+        m_manager.shutdown();
+        m_manager = BleManager.get(m_activity, m_config);
+
+        assertEquals(1, m_manager.getMetricsSnapshot().getCount(BleMetric.SNAPSHOT_DEVICES_RESTORED));
+
+        // No scan needed, newDevice() hands back the warm device straight out of the cache
+        final BleDevice restored = m_manager.newDevice(mac, "Snapper");
+        final DeviceSnapshot snapshot = restored.getSnapshot();
+        assertFalse(snapshot.isNull());
+        assertEquals(100, snapshot.mtu());
+        assertTrue(snapshot.connectionPriority() == BleConnectionPriority.HIGH);
+        assertTrue(snapshot.services().containsKey(serviceUuid));
+        assertTrue(snapshot.services().get(serviceUuid).contains(charUuid));
+        assertEquals(100, restored.getMtu());
+
+        final AtomicReference<ReadWriteListener.Status> status = new AtomicReference<>();
+        restored.connect(e -> {
+            if (e.wasSuccess())
+                restored.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> status.set(r.status())));
+        });
+
+        Util_Native.advanceTime(m_manager, Interval.secs(5));
+        assertTrue(status.get() == ReadWriteListener.Status.SUCCESS);
+        assertEquals(100, restored.getMtu());
+        assertEquals(1, m_manager.getMetricsSnapshot().getHistogram(BleMetric.STARTUP_TO_FIRST_READ).getCount());
+    }
+
+    @Test(timeout = 20000)
+    public void nothingRestoredWhenDisabledTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_config.saveDeviceSnapshots = true;
+        m_manager.setConfig(m_config);
+        m_manager.clearSharedPreferences();
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = m_manager.newDevice(mac, "Snapper");
+        device.connect();
+
+        Util_Native.advanceTime(m_manager, Interval.secs(5));
+        Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL * 2));
+        m_manager.shutdown();
+
+        m_config.saveDeviceSnapshots = false;
+        m_manager = BleManager.get(m_activity, m_config);
+
+        assertTrue(m_manager.newDevice(mac, "Snapper").getSnapshot().isNull());
+    }
+
+    @Test(timeout = 20000)
+    public void discoveredDeviceSnapshotThrottledTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_config.saveDeviceSnapshots = true;
+        m_config.enableMetrics = true;
+        m_manager.setConfig(m_config);
+        m_manager.clearSharedPreferences();
+
+        final String mac = Util_Unit.randomMacAddress();
+        final byte[] scanRecord = Utils_ScanRecord.newScanRecord("Snapper");
+
+        m_manager.startScan();
+        Util_Native.advertiseDevice(m_manager, -50, scanRecord, mac);
+        Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL * 2));
+
+        // Discovery alone is enough to get a snapshot written, no connection needed
+        assertEquals(1, m_manager.getMetricsSnapshot().getCount(BleMetric.SNAPSHOTS_WRITTEN));
+
+        // RSSI and scan record updates from more advertisements don't get written again until the snapshot is old enough
+        final int readings = 5;
+        for (int i = 0; i < readings; i++)
+        {
+            Util_Native.advertiseDevice(m_manager, -60 - i, scanRecord, mac);
+            Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL));
+        }
+        assertEquals(1, m_manager.getMetricsSnapshot().getCount(BleMetric.SNAPSHOTS_WRITTEN));
+
+        Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_REFRESH_INTERVAL));
+        Util_Native.advertiseDevice(m_manager, -70, scanRecord, mac);
+        Util_Native.advanceTime(m_manager, Interval.secs(BleManagerConfig.DEFAULT_SNAPSHOT_WRITE_INTERVAL * 2));
+        assertEquals(2, m_manager.getMetricsSnapshot().getCount(BleMetric.SNAPSHOTS_WRITTEN));
+
+        m_manager.stopScan();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new UnitTestBluetoothGatt(device, db);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataBackPressure;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataIngestionTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+    private final static int READ_COUNT = 50;
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test(timeout = 15000)
+    public void readsAreLoggedOffThreadTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.enableMetrics = true;
+        m_config.historicalDataIngestionBufferSize = 8;
+        m_config.historicalDataBackPressure = HistoricalDataBackPressure.BLOCK;
+        m_config.historicalDataValueExtractor = (uuid, data) -> data.length;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Logger");
+        final AtomicInteger reads = new AtomicInteger();
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                    assertTrue(r.wasSuccess());
+
+                    if (reads.incrementAndGet() == READ_COUNT)
+                    {
+                        m_manager.flushHistoricalData();
+
+                        assertEquals(READ_COUNT, device.getHistoricalData_aggregate(charUuid).getCount());
+                        assertTrue(device.getHistoricalDataCount(charUuid) > 0);
+
+                        final MetricsSnapshot snapshot = m_manager.getMetricsSnapshot();
+                        assertEquals(READ_COUNT, snapshot.getCount(BleMetric.HISTORICAL_DATA_ENQUEUED));
+                        assertEquals(READ_COUNT, snapshot.getCount(BleMetric.HISTORICAL_DATA_WRITTEN));
+                        assertEquals(0, snapshot.getCount(BleMetric.HISTORICAL_DATA_DROPPED));
+                        assertEquals(READ_COUNT, snapshot.getHistogram(BleMetric.HISTORICAL_DATA_INGESTION_LAG).getCount());
+                        succeed();
+                    }
+                }));
+            }
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void fullBufferDropsNewestTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.enableMetrics = true;
+        m_config.historicalDataIngestionBufferSize = 1;
+        m_config.historicalDataBackPressure = HistoricalDataBackPressure.DROP_NEWEST;
+        m_config.historicalDataValueExtractor = (uuid, data) -> data.length;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Logger");
+        final AtomicInteger reads = new AtomicInteger();
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                    if (reads.incrementAndGet() == READ_COUNT)
+                    {
+                        m_manager.flushHistoricalData();
+
+                        // Whatever wasn't dropped must have been written
+                        final MetricsSnapshot snapshot = m_manager.getMetricsSnapshot();
+                        final long written = snapshot.getCount(BleMetric.HISTORICAL_DATA_WRITTEN);
+                        assertEquals(READ_COUNT, written + snapshot.getCount(BleMetric.HISTORICAL_DATA_DROPPED));
+                        assertEquals(written, device.getHistoricalData_aggregate(charUuid).getCount());
+                        succeed();
+                    }
+                }));
+            }
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void readWhileWriterCommitsTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.historicalDataIngestionBufferSize = 4;
+        m_config.historicalDataBackPressure = HistoricalDataBackPressure.BLOCK;
+        m_config.historicalDataValueExtractor = (uuid, data) -> data.length;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Logger");
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> readerError = new AtomicReference<>();
+
+        // Hammers the same list from another thread the whole time the writer thread is committing to it
+        final Thread reader = new Thread(() -> {
+            try
+            {
+                while (!done.get())
+                {
+                    device.getHistoricalDataCount(charUuid);
+                    device.getHistoricalData_latest(charUuid);
+                    device.getHistoricalData_aggregate(charUuid);
+
+                    final Iterator<HistoricalData> it = device.getHistoricalData_iterator(charUuid);
+                    while (it.hasNext())
+                    {
+                        it.next();
+                    }
+                }
+            }
+            catch (Throwable t)
+            {
+                readerError.set(t);
+            }
+        });
+        reader.start();
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            for (int i = 0; i < READ_COUNT; i++)
+            {
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                    // And from the callback thread as well
+                    device.getHistoricalDataCount(charUuid);
+
+                    if (reads.incrementAndGet() == READ_COUNT)
+                    {
+                        m_manager.flushHistoricalData();
+                        done.set(true);
+
+                        try
+                        {
+                            reader.join();
+                        }
+                        catch (InterruptedException ex)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+
+                        assertNull(readerError.get());
+                        assertEquals(READ_COUNT, device.getHistoricalData_aggregate(charUuid).getCount());
+                        succeed();
+                    }
+                }));
+            }
+        });
+
+        startAsyncTest();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new ReadBluetoothGatt(device, db);
+    }
+
+    private class ReadBluetoothGatt extends UnitTestBluetoothGatt
+    {
+
+        public ReadBluetoothGatt(IBleDevice device, GattDatabase gattDb)
+        {
+            super(device, gattDb);
+        }
+
+        @Override
+        public boolean readCharacteristic(BleCharacteristic characteristic)
+        {
+            characteristic.setValue(Util_Unit.randomBytes(20));
+            return super.readCharacteristic(characteristic);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.EpochTimeRange;
+import com.idevicesinc.sweetblue.utils.HistoricalData;
+import com.idevicesinc.sweetblue.utils.HistoricalDataAggregate;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.UUID;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class HistoricalDataRollupTest extends BaseBleUnitTest
+{
+
+    private static final UUID CHAR_UUID = UUID.randomUUID();
+
+    private static final long MINUTE = 60L * 1000L;
+    private static final long DAY = 24L * 60L * MINUTE;
+    private static final long START = 18000L * DAY;
+    private static final long STEP = 7L * MINUTE + 13L * 1000L;
+    private static final int SAMPLE_COUNT = 1000;
+
+
+    @Test(timeout = 10000)
+    public void aggregateMatchesBruteForceTest() throws Exception
+    {
+        startSynchronousTest();
+
+        final BleDevice device = newLoggingDevice();
+
+        addSamples(device);
+
+        // Minute aligned ranges which straddle day and hour boundaries
+        checkAggregate(device, START + 3 * MINUTE, START + 5 * DAY + 17 * MINUTE);
+        checkAggregate(device, START + DAY - 40 * MINUTE, START + 2 * DAY + 95 * MINUTE);
+        checkAggregate(device, START + 61 * MINUTE, START + 122 * MINUTE);
+        checkAggregate(device, START, START + 30 * DAY);
+
+        final HistoricalDataAggregate empty = device.getHistoricalData_aggregate(CHAR_UUID, new EpochTimeRange(START - DAY, START - 1));
+        assertEquals(0, empty.getCount());
+
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void seriesMatchesBruteForceTest() throws Exception
+    {
+        startSynchronousTest();
+
+        final BleDevice device = newLoggingDevice();
+
+        addSamples(device);
+
+        final long bucketSize = 6L * 60L * MINUTE;
+        final List<HistoricalDataAggregate> series = device.getHistoricalData_series(CHAR_UUID, new EpochTimeRange(START, START + 10 * DAY), Interval.millis(bucketSize));
+
+        long total = 0;
+
+        for (HistoricalDataAggregate bucket : series)
+        {
+            final long from = bucket.getRange().from().toMilliseconds();
+
+            assertEquals(0, from % bucketSize);
+            assertEquals(from + bucketSize - 1, bucket.getRange().to().toMilliseconds());
+
+            final double[] expected = bruteForce(from, from + bucketSize);
+            assertEquals((long) expected[0], bucket.getCount());
+            assertEquals(expected[1], bucket.getMin(), 0.0);
+            assertEquals(expected[2], bucket.getMax(), 0.0);
+            assertEquals(expected[3], bucket.getSum(), 0.0001);
+
+            total += bucket.getCount();
+        }
+
+        assertEquals(SAMPLE_COUNT, total);
+
+        succeed();
+    }
+
+    @Test(timeout = 10000)
+    public void deleteClearsRollupsTest() throws Exception
+    {
+        startSynchronousTest();
+
+        final BleDevice device = newLoggingDevice();
+
+        addSamples(device);
+
+        assertEquals(SAMPLE_COUNT, device.getHistoricalData_aggregate(CHAR_UUID).getCount());
+
+        device.clearAllData();
+
+        assertEquals(0, device.getHistoricalData_aggregate(CHAR_UUID).getCount());
+
+        succeed();
+    }
+
+
+    private BleDevice newLoggingDevice()
+    {
+        m_config.historicalDataValueExtractor = (uuid, data) -> data[0];
+        m_manager.setConfig(m_config);
+
+        return m_manager.newDevice(Util_Unit.randomMacAddress(), "Logger");
+    }
+
+    private static double valueAt(final int index)
+    {
+        return (byte) ((index * 37) % 101);
+    }
+
+    private static void addSamples(final BleDevice device)
+    {
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            device.addHistoricalData(CHAR_UUID, new HistoricalData(START + i * STEP, new byte[] { (byte) valueAt(i) }));
+        }
+    }
+
+    private void checkAggregate(final BleDevice device, final long from, final long to_exclusive)
+    {
+        final HistoricalDataAggregate aggregate = device.getHistoricalData_aggregate(CHAR_UUID, new EpochTimeRange(from, to_exclusive - 1));
+        final double[] expected = bruteForce(from, to_exclusive);
+
+        assertEquals((long) expected[0], aggregate.getCount());
+        assertEquals(expected[1], aggregate.getMin(), 0.0);
+        assertEquals(expected[2], aggregate.getMax(), 0.0);
+        assertEquals(expected[3], aggregate.getSum(), 0.0001);
+        assertEquals(expected[3] / expected[0], aggregate.getAverage(), 0.0001);
+    }
+
+    private static double[] bruteForce(final long from, final long to_exclusive)
+    {
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0.0;
+
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            final long time = START + i * STEP;
+
+            if (time < from || time >= to_exclusive)  continue;
+
+            final double value = valueAt(i);
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        return new double[] { count, min, max, sum };
+    }
+}
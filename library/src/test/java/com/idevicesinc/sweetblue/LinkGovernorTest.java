@@ -0,0 +1,156 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class LinkGovernorTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().readWrite().setPermissions().readWrite().completeService();
+
+
+    @Test(timeout = 20000)
+    public void raisedUnderLoadThenLoweredTest() throws Exception
+    {
+        final List<BleConnectionPriority> priorities = new ArrayList<>();
+        final BleDevice device = connectGovernedDevice(priorities);
+
+        for (int i = 0; i < 20; i++)
+        {
+            device.write(new BleWrite(serviceUuid, charUuid).setBytes(Util_Unit.randomBytes(20)));
+        }
+
+        Util_Native.advanceTime(m_manager, Interval.secs(1.5));
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.HIGH);
+        assertEquals(247, device.getMtu());
+        assertEquals(1, priorities.size());
+
+        // Nothing else going on, so the priority should drop back once the idle time has passed
+        Util_Native.advanceTime(m_manager, Interval.secs(4.0));
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.MEDIUM);
+        assertEquals(2, priorities.size());
+        assertTrue(priorities.get(0) == BleConnectionPriority.HIGH);
+        assertTrue(priorities.get(1) == BleConnectionPriority.MEDIUM);
+
+        // The MTU is never lowered
+        assertEquals(247, device.getMtu());
+    }
+
+    @Test(timeout = 20000)
+    public void lightTrafficLeavesLinkAloneTest() throws Exception
+    {
+        final List<BleConnectionPriority> priorities = new ArrayList<>();
+        final BleDevice device = connectGovernedDevice(priorities);
+
+        for (int i = 0; i < 5; i++)
+        {
+            device.write(new BleWrite(serviceUuid, charUuid).setBytes(Util_Unit.randomBytes(20)));
+            Util_Native.advanceTime(m_manager, Interval.secs(1.0));
+        }
+
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.MEDIUM);
+        assertEquals(0, priorities.size());
+    }
+
+    @Test(timeout = 20000)
+    public void raiseIsForgottenAfterDisconnectTest() throws Exception
+    {
+        final List<BleConnectionPriority> priorities = new ArrayList<>();
+        final BleDevice device = connectGovernedDevice(priorities);
+
+        for (int i = 0; i < 20; i++)
+        {
+            device.write(new BleWrite(serviceUuid, charUuid).setBytes(Util_Unit.randomBytes(20)));
+        }
+
+        Util_Native.advanceTime(m_manager, Interval.secs(1.5));
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.HIGH);
+
+        // Drop the connection while raised. The reconnect shouldn't replay the governor's priority as if the app had asked for it.
+        Util_Native.setToDisconnected(device);
+        Util_Native.advanceTime(m_manager, Interval.secs(5.0));
+        assertTrue(device.is(BleDeviceState.INITIALIZED));
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.MEDIUM);
+        assertEquals(1, priorities.size());
+
+        // The governor starts over on the new connection, so load raises the link again
+        for (int i = 0; i < 20; i++)
+        {
+            device.write(new BleWrite(serviceUuid, charUuid).setBytes(Util_Unit.randomBytes(20)));
+        }
+
+        Util_Native.advanceTime(m_manager, Interval.secs(1.5));
+        assertTrue(device.getConnectionPriority() == BleConnectionPriority.HIGH);
+        assertEquals(2, priorities.size());
+    }
+
+    private BleDevice connectGovernedDevice(final List<BleConnectionPriority> priorities)
+    {
+        final LinkGovernorConfig governor = new LinkGovernorConfig();
+        governor.evaluationWindow = Interval.secs(0.5);
+        governor.busyWindowsBeforeRaising = 1;
+        governor.idleTimeBeforeLowering = Interval.secs(3.0);
+        governor.minTimeBetweenChanges = Interval.ZERO;
+
+        m_config.clock = new ManualClock();
+        m_config.linkGovernor = governor;
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Governed");
+        device.setListener_ReadWrite(e -> {
+            if (e.target() == ReadWriteListener.Target.CONNECTION_PRIORITY && e.wasSuccess())
+                priorities.add(e.connectionPriority());
+        });
+        device.connect();
+
+        Util_Native.advanceTime(m_manager, Interval.secs(5.0));
+        assertTrue(device.is(BleDeviceState.INITIALIZED));
+
+        return device;
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new UnitTestBluetoothGatt(device, db);
+    }
+}
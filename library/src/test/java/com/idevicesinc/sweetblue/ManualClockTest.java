@@ -0,0 +1,116 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class ManualClockTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test(timeout = 20000)
+    public void delayedRunnableWaitsForClockTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_manager.setConfig(m_config);
+
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        P_Bridge_BleManager.postUpdateDelayed(m_manager.getIBleManager(), () -> ran.set(true), Interval.mins(60).millis());
+
+        Util_Native.advanceTime(m_manager, Interval.mins(59), Interval.secs(30));
+        assertFalse(ran.get());
+
+        Util_Native.advanceTime(m_manager, Interval.mins(1), Interval.secs(30));
+        assertTrue(ran.get());
+    }
+
+    @Test(timeout = 20000)
+    public void readTimesOutWithoutWaitingTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_config.loggingOptions = LogOptions.ON;
+        m_manager.setConfig(m_config);
+
+        final long start = System.currentTimeMillis();
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Clock");
+        final AtomicReference<ReadWriteListener.Status> status = new AtomicReference<>();
+
+        device.connect(e -> {
+            if (e.wasSuccess())
+                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> status.set(r.status())));
+        });
+
+        Util_Native.advanceTime(m_manager, Interval.secs(5));
+        assertTrue(device.is(BleDeviceState.INITIALIZED));
+        assertNull(status.get());
+
+        Util_Native.advanceTime(m_manager, Interval.secs(BleNodeConfig.DefaultTaskTimeoutRequestFilter.DEFAULT_TASK_TIMEOUT), Interval.millis(100));
+        assertTrue(status.get() == ReadWriteListener.Status.TIMED_OUT);
+
+        // The timeout passed on the clock, not on the wall
+        assertTrue(System.currentTimeMillis() - start < Interval.secs(BleNodeConfig.DefaultTaskTimeoutRequestFilter.DEFAULT_TASK_TIMEOUT).millis());
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new SilentReadBluetoothGatt(device, db);
+    }
+
+    private class SilentReadBluetoothGatt extends UnitTestBluetoothGatt
+    {
+
+        public SilentReadBluetoothGatt(IBleDevice device, GattDatabase gattDb)
+        {
+            super(device, gattDb);
+        }
+
+        @Override
+        public boolean readCharacteristic(BleCharacteristic characteristic)
+        {
+            // Never respond, so the read can only end by timing out
+            return true;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class MetricsTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().readWrite().setPermissions().readWrite().completeService();
+
+
+    @Test(timeout = 15000)
+    public void metricsRecordedTest() throws Exception
+    {
+        m_config.enableMetrics = true;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "MetricsDevice");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                final MetricsSnapshot snapshot = m_manager.getMetricsSnapshot();
+                assertTrue(snapshot.getCount(BleMetric.UPDATE_LOOP_TICKS) > 0);
+                assertTrue(snapshot.getCount(BleMetric.TASKS_EXECUTED) > 0);
+                assertTrue(snapshot.getCount(BleMetric.TASKS_SUCCEEDED) > 0);
+                assertTrue(snapshot.getCount(BleMetric.CALLBACKS_DISPATCHED) > 0);
+                assertEquals(1, snapshot.getGauge(BleMetric.DEVICE_COUNT));
+
+                final MetricsSnapshot.Histogram loop = snapshot.getHistogram(BleMetric.UPDATE_LOOP_TIME);
+                assertTrue(loop.getCount() > 0);
+                assertTrue(loop.getMax() >= loop.getPercentile(50));
+                assertTrue(loop.getSum() >= loop.getMax());
+                assertTrue(snapshot.getHistogram(BleMetric.TASK_EXECUTION_TIME).getCount() > 0);
+
+                // Asking for the wrong kind of value just gives back nothing
+                assertEquals(0, snapshot.getCount(BleMetric.DEVICE_COUNT));
+                assertEquals(0, snapshot.getHistogram(BleMetric.TASKS_EXECUTED).getCount());
+
+                final String json = snapshot.toJson();
+                assertTrue(json.contains("\"UPDATE_LOOP_TICKS\":"));
+                assertTrue(json.contains("\"TASK_QUEUE_WAIT_TIME\":{\"count\":"));
+
+                m_manager.resetMetrics();
+                assertEquals(0, m_manager.getMetricsSnapshot().getCount(BleMetric.TASKS_EXECUTED));
+                succeed();
+            }));
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void metricsDisabledTest() throws Exception
+    {
+        m_config.enableMetrics = false;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "MetricsDevice");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            final MetricsSnapshot snapshot = m_manager.getMetricsSnapshot();
+            for (BleMetric metric : BleMetric.values())
+            {
+                assertEquals(0, snapshot.getCount(metric));
+                assertEquals(0, snapshot.getGauge(metric));
+                assertEquals(0, snapshot.getHistogram(metric).getCount());
+            }
+            succeed();
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 60000)
+    public void metricsOverheadTest() throws Exception
+    {
+        final int writes = 200;
+        final AtomicInteger completed = new AtomicInteger();
+
+        m_config.clock = new ManualClock();
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "MetricsDevice");
+        device.setListener_ReadWrite(e -> {
+            if (e.type() == ReadWriteListener.Type.WRITE && e.wasSuccess())
+                completed.incrementAndGet();
+        });
+        device.connect();
+        Util_Native.advanceTime(m_manager, Interval.secs(5.0));
+        assertTrue(device.is(BleDeviceState.INITIALIZED));
+
+        long timeOff = 0;
+        long timeOn = 0;
+
+        // Alternate off and on, so warm up and drift hit both the same way. Only the last two passes are timed.
+        for (int pass = 0; pass < 6; pass++)
+        {
+            final boolean enabled = (pass & 1) == 1;
+            m_config.enableMetrics = enabled;
+            m_manager.setConfig(m_config);
+            m_manager.resetMetrics();
+            completed.set(0);
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < writes; i++)
+            {
+                device.write(new BleWrite(serviceUuid, charUuid).setBytes(Util_Unit.randomBytes(20)));
+            }
+            for (int i = 0; i < 1000 && completed.get() < writes; i++)
+            {
+                Util_Native.advanceTime(m_manager, Interval.millis(100));
+            }
+            final long time = System.nanoTime() - start;
+
+            assertEquals(writes, completed.get());
+            final long executed = m_manager.getMetricsSnapshot().getCount(BleMetric.TASKS_EXECUTED);
+            assertTrue("Tasks executed: " + executed, enabled ? executed >= writes : executed == 0);
+
+            if (pass == 4)
+                timeOff = time;
+            else if (pass == 5)
+                timeOn = time;
+        }
+
+        if (Boolean.getBoolean("sweetblue.printTimings"))
+            System.out.println("Metrics off: " + (timeOff / writes) + "ns/write, metrics on: " + (timeOn / writes) + "ns/write");
+    }
+
+    @Test
+    public void bucketTest() throws Exception
+    {
+        startSynchronousTest();
+        assertEquals(0, MetricsSnapshot.getBucketIndex(0));
+        assertEquals(0, MetricsSnapshot.getBucketIndex(1023));
+        assertEquals(1, MetricsSnapshot.getBucketIndex(1024));
+        assertEquals(1, MetricsSnapshot.getBucketIndex(2047));
+        assertEquals(2, MetricsSnapshot.getBucketIndex(2048));
+        assertEquals(MetricsSnapshot.BUCKET_COUNT - 1, MetricsSnapshot.getBucketIndex(Long.MAX_VALUE));
+        for (int i = 0; i < MetricsSnapshot.BUCKET_COUNT - 1; i++)
+        {
+            assertEquals(i, MetricsSnapshot.getBucketIndex(MetricsSnapshot.getBucketUpperBound(i) - 1));
+            assertEquals(i + 1, MetricsSnapshot.getBucketIndex(MetricsSnapshot.getBucketUpperBound(i)));
+        }
+        succeed();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new UnitTestBluetoothGatt(device, db);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class OpChainTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+    private final static byte[] READ_VALUE = {5, 6};
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().readWrite().setPermissions().readWrite().completeService();
+
+
+    @Test(timeout = 15000)
+    public void chainRunsStepsInOrderTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Chain");
+        final AtomicInteger readEvents = new AtomicInteger();
+        final AtomicInteger chainEvents = new AtomicInteger();
+
+        final BleOpChain chain = new BleOpChain()
+                .then(new BleWrite(serviceUuid, charUuid).setBytes(new byte[]{1, 2, 3}))
+                .then(new BleRead(serviceUuid, charUuid).setReadWriteListener(e -> {
+                    assertTrue(e.wasSuccess());
+                    readEvents.incrementAndGet();
+                }))
+                .then(new BleWrite(serviceUuid, charUuid), (op, previousData) -> {
+                    // The response read in the previous step decides what gets written
+                    assertTrue(Arrays.equals(READ_VALUE, previousData));
+                    return ((BleWrite) op).setBytes(new byte[]{previousData[1], previousData[0]});
+                })
+                .thenIf(previousData -> false, new BleRead(serviceUuid, charUuid))
+                .setListener(e -> {
+                    assertEquals(1, chainEvents.incrementAndGet());
+                    assertTrue(e.wasSuccess());
+                    assertEquals(3, e.stepsRun());
+                    assertTrue(e.lastEvent().type() == ReadWriteListener.Type.WRITE);
+                    assertEquals(1, readEvents.get());
+                    succeed();
+                });
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            device.runChain(chain);
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void chainStopsAtFailedStepTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Chain");
+
+        final BleOpChain chain = new BleOpChain()
+                .then(new BleRead(serviceUuid, charUuid))
+                .then(new BleRead(serviceUuid, UUID.randomUUID()))
+                .then(new BleRead(serviceUuid, charUuid).setReadWriteListener(e -> assertTrue("Step after the failed one shouldn't run", false)))
+                .setListener(e -> {
+                    assertFalse(e.wasSuccess());
+                    assertEquals(2, e.stepsRun());
+                    assertTrue(e.status() == ReadWriteListener.Status.NO_MATCHING_TARGET);
+                    succeed();
+                });
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            device.runChain(chain);
+        });
+
+        startAsyncTest();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new ReadBluetoothGatt(device, db);
+    }
+
+    private class ReadBluetoothGatt extends UnitTestBluetoothGatt
+    {
+
+        public ReadBluetoothGatt(IBleDevice device, GattDatabase gattDb)
+        {
+            super(device, gattDb);
+        }
+
+        @Override
+        public boolean readCharacteristic(BleCharacteristic characteristic)
+        {
+            characteristic.setValue(READ_VALUE);
+            return super.readCharacteristic(characteristic);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.Percent;
+import com.idevicesinc.sweetblue.utils.UpdateThreadType;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class OtaCampaignTest extends BaseBleUnitTest
+{
+
+    private final static UUID m_serviceUuid = UUID.randomUUID();
+    private final static UUID m_charUuid = UUID.randomUUID();
+
+    private GattDatabase db = new GattDatabase().addService(m_serviceUuid)
+            .addCharacteristic(m_charUuid).setValue(new byte[]{0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0}).setProperties().write().setPermissions().write().completeService();
+
+
+    @Test(timeout = 30000)
+    public void concurrencyCapTest() throws Exception
+    {
+        final List<BleDevice> devices = newDevices(5);
+
+        final OtaCampaignConfig config = new OtaCampaignConfig();
+        config.maxConcurrentDevices = 2;
+
+        final int[] running = {0};
+        final int[] maxRunning = {0};
+
+        m_manager.startOtaCampaign(devices, (device, attempt) -> new TestOta(3, false), config, e ->
+        {
+            if (e.was(OtaCampaignListener.Type.DEVICE_STARTED))
+            {
+                running[0]++;
+                maxRunning[0] = Math.max(maxRunning[0], running[0]);
+            }
+            else if (e.was(OtaCampaignListener.Type.DEVICE_SUCCEEDED) || e.was(OtaCampaignListener.Type.DEVICE_FAILED))
+            {
+                running[0]--;
+            }
+            else if (e.was(OtaCampaignListener.Type.FINISHED))
+            {
+                assertTrue(maxRunning[0] <= 2);
+                assertTrue(maxRunning[0] > 0);
+                assertTrue(e.campaign().getSucceededCount() == 5);
+                assertTrue(e.campaign().getFailedCount() == 0);
+                assertTrue(e.progress().equals(Percent.HUNDRED));
+                assertFalse(e.campaign().isRunning());
+                succeed();
+            }
+        });
+        startAsyncTest();
+    }
+
+    @Test(timeout = 30000)
+    public void retryAndSkipTest() throws Exception
+    {
+        final List<BleDevice> devices = newDevices(3);
+        final BleDevice skipped = devices.get(2);
+
+        final OtaCampaignConfig config = new OtaCampaignConfig();
+        config.maxConcurrentDevices = 1;
+        config.retryBackoff = Interval.millis(50);
+
+        final int[] retries = {0};
+
+        m_manager.startOtaCampaign(devices, (device, attempt) ->
+        {
+            if (device.equals(skipped))
+                return null;
+
+            // Every device fails its first attempt, and succeeds on the retry.
+            return new TestOta(1, attempt == 1);
+        }, config, e ->
+        {
+            if (e.was(OtaCampaignListener.Type.DEVICE_FAILED))
+            {
+                assertTrue(e.attempt() == 1);
+                assertTrue(e.willRetry());
+                retries[0]++;
+            }
+            else if (e.was(OtaCampaignListener.Type.DEVICE_SUCCEEDED))
+            {
+                assertTrue(e.attempt() == 2);
+            }
+            else if (e.was(OtaCampaignListener.Type.DEVICE_SKIPPED))
+            {
+                assertTrue(e.device().equals(skipped));
+            }
+            else if (e.was(OtaCampaignListener.Type.FINISHED))
+            {
+                assertTrue(retries[0] == 2);
+                assertTrue(e.campaign().getSucceededCount() == 2);
+                assertTrue(e.campaign().getSkippedCount() == 1);
+                assertTrue(e.campaign().getFailedCount() == 0);
+                succeed();
+            }
+        });
+        startAsyncTest();
+    }
+
+
+    private List<BleDevice> newDevices(int count)
+    {
+        final List<BleDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            devices.add(m_manager.newDevice(Util_Unit.randomMacAddress(), "OtaCampaignTester" + i));
+        }
+        return devices;
+    }
+
+
+    private final class TestOta extends BleTransaction.Ota
+    {
+        private final int m_writeCount;
+        private final boolean m_fail;
+        private int m_written;
+
+
+        TestOta(int writeCount, boolean fail)
+        {
+            m_writeCount = writeCount;
+            m_fail = fail;
+        }
+
+
+        @Override
+        protected void start()
+        {
+            if (m_fail)
+            {
+                fail();
+                return;
+            }
+            m_written = 0;
+            writeNext();
+        }
+
+        private void writeNext()
+        {
+            final BleWrite bleWrite = new BleWrite(m_serviceUuid, m_charUuid).setBytes(Util_Unit.randomBytes(10));
+            write(bleWrite, e ->
+            {
+                assertTrue(e.wasSuccess());
+                m_written++;
+                if (m_written < m_writeCount)
+                    writeNext();
+                else
+                    succeed();
+            });
+        }
+    }
+
+    @Override
+    public BleManagerConfig getConfig()
+    {
+        BleManagerConfig config = super.getConfig();
+        config.loggingOptions = LogOptions.ON;
+        m_config.updateThreadType = UpdateThreadType.THREAD;
+        config.gattFactory = device -> new UnitTestBluetoothGatt(device, db);
+        return config;
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.framework.AbstractTestClass;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadLayout.FieldType;
+import com.idevicesinc.sweetblue.utils.PayloadView;
+import com.idevicesinc.sweetblue.utils.PayloadWriter;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Utils_Byte;
+
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+
+
+public class PayloadCodecTest extends AbstractTestClass
+{
+
+    // Health Thermometer Measurement (flags, FLOAT temperature), followed by a few extra fields to exercise the other types
+    private static final PayloadLayout LAYOUT = new PayloadLayout.Builder()
+            .field("flags", FieldType.UINT8)                          // 0
+            .bits("fahrenheit", 0, 1)                                 // 1
+            .bits("hasTimestamp", 1, 1)                               // 2
+            .field("temperature", FieldType.FLOAT)                    // 3
+            .field("weight", FieldType.SFLOAT)                        // 4
+            .field("count", FieldType.UINT24)                         // 5
+            .field("be", FieldType.SINT32, ByteOrder.BIG_ENDIAN)      // 6
+            .skip(1)
+            .field("samples", FieldType.SINT16, 3)                    // 7
+            .field("ieee", FieldType.FLOAT32)                         // 8
+            .build();
+
+
+    @Test(timeout = 5000)
+    public void sfloatTest() throws Exception
+    {
+        startSynchronousTest();
+        // Examples from the IEEE-11073 spec, and the reserved values
+        assertEquals(36.4, PayloadLayout.sfloatToDouble(0xF16C), 0.00001);
+        assertEquals(-1.0, PayloadLayout.sfloatToDouble(0x0FFF), 0.00001);
+        assertTrue(Double.isNaN(PayloadLayout.sfloatToDouble(0x07FF)));
+        assertTrue(Double.isNaN(PayloadLayout.sfloatToDouble(0x0800)));
+        assertTrue(PayloadLayout.sfloatToDouble(0x07FE) == Double.POSITIVE_INFINITY);
+        assertTrue(PayloadLayout.sfloatToDouble(0x0802) == Double.NEGATIVE_INFINITY);
+        for (double value : new double[] { 0, 1, -1, 36.4, 72, 0.001, -204.5, 98765 })
+        {
+            final double decoded = PayloadLayout.sfloatToDouble(PayloadLayout.doubleToSfloat(value));
+            assertEquals(value, decoded, Math.abs(value) * 0.001 + 0.0000001);
+        }
+        assertTrue(PayloadLayout.sfloatToDouble(PayloadLayout.doubleToSfloat(1e20)) == Double.POSITIVE_INFINITY);
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void floatTest() throws Exception
+    {
+        startSynchronousTest();
+        // 36.4 C, as sent by a thermometer
+        assertEquals(36.4, PayloadLayout.floatToDouble(0xFF00016C), 0.00001);
+        assertTrue(Double.isNaN(PayloadLayout.floatToDouble(0x007FFFFF)));
+        assertTrue(PayloadLayout.floatToDouble(0x007FFFFE) == Double.POSITIVE_INFINITY);
+        for (double value : new double[] { 0, 1, -1, 36.4, 123456.7, -0.000123, 8388605 })
+        {
+            final double decoded = PayloadLayout.floatToDouble(PayloadLayout.doubleToFloat(value));
+            assertEquals(value, decoded, Math.abs(value) * 0.000001);
+        }
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void roundTripTest() throws Exception
+    {
+        startSynchronousTest();
+        final PayloadWriter writer = LAYOUT.obtainWriter();
+        assertEquals(LAYOUT.getMinimumSize(), writer.getData().length);
+        writer.setBoolean(1, true)
+                .setInt(2, 1)
+                .setDouble(3, 98.6)
+                .setDouble(4, 72.5)
+                .setInt(5, 0xABCDEF)
+                .setInt(6, -123456789)
+                .setInt(7, 0, -1)
+                .setInt(7, 1, 300)
+                .setInt(7, 2, -32768)
+                .setFloat(8, 1.5f);
+
+        final byte[] data = writer.getData();
+        assertEquals(0x3, data[0]);
+        // Big endian field should match Utils_Byte
+        assertEquals(-123456789, Utils_Byte.bytesToInt(Utils_Byte.subBytes(data, 10, 14)));
+
+        final PayloadView view = LAYOUT.newView().wrap(data);
+        assertTrue(view.isValid());
+        assertEquals(3, view.getInt(0));
+        assertTrue(view.getBoolean(1));
+        assertTrue(view.getBoolean(2));
+        assertEquals(98.6, view.getDouble(3), 0.00001);
+        assertEquals(72.5, view.getFloat(4), 0.01);
+        assertEquals(0xABCDEF, view.getInt(5));
+        assertEquals(-123456789, view.getInt(6));
+        assertEquals(-1, view.getInt(7, 0));
+        assertEquals(300, view.getInt(7, 1));
+        assertEquals(-32768, view.getInt(7, 2));
+        assertEquals(1.5, view.getFloat(8), 0.0);
+
+        // Clearing a bit field should leave its neighbours alone
+        writer.setBoolean(1, false);
+        assertFalse(view.getBoolean(1));
+        assertTrue(view.getBoolean(2));
+
+        writer.recycle();
+        // Pooled writers come back zeroed out
+        final PayloadWriter next = LAYOUT.obtainWriter();
+        assertTrue(next == writer);
+        assertEquals(0, LAYOUT.newView().wrap(next.getData()).getInt(0));
+        next.recycle();
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void remainingArrayTest() throws Exception
+    {
+        startSynchronousTest();
+        final PayloadLayout layout = new PayloadLayout.Builder()
+                .field("flags", FieldType.UINT8)
+                .field("rr", FieldType.UINT16, PayloadLayout.REMAINING)
+                .build();
+        final PayloadView view = layout.newView();
+
+        view.wrap(new byte[] { 0x10 });
+        assertTrue(view.isValid());
+        assertEquals(0, view.count(1));
+        assertFalse(view.has(1));
+
+        view.wrap(new byte[] { 0x10, 0x01, 0x02, 0x03, 0x04, 0x05 });
+        assertEquals(2, view.count(1));
+        assertEquals(0x0201, view.getInt(1, 0));
+        assertEquals(0x0403, view.getInt(1, 1));
+
+        final PayloadWriter writer = layout.obtainWriter(3);
+        assertFalse(writer.isPooled());
+        assertEquals(7, writer.getData().length);
+        succeed();
+    }
+
+    @Test(timeout = 60000)
+    public void throughputTest() throws Exception
+    {
+        startSynchronousTest();
+        final PayloadLayout layout = new PayloadLayout.Builder(ByteOrder.BIG_ENDIAN)
+                .field("a", FieldType.SINT16)
+                .field("b", FieldType.SINT32)
+                .field("c", FieldType.SINT64)
+                .field("d", FieldType.FLOAT32)
+                .build();
+        final byte[][] payloads = new byte[256][];
+        for (int i = 0; i < payloads.length; i++)
+            payloads[i] = Util_Unit.randomBytes(layout.getMinimumSize());
+
+        final PayloadView view = layout.newView();
+        final int iterations = 200000;
+        long codecSum = 0;
+        long utilsSum = 0;
+
+        // Warm up both paths, then time them
+        for (int pass = 0; pass < 2; pass++)
+        {
+            codecSum = 0;
+            utilsSum = 0;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                view.wrap(payloads[i & 0xFF]);
+                codecSum += view.getInt(0) + view.getInt(1) + view.getLong(2) + Float.floatToRawIntBits(view.getFloat(3));
+            }
+            final long codecTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+            {
+                final byte[] data = payloads[i & 0xFF];
+                utilsSum += Utils_Byte.bytesToShort(data, 0) + Utils_Byte.bytesToInt(data, 2) + Utils_Byte.bytesToLong(data, 6) + Float.floatToRawIntBits(Utils_Byte.bytesToFloat(data, 14));
+            }
+            final long utilsTime = System.nanoTime() - start;
+
+            if (pass == 1 && Boolean.getBoolean("sweetblue.printTimings"))
+                System.out.println("PayloadView: " + (codecTime / iterations) + "ns/payload, Utils_Byte: " + (utilsTime / iterations) + "ns/payload");
+        }
+
+        // Both paths have to agree on the values
+        assertEquals(utilsSum, codecSum);
+        succeed();
+    }
+
+}
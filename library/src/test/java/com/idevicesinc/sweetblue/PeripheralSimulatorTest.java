@@ -0,0 +1,161 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.LatencyDistribution;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class PeripheralSimulatorTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+    private final static int PERIPHERAL_COUNT = 100;
+    private final static int CONNECT_COUNT = 5;
+    private final static int READS_PER_DEVICE = 10;
+
+
+    private GattDatabase db = new GattDatabase().addService(serviceUuid)
+            .addCharacteristic(charUuid).setProperties().read().setPermissions().read().completeService();
+
+
+    @Test
+    public void sameSeedSamePeripheralsTest() throws Exception
+    {
+        final PeripheralSimulator first = new PeripheralSimulator(42);
+        final PeripheralSimulator second = new PeripheralSimulator(42);
+        final SimulatedPeripheral.Config config = new SimulatedPeripheral.Config();
+        first.addPeripherals(10, config);
+        second.addPeripherals(10, config);
+
+        for (int i = 0; i < 10; i++)
+        {
+            final SimulatedPeripheral a = first.getPeripherals().get(i);
+            final SimulatedPeripheral b = second.getPeripherals().get(i);
+            assertEquals(a.getMacAddress(), b.getMacAddress());
+            for (int j = 0; j < 20; j++)
+                assertEquals(a.walkRssi(), b.walkRssi());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void scanConnectAndReadTest() throws Exception
+    {
+        final PeripheralSimulator simulator = new PeripheralSimulator(7);
+        simulator.install(m_config);
+        m_config.loggingOptions = LogOptions.OFF;
+        m_manager.setConfig(m_config);
+
+        final SimulatedPeripheral.Config config = new SimulatedPeripheral.Config();
+        config.advertisingInterval = Interval.millis(50);
+        config.gattDatabase = db;
+        config.connectLatency = LatencyDistribution.fixed(100);
+        config.operationLatency = LatencyDistribution.uniform(5, 15);
+        simulator.addPeripherals(PERIPHERAL_COUNT, config);
+
+        final Set<String> discovered = new HashSet<>();
+        final List<BleDevice> toConnect = new ArrayList<>();
+        final AtomicInteger unknown = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger reads = new AtomicInteger();
+
+        // Callbacks only count what happened, the checks are made on the test thread once the clock has moved far enough
+        m_manager.setListener_Discovery(e -> {
+            if (e.was(DiscoveryListener.LifeCycle.DISCOVERED))
+            {
+                if (simulator.getPeripheral(e.device().getMacAddress()) == null)
+                    unknown.incrementAndGet();
+                discovered.add(e.device().getMacAddress());
+                if (toConnect.size() < CONNECT_COUNT)
+                    toConnect.add(e.device());
+
+                if (discovered.size() == PERIPHERAL_COUNT)
+                {
+                    m_manager.stopScan();
+                    for (BleDevice device : toConnect)
+                    {
+                        device.connect(e1 -> {
+                            if (!e1.wasSuccess())
+                            {
+                                failures.incrementAndGet();
+                                return;
+                            }
+                            for (int i = 0; i < READS_PER_DEVICE; i++)
+                            {
+                                device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                                    if (!r.wasSuccess())
+                                        failures.incrementAndGet();
+                                    reads.incrementAndGet();
+                                }));
+                            }
+                        });
+                    }
+                }
+            }
+        });
+
+        simulator.start(m_manager);
+        m_manager.startScan();
+
+        final long start = simulator.getClock().currentTimeMillis();
+        while (reads.get() < CONNECT_COUNT * READS_PER_DEVICE && failures.get() == 0)
+            Util_Native.advanceTime(m_manager, Interval.millis(100));
+
+        assertEquals(0, unknown.get());
+        assertEquals(0, failures.get());
+        checkReport(simulator, simulator.getClock().currentTimeMillis() - start);
+    }
+
+    private void checkReport(PeripheralSimulator simulator, long advancedMs)
+    {
+        simulator.stop();
+        final PeripheralSimulator.Report report = simulator.getReport();
+
+        // The run took as long as the clock was moved, no matter how long it took on the wall
+        assertEquals(advancedMs, report.getElapsedMs());
+        assertTrue(report.getAdvertisementCount() >= PERIPHERAL_COUNT);
+        assertEquals(CONNECT_COUNT, report.getConnectCount());
+        assertEquals(CONNECT_COUNT * READS_PER_DEVICE, report.getCompletedCount(PeripheralSimulator.Operation.READ));
+        assertEquals(0, report.getLostCount(PeripheralSimulator.Operation.READ));
+        assertTrue(report.getThroughput(PeripheralSimulator.Operation.READ) > 0.0);
+
+        // Simulated latency is a floor, as responses also wait on the update thread
+        assertTrue(report.getLatencyPercentile(PeripheralSimulator.Operation.READ, .5) >= 5.0);
+        assertTrue(report.getLatencyPercentile(PeripheralSimulator.Operation.CONNECT, 1.0) >= 100.0);
+        assertTrue(report.getLatencyPercentile(PeripheralSimulator.Operation.READ, .99) >= report.getLatencyPercentile(PeripheralSimulator.Operation.READ, .5));
+    }
+
+}
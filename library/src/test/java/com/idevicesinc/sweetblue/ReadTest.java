@@ -22,13 +22,17 @@ import com.idevicesinc.sweetblue.compat.O_Util;
 import com.idevicesinc.sweetblue.internal.IBleDevice;
 import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
 import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.PayloadLayout;
+import com.idevicesinc.sweetblue.utils.PayloadView;
 import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Utils_Byte;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.nio.ByteOrder;
 import java.util.UUID;
 
 import static org.junit.Assert.assertNotNull;
@@ -80,6 +84,43 @@ public class ReadTest extends BaseBleUnitTest
         startAsyncTest();
     }
 
+    @Test(timeout = 15000)
+    public void readPayloadTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final PayloadLayout layout = new PayloadLayout.Builder()
+                .field("flags", PayloadLayout.FieldType.UINT8)
+                .bits("low", 0, 4)
+                .field("short", PayloadLayout.FieldType.SINT16)
+                .field("int", PayloadLayout.FieldType.SINT32, ByteOrder.BIG_ENDIAN)
+                .field("rest", PayloadLayout.FieldType.UINT8, PayloadLayout.REMAINING)
+                .build();
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "DeviceOfRead-ness");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            BleRead read = new BleRead(firstServiceUuid, firstCharUuid).setPayloadListener(layout, p -> {
+                final byte[] data = p.data();
+                final PayloadView view = p.payload();
+                assertFalse(p.isNotification());
+                assertTrue(view.isValid());
+                assertEquals(data[0] & 0xF, view.getInt(1));
+                assertEquals((short) ((data[2] << 8) | (data[1] & 0xFF)), view.getInt(2));
+                assertEquals(Utils_Byte.bytesToInt(Utils_Byte.subBytes(data, 3, 7)), view.getInt(3));
+                assertEquals(data.length - 7, view.count(4));
+                assertEquals(data[data.length - 1] & 0xFF, view.getInt(4, view.count(4) - 1));
+                succeed();
+            });
+            device.read(read);
+        });
+
+        startAsyncTest();
+    }
+
     @Test(timeout = 15000)
     public void multiReadTest() throws Exception
     {
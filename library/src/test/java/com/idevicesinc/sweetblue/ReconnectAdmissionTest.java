@@ -0,0 +1,276 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class ReconnectAdmissionTest extends BaseBleUnitTest
+{
+
+    private static final int DEVICE_COUNT = 8;
+    private static final int MAX_IN_FLIGHT = 2;
+
+
+    @Test(timeout = 30000)
+    public void reconnectStormIsCappedTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.enableMetrics = true;
+        m_config.maxConcurrentReconnects = MAX_IN_FLIGHT;
+        m_config.defaultDeviceStates = new BleDeviceState[] { BleDeviceState.RECONNECTING_SHORT_TERM, BleDeviceState.CONNECTING_OVERALL };
+
+        m_manager.setConfig(m_config);
+
+        final List<BleDevice> devices = new ArrayList<>(DEVICE_COUNT);
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger reconnected = new AtomicInteger();
+
+        for (int i = 0; i < DEVICE_COUNT; i++)
+        {
+            final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Storm " + i);
+            devices.add(device);
+
+            device.setListener_State(e -> {
+                if (e.didEnter(BleDeviceState.CONNECTING_OVERALL))
+                {
+                    assertTrue(P_Bridge_BleManager.getReconnectsInFlight(m_manager.getIBleManager()) <= MAX_IN_FLIGHT);
+                }
+                else if (e.didExit(BleDeviceState.RECONNECTING_SHORT_TERM))
+                {
+                    assertTrue(device.is(BleDeviceState.INITIALIZED));
+                    if (reconnected.incrementAndGet() == DEVICE_COUNT)
+                    {
+                        final MetricsSnapshot snapshot = m_manager.getMetricsSnapshot();
+                        assertTrue(snapshot.getCount(BleMetric.RECONNECTS_ADMITTED) >= DEVICE_COUNT);
+                        assertTrue(snapshot.getCount(BleMetric.RECONNECTS_DEFERRED) > 0);
+                        succeed();
+                    }
+                }
+            });
+
+            device.connect(e -> {
+                assertTrue(e.wasSuccess());
+
+                // Drop every device at once, once they're all connected
+                if (connected.incrementAndGet() == DEVICE_COUNT)
+                {
+                    for (BleDevice d : devices)
+                    {
+                        Util_Native.setToDisconnected(d);
+                    }
+                }
+            });
+        }
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 30000)
+    public void reconnectPriorityOrderTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.maxConcurrentReconnects = 1;
+        m_config.defaultDeviceStates = new BleDeviceState[] { BleDeviceState.RECONNECTING_SHORT_TERM, BleDeviceState.BLE_CONNECTING };
+
+        m_manager.setConfig(m_config);
+
+        final List<BleDevice> devices = new ArrayList<>(DEVICE_COUNT);
+        final List<Integer> admitted = new ArrayList<>(DEVICE_COUNT);
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger reconnected = new AtomicInteger();
+
+        for (int i = 0; i < DEVICE_COUNT; i++)
+        {
+            final int priority = i;
+            final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Priority " + i);
+            devices.add(device);
+
+            // Devices are created lowest priority first, so admission order has to come from the priority, not the order they asked in
+            final BleDeviceConfig deviceConfig = m_config.clone();
+            deviceConfig.reconnectPriority = priority;
+            device.setConfig(deviceConfig);
+
+            device.setListener_State(e -> {
+                if (e.didEnter(BleDeviceState.BLE_CONNECTING) && device.is(BleDeviceState.RECONNECTING_SHORT_TERM))
+                {
+                    synchronized (admitted)
+                    {
+                        admitted.add(priority);
+                    }
+                }
+                else if (e.didExit(BleDeviceState.RECONNECTING_SHORT_TERM))
+                {
+                    if (reconnected.incrementAndGet() == DEVICE_COUNT)
+                    {
+                        synchronized (admitted)
+                        {
+                            assertEquals(DEVICE_COUNT, admitted.size());
+
+                            // The first device to ask gets in right away, everyone after it had to wait, and is let through by priority
+                            for (int j = 2; j < admitted.size(); j++)
+                            {
+                                assertTrue("Admitted out of priority order: " + admitted, admitted.get(j) < admitted.get(j - 1));
+                            }
+                        }
+                        succeed();
+                    }
+                }
+            });
+
+            device.connect(e -> {
+                assertTrue(e.wasSuccess());
+
+                if (connected.incrementAndGet() == DEVICE_COUNT)
+                {
+                    for (BleDevice d : devices)
+                    {
+                        Util_Native.setToDisconnected(d);
+                    }
+                }
+            });
+        }
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 30000)
+    public void failedReconnectReleasesSlotTest() throws Exception
+    {
+        final ConcurrentHashMap<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final AtomicInteger failures = new AtomicInteger();
+
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.maxConcurrentReconnects = MAX_IN_FLIGHT;
+        m_config.defaultDeviceStates = new BleDeviceState[] { BleDeviceState.RECONNECTING_SHORT_TERM, BleDeviceState.BLE_CONNECTING };
+        // The first connect succeeds, the first reconnect attempt fails, and the one after that succeeds
+        m_config.gattFactory = device -> new ConnectFailBluetoothGatt(device, ConnectFailBluetoothGatt.FailurePoint.POST_CONNECTING_BLE, ConnectFailBluetoothGatt.FailureType.DISCONNECT_GATT_ERROR)
+        {
+            @Override
+            public void setToConnected()
+            {
+                final AtomicInteger count = attempts.computeIfAbsent(getBleDevice().getMacAddress(), k -> new AtomicInteger());
+                if (count.incrementAndGet() == 2)
+                {
+                    failures.incrementAndGet();
+                    super.setToConnected();
+                }
+                else
+                {
+                    Util_Native.setToConnected(getBleDevice(), BleStatuses.GATT_SUCCESS, Interval.millis(0));
+                }
+            }
+        };
+
+        m_manager.setConfig(m_config);
+
+        final List<BleDevice> devices = new ArrayList<>(DEVICE_COUNT);
+        final AtomicInteger connected = new AtomicInteger();
+        final AtomicInteger reconnected = new AtomicInteger();
+
+        for (int i = 0; i < DEVICE_COUNT; i++)
+        {
+            final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "Flaky " + i);
+            devices.add(device);
+
+            device.setListener_State(e -> {
+                if (e.didEnter(BleDeviceState.BLE_CONNECTING))
+                {
+                    assertTrue(P_Bridge_BleManager.getReconnectsInFlight(m_manager.getIBleManager()) <= MAX_IN_FLIGHT);
+                }
+                else if (e.didExit(BleDeviceState.RECONNECTING_SHORT_TERM))
+                {
+                    assertTrue(device.is(BleDeviceState.INITIALIZED));
+
+                    // If a failed attempt held on to its slot, the devices behind it would never get in
+                    if (reconnected.incrementAndGet() == DEVICE_COUNT)
+                    {
+                        assertEquals(DEVICE_COUNT, failures.get());
+                        assertEquals(0, P_Bridge_BleManager.getReconnectsWaiting(m_manager.getIBleManager()));
+                        succeed();
+                    }
+                }
+            });
+
+            device.connect(e -> {
+                assertTrue(e.wasSuccess());
+
+                if (connected.incrementAndGet() == DEVICE_COUNT)
+                {
+                    for (BleDevice d : devices)
+                    {
+                        Util_Native.setToDisconnected(d);
+                    }
+                }
+            });
+        }
+
+        startAsyncTest();
+    }
+
+    @Test
+    public void backoffJitterTest() throws Exception
+    {
+        final double ceiling = 5.0;
+
+        m_config.reconnectBackoffCeiling = Interval.secs(ceiling);
+        m_manager.setConfig(m_config);
+
+        final Set<Double> seen = new HashSet<>();
+        double previous = 0.5;
+
+        for (int i = 0; i < 200; i++)
+        {
+            final double base = 0.5;
+            final double delay = P_Bridge_BleManager.nextReconnectBackoff(m_manager.getIBleManager(), base, previous);
+
+            assertTrue("Backoff below the base delay: " + delay, delay >= base);
+            assertTrue("Backoff above 3x the previous delay: " + delay, delay <= Math.max(base, previous * 3.0));
+            assertTrue("Backoff above the ceiling: " + delay, delay <= ceiling);
+
+            seen.add(delay);
+            previous = delay;
+        }
+
+        // Devices which failed together shouldn't all retry together
+        assertTrue(seen.size() > 1);
+
+        m_config.reconnectBackoffCeiling = Interval.DISABLED;
+        m_manager.setConfig(m_config);
+
+        assertTrue(P_Bridge_BleManager.nextReconnectBackoff(m_manager.getIBleManager(), 0.5, 2.0) == 0.5);
+    }
+}
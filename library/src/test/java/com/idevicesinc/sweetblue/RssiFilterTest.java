@@ -0,0 +1,155 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.RssiFilter;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class RssiFilterTest extends BaseBleUnitTest
+{
+
+    private static final Interval STEP = Interval.millis(100);
+
+
+    @Test(timeout = 15000)
+    public void smallChangesAreAbsorbedTest() throws Exception
+    {
+        m_config.rssiFilter = RssiFilter.ewma(0.5);
+        m_config.rssiChangeThreshold = 3.0;
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = discover(mac, -60);
+
+        final List<RssiChangeListener.RssiChangeEvent> events = new ArrayList<>();
+        device.setListener_RssiChange(events::add);
+
+        // The first smoothed value always gets reported, then jitter of a dBm or two shouldn't produce anything
+        advertise(mac, -60, -61, -59, -60, -61, -60);
+        assertTrue("Events: " + events.size(), events.size() == 1);
+        assertTrue(device.getSmoothedRssi() <= -59.0 && device.getSmoothedRssi() >= -61.0);
+
+        // Walking away should get reported, but far fewer times than there were readings
+        advertise(mac, -80, -80, -80, -80, -80, -80, -80, -80);
+        assertTrue("Events: " + events.size(), events.size() > 1 && events.size() < 8);
+
+        final RssiChangeListener.RssiChangeEvent last = events.get(events.size() - 1);
+        assertTrue(last.rssi_smoothed() < -70.0);
+        assertTrue(Math.abs(last.rssi_smoothed() - last.rssi_previous()) >= 3.0);
+        assertTrue(last.distance().meters() > events.get(0).distance().meters());
+
+        // getRssi() stays raw
+        assertEquals(-80, device.getRssi());
+    }
+
+    @Test(timeout = 15000)
+    public void medianIgnoresSpikesTest() throws Exception
+    {
+        m_config.rssiFilter = RssiFilter.median(5);
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = discover(mac, -60);
+
+        advertise(mac, -60, -60, -95, -60, -60);
+        assertTrue("Smoothed: " + device.getSmoothedRssi(), device.getSmoothedRssi() == -60.0);
+        assertEquals(-60, device.getRssi());
+    }
+
+    @Test(timeout = 15000)
+    public void kalmanConvergesTest() throws Exception
+    {
+        m_config.rssiFilter = RssiFilter.kalman(0.5, 4.0);
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = discover(mac, -50);
+
+        for (int i = 0; i < 30; i++)
+        {
+            advertise(mac, -70);
+        }
+        assertTrue("Smoothed: " + device.getSmoothedRssi(), Math.abs(device.getSmoothedRssi() - -70.0) < 1.0);
+    }
+
+    @Test(timeout = 15000)
+    public void noFilterTracksRawTest() throws Exception
+    {
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = discover(mac, -50);
+
+        advertise(mac, -65);
+        assertTrue(device.getSmoothedRssi() == -65.0);
+        assertTrue(device.getSmoothedDistance().meters() == device.getDistance().meters());
+    }
+
+    @Test(timeout = 15000)
+    public void managerFilterChangeIsPickedUpTest() throws Exception
+    {
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = discover(mac, -60);
+
+        advertise(mac, -95);
+        assertTrue(device.getSmoothedRssi() == -95.0);
+
+        // The device caches the resolved filter, so it has to hear about the manager's config changing
+        m_config.rssiFilter = RssiFilter.median(5);
+        m_manager.setConfig(m_config);
+
+        advertise(mac, -60, -60, -60, -60, -95);
+        assertTrue("Smoothed: " + device.getSmoothedRssi(), device.getSmoothedRssi() == -60.0);
+        assertEquals(-95, device.getRssi());
+    }
+
+
+    private BleDevice discover(final String mac, final int rssi)
+    {
+        m_config.clock = new ManualClock();
+        m_manager.setConfig(m_config);
+        m_manager.startScan();
+        advertise(mac, rssi);
+
+        final BleDevice device = m_manager.getDevice(mac);
+        assertTrue(!device.isNull());
+
+        return device;
+    }
+
+    private void advertise(final String mac, final int... rssis)
+    {
+        final byte[] record = Utils_ScanRecord.newScanRecord("Rssi Tester");
+
+        for (int rssi : rssis)
+        {
+            Util_Native.advertiseDevice(m_manager, rssi, record, mac);
+            Util_Native.advanceTime(m_manager, STEP);
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ import android.os.ParcelUuid;
 
 import com.idevicesinc.sweetblue.compat.L_Util;
 import com.idevicesinc.sweetblue.defaults.DefaultScanFilter;
+import com.idevicesinc.sweetblue.utils.Interval;
 import com.idevicesinc.sweetblue.utils.NativeScanFilter;
 import com.idevicesinc.sweetblue.utils.State;
 import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
@@ -198,6 +199,134 @@ public class ScanFilterTest extends BaseBleUnitTest
     }
 
 
+    @Test(timeout = 5000)
+    public void compiledFilterRawMatchTest() throws Exception
+    {
+        final String mac = "DE:CA:FF:C0:FF:EE";
+        final byte[] record = Utils_ScanRecord.newScanRecord("Sensor_1", Uuids.BATTERY_SERVICE_UUID, null, (short) 0x004C, new byte[] { 0x02, 0x15, 0x7, 0x8 });
+
+        assertTrue(new CompiledScanFilter.Builder().manufacturerData(0x004C, new byte[] { 0x02, 0x15 }).build().matches(mac, -50, record));
+        assertTrue(new CompiledScanFilter.Builder().manufacturerData(0x004C, new byte[] { 0x02, 0x10 }, new byte[] { (byte) 0xFF, (byte) 0xF0 }).build().matches(mac, -50, record));
+        assertFalse(new CompiledScanFilter.Builder().manufacturerData(0x004C, new byte[] { 0x02, 0x16 }).build().matches(mac, -50, record));
+        assertFalse(new CompiledScanFilter.Builder().manufacturerId(0x0059).build().matches(mac, -50, record));
+
+        assertTrue(new CompiledScanFilter.Builder().serviceUuid(Uuids.BATTERY_SERVICE_UUID).build().matches(mac, -50, record));
+        assertFalse(new CompiledScanFilter.Builder().serviceUuid(Uuids.GLUCOSE_SERVICE_UUID).build().matches(mac, -50, record));
+
+        assertTrue(new CompiledScanFilter.Builder().macAddressPrefix("de:ca:ff").build().matches(mac, -50, record));
+        assertFalse(new CompiledScanFilter.Builder().macAddressPrefix("DE:CA:FE").build().matches(mac, -50, record));
+
+        assertTrue(new CompiledScanFilter.Builder().namePrefix("Sensor").build().matches(mac, -50, record));
+        assertFalse(new CompiledScanFilter.Builder().namePrefix("sensor").build().matches(mac, -50, record));
+
+        final CompiledScanFilter rssiAndMfg = new CompiledScanFilter.Builder().manufacturerId(0x004C).minRssi(-60).build();
+        assertTrue(rssiAndMfg.matches(mac, -50, record));
+        assertFalse(rssiAndMfg.matches(mac, -70, record));
+
+        final CompiledScanFilter either = new CompiledScanFilter.Builder().manufacturerId(0x0059).or().namePrefix("Sensor").build();
+        assertTrue(either.matches(mac, -50, record));
+
+        final byte[] serviceDataRecord = Utils_ScanRecord.newScanRecord("Sensor_2", Uuids.HEART_RATE_SERVICE_UUID, new byte[] { 0x1, 0x2, 0x3 });
+        assertTrue(new CompiledScanFilter.Builder().serviceData(Uuids.HEART_RATE_SERVICE_UUID, new byte[] { 0x1, 0x2 }).build().matches(mac, -50, serviceDataRecord));
+        assertFalse(new CompiledScanFilter.Builder().serviceData(Uuids.HEART_RATE_SERVICE_UUID, new byte[] { 0x2 }).build().matches(mac, -50, serviceDataRecord));
+        assertFalse(new CompiledScanFilter.Builder().serviceData(Uuids.BATTERY_SERVICE_UUID, null).build().matches(mac, -50, serviceDataRecord));
+    }
+
+    @Test(timeout = 5000)
+    public void compiledFilterNativePushDownTest() throws Exception
+    {
+        final byte[] mfgData = new byte[] { 0x02, 0x15 };
+        CompiledScanFilter filter = new CompiledScanFilter.Builder()
+                .manufacturerData(0x004C, mfgData).minRssi(-80)
+                .or()
+                .serviceUuid(Uuids.BATTERY_SERVICE_UUID)
+                .hardwareFiltering(true)
+                .build();
+
+        List<NativeScanFilter> list = filter.getNativeScanFilters();
+        assertThat(list.size(), is(equalTo(2)));
+        assertThat(list.get(0).getManufacturerId(), is(equalTo(0x004C)));
+        assertThat(list.get(0).getManufacturerData(), is(equalTo(mfgData)));
+        assertThat(list.get(1).getServiceUuid(), is(equalTo(new ParcelUuid(Uuids.BATTERY_SERVICE_UUID))));
+
+        // The rssi floor can't be handled by the controller, so the whole filter has to stay in software
+        filter = new CompiledScanFilter.Builder().manufacturerId(0x004C).or().minRssi(-80).hardwareFiltering(true).build();
+        assertTrue(filter.getNativeScanFilters() == null);
+
+        filter = new CompiledScanFilter.Builder().manufacturerId(0x004C).hardwareFiltering(false).build();
+        assertTrue(filter.getNativeScanFilters() == null);
+
+        // Pushing down is opt-in, since it stops the controller from reporting known devices that don't match
+        filter = new CompiledScanFilter.Builder().manufacturerId(0x004C).build();
+        assertTrue(filter.getNativeScanFilters() == null);
+    }
+
+    @Test(timeout = 10000)
+    public void compiledFilterDiscoveryTest() throws Exception
+    {
+        m_config.defaultScanFilter = new CompiledScanFilter.Builder().manufacturerId(0x004C).build();
+        m_manager.setConfig(m_config);
+
+        final byte[] goodRecord = Utils_ScanRecord.newScanRecord("Good", null, null, (short) 0x004C, new byte[] { 0x1 });
+        final byte[] badRecord = Utils_ScanRecord.newScanRecord("Bad", null, null, (short) 0x0059, new byte[] { 0x1 });
+
+        m_manager.setListener_Discovery(e -> {
+            if (e.was(DiscoveryListener.LifeCycle.DISCOVERED))
+            {
+                ScanFilterTest.this.assertTrue("Device should have been filtered out: " + e.device().getName_native(), e.device().getName_native().equals("Good"));
+                m_manager.stopScan();
+                ScanFilterTest.this.succeed();
+            }
+        });
+
+        m_manager.setListener_State(e -> {
+            if (e.didEnter(BleManagerState.SCANNING))
+            {
+                Util_Native.advertiseNewDevice(m_manager, -45, badRecord);
+                Util_Native.advertiseDevice(m_manager, -45, goodRecord, Util_Unit.randomMacAddress(), Interval.millis(100));
+            }
+        });
+
+        m_manager.startScan();
+        startAsyncTest();
+    }
+
+    @Test(timeout = 10000)
+    public void mixedCompiledFilterOrderTest() throws Exception
+    {
+        final BleDeviceConfig plainConfig = new BleDeviceConfig();
+        plainConfig.reconnectPriority = 7;
+        final BleDeviceConfig compiledConfig = new BleDeviceConfig();
+        compiledConfig.reconnectPriority = 3;
+
+        // The plain filter comes first, so it has to be asked before the compiled one can accept the device on the raw bytes alone
+        m_config.defaultScanFilter = e -> ScanFilter.Please.acknowledgeIf("Good".equals(e.name_native()), plainConfig);
+        m_manager.setConfig(m_config);
+
+        final CompiledScanFilter compiled = new CompiledScanFilter.Builder().manufacturerId(0x004C).withConfig(compiledConfig).build();
+        final byte[] goodRecord = Utils_ScanRecord.newScanRecord("Good", null, null, (short) 0x004C, new byte[] { 0x1 });
+
+        m_manager.setListener_Discovery(e -> {
+            if (e.was(DiscoveryListener.LifeCycle.DISCOVERED))
+            {
+                final Integer priority = e.device().getConfig() != null ? e.device().getConfig().reconnectPriority : null;
+                ScanFilterTest.this.assertTrue("Device got the wrong filter's config: " + priority, priority != null && priority == 7);
+                m_manager.stopScan();
+                ScanFilterTest.this.succeed();
+            }
+        });
+
+        m_manager.setListener_State(e -> {
+            if (e.didEnter(BleManagerState.SCANNING))
+            {
+                Util_Native.advertiseNewDevice(m_manager, -45, goodRecord);
+            }
+        });
+
+        m_manager.startScan(new ScanOptions().withScanFilter(compiled).withScanFilterApplyMode(ScanFilter.ApplyMode.CombineEither));
+        startAsyncTest();
+    }
+
 
     private ScanFilter.ScanEvent newEvent(BleDevice device)
     {
@@ -19,11 +19,14 @@ package com.idevicesinc.sweetblue;
 
 
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.Map;
+
 
 @Config(manifest = Config.NONE, sdk = 25)
 @RunWith(RobolectricTestRunner.class)
@@ -163,4 +166,45 @@ public class ScanPowerTest extends BaseBleUnitTest
         startAsyncTest();
     }
 
+    @Test(timeout = 20000)
+    public void adaptiveScanFollowsDiscoveryRate() throws Exception
+    {
+        final AdaptiveScanConfig adaptive = new AdaptiveScanConfig();
+        adaptive.evaluationWindow = Interval.secs(1.0);
+        adaptive.quietWindowsBeforeLowering = 1;
+        adaptive.minPauseInterval = Interval.millis(100);
+        adaptive.maxPauseInterval = Interval.millis(500);
+
+        m_config.clock = new ManualClock();
+        m_config.scanApi = BleScanApi.POST_LOLLIPOP;
+        m_config.infiniteScanInterval = Interval.DISABLED;
+        m_config.adaptiveScan = adaptive;
+        m_manager.setConfig(m_config);
+        m_manager.onResume();
+
+        m_manager.startScan();
+        Util_Native.advanceTime(m_manager, Interval.millis(500));
+        assertTrue("Scan Power: " + getScanPower().name(), getScanPower() == BleScanPower.HIGH_POWER);
+
+        // Nothing is advertising, so it should work its way down, one quiet window per level
+        Util_Native.advanceTime(m_manager, Interval.secs(3.0));
+        assertTrue("Scan Power: " + getScanPower().name(), getScanPower() == BleScanPower.LOW_POWER);
+
+        // A crowd shows up, and it should step back up
+        for (int i = 0; i < 10; i++)
+        {
+            Util_Native.advertiseNewDevice(m_manager, -50, "Crowd " + i);
+            Util_Native.advanceTime(m_manager, Interval.millis(100));
+        }
+        Util_Native.advanceTime(m_manager, Interval.millis(500));
+        assertTrue("Scan Power: " + getScanPower().name(), getScanPower() != BleScanPower.LOW_POWER);
+
+        final Map<BleScanPower, Interval> timeInModes = m_manager.getTimeInScanPowerModes();
+        assertTrue(timeInModes.get(BleScanPower.HIGH_POWER).secs() > 0.0);
+        assertTrue(timeInModes.get(BleScanPower.MEDIUM_POWER).secs() > 0.0);
+        assertTrue(timeInModes.get(BleScanPower.LOW_POWER).secs() > 0.0);
+
+        m_manager.stopScan();
+    }
+
 }
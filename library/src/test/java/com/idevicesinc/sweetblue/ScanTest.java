@@ -18,6 +18,8 @@
 package com.idevicesinc.sweetblue;
 
 
+import android.os.SystemClock;
+
 import com.idevicesinc.sweetblue.compat.L_Util;
 import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
 import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
@@ -438,6 +440,104 @@ public class ScanTest extends BaseBleUnitTest
         startAsyncTest();
     }
 
+    @Test(timeout = 15000)
+    public void batchScanKeepsAdvertisementTimeTest() throws Exception
+    {
+        m_config.batchScanLatency = Interval.secs(5.0);
+        m_manager.setConfig(m_config);
+
+        // Make sure there's enough time since "boot" to backdate the advertisements
+        SystemClock.setCurrentTimeMillis(SystemClock.elapsedRealtime() + 10000);
+
+        final long ageMillis = 3000;
+        final int deviceCount = 20;
+        final long timestampNanos = SystemClock.elapsedRealtimeNanos() - ageMillis * 1000000L;
+
+        final List<L_Util.ScanResult> scanResults = new ArrayList<>();
+        for (int i = 0; i < deviceCount; i++)
+        {
+            final byte[] scanRecord = new BleScanRecord().setName("Batched_" + i).buildPacket();
+            scanResults.add(new L_Util.ScanResult(P_DeviceHolder.newNullHolder(Util_Unit.randomMacAddress()), Util_Unit.randomRssi(), scanRecord, timestampNanos));
+        }
+
+        ScanFilter scanFilter = e ->
+        {
+            final long age = System.currentTimeMillis() - e.time().toMilliseconds();
+            assertTrue("Advertisement age: " + age, age >= ageMillis - LEEWAY && age <= ageMillis + LEEWAY);
+            return ScanFilter.Please.acknowledge();
+        };
+
+        final AtomicInteger discovered = new AtomicInteger(0);
+
+        DiscoveryListener discoveryListener = e ->
+        {
+            // The whole batch is taken in on one pass of the update loop, so every device exists by the time the first event comes in
+            assertTrue("Device count: " + m_manager.getDeviceCount(), m_manager.getDeviceCount() == deviceCount);
+
+            final long age = System.currentTimeMillis() - e.device().getLastDiscoveryTime().toMilliseconds();
+            assertTrue("Last discovery age: " + age, age >= ageMillis - LEEWAY);
+
+            if (discovered.incrementAndGet() == deviceCount)
+                succeed();
+        };
+
+        m_manager.setListener_State(e -> {
+            if (e.didEnter(BleManagerState.SCANNING)) {
+                Util_Native.advertiseDeviceList(m_manager, scanResults, Interval.ZERO);
+            }
+        });
+
+        m_manager.startScan(scanFilter, discoveryListener);
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 12000)
+    public void duplicateAdvertisementsSuppressedTest() throws Exception
+    {
+        m_config.enableMetrics = true;
+        m_config.duplicateAdvertisementWindow = Interval.secs(30.0);
+        m_manager.setConfig(m_config);
+
+        final String macAddress = Util_Unit.randomMacAddress();
+        final byte[] scanRecord = new BleScanRecord().setName("Repeater").buildPacket();
+        final byte[] changedRecord = new BleScanRecord().setName("Repeater2").buildPacket();
+        final int rssi = -60;
+        final int duplicates = 10;
+
+        final AtomicInteger rediscovered = new AtomicInteger(0);
+
+        DiscoveryListener discoveryListener = e ->
+        {
+            if (e.was(DiscoveryListener.LifeCycle.DISCOVERED))
+            {
+                // Identical, or within the RSSI delta, so none of these should make it through
+                for (int i = 0; i < duplicates; i++)
+                {
+                    Util_Native.advertiseDevice(m_manager, rssi + (i % 3), scanRecord, macAddress);
+                }
+                Util_Native.advertiseDevice(m_manager, rssi, changedRecord, macAddress);
+            }
+            else if (e.was(DiscoveryListener.LifeCycle.REDISCOVERED))
+            {
+                assertEquals(1, rediscovered.incrementAndGet());
+                assertEquals(duplicates, m_manager.getMetricsSnapshot().getCount(BleMetric.DUPLICATE_ADVERTISEMENTS_SUPPRESSED));
+                assertTrue(Arrays.equals(changedRecord, e.device().getScanRecord()));
+                succeed();
+            }
+        };
+
+        m_manager.setListener_State(e -> {
+            if (e.didEnter(BleManagerState.SCANNING)) {
+                Util_Native.advertiseDevice(m_manager, rssi, scanRecord, macAddress);
+            }
+        });
+
+        m_manager.startScan(discoveryListener);
+
+        startAsyncTest();
+    }
+
     @Test(timeout = 12000)
     public void scanDelayAfterResumeTest() throws Exception
     {
@@ -0,0 +1,150 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.internal.IBleManager;
+import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.PresentData;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+import com.idevicesinc.sweetblue.utils.Uuids;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public final class ServerBroadcastTest extends BaseBleUnitTest
+{
+
+    private static final GattDatabase db = new GattDatabase()
+            .addService(Uuids.BATTERY_SERVICE_UUID)
+            .addCharacteristic(Uuids.BATTERY_LEVEL).setPermissions().read().setProperties().read().notify_prop().completeService();
+
+    private String m_slowMac = null;
+    private final AtomicInteger m_sendCount = new AtomicInteger(0);
+
+
+    @Test(timeout = 15000)
+    public void broadcastToAllClientsTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.serverFactory = (manager, server) -> new AckingServer(manager);
+
+        m_manager.setConfig(m_config);
+
+        final String mac1 = Util_Unit.randomMacAddress();
+        final String mac2 = Util_Unit.randomMacAddress();
+        final String mac3 = Util_Unit.randomMacAddress();
+
+        m_manager.getServer(db, e -> {
+            final BleServer s = e.server();
+            s.connect(mac1);
+            s.connect(mac2);
+            s.connect(mac3, e1 -> {
+                s.broadcastNotification(Uuids.BATTERY_LEVEL, new byte[]{0x5}, e2 -> {
+                    ServerBroadcastTest.this.assertTrue(e2.wasSuccess());
+                    ServerBroadcastTest.this.assertEquals(3, e2.clients_succeeded().size());
+                    ServerBroadcastTest.this.assertArrayEquals(new byte[]{0x5}, e2.data_sent());
+                    // One task on the queue, one payload, three deliveries
+                    ServerBroadcastTest.this.assertEquals(3, m_sendCount.get());
+                    ServerBroadcastTest.this.succeed();
+                });
+            });
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void broadcastSkipsSlowClientTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.broadcastClientTimeout = Interval.millis(250);
+        m_config.serverFactory = (manager, server) -> new AckingServer(manager);
+
+        m_manager.setConfig(m_config);
+
+        final String mac1 = Util_Unit.randomMacAddress();
+        final String mac2 = Util_Unit.randomMacAddress();
+        final String mac3 = Util_Unit.randomMacAddress();
+
+        m_slowMac = mac2;
+
+        m_manager.getServer(db, e -> {
+            final BleServer s = e.server();
+            s.connect(mac1);
+            s.connect(mac2);
+            s.connect(mac3, e1 -> {
+                s.broadcastIndication(null, Uuids.BATTERY_LEVEL, new PresentData(new byte[]{0x7}), Arrays.asList(mac1, mac2, mac3), e2 -> {
+                    ServerBroadcastTest.this.assertFalse(e2.wasSuccess());
+                    ServerBroadcastTest.this.assertTrue(e2.status() == OutgoingListener.Status.SUCCESS);
+                    ServerBroadcastTest.this.assertTrue(e2.clientStatus(mac1) == OutgoingListener.Status.SUCCESS);
+                    ServerBroadcastTest.this.assertTrue(e2.clientStatus(mac2) == OutgoingListener.Status.TIMED_OUT);
+                    ServerBroadcastTest.this.assertTrue(e2.clientStatus(mac3) == OutgoingListener.Status.SUCCESS);
+                    ServerBroadcastTest.this.assertEquals(1, e2.clients_failed().size());
+                    ServerBroadcastTest.this.succeed();
+                });
+            });
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void broadcastWithNoClientsTest() throws Exception
+    {
+        m_manager.setConfig(m_config);
+
+        m_manager.getServer(db, e -> {
+            final BroadcastListener.BroadcastEvent e1 = e.server().broadcastNotification(Uuids.BATTERY_LEVEL, new byte[]{0x1});
+            ServerBroadcastTest.this.assertTrue(e1.status() == OutgoingListener.Status.NOT_CONNECTED);
+            ServerBroadcastTest.this.succeed();
+        });
+
+        startAsyncTest();
+    }
+
+
+    private final class AckingServer extends UnitTestBluetoothServer
+    {
+
+        public AckingServer(IBleManager mgr)
+        {
+            super(mgr);
+        }
+
+        @Override
+        public boolean notifyCharacteristicChanged(P_DeviceHolder device, BleCharacteristic characteristic, boolean confirm)
+        {
+            m_sendCount.incrementAndGet();
+
+            if (!device.getAddress().equals(m_slowMac))
+                Util_Native.sendNotificationSent(getManager().getServer().getBleServer(), device.getAddress(), BleStatuses.GATT_SUCCESS, Interval.millis(50));
+
+            return true;
+        }
+    }
+
+}
@@ -108,4 +108,105 @@ public final class ServerIncomingTest extends BaseBleUnitTest
         startAsyncTest();
     }
 
+    @Test(timeout = 15000)
+    public void servedReadWithOffsetTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final GattDatabase db = new GattDatabase()
+                .addService(Uuids.BATTERY_SERVICE_UUID)
+                .addCharacteristic(Uuids.BATTERY_LEVEL).serveValue(new byte[]{0x1, 0x2, 0x3, 0x4}).setPermissions().read().setProperties().read().completeService();
+
+        final String macAddress = Util_Unit.randomMacAddress();
+
+        final BleServer server = m_manager.getServer(e -> {
+            // The value is served from the attribute store, so the listener should never see this read
+            ServerIncomingTest.this.assertTrue("Served read reached the IncomingListener!", e.type() != ExchangeListener.Type.READ);
+            return IncomingListener.Please.respondWithSuccess();
+        }, db, e -> e.server().connect(macAddress, e1 -> {
+            ServerIncomingTest.this.assertTrue(e1.wasSuccess());
+            Util_Native.readFromServer(e1.server(), macAddress, Uuids.BATTERY_LEVEL, 2, Interval.millis(150));
+        }));
+
+        server.setListener_Outgoing(e -> {
+            if (e.macAddress().equals(macAddress))
+            {
+                ServerIncomingTest.this.assertTrue(e.wasSuccess());
+                ServerIncomingTest.this.assertArrayEquals(new byte[]{0x3, 0x4}, e.data_sent());
+                ServerIncomingTest.this.succeed();
+            }
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void servedWriteUpdatesStoreTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final GattDatabase db = new GattDatabase()
+                .addService(Uuids.BATTERY_SERVICE_UUID)
+                .addCharacteristic(Uuids.BATTERY_LEVEL).setPermissions().readWrite().setProperties().readWrite().completeService();
+
+        final String macAddress = Util_Unit.randomMacAddress();
+
+        final BleServer server = m_manager.getServer(db, e -> {
+            ServerIncomingTest.this.assertTrue(e.server().setAttributeValue(Uuids.BATTERY_SERVICE_UUID, Uuids.BATTERY_LEVEL, new byte[]{0x0}, false));
+            e.server().connect(macAddress, e1 -> {
+                ServerIncomingTest.this.assertTrue(e1.wasSuccess());
+                Util_Native.sendWriteToServer(e1.server(), macAddress, Uuids.BATTERY_LEVEL, new byte[]{0x9, 0x8}, Interval.millis(150));
+            });
+        });
+
+        server.setListener_Outgoing(e -> {
+            if (e.macAddress().equals(macAddress) && e.type() == ExchangeListener.Type.WRITE)
+            {
+                ServerIncomingTest.this.assertTrue(e.wasSuccess());
+                ServerIncomingTest.this.assertArrayEquals(new byte[]{0x9, 0x8}, e.server().getAttributeValue(Uuids.BATTERY_LEVEL));
+                ServerIncomingTest.this.succeed();
+            }
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void servedWriteToReadOnlyRejectedTest() throws Exception
+    {
+        m_config.loggingOptions = LogOptions.ON;
+
+        m_manager.setConfig(m_config);
+
+        final GattDatabase db = new GattDatabase()
+                .addService(Uuids.BATTERY_SERVICE_UUID)
+                .addCharacteristic(Uuids.BATTERY_LEVEL).serveValue(new byte[]{0x1, 0x2}).setPermissions().read().setProperties().read().completeService();
+
+        final String macAddress = Util_Unit.randomMacAddress();
+
+        final BleServer server = m_manager.getServer(e -> {
+            // The store answers the write itself, so the listener should never see it
+            ServerIncomingTest.this.assertTrue("Rejected write reached the IncomingListener!", e.type() != ExchangeListener.Type.WRITE);
+            return IncomingListener.Please.respondWithSuccess();
+        }, db, e -> e.server().connect(macAddress, e1 -> {
+            ServerIncomingTest.this.assertTrue(e1.wasSuccess());
+            Util_Native.sendWriteToServer(e1.server(), macAddress, Uuids.BATTERY_LEVEL, new byte[]{0x9, 0x8}, Interval.millis(150));
+        }));
+
+        server.setListener_Outgoing(e -> {
+            if (e.macAddress().equals(macAddress) && e.type() == ExchangeListener.Type.WRITE)
+            {
+                ServerIncomingTest.this.assertEquals(BleStatuses.GATT_WRITE_NOT_PERMIT, e.gattStatus_sent());
+                ServerIncomingTest.this.assertArrayEquals(new byte[]{0x1, 0x2}, e.server().getAttributeValue(Uuids.BATTERY_LEVEL));
+                ServerIncomingTest.this.succeed();
+            }
+        });
+
+        startAsyncTest();
+    }
+
 }
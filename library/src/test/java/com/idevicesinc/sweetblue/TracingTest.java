@@ -0,0 +1,127 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class TracingTest extends BaseBleUnitTest
+{
+
+    private final static UUID serviceUuid = UUID.randomUUID();
+    private final static UUID charUuid = UUID.randomUUID();
+
+
+    @Test(timeout = 15000)
+    public void taskLifecycleTracedTest() throws Exception
+    {
+        m_config.enableTracing = true;
+
+        m_manager.setConfig(m_config);
+
+        final String mac = Util_Unit.randomMacAddress();
+        final BleDevice device = m_manager.newDevice(mac, "TracingDevice");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            device.read(new BleRead(serviceUuid, charUuid).setReadWriteListener(r -> {
+                final String json = m_manager.getTraceJson();
+                assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+                assertTrue(json.endsWith("]}"));
+
+                // The device gets its own process, named after its mac address
+                assertTrue(json.contains("\"name\":\"process_name\",\"ph\":\"M\",\"pid\":2,\"tid\":0,\"args\":{\"name\":\"" + mac + "\"}"));
+
+                // Every stage of the read shows up, and it's marked as having succeeded
+                assertTrue(json.contains("\"name\":\"READ QUEUED\""));
+                assertTrue(json.contains("\"name\":\"READ ARMED\""));
+                assertTrue(json.contains("\"name\":\"READ EXECUTING\""));
+                assertTrue(json.contains("\"name\":\"CONNECT SUCCEEDED\""));
+                assertTrue(json.contains("\"mac\":\"" + mac + "\""));
+                assertTrue(json.contains("\"priority\":\"LOW\""));
+                assertTrue(json.contains("\"cat\":\"update\",\"name\":\"update\""));
+                assertTrue(json.contains("\"cat\":\"callback\""));
+
+                m_manager.clearTrace();
+                assertFalse(m_manager.getTraceJson().contains("READ"));
+                succeed();
+            }));
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void ringBufferWrapsTest() throws Exception
+    {
+        m_config.enableTracing = true;
+        m_config.traceBufferSize = 10;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "TracingDevice");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            final String json = m_manager.getTraceJson();
+
+            // The buffer is rounded up to 16 events, on top of which there's at least one process name
+            int events = 0;
+            int index = json.indexOf("{\"ph\":");
+            while (index != -1)
+            {
+                events++;
+                index = json.indexOf("{\"ph\":", index + 1);
+            }
+            assertTrue(events > 0);
+            // Async spans are exported as a begin/end pair, so there are up to 2 entries per event
+            assertTrue(events <= 32);
+            succeed();
+        });
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 15000)
+    public void tracingDisabledTest() throws Exception
+    {
+        m_config.enableTracing = false;
+
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress(), "TracingDevice");
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+            assertFalse(m_manager.getTraceJson().contains("{\"ph\":"));
+            succeed();
+        });
+
+        startAsyncTest();
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleDevice;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.internal.android.P_GattHolder;
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.UpdateThreadType;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Config(manifest = Config.NONE, sdk = 25)
+@RunWith(RobolectricTestRunner.class)
+public class TransactionQueueAtomicDispatchTest extends BaseBleUnitTest
+{
+
+    private final static UUID mTxnServiceUuid = UUID.randomUUID();
+    private final static UUID mTxnCharUuid = UUID.randomUUID();
+    private final static UUID mOtherServiceUuid = UUID.randomUUID();
+    private final static UUID mOtherCharUuid = UUID.randomUUID();
+
+    private final static int OP_COUNT = 4;
+
+    private GattDatabase db = new GattDatabase().addService(mTxnServiceUuid)
+            .addCharacteristic(mTxnCharUuid).setValue(new byte[]{0x2, 0x4}).setProperties().read().setPermissions().read().completeService()
+            .addService(mOtherServiceUuid)
+            .addCharacteristic(mOtherCharUuid).setValue(new byte[]{0x8, 0xA}).setProperties().read().setPermissions().read().completeService();
+
+    // Update count of the task manager when each transaction read was sent, and when each response was handed back
+    private final List<Long> m_readStarts = new ArrayList<>();
+    private final List<Long> m_readResponses = new ArrayList<>();
+
+
+    @Test(timeout = 20000)
+    public void preQueuedOpsRunBackToBackTest() throws Exception
+    {
+        m_config.updateThreadType = UpdateThreadType.THREAD;
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.postCallbacksToMainThread = false;
+        m_config.defaultTransactionAtomicity = BleTransaction.Atomicity.QUEUE_ATOMIC;
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress());
+        final BleDevice other = m_manager.newDevice(Util_Unit.randomMacAddress());
+
+        final int[] txnReads = {0};
+        final boolean[] txnDone = {false};
+
+        DeviceConnectListener dcl = e -> {
+            assertTrue(e.wasSuccess());
+
+            if (!device.is(BleDeviceState.INITIALIZED) || !other.is(BleDeviceState.INITIALIZED))
+                return;
+
+            P_Bridge_BleManager.suspendQueue(m_manager.getIBleManager());
+
+            device.performTransaction(new BleTransaction()
+            {
+                @Override
+                protected void start()
+                {
+                    // Queue up every op at once, so they're all waiting in the lock's sub-queue before the first one runs
+                    for (int i = 0; i < OP_COUNT; i++)
+                    {
+                        read(new BleRead(mTxnServiceUuid, mTxnCharUuid).setReadWriteListener(e2 -> {
+                            TransactionQueueAtomicDispatchTest.this.assertTrue(e2.wasSuccess());
+                            txnReads[0]++;
+
+                            if (txnReads[0] < OP_COUNT)
+                                TransactionQueueAtomicDispatchTest.this.assertTrue(P_Bridge_BleManager.isTxnLockInQueue(m_manager.getIBleManager()));
+                            else
+                                succeed();
+                        }));
+                    }
+                }
+
+                @Override
+                protected void onEnd(EndReason reason)
+                {
+                    TransactionQueueAtomicDispatchTest.this.assertTrue(reason == EndReason.SUCCEEDED);
+                    txnDone[0] = true;
+                }
+            });
+
+            // Something else that's waiting in the main queue, which has to wait for the transaction to finish
+            other.read(new BleRead(mOtherServiceUuid, mOtherCharUuid).setReadWriteListener(e2 -> {
+                assertTrue(e2.wasSuccess());
+                assertTrue(txnDone[0]);
+                assertEquals(OP_COUNT, txnReads[0]);
+                assertEquals(OP_COUNT, m_readStarts.size());
+
+                // Each op after the first starts from within the previous op's response, in the same pass of the queue
+                for (int i = 1; i < OP_COUNT; i++)
+                {
+                    assertEquals((long) m_readResponses.get(i - 1), (long) m_readStarts.get(i));
+                }
+
+                assertEquals(0, P_Bridge_BleManager.getTxnLockCount(m_manager.getIBleManager()));
+                assertFalse(P_Bridge_BleManager.isTxnLockInQueue(m_manager.getIBleManager()));
+                succeed();
+            }));
+
+            P_Bridge_BleManager.unsuspendQueue(m_manager.getIBleManager());
+        };
+
+        device.connect(dcl);
+        other.connect(dcl);
+
+        startAsyncTest();
+    }
+
+    @Test(timeout = 20000)
+    public void lockDroppedOnCancelTest() throws Exception
+    {
+        m_config.updateThreadType = UpdateThreadType.THREAD;
+        m_config.loggingOptions = LogOptions.ON;
+        m_config.postCallbacksToMainThread = false;
+        m_config.defaultTransactionAtomicity = BleTransaction.Atomicity.QUEUE_ATOMIC;
+        m_manager.setConfig(m_config);
+
+        final BleDevice device = m_manager.newDevice(Util_Unit.randomMacAddress());
+
+        device.connect(e -> {
+            assertTrue(e.wasSuccess());
+
+            device.performTransaction(new BleTransaction()
+            {
+                @Override
+                protected void start()
+                {
+                    for (int i = 0; i < OP_COUNT; i++)
+                    {
+                        final int index = i;
+                        read(new BleRead(mTxnServiceUuid, mTxnCharUuid).setReadWriteListener(e2 -> {
+                            // The transaction gets cancelled as soon as its first op is done, with the rest still waiting behind the lock
+                            if (index != 0)
+                                return;
+
+                            TransactionQueueAtomicDispatchTest.this.assertTrue(e2.wasSuccess());
+
+                            // The lock was interrupted by the op, and went back into the queue, still registered with the task manager
+                            TransactionQueueAtomicDispatchTest.this.assertTrue(P_Bridge_BleManager.isTxnLockInQueue(m_manager.getIBleManager()));
+                            TransactionQueueAtomicDispatchTest.this.assertEquals(1, P_Bridge_BleManager.getTxnLockCount(m_manager.getIBleManager()));
+
+                            cancel();
+                        }));
+                    }
+                }
+
+                @Override
+                protected void onEnd(EndReason reason)
+                {
+                    TransactionQueueAtomicDispatchTest.this.assertTrue(reason == EndReason.CANCELLED);
+
+                    // Cancelling clears the lock out of the queue, which should drop it from the task manager's lookup too
+                    P_Bridge_BleManager.postUpdateDelayed(m_manager.getIBleManager(), () -> {
+                        TransactionQueueAtomicDispatchTest.this.assertFalse(P_Bridge_BleManager.isTxnLockInQueue(m_manager.getIBleManager()));
+                        TransactionQueueAtomicDispatchTest.this.assertEquals(0, P_Bridge_BleManager.getTxnLockCount(m_manager.getIBleManager()));
+                        TransactionQueueAtomicDispatchTest.this.succeed();
+                    }, 50);
+                }
+            });
+        });
+
+        startAsyncTest();
+    }
+
+    @Override
+    public IBluetoothGatt getGattLayer(IBleDevice device)
+    {
+        return new DispatchBluetoothGatt(device, db);
+    }
+
+    private class DispatchBluetoothGatt extends UnitTestBluetoothGatt
+    {
+
+        private final IBleDevice m_iDevice;
+
+        public DispatchBluetoothGatt(IBleDevice device, GattDatabase gattDb)
+        {
+            super(device, gattDb);
+            m_iDevice = device;
+        }
+
+        @Override
+        public boolean readCharacteristic(BleCharacteristic characteristic)
+        {
+            if (characteristic.getUuid().equals(mTxnCharUuid))
+                m_readStarts.add(P_Bridge_BleManager.getUpdateCount(m_manager.getIBleManager()));
+
+            return super.readCharacteristic(characteristic);
+        }
+
+        @Override
+        public void sendReadResponse(BleCharacteristic characteristic, byte[] data)
+        {
+            if (!characteristic.getUuid().equals(mTxnCharUuid))
+            {
+                super.sendReadResponse(characteristic, data);
+                return;
+            }
+
+            P_Bridge_BleManager.postUpdateDelayed(m_manager.getIBleManager(), () -> {
+                m_readResponses.add(P_Bridge_BleManager.getUpdateCount(m_manager.getIBleManager()));
+                characteristic.setValue(data);
+                P_Bridge_BleDevice.onCharacteristicRead(m_iDevice, P_GattHolder.NULL, characteristic, BleStatuses.GATT_SUCCESS);
+            }, Interval.millis(5).millis());
+        }
+    }
+}
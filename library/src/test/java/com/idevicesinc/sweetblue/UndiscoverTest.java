@@ -20,6 +20,7 @@ package com.idevicesinc.sweetblue;
 
 import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
 import com.idevicesinc.sweetblue.utils.Util_Unit;
 import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
 
@@ -27,6 +28,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -95,5 +100,43 @@ public class UndiscoverTest extends BaseBleUnitTest
         startAsyncTest();
     }
 
+    @Test(timeout = 20000)
+    public void onlyStaleDeviceUndiscoveredTest() throws Exception
+    {
+        m_config.clock = new ManualClock();
+        m_config.infiniteScanInterval = Interval.DISABLED;
+        m_config.undiscoveryKeepAlive = Interval.secs(3.0);
+        m_config.minScanTimeNeededForUndiscovery = Interval.secs(1.0);
+
+        m_manager.setConfig(m_config);
+
+        final String staleMac = Util_Unit.randomMacAddress();
+        final String activeMac = Util_Unit.randomMacAddress();
+        final List<String> undiscovered = new ArrayList<>();
+
+        m_manager.setListener_Discovery(e -> {
+            if (e.was(DiscoveryListener.LifeCycle.UNDISCOVERED))
+                undiscovered.add(e.macAddress());
+        });
+
+        m_manager.startScan();
+        Util_Native.advanceTime(m_manager, Interval.millis(500));
+
+        Util_Native.advertiseDevice(m_manager, -45, Utils_ScanRecord.newScanRecord("Stale"), staleMac);
+        Util_Native.advertiseDevice(m_manager, -45, Utils_ScanRecord.newScanRecord("Active"), activeMac);
+
+        // One device keeps advertising well past the keep-alive, the other goes quiet
+        for (int i = 0; i < 10; i++)
+        {
+            Util_Native.advanceTime(m_manager, Interval.secs(1.0));
+            Util_Native.advertiseDevice(m_manager, -45, Utils_ScanRecord.newScanRecord("Active"), activeMac);
+        }
+
+        assertEquals(1, undiscovered.size());
+        assertTrue(undiscovered.get(0).equals(staleMac));
+        assertTrue(m_manager.hasDevice(activeMac));
+        assertFalse(m_manager.hasDevice(staleMac));
+    }
+
 
 }
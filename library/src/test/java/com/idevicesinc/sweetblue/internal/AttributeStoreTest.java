@@ -0,0 +1,58 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+package com.idevicesinc.sweetblue.internal;
+
+import com.idevicesinc.sweetblue.BleStatuses;
+import com.idevicesinc.sweetblue.framework.AbstractTestClass;
+import com.idevicesinc.sweetblue.utils.Uuids;
+
+import org.junit.Test;
+
+import java.util.List;
+
+
+public class AttributeStoreTest extends AbstractTestClass
+{
+
+    @Test(timeout = 5000)
+    public void oneSubscriptionPerClientTest() throws Exception
+    {
+        startSynchronousTest();
+        final P_AttributeStore store = new P_AttributeStore();
+        store.put(Uuids.BATTERY_SERVICE_UUID, Uuids.BATTERY_LEVEL, null, new byte[]{0x1});
+
+        subscribe(store, "AA:AA:AA:AA:AA:AA", 0x3);
+        subscribe(store, "BB:BB:BB:BB:BB:BB", 0x1);
+        subscribe(store, "CC:CC:CC:CC:CC:CC", 0x2);
+
+        // The client with both enabled should only get indications, so a new value isn't sent to it twice
+        final List<String> notify = store.getSubscribers(Uuids.BATTERY_SERVICE_UUID, Uuids.BATTERY_LEVEL, false);
+        final List<String> indicate = store.getSubscribers(Uuids.BATTERY_SERVICE_UUID, Uuids.BATTERY_LEVEL, true);
+        assertEquals(1, notify.size());
+        assertTrue(notify.contains("BB:BB:BB:BB:BB:BB"));
+        assertEquals(2, indicate.size());
+        assertTrue(indicate.contains("AA:AA:AA:AA:AA:AA"));
+        assertTrue(indicate.contains("CC:CC:CC:CC:CC:CC"));
+        succeed();
+    }
+
+    private void subscribe(P_AttributeStore store, String macAddress, int bits)
+    {
+        final int status = store.write(macAddress, Uuids.BATTERY_SERVICE_UUID, Uuids.BATTERY_LEVEL, Uuids.CLIENT_CHARACTERISTIC_CONFIGURATION_DESCRIPTOR_UUID, 0, new byte[]{(byte) bits, 0x0}, true);
+        assertEquals(BleStatuses.GATT_SUCCESS, status);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.internal;
+
+import com.idevicesinc.sweetblue.framework.AbstractTestClass;
+import com.idevicesinc.sweetblue.utils.Util_Unit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+public class LongMapTest extends AbstractTestClass
+{
+
+    @Test(timeout = 5000)
+    public void macAddressParseTest() throws Exception
+    {
+        startSynchronousTest();
+        final long mac = P_MacAddress.parse("AA:BB:CC:DD:EE:FF");
+        assertEquals(0xAABBCCDDEEFFL, mac);
+        assertEquals(mac, P_MacAddress.parse("aa-bb-cc-dd-ee-ff"));
+        assertEquals(mac, P_MacAddress.parse("aa.bb.cc.dd.ee.ff"));
+        assertEquals("AA:BB:CC:DD:EE:FF", P_MacAddress.format(mac));
+        assertEquals("00:00:00:00:00:01", P_MacAddress.format(1L));
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.parse(null));
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.parse("AA:BB:CC:DD:EE"));
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.parse("AA:BB:CC:DD:EE:FG"));
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.parse("AA:BB:CC:DD:EEFF:"));
+        for (int i = 0; i < 100; i++)
+        {
+            final String address = Util_Unit.randomMacAddress();
+            assertEquals(address, P_MacAddress.format(P_MacAddress.parse(address)));
+        }
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void syntheticKeyTest() throws Exception
+    {
+        startSynchronousTest();
+        final long a = P_MacAddress.retain("not a mac");
+        final long b = P_MacAddress.retain("also not a mac");
+        assertFalse(a == b);
+        assertFalse(P_MacAddress.isValid(a));
+        assertEquals(a, P_MacAddress.findKey("not a mac"));
+        assertEquals("not a mac", P_MacAddress.fromKey(a));
+        // Real mac addresses don't need retaining, their key is the address itself
+        assertTrue(P_MacAddress.isValid(P_MacAddress.findKey("01:02:03:04:05:06")));
+        P_MacAddress.release("not a mac");
+        P_MacAddress.release("also not a mac");
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void syntheticKeyReleaseTest() throws Exception
+    {
+        startSynchronousTest();
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.findKey("released id"));
+        final long a = P_MacAddress.retain("released id");
+        assertEquals(a, P_MacAddress.retain("released id"));
+        assertEquals(a, P_MacAddress.findKey("released id"));
+        P_MacAddress.release("released id");
+        assertEquals("released id", P_MacAddress.fromKey(a));
+        P_MacAddress.release("released id");
+        // Dropped once the last retain is released, and the old key doesn't get handed out again
+        assertEquals("", P_MacAddress.fromKey(a));
+        assertEquals(P_MacAddress.INVALID, P_MacAddress.findKey("released id"));
+        assertFalse(a == P_MacAddress.retain("released id"));
+        P_MacAddress.release("released id");
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void insertionOrderTest() throws Exception
+    {
+        startSynchronousTest();
+        final P_LongMap<String> map = new P_LongMap<>();
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            final String address = Util_Unit.randomMacAddress();
+            if (map.put(P_MacAddress.parse(address), address) == null)
+                expected.add(address);
+        }
+        assertEquals(expected.size(), map.size());
+        assertTrue(expected.equals(map.addValuesTo(new ArrayList<>())));
+
+        // Replacing a value shouldn't move it
+        final String first = expected.get(0);
+        assertEquals(first, map.put(P_MacAddress.parse(first), first));
+        assertEquals(first, map.values().iterator().next());
+
+        // Remove every other entry, then make sure order, and lookups still hold up
+        final Iterator<String> it = map.iterator();
+        int i = 0;
+        while (it.hasNext())
+        {
+            it.next();
+            if (i++ % 2 == 0)
+                it.remove();
+        }
+        final List<String> remaining = new ArrayList<>();
+        for (int j = 1; j < expected.size(); j += 2)
+            remaining.add(expected.get(j));
+        assertTrue(remaining.equals(map.addValuesTo(new ArrayList<>())));
+        for (String address : remaining)
+            assertTrue(map.containsKey(P_MacAddress.parse(address)));
+        assertNull(map.get(P_MacAddress.parse(first)));
+
+        assertEquals(remaining.get(0), map.removeFirst());
+        assertEquals(remaining.size() - 1, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.removeFirst());
+        succeed();
+    }
+
+    @Test(timeout = 5000)
+    public void churnTest() throws Exception
+    {
+        startSynchronousTest();
+        // Lots of put/remove cycles leave tombstones behind, this makes sure they get cleaned up and don't break lookups
+        final P_LongMap<Long> map = new P_LongMap<>();
+        for (long i = 0; i < 100000; i++)
+        {
+            map.put(i, i);
+            if (i >= 10)
+                assertEquals(i - 10, (long) map.remove(i - 10));
+        }
+        assertEquals(10, map.size());
+        final long[] keys = map.keys();
+        for (int i = 0; i < keys.length; i++)
+        {
+            assertEquals(100000 - 10 + i, keys[i]);
+            assertEquals(keys[i], (long) map.get(keys[i]));
+        }
+        succeed();
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import com.idevicesinc.sweetblue.framework.AbstractTestClass;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+public class HistoricalDataCodecTest extends AbstractTestClass
+{
+
+    private static final long START = 1600000000000L;
+    private static final int SAMPLE_COUNT = 5000;
+
+
+    @Test
+    public void randomPayloadRoundTripTest() throws Exception
+    {
+        startSynchronousTest();
+        final Random random = new Random(1);
+        final List<HistoricalData> data = new ArrayList<>();
+        long time = START;
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            final byte[] payload = new byte[random.nextInt(30)];
+            random.nextBytes(payload);
+            time += random.nextInt(100000) - 1000;
+            data.add(new HistoricalData(payload, time));
+        }
+        checkRoundTrip(data);
+        succeed();
+    }
+
+    @Test
+    public void repeatedPayloadsAreSmallTest() throws Exception
+    {
+        startSynchronousTest();
+        final List<HistoricalData> data = new ArrayList<>();
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            data.add(new HistoricalData(new byte[] { (byte) (i % 3), 0x10, 0x20, 0x30 }, START + i * 1000L));
+        }
+        final byte[] encoded = checkRoundTrip(data);
+        // Steady timestamps and a 3 entry dictionary should be about 2 bytes a sample, vs 16 for a plain long + int + payload
+        assertTrue(encoded.length < SAMPLE_COUNT * 3);
+        succeed();
+    }
+
+    @Test
+    public void slowlyChangingPayloadsAreSmallTest() throws Exception
+    {
+        startSynchronousTest();
+        final Random random = new Random(2);
+        final List<HistoricalData> data = new ArrayList<>();
+        byte[] payload = new byte[20];
+        random.nextBytes(payload);
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            payload = payload.clone();
+            payload[random.nextInt(payload.length)]++;
+            data.add(new HistoricalData(payload, START + i * 1000L + random.nextInt(3)));
+        }
+        final byte[] encoded = checkRoundTrip(data);
+        // Only one byte changes each time, so the xor encoding should beat storing each payload raw
+        assertTrue(encoded.length < SAMPLE_COUNT * 10);
+        succeed();
+    }
+
+    @Test
+    public void channelRoundTripTest() throws Exception
+    {
+        startSynchronousTest();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final HistoricalDataCodec.Encoder encoder = new HistoricalDataCodec.Encoder(Channels.newChannel(out), 16);
+        for (int i = 0; i < 100; i++)
+        {
+            encoder.write(new HistoricalData(new byte[] { (byte) i }, START + i));
+        }
+        encoder.finish();
+        assertEquals(100, encoder.getSampleCount());
+        assertEquals(out.size(), encoder.getByteCount());
+
+        final HistoricalDataCodec.Decoder decoder = new HistoricalDataCodec.Decoder(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+        final List<HistoricalData> decoded = new ArrayList<>();
+        while (decoder.nextBlock(decoded) > 0) {}
+        assertEquals(100, decoded.size());
+        assertEquals(START + 99, decoded.get(99).getEpochTime().toMilliseconds());
+        succeed();
+    }
+
+    @Test
+    public void corruptBlockIsDetectedTest() throws Exception
+    {
+        startSynchronousTest();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final HistoricalDataCodec.Encoder encoder = new HistoricalDataCodec.Encoder(out);
+        for (int i = 0; i < 100; i++)
+        {
+            encoder.write(new HistoricalData(new byte[] { (byte) i, 1, 2, 3 }, START + i * 1000L));
+        }
+        encoder.finish();
+
+        final byte[] bytes = out.toByteArray();
+        bytes[bytes.length / 2] ^= 0x01;
+
+        boolean threw = false;
+        try
+        {
+            new HistoricalDataCodec.Decoder(new ByteArrayInputStream(bytes)).nextBlock(new ArrayList<>());
+        }
+        catch (IOException e)
+        {
+            threw = true;
+        }
+        assertTrue(threw);
+        succeed();
+    }
+
+    @Test
+    public void oversizedSampleCountIsRejectedTest() throws Exception
+    {
+        startSynchronousTest();
+        // Header, then a block claiming 2^30 samples in a 1 byte body, with a checksum that matches, so only the count gives it away
+        final byte[] bytes = { 'S', 'B', 'H', 'D', 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x04, 0, 1, 0, (byte) 0xD2, 0x02, (byte) 0xEF, (byte) 0x8D };
+
+        boolean threw = false;
+        try
+        {
+            new HistoricalDataCodec.Decoder(new ByteArrayInputStream(bytes)).nextBlock(new ArrayList<>());
+        }
+        catch (IOException e)
+        {
+            threw = true;
+        }
+        assertTrue(threw);
+        succeed();
+    }
+
+    @Test
+    public void emptyStreamTest() throws Exception
+    {
+        startSynchronousTest();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new HistoricalDataCodec.Encoder(out).finish();
+        final HistoricalDataCodec.Decoder decoder = new HistoricalDataCodec.Decoder(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(0, decoder.nextBlock(new ArrayList<>()));
+        succeed();
+    }
+
+
+    private byte[] checkRoundTrip(final List<HistoricalData> data) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final HistoricalDataCodec.Encoder encoder = new HistoricalDataCodec.Encoder(out);
+        assertEquals(data.size(), encoder.write(data.iterator()));
+        encoder.finish();
+
+        final byte[] encoded = out.toByteArray();
+        final HistoricalDataCodec.Decoder decoder = new HistoricalDataCodec.Decoder(new ByteArrayInputStream(encoded));
+        final List<HistoricalData> decoded = new ArrayList<>();
+        while (decoder.nextBlock(decoded) > 0) {}
+
+        assertEquals(data.size(), decoded.size());
+        for (int i = 0; i < data.size(); i++)
+        {
+            assertEquals(data.get(i).getEpochTime().toMilliseconds(), decoded.get(i).getEpochTime().toMilliseconds());
+            assertArrayEquals(data.get(i).getBlob(), decoded.get(i).getBlob());
+        }
+        return encoded;
+    }
+}
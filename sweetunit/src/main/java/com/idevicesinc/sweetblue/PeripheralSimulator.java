@@ -0,0 +1,591 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.annotations.Nullable;
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.IBleManager;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothGatt;
+import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
+import com.idevicesinc.sweetblue.utils.MetricsSnapshot;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+
+/**
+ * Drives a {@link BleManager} with any number of {@link SimulatedPeripheral}s, through the same {@link IBluetoothGatt} and
+ * scan result entry points the real radio uses. This is meant for load testing the library: advertise a few thousand
+ * peripherals, connect to a few dozen, and look at the {@link Report} for throughput, latency percentiles, and how much the
+ * update thread allocated along the way.
+ * <br><br>
+ * Usage is to {@link #install(BleManagerConfig)} the simulator into the config used to create the manager, add peripherals,
+ * then {@link #start(BleManager)} it. Peripherals only advertise while the manager is scanning.
+ * <br><br>
+ * The simulator runs on a {@link ManualClock}, which {@link #install(BleManagerConfig)} also sets as the manager's
+ * {@link BleManagerConfig#clock}. Advertisements, responses, and faults are all scheduled on that clock, and latencies are
+ * measured on it, so nothing happens until time is moved along with {@link Util_Native#advanceTime(BleManager, Interval)}.
+ * <br><br>
+ * All random choices are drawn from generators seeded from the value given to the constructor, so the same seed, advanced
+ * through the same steps, always produces the same peripherals and the same sequence of RSSI values, latencies, and faults.
+ */
+public final class PeripheralSimulator
+{
+
+    /**
+     * The operations whose latency is tracked in the {@link Report}.
+     */
+    public enum Operation
+    {
+        CONNECT,
+        DISCOVER,
+        READ,
+        WRITE;
+    }
+
+    private static final int MAX_LATENCY_SAMPLES = 1 << 16;
+    private static final long MAX_TICK_MS = 25;
+
+
+    private final long m_seed;
+    private final ManualClock m_clock;
+    private final Random m_sampleRandom;
+    private final List<SimulatedPeripheral> m_peripherals = new ArrayList<>();
+    private final Map<String, SimulatedPeripheral> m_peripheralsByMac = new HashMap<>();
+    private final PriorityQueue<SimulatedPeripheral> m_advertisingQueue = new PriorityQueue<>(16, new Comparator<SimulatedPeripheral>()
+    {
+        @Override
+        public int compare(SimulatedPeripheral lhs, SimulatedPeripheral rhs)
+        {
+            return Long.compare(lhs.nextAdvertisement(), rhs.nextAdvertisement());
+        }
+    });
+    private final LatencySamples[] m_latencies = new LatencySamples[Operation.values().length];
+
+    private BleManager m_manager;
+    private IBleManager m_managerImpl;
+    private boolean m_running;
+    private long m_startTime;
+    private long m_stopTime;
+    private long m_updateThreadId = -1;
+    private long m_allocatedAtStart = -1;
+
+    private long m_advertisements;
+    private long m_notifications;
+    private long m_connects;
+    private long m_connectFailures;
+    private long m_disconnects;
+    private long m_disconnectsInjected;
+    private final long[] m_lost = new long[Operation.values().length];
+    private final long[] m_failed = new long[Operation.values().length];
+
+
+    public PeripheralSimulator(long seed)
+    {
+        this(seed, new ManualClock());
+    }
+
+    /**
+     * Creates a simulator which runs on the given clock, for when the test already has one of its own.
+     */
+    public PeripheralSimulator(long seed, ManualClock clock)
+    {
+        m_seed = seed;
+        m_clock = clock;
+        m_sampleRandom = new Random(seed);
+        for (int i = 0; i < m_latencies.length; i++)
+            m_latencies[i] = new LatencySamples();
+    }
+
+
+    /**
+     * Points the given config's {@link BleDeviceConfig#gattFactory} at this simulator, and its {@link BleManagerConfig#clock} at
+     * {@link #getClock()}. Devices which aren't backed by a {@link SimulatedPeripheral} get a plain {@link UnitTestBluetoothGatt}.
+     */
+    public final void install(BleManagerConfig config)
+    {
+        config.gattFactory = this::newGatt;
+        config.clock = m_clock;
+    }
+
+    /**
+     * Returns the clock everything in the simulation is scheduled and measured on.
+     */
+    public final ManualClock getClock()
+    {
+        return m_clock;
+    }
+
+    /**
+     * Adds a peripheral with the given config, and returns it.
+     */
+    public final synchronized SimulatedPeripheral addPeripheral(SimulatedPeripheral.Config config)
+    {
+        final SimulatedPeripheral peripheral = new SimulatedPeripheral(m_peripherals.size(), m_seed, config);
+        m_peripherals.add(peripheral);
+        m_peripheralsByMac.put(peripheral.getMacAddress(), peripheral);
+        if (m_running)
+        {
+            peripheral.scheduleAdvertisement(m_clock.currentTimeMillis());
+            m_advertisingQueue.add(peripheral);
+        }
+        return peripheral;
+    }
+
+    /**
+     * Adds <code>count</code> peripherals which all share the given config.
+     */
+    public final void addPeripherals(int count, SimulatedPeripheral.Config config)
+    {
+        for (int i = 0; i < count; i++)
+            addPeripheral(config);
+    }
+
+    public final synchronized List<SimulatedPeripheral> getPeripherals()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(m_peripherals));
+    }
+
+    /**
+     * Returns the peripheral with the given mac address, or <code>null</code> if there isn't one.
+     */
+    public final synchronized @Nullable(Nullable.Prevalence.NORMAL) SimulatedPeripheral getPeripheral(String macAddress)
+    {
+        return m_peripheralsByMac.get(Utils_String.normalizeMacAddress(macAddress));
+    }
+
+    /**
+     * Starts advertising every peripheral, and resets all statistics.
+     */
+    public final synchronized void start(BleManager manager)
+    {
+        if (m_running)
+            return;
+
+        m_manager = manager;
+        m_managerImpl = manager.getIBleManager();
+        m_running = true;
+        m_startTime = m_clock.currentTimeMillis();
+        m_stopTime = 0;
+        m_updateThreadId = -1;
+        resetStats();
+
+        m_advertisingQueue.clear();
+        for (int i = 0; i < m_peripherals.size(); i++)
+        {
+            final SimulatedPeripheral peripheral = m_peripherals.get(i);
+            peripheral.scheduleAdvertisement(m_startTime);
+            m_advertisingQueue.add(peripheral);
+        }
+        P_Bridge_BleManager.postUpdateDelayed(m_managerImpl, this::tick, 0);
+    }
+
+    /**
+     * Stops advertising. Connected peripherals stay connected.
+     */
+    public final synchronized void stop()
+    {
+        if (!m_running)
+            return;
+
+        m_running = false;
+        m_stopTime = m_clock.currentTimeMillis();
+    }
+
+    public final synchronized boolean isRunning()
+    {
+        return m_running;
+    }
+
+    /**
+     * Returns a snapshot of the statistics gathered since {@link #start(BleManager)} was last called.
+     */
+    public final synchronized Report getReport()
+    {
+        final long end = m_stopTime != 0 ? m_stopTime : m_clock.currentTimeMillis();
+        final long[][] latencies = new long[m_latencies.length][];
+        final long[] counts = new long[m_latencies.length];
+        for (int i = 0; i < m_latencies.length; i++)
+        {
+            latencies[i] = m_latencies[i].sorted();
+            counts[i] = m_latencies[i].m_count;
+        }
+        long allocated = -1;
+        if (m_allocatedAtStart >= 0)
+        {
+            final long now = allocatedBytes(m_updateThreadId);
+            if (now >= 0)
+                allocated = now - m_allocatedAtStart;
+        }
+        final MetricsSnapshot metrics = m_manager != null ? m_manager.getMetricsSnapshot() : null;
+        return new Report(m_startTime == 0 ? 0 : end - m_startTime, m_advertisements, m_notifications, m_connects, m_connectFailures, m_disconnects,
+                m_disconnectsInjected, counts, m_lost.clone(), m_failed.clone(), latencies, allocated, metrics);
+    }
+
+
+    final long now()
+    {
+        return m_clock.currentTimeMillis();
+    }
+
+    final synchronized void onConnected(long latencyMs)
+    {
+        m_connects++;
+        m_latencies[Operation.CONNECT.ordinal()].add(latencyMs);
+    }
+
+    final synchronized void onConnectFailed()
+    {
+        m_connectFailures++;
+    }
+
+    final synchronized void onDisconnected(boolean injected)
+    {
+        m_disconnects++;
+        if (injected)
+            m_disconnectsInjected++;
+    }
+
+    final synchronized void onOperation(Operation operation, long latencyMs)
+    {
+        m_latencies[operation.ordinal()].add(latencyMs);
+    }
+
+    final synchronized void onLost(Operation operation)
+    {
+        m_lost[operation.ordinal()]++;
+    }
+
+    final synchronized void onFailed(Operation operation)
+    {
+        m_failed[operation.ordinal()]++;
+    }
+
+    final synchronized void onNotification()
+    {
+        m_notifications++;
+    }
+
+
+    private IBluetoothGatt newGatt(IBleDevice device)
+    {
+        final SimulatedPeripheral peripheral = getPeripheral(device.getMacAddress());
+        if (peripheral == null)
+            return new UnitTestBluetoothGatt(device);
+        return new SimulatedBluetoothGatt(device, this, peripheral);
+    }
+
+    private synchronized void tick()
+    {
+        if (!m_running)
+            return;
+
+        if (m_updateThreadId == -1)
+        {
+            m_updateThreadId = Thread.currentThread().getId();
+            m_allocatedAtStart = allocatedBytes(m_updateThreadId);
+        }
+
+        final long now = m_clock.currentTimeMillis();
+        if (m_manager.is(BleManagerState.SCANNING))
+        {
+            while (!m_advertisingQueue.isEmpty() && m_advertisingQueue.peek().nextAdvertisement() <= now)
+            {
+                final SimulatedPeripheral peripheral = m_advertisingQueue.poll();
+                if (!peripheral.isConnected())
+                {
+                    final int rssi = peripheral.walkRssi();
+                    m_advertisements++;
+                    P_Bridge_BleManager.addScanResult(m_managerImpl, P_DeviceHolder.newNullHolder(peripheral.getMacAddress()), rssi, peripheral.scanRecord());
+                }
+                peripheral.scheduleAdvertisement(now);
+                m_advertisingQueue.add(peripheral);
+            }
+        }
+
+        long delay = MAX_TICK_MS;
+        if (!m_advertisingQueue.isEmpty())
+            delay = Math.max(1, Math.min(delay, m_advertisingQueue.peek().nextAdvertisement() - now));
+        P_Bridge_BleManager.postUpdateDelayed(m_managerImpl, this::tick, delay);
+    }
+
+    private void resetStats()
+    {
+        m_advertisements = 0;
+        m_notifications = 0;
+        m_connects = 0;
+        m_connectFailures = 0;
+        m_disconnects = 0;
+        m_disconnectsInjected = 0;
+        Arrays.fill(m_lost, 0);
+        Arrays.fill(m_failed, 0);
+        for (int i = 0; i < m_latencies.length; i++)
+            m_latencies[i].clear();
+    }
+
+    /**
+     * Returns the number of bytes the given thread has allocated, or -1 if the VM doesn't expose it. This goes through
+     * reflection, as <code>java.lang.management</code> doesn't exist on Android.
+     */
+    private static long allocatedBytes(long threadId)
+    {
+        try
+        {
+            final Object bean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+            final Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) method.invoke(bean, threadId);
+        }
+        catch (Exception e)
+        {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Bounded set of latency samples. Once full, new samples replace existing ones at random (reservoir sampling), so the
+     * percentiles stay representative of the whole run without growing without bound.
+     */
+    private final class LatencySamples
+    {
+        private long[] m_samples = new long[64];
+        private int m_size;
+        private long m_count;
+
+        void add(long sample)
+        {
+            m_count++;
+            if (m_size < MAX_LATENCY_SAMPLES)
+            {
+                if (m_size == m_samples.length)
+                    m_samples = Arrays.copyOf(m_samples, m_size * 2);
+                m_samples[m_size++] = sample;
+            }
+            else
+            {
+                final long index = (long) (m_sampleRandom.nextDouble() * m_count);
+                if (index < m_size)
+                    m_samples[(int) index] = sample;
+            }
+        }
+
+        long[] sorted()
+        {
+            final long[] copy = Arrays.copyOf(m_samples, m_size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        void clear()
+        {
+            m_size = 0;
+            m_count = 0;
+        }
+    }
+
+
+    /**
+     * Immutable summary of a simulation run, returned by {@link #getReport()}. Times are all on the simulator's clock. Latencies
+     * are measured from the moment the library issued the operation to the moment its response was delivered, so they include
+     * time spent waiting on the update thread, rounded up to the step the clock was advanced by.
+     */
+    public static final class Report
+    {
+        private final long m_elapsedMs;
+        private final long m_advertisements;
+        private final long m_notifications;
+        private final long m_connects;
+        private final long m_connectFailures;
+        private final long m_disconnects;
+        private final long m_disconnectsInjected;
+        private final long[] m_completed;
+        private final long[] m_lost;
+        private final long[] m_failed;
+        private final long[][] m_latencies;
+        private final long m_allocatedBytes;
+        private final MetricsSnapshot m_metrics;
+
+        Report(long elapsedMs, long advertisements, long notifications, long connects, long connectFailures, long disconnects, long disconnectsInjected,
+               long[] completed, long[] lost, long[] failed, long[][] latencies, long allocatedBytes, MetricsSnapshot metrics)
+        {
+            m_elapsedMs = elapsedMs;
+            m_advertisements = advertisements;
+            m_notifications = notifications;
+            m_connects = connects;
+            m_connectFailures = connectFailures;
+            m_disconnects = disconnects;
+            m_disconnectsInjected = disconnectsInjected;
+            m_completed = completed;
+            m_lost = lost;
+            m_failed = failed;
+            m_latencies = latencies;
+            m_allocatedBytes = allocatedBytes;
+            m_metrics = metrics;
+        }
+
+        public final long getElapsedMs()
+        {
+            return m_elapsedMs;
+        }
+
+        public final long getAdvertisementCount()
+        {
+            return m_advertisements;
+        }
+
+        public final long getNotificationCount()
+        {
+            return m_notifications;
+        }
+
+        public final long getConnectCount()
+        {
+            return m_connects;
+        }
+
+        public final long getConnectFailureCount()
+        {
+            return m_connectFailures;
+        }
+
+        /**
+         * Returns the number of connections which ended, whether the library asked for it or not.
+         */
+        public final long getDisconnectCount()
+        {
+            return m_disconnects;
+        }
+
+        /**
+         * Returns the number of connections dropped by a peripheral, as opposed to by the library.
+         */
+        public final long getInjectedDisconnectCount()
+        {
+            return m_disconnectsInjected;
+        }
+
+        /**
+         * Returns the number of operations of the given type which completed successfully.
+         */
+        public final long getCompletedCount(Operation operation)
+        {
+            return m_completed[operation.ordinal()];
+        }
+
+        /**
+         * Returns the number of operations of the given type which were never answered.
+         */
+        public final long getLostCount(Operation operation)
+        {
+            return m_lost[operation.ordinal()];
+        }
+
+        /**
+         * Returns the number of operations of the given type which were answered with an error.
+         */
+        public final long getFailedCount(Operation operation)
+        {
+            return m_failed[operation.ordinal()];
+        }
+
+        /**
+         * Returns the number of successful operations of the given type per second, over the whole run.
+         */
+        public final double getThroughput(Operation operation)
+        {
+            return perSecond(getCompletedCount(operation));
+        }
+
+        public final double getAdvertisementsPerSecond()
+        {
+            return perSecond(m_advertisements);
+        }
+
+        public final double getNotificationsPerSecond()
+        {
+            return perSecond(m_notifications);
+        }
+
+        /**
+         * Returns the latency, in milliseconds, below which the given fraction (0-1) of operations of the given type completed,
+         * or -1 if none have.
+         */
+        public final double getLatencyPercentile(Operation operation, double percentile)
+        {
+            final long[] samples = m_latencies[operation.ordinal()];
+            if (samples.length == 0)
+                return -1;
+            final int index = (int) Math.ceil(Math.max(0.0, Math.min(1.0, percentile)) * samples.length) - 1;
+            return samples[Math.max(0, index)];
+        }
+
+        /**
+         * Returns how many bytes the update thread allocated during the run, or -1 if the VM doesn't expose per-thread allocation.
+         */
+        public final long getAllocatedBytes()
+        {
+            return m_allocatedBytes;
+        }
+
+        /**
+         * Returns the manager's metrics at the time this report was made.
+         */
+        public final @Nullable(Nullable.Prevalence.RARE) MetricsSnapshot getMetrics()
+        {
+            return m_metrics;
+        }
+
+        private double perSecond(long count)
+        {
+            return m_elapsedMs == 0 ? 0.0 : count * 1000.0 / m_elapsedMs;
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder b = new StringBuilder();
+            b.append("Simulation ran for ").append(m_elapsedMs).append("ms\n");
+            b.append("  advertisements: ").append(m_advertisements).append(String.format(" (%.1f/s)", getAdvertisementsPerSecond())).append('\n');
+            b.append("  notifications: ").append(m_notifications).append(String.format(" (%.1f/s)", getNotificationsPerSecond())).append('\n');
+            b.append("  connects: ").append(m_connects).append(", failed: ").append(m_connectFailures)
+                    .append(", disconnects: ").append(m_disconnects).append(" (").append(m_disconnectsInjected).append(" injected)\n");
+            for (Operation operation : Operation.values())
+            {
+                b.append(String.format("  %s: %d ok, %d lost, %d failed, %.1f/s, p50 %.1fms, p90 %.1fms, p99 %.1fms, max %.1fms\n", operation,
+                        getCompletedCount(operation), getLostCount(operation), getFailedCount(operation), getThroughput(operation),
+                        getLatencyPercentile(operation, .5), getLatencyPercentile(operation, .9), getLatencyPercentile(operation, .99),
+                        getLatencyPercentile(operation, 1.0)));
+            }
+            b.append("  update thread allocated: ").append(m_allocatedBytes < 0 ? "n/a" : m_allocatedBytes + " bytes");
+            return b.toString();
+        }
+    }
+
+}
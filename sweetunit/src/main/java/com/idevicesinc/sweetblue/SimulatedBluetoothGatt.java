@@ -0,0 +1,245 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import android.bluetooth.BluetoothGattCallback;
+import android.content.Context;
+import com.idevicesinc.sweetblue.internal.IBleDevice;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleDevice;
+import com.idevicesinc.sweetblue.internal.P_Bridge_BleManager;
+import com.idevicesinc.sweetblue.internal.android.IBluetoothDevice;
+import com.idevicesinc.sweetblue.internal.android.P_GattHolder;
+import com.idevicesinc.sweetblue.utils.Interval;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The gatt layer handed out by {@link PeripheralSimulator} for devices backed by a {@link SimulatedPeripheral}. Every
+ * response is posted with a latency drawn from the peripheral's {@link SimulatedPeripheral.Config}, and may be lost or failed
+ * according to its loss and error rates. Latencies are posted on, and measured against, the simulator's clock.
+ * <br><br>
+ * Every connection gets a new session number; anything posted during a previous connection is dropped once it fires, so a
+ * disconnect can't be followed by a stale response.
+ */
+final class SimulatedBluetoothGatt extends UnitTestBluetoothGatt
+{
+
+    private final PeripheralSimulator m_simulator;
+    private final SimulatedPeripheral m_peripheral;
+    private final IBleDevice m_device;
+    private final List<BleCharacteristic> m_notifying = new ArrayList<>();
+
+    private int m_session;
+    private long m_connectStart;
+
+
+    SimulatedBluetoothGatt(IBleDevice device, PeripheralSimulator simulator, SimulatedPeripheral peripheral)
+    {
+        super(device, peripheral.config().gattDatabase);
+        m_device = device;
+        m_simulator = simulator;
+        m_peripheral = peripheral;
+    }
+
+
+    @Override
+    public void connect(IBluetoothDevice device, Context context, boolean useAutoConnect, BluetoothGattCallback callback)
+    {
+        setGattNull(false);
+        m_notifying.clear();
+        final int session = newSession();
+        m_connectStart = m_simulator.now();
+        final SimulatedPeripheral.Config config = m_peripheral.config();
+        final boolean fail = !config.connectable || m_peripheral.roll(config.connectFailRate);
+
+        post(session, 0, this::setToConnecting);
+        post(session, config.connectLatency.nextMillis(m_peripheral.random()), () ->
+        {
+            if (fail)
+            {
+                newSession();
+                setGattNull(true);
+                m_simulator.onConnectFailed();
+                dropConnection(BleStatuses.GATT_ERROR);
+            }
+            else
+            {
+                m_peripheral.setConnected(true);
+                m_simulator.onConnected(m_simulator.now() - m_connectStart);
+                setToConnected();
+                scheduleDisconnect(session);
+            }
+        });
+        device.connect(context, useAutoConnect, callback);
+    }
+
+    @Override
+    public void disconnect()
+    {
+        newSession();
+        m_notifying.clear();
+        if (m_peripheral.isConnected())
+        {
+            m_peripheral.setConnected(false);
+            m_simulator.onDisconnected(false);
+        }
+        super.disconnect();
+    }
+
+    @Override
+    public boolean discoverServices()
+    {
+        final int session = m_session;
+        final long start = m_simulator.now();
+        post(session, m_peripheral.config().discoveryLatency.nextMillis(m_peripheral.random()), () ->
+        {
+            m_simulator.onOperation(PeripheralSimulator.Operation.DISCOVER, m_simulator.now() - start);
+            setServicesDiscovered();
+        });
+        return true;
+    }
+
+    @Override
+    public boolean readCharacteristic(final BleCharacteristic characteristic)
+    {
+        final byte[] current = characteristic.getValue();
+        final byte[] value = current != null ? current : m_peripheral.nextNotificationValue();
+        respond(PeripheralSimulator.Operation.READ, characteristic, value);
+        return true;
+    }
+
+    @Override
+    public boolean writeCharacteristic(final BleCharacteristic characteristic)
+    {
+        respond(PeripheralSimulator.Operation.WRITE, characteristic, null);
+        return true;
+    }
+
+    @Override
+    public boolean setCharacteristicNotification(BleCharacteristic characteristic, boolean enable)
+    {
+        if (enable)
+        {
+            if (!m_notifying.contains(characteristic))
+                m_notifying.add(characteristic);
+            if (m_notifying.size() == 1)
+                scheduleNotifications(m_session);
+        }
+        else
+            m_notifying.remove(characteristic);
+        return true;
+    }
+
+    /**
+     * Descriptor, mtu, and phy responses go through the base class, so draw their latency from the peripheral as well.
+     */
+    @Override
+    public Interval getDelayTime()
+    {
+        return Interval.millis(m_peripheral.config().operationLatency.nextMillis(m_peripheral.random()));
+    }
+
+
+    private void respond(final PeripheralSimulator.Operation operation, final BleCharacteristic characteristic, final byte[] value)
+    {
+        final SimulatedPeripheral.Config config = m_peripheral.config();
+        final int session = m_session;
+        if (m_peripheral.roll(config.lossRate))
+        {
+            m_simulator.onLost(operation);
+            return;
+        }
+        final boolean error = m_peripheral.roll(config.errorRate);
+        final int status = error ? BleStatuses.GATT_ERROR : BleStatuses.GATT_SUCCESS;
+        final long start = m_simulator.now();
+        post(session, config.operationLatency.nextMillis(m_peripheral.random()), () ->
+        {
+            if (error)
+                m_simulator.onFailed(operation);
+            else
+                m_simulator.onOperation(operation, m_simulator.now() - start);
+
+            if (operation == PeripheralSimulator.Operation.READ)
+            {
+                if (!error)
+                    characteristic.setValue(value);
+                P_Bridge_BleDevice.onCharacteristicRead(m_device, P_GattHolder.NULL, characteristic, status);
+            }
+            else
+                P_Bridge_BleDevice.onCharacteristicWrite(m_device, P_GattHolder.NULL, characteristic, status);
+        });
+    }
+
+    private void scheduleDisconnect(final int session)
+    {
+        final long lifetime = m_peripheral.nextConnectionLifetime();
+        if (lifetime < 0)
+            return;
+        post(session, lifetime, () ->
+        {
+            newSession();
+            setGattNull(true);
+            m_peripheral.setConnected(false);
+            m_simulator.onDisconnected(true);
+            dropConnection(BleStatuses.CONN_TIMEOUT);
+        });
+    }
+
+    private void scheduleNotifications(final int session)
+    {
+        final Interval interval = m_peripheral.config().notificationInterval;
+        if (Interval.isDisabled(interval))
+            return;
+        post(session, interval.millis(), () ->
+        {
+            if (m_notifying.isEmpty() || !m_peripheral.isConnected())
+                return;
+            for (int i = 0; i < m_notifying.size(); i++)
+            {
+                final BleCharacteristic characteristic = m_notifying.get(i);
+                characteristic.setValue(m_peripheral.nextNotificationValue());
+                m_simulator.onNotification();
+                P_Bridge_BleDevice.onCharacteristicChanged(m_device, P_GattHolder.NULL, characteristic);
+            }
+            scheduleNotifications(session);
+        });
+    }
+
+    private void dropConnection(int gattStatus)
+    {
+        m_notifying.clear();
+        Util_Native.setToDisconnected(getBleDevice(), gattStatus, Interval.ZERO);
+    }
+
+    private int newSession()
+    {
+        return ++m_session;
+    }
+
+    private void post(final int session, long delay, final Runnable action)
+    {
+        P_Bridge_BleManager.postUpdateDelayed(m_device.getIManager(), () ->
+        {
+            if (session == m_session)
+                action.run();
+        }, delay);
+    }
+
+}
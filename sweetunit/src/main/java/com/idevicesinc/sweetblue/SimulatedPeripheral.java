@@ -0,0 +1,291 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue;
+
+
+import com.idevicesinc.sweetblue.utils.GattDatabase;
+import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.LatencyDistribution;
+import com.idevicesinc.sweetblue.utils.Utils_Byte;
+import com.idevicesinc.sweetblue.utils.Utils_ScanRecord;
+import com.idevicesinc.sweetblue.utils.Utils_String;
+import java.util.Random;
+
+
+/**
+ * A single peripheral driven by a {@link PeripheralSimulator}. Each peripheral owns its own {@link Random}, derived from the
+ * simulator's seed and the peripheral's index, so its mac address, RSSI walk, latencies, and injected faults are the same
+ * every time a simulation is run with the same seed, no matter how the peripherals' events end up interleaved.
+ */
+public final class SimulatedPeripheral
+{
+
+    /**
+     * Supplies the payload of each notification a connected {@link SimulatedPeripheral} sends.
+     */
+    public interface NotificationGenerator
+    {
+        /**
+         * Returns the payload of the <code>index</code>th notification sent by the given peripheral.
+         */
+        byte[] nextValue(SimulatedPeripheral peripheral, long index, Random random);
+    }
+
+    /**
+     * Default {@link NotificationGenerator}, which sends the notification index as a 4 byte counter.
+     */
+    public static final NotificationGenerator COUNTER_GENERATOR = new NotificationGenerator()
+    {
+        @Override
+        public byte[] nextValue(SimulatedPeripheral peripheral, long index, Random random)
+        {
+            return Utils_Byte.intToBytes((int) index);
+        }
+    };
+
+
+    /**
+     * Describes how a {@link SimulatedPeripheral} advertises, and how it behaves once connected. A single instance may be
+     * shared by any number of peripherals, as it is never modified by the simulator.
+     */
+    public static class Config implements Cloneable
+    {
+        /**
+         * The name advertised in the default scan record. A peripheral's index is appended to keep names unique.
+         */
+        public String name = "Simulated";
+
+        /**
+         * The raw scan record to advertise. If <code>null</code>, one is built from {@link #name}.
+         */
+        public byte[] scanRecord = null;
+
+        /**
+         * How often the peripheral advertises. As on real hardware, 0-10ms of random delay is added to every interval.
+         */
+        public Interval advertisingInterval = Interval.millis(100);
+
+        /**
+         * The RSSI of the first advertisement.
+         */
+        public int rssiStart = -65;
+
+        /**
+         * The largest change in RSSI between two advertisements. The RSSI performs a random walk bounded by {@link #rssiMin}
+         * and {@link #rssiMax}.
+         */
+        public int rssiWalkStep = 3;
+
+        public int rssiMin = -100;
+        public int rssiMax = -35;
+
+        /**
+         * If <code>false</code>, every connection attempt fails.
+         */
+        public boolean connectable = true;
+
+        /**
+         * The services this peripheral exposes once connected. If <code>null</code>, the peripheral has no services.
+         */
+        public GattDatabase gattDatabase = null;
+
+        public LatencyDistribution connectLatency = LatencyDistribution.uniform(150, 400);
+        public LatencyDistribution discoveryLatency = LatencyDistribution.uniform(50, 200);
+
+        /**
+         * Latency of reads, writes, and every other gatt operation.
+         */
+        public LatencyDistribution operationLatency = LatencyDistribution.logNormal(20, 0.5);
+
+        /**
+         * Chance (0-1) that a connection attempt fails with {@link BleStatuses#GATT_ERROR}.
+         */
+        public double connectFailRate = 0.0;
+
+        /**
+         * Chance (0-1) that a read or write never gets a response, leaving it to time out.
+         */
+        public double lossRate = 0.0;
+
+        /**
+         * Chance (0-1) that a read or write fails with {@link BleStatuses#GATT_ERROR}.
+         */
+        public double errorRate = 0.0;
+
+        /**
+         * The mean time a connection lasts before the peripheral drops it with {@link BleStatuses#CONN_TIMEOUT}. Connection
+         * lifetimes are exponentially distributed. {@link Interval#DISABLED} means the peripheral never drops the connection.
+         */
+        public Interval meanTimeBetweenDisconnects = Interval.DISABLED;
+
+        /**
+         * How often the peripheral notifies on each characteristic notifications have been enabled for.
+         * {@link Interval#DISABLED} means it never does.
+         */
+        public Interval notificationInterval = Interval.DISABLED;
+
+        public NotificationGenerator notificationGenerator = COUNTER_GENERATOR;
+
+
+        @Override
+        public Config clone()
+        {
+            try
+            {
+                return (Config) super.clone();
+            }
+            catch (CloneNotSupportedException e)
+            {
+                return null;
+            }
+        }
+    }
+
+
+    private final int m_index;
+    private final Config m_config;
+    private final Random m_random;
+    private final String m_macAddress;
+    private final byte[] m_scanRecord;
+
+    private int m_rssi;
+    private long m_nextAdvertisement;
+    private boolean m_connected;
+    private long m_notificationIndex;
+
+
+    SimulatedPeripheral(int index, long seed, Config config)
+    {
+        m_index = index;
+        m_config = config.clone();
+        m_random = new Random(seed * 31L + index);
+
+        final byte[] mac = new byte[6];
+        m_random.nextBytes(mac);
+        m_macAddress = Utils_String.bytesToMacAddress(mac);
+
+        m_scanRecord = m_config.scanRecord != null ? m_config.scanRecord : Utils_ScanRecord.newScanRecord(m_config.name + "-" + index);
+        m_rssi = clampRssi(m_config.rssiStart);
+    }
+
+
+    /**
+     * Returns the index of this peripheral within its {@link PeripheralSimulator}.
+     */
+    public final int getIndex()
+    {
+        return m_index;
+    }
+
+    public final String getMacAddress()
+    {
+        return m_macAddress;
+    }
+
+    /**
+     * Returns a copy of the {@link Config} this peripheral was created with.
+     */
+    public final Config getConfig()
+    {
+        return m_config.clone();
+    }
+
+    /**
+     * Returns the RSSI of the last advertisement.
+     */
+    public final int getRssi()
+    {
+        return m_rssi;
+    }
+
+    public final boolean isConnected()
+    {
+        return m_connected;
+    }
+
+
+    final Config config()
+    {
+        return m_config;
+    }
+
+    final Random random()
+    {
+        return m_random;
+    }
+
+    final byte[] scanRecord()
+    {
+        return m_scanRecord;
+    }
+
+    final long nextAdvertisement()
+    {
+        return m_nextAdvertisement;
+    }
+
+    final void scheduleAdvertisement(long now)
+    {
+        m_nextAdvertisement = now + m_config.advertisingInterval.millis() + m_random.nextInt(11);
+    }
+
+    final int walkRssi()
+    {
+        final int step = m_config.rssiWalkStep;
+        if (step > 0)
+            m_rssi = clampRssi(m_rssi + m_random.nextInt(step * 2 + 1) - step);
+        return m_rssi;
+    }
+
+    final void setConnected(boolean connected)
+    {
+        m_connected = connected;
+    }
+
+    final boolean roll(double chance)
+    {
+        return chance > 0.0 && m_random.nextDouble() < chance;
+    }
+
+    /**
+     * Returns how long the next connection will last, or -1 if the peripheral never drops connections.
+     */
+    final long nextConnectionLifetime()
+    {
+        if (Interval.isDisabled(m_config.meanTimeBetweenDisconnects))
+            return -1;
+        return (long) (-Math.log(1.0 - m_random.nextDouble()) * m_config.meanTimeBetweenDisconnects.millis());
+    }
+
+    final byte[] nextNotificationValue()
+    {
+        return m_config.notificationGenerator.nextValue(this, m_notificationIndex++, m_random);
+    }
+
+    private int clampRssi(int rssi)
+    {
+        return Math.max(m_config.rssiMin, Math.min(m_config.rssiMax, rssi));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SimulatedPeripheral[" + m_index + ", " + m_macAddress + "]";
+    }
+
+}
@@ -38,7 +38,9 @@ import com.idevicesinc.sweetblue.internal.android.AdapterConst;
 import com.idevicesinc.sweetblue.internal.android.P_DeviceHolder;
 import com.idevicesinc.sweetblue.internal.android.P_GattHolder;
 import com.idevicesinc.sweetblue.internal.android.ProfileConst;
+import com.idevicesinc.sweetblue.utils.Clock;
 import com.idevicesinc.sweetblue.utils.Interval;
+import com.idevicesinc.sweetblue.utils.ManualClock;
 import com.idevicesinc.sweetblue.utils.Phy;
 import com.idevicesinc.sweetblue.utils.Util_Unit;
 import com.idevicesinc.sweetblue.utils.Utils;
@@ -57,6 +59,8 @@ import java.util.UUID;
 public final class Util_Native
 {
 
+    private static final long ADVANCE_TIME_SETTLE_TIMEOUT = 5000;
+
     private static int m_requestId = 0;
 
     private static int nextRequestId()
@@ -68,6 +72,44 @@ public final class Util_Native
     {
     }
 
+    /**
+     * Overload of {@link #advanceTime(BleManager, Interval, Interval)}, which steps the clock by the manager's update rate, so that
+     * the update loop runs exactly as often as it would in real time.
+     */
+    public static void advanceTime(BleManager manager, Interval amount)
+    {
+        advanceTime(manager, amount, Interval.millis(P_Bridge_BleManager.getUpdateRate(manager.getIBleManager())));
+    }
+
+    /**
+     * Moves the manager's {@link ManualClock} (see {@link BleManagerConfig#clock}) ahead by the given amount, in increments of <code>step</code>.
+     * After each increment, this waits until everything which became due has run, so timeouts, reconnect attempts, and scan cycles
+     * all happen in order, just without waiting on the wall clock. A larger step runs faster, but the update loop only runs once per step.
+     * <br><br>
+     * This must not be called from SweetBlue's update thread, or from a callback posted to the (mocked) main thread.
+     *
+     * @throws IllegalStateException if the manager isn't using a {@link ManualClock}, or if its threads don't settle after a step.
+     */
+    public static void advanceTime(BleManager manager, Interval amount, Interval step)
+    {
+        final IBleManager mgr = manager.getIBleManager();
+        final Clock clock = mgr.getClock();
+        if (!(clock instanceof ManualClock))
+            throw new IllegalStateException("BleManagerConfig.clock must be a ManualClock to advance time.");
+
+        final ManualClock manualClock = (ManualClock) clock;
+        final long stepMs = Math.max(1, step.millis());
+        long remaining = amount.millis();
+        while (remaining > 0)
+        {
+            final long advanceBy = Math.min(stepMs, remaining);
+            manualClock.advance(advanceBy);
+            remaining -= advanceBy;
+            if (!P_Bridge_BleManager.awaitIdle(mgr, ADVANCE_TIME_SETTLE_TIMEOUT))
+                throw new IllegalStateException("SweetBlue's threads didn't settle within " + ADVANCE_TIME_SETTLE_TIMEOUT + "ms after advancing the clock.");
+        }
+    }
+
     /**
      * Overload of {@link #sendBluetoothStateChange(BleManager, int, int, Interval)}, with {@link Interval#ZERO} delay.
      */
@@ -386,11 +428,30 @@ public final class Util_Native
     }
 
     public static void readFromServer(final BleServer server, final String macAddress, final UUID characteristicUuid, Interval delay)
+    {
+        readFromServer(server, macAddress, characteristicUuid, 0, delay);
+    }
+
+    /**
+     * Send a callback to a server instance, mimicking a peripheral reading from the server, starting at the given offset (as in a long read).
+     */
+    public static void readFromServer(final BleServer server, final String macAddress, final UUID characteristicUuid, final int offset, Interval delay)
     {
         final BleCharacteristic ch = server.getNativeBleCharacteristic(characteristicUuid);
         P_Bridge_BleManager.postUpdateDelayed(fromServer(server), () ->
         {
-            P_Bridge_BleServer.onCharacteristicReadRequesst(server.getIBleServer(), P_DeviceHolder.newNullHolder(macAddress), nextRequestId(), 0, ch);
+            P_Bridge_BleServer.onCharacteristicReadRequesst(server.getIBleServer(), P_DeviceHolder.newNullHolder(macAddress), nextRequestId(), offset, ch);
+        }, delay.millis());
+    }
+
+    /**
+     * Send a callback to a server instance, mimicking the stack reporting that a notification (or indication) was delivered to the given client.
+     */
+    public static void sendNotificationSent(final BleServer server, final String macAddress, final int gattStatus, Interval delay)
+    {
+        P_Bridge_BleManager.postUpdateDelayed(fromServer(server), () ->
+        {
+            P_Bridge_BleServer.onNotificationSent(server.getIBleServer(), P_DeviceHolder.newNullHolder(macAddress), gattStatus);
         }, delay.millis());
     }
 
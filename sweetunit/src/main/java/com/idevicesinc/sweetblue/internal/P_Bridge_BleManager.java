@@ -112,6 +112,11 @@ public final class P_Bridge_BleManager
         return mgr.getUpdateRate();
     }
 
+    public static boolean awaitIdle(IBleManager mgr, long timeoutMs)
+    {
+        return mgr.getPostManager().awaitIdle(timeoutMs);
+    }
+
     public static PE_TaskPriority randomPriority(Random r)
     {
         return PE_TaskPriority.values()[r.nextInt(PE_TaskPriority.values().length)];
@@ -137,6 +142,36 @@ public final class P_Bridge_BleManager
         return mgr.getTaskManager().getSize();
     }
 
+    public static long getUpdateCount(IBleManager mgr)
+    {
+        return mgr.getTaskManager().getUpdateCount();
+    }
+
+    public static int getTxnLockCount(IBleManager mgr)
+    {
+        return mgr.getTaskManager().getTxnLockCount();
+    }
+
+    public static boolean isTxnLockInQueue(IBleManager mgr)
+    {
+        return mgr.getTaskManager().isInQueue(P_Task_TxnLock.class, mgr);
+    }
+
+    public static int getReconnectsInFlight(IBleManager mgr)
+    {
+        return mgr.getConnectionAdmissionManager().getInFlightCount();
+    }
+
+    public static double nextReconnectBackoff(IBleManager mgr, double base, double previous)
+    {
+        return mgr.getConnectionAdmissionManager().nextBackoff(base, previous);
+    }
+
+    public static int getReconnectsWaiting(IBleManager mgr)
+    {
+        return mgr.getConnectionAdmissionManager().getWaitingCount();
+    }
+
     public static void clearQueueOf(IBleManager mgr, Class<? extends PA_Task> clazz)
     {
         mgr.getTaskManager().clearQueueOf(clazz, mgr);
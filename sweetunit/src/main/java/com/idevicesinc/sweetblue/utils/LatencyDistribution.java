@@ -0,0 +1,102 @@
+/*
+
+  Copyright 2022 Hubbell Incorporated
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+
+  You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+
+ */
+
+package com.idevicesinc.sweetblue.utils;
+
+
+import java.util.Random;
+
+
+/**
+ * Describes how long a simulated operation takes to complete. Every draw takes the {@link Random} it should use, so that
+ * a simulation seeded with the same value produces the same sequence of latencies.
+ *
+ * @see com.idevicesinc.sweetblue.SimulatedPeripheral.Config
+ */
+public abstract class LatencyDistribution
+{
+
+    /**
+     * Returns the next latency, in milliseconds. This should never be negative.
+     */
+    public abstract long nextMillis(Random random);
+
+
+    /**
+     * Returns a distribution which always returns the given latency.
+     */
+    public static LatencyDistribution fixed(final long millis)
+    {
+        return new LatencyDistribution()
+        {
+            @Override
+            public long nextMillis(Random random)
+            {
+                return millis;
+            }
+        };
+    }
+
+    /**
+     * Returns a distribution which returns latencies evenly spread between the two values (inclusive).
+     */
+    public static LatencyDistribution uniform(final long minMillis, final long maxMillis)
+    {
+        final long span = Math.max(0, maxMillis - minMillis) + 1;
+        return new LatencyDistribution()
+        {
+            @Override
+            public long nextMillis(Random random)
+            {
+                return minMillis + (long) (random.nextDouble() * span);
+            }
+        };
+    }
+
+    /**
+     * Returns a normally distributed latency, clamped at zero.
+     */
+    public static LatencyDistribution normal(final double meanMillis, final double stdDevMillis)
+    {
+        return new LatencyDistribution()
+        {
+            @Override
+            public long nextMillis(Random random)
+            {
+                return Math.max(0L, Math.round(meanMillis + random.nextGaussian() * stdDevMillis));
+            }
+        };
+    }
+
+    /**
+     * Returns a log-normally distributed latency with the given median, and shape parameter <code>sigma</code>. This is a good
+     * fit for radio operations, which are usually fast but have a long tail of retransmissions.
+     */
+    public static LatencyDistribution logNormal(final double medianMillis, final double sigma)
+    {
+        final double mu = Math.log(Math.max(medianMillis, 1.0));
+        return new LatencyDistribution()
+        {
+            @Override
+            public long nextMillis(Random random)
+            {
+                return Math.round(Math.exp(mu + random.nextGaussian() * sigma));
+            }
+        };
+    }
+
+}